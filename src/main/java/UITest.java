@@ -2,30 +2,40 @@ import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
 import ui.MainFrame;
-
-import java.sql.SQLException;
+import util.StartupOrchestrator;
+import util.StartupTimeline;
 
 public class UITest extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        StartupTimeline timeline = StartupTimeline.getInstance();
+        timeline.mark("fx start");
         try {
-            // Start H2 web server
-            org.h2.tools.Server.createWebServer("-web", "-webAllowOthers", "-webPort", "8082").start();
-            
+            // Database, reference data and the optional H2 console come up while the window is built
+            StartupOrchestrator.getInstance().start()
+                .whenComplete((result, error) -> Platform.runLater(() -> startupComplete(timeline)));
+
             // Initialize UI
-            MainFrame mainFrame = new MainFrame();
+            MainFrame mainFrame = timeline.time("main frame", MainFrame::new);
             primaryStage.setTitle("Algo Trader");
             primaryStage.setScene(mainFrame.getScene());
-            primaryStage.show();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            timeline.time("window shown", primaryStage::show);
         } catch (Exception e) {
             e.printStackTrace();
             Platform.exit();
         }
     }
 
+    private static void startupComplete(StartupTimeline timeline) {
+        timeline.mark("startup complete");
+        timeline.log();
+        // Training run for the class data sharing archive, see README
+        if (Boolean.getBoolean("startup.exitAfterInit")) {
+            Platform.exit();
+        }
+    }
+
     @Override
     public void stop() {
         // Cleanup when application closes
@@ -34,6 +44,7 @@ public class UITest extends Application {
     }
 
     public static void main(String[] args) {
+        StartupTimeline.getInstance().mark("main");
         launch(args);
     }
 }
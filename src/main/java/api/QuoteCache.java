@@ -0,0 +1,246 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import com.upstox.api.MarketQuoteOHLC;
+
+import database.InstrumentRegistry;
+import model.Interval;
+import model.Stock;
+
+/**
+ * Shared OHLC snapshot cache keyed by instrument key and interval, so panes asking for overlapping
+ * symbols share network calls. Entries expire after a per-interval TTL, concurrent requests for the same
+ * key wait on one in-flight fetch, and the least recently used entries are evicted beyond maxEntries.
+ */
+public class QuoteCache {
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final BiFunction<List<String>, Interval, Map<String, MarketQuoteOHLC>> fetcher;
+    private final Map<Interval, Long> ttlNanos = new EnumMap<>(Interval.class);
+    private final LinkedHashMap<CacheKey, Entry> entries;
+    private final Map<CacheKey, CompletableFuture<MarketQuoteOHLC>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QuoteCache(BiFunction<List<String>, Interval, Map<String, MarketQuoteOHLC>> fetcher, int maxEntries) {
+        this.fetcher = fetcher;
+        setTtl(Interval.ONE_MINUTE, 5, TimeUnit.SECONDS);
+        setTtl(Interval.THIRTY_MINUTE, 60, TimeUnit.SECONDS);
+        setTtl(Interval.ONE_DAY, 5, TimeUnit.MINUTES);
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static class Holder {
+        private static final QuoteCache INSTANCE = new QuoteCache(
+            (keys, interval) -> QuoteSession.getInstance().getOHLCQuotesByKey(keys, interval), DEFAULT_MAX_ENTRIES);
+    }
+
+    public static QuoteCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void setTtl(Interval interval, long ttl, TimeUnit unit) {
+        ttlNanos.put(interval, unit.toNanos(ttl));
+    }
+
+    // Quotes keyed by instrument key. Keys the broker did not return are absent (or stale, if we had them).
+    public Map<String, MarketQuoteOHLC> get(List<String> instrumentKeys, Interval interval) {
+        long now = System.nanoTime();
+        Map<String, MarketQuoteOHLC> result = new HashMap<>();
+        Map<CacheKey, Entry> staleEntries = new HashMap<>();
+        List<CacheKey> toFetch = new ArrayList<>();
+        Map<CacheKey, CompletableFuture<MarketQuoteOHLC>> owned = new HashMap<>();
+        Map<CacheKey, CompletableFuture<MarketQuoteOHLC>> waiting = new HashMap<>();
+
+        synchronized (entries) {
+            for (String instrumentKey : instrumentKeys) {
+                CacheKey key = new CacheKey(instrumentKey, interval);
+                Entry entry = entries.get(key);
+                if (entry != null && now - entry.fetchedAt < ttlNanos.get(interval)) {
+                    hits.increment();
+                    result.put(instrumentKey, entry.quote);
+                    continue;
+                }
+                if (entry != null) {
+                    stale.increment();
+                    staleEntries.put(key, entry);
+                } else {
+                    misses.increment();
+                }
+                toFetch.add(key);
+            }
+        }
+
+        for (CacheKey key : toFetch) {
+            CompletableFuture<MarketQuoteOHLC> mine = new CompletableFuture<>();
+            CompletableFuture<MarketQuoteOHLC> existing = inFlight.putIfAbsent(key, mine);
+            if (existing == null) {
+                owned.put(key, mine);
+            } else {
+                coalesced.increment();
+                waiting.put(key, existing);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            fetch(owned, interval);
+        }
+        owned.forEach((key, future) -> putResult(result, key, future, staleEntries));
+        waiting.forEach((key, future) -> putResult(result, key, future, staleEntries));
+        return result;
+    }
+
+    // Always completes every owned future and clears it from inFlight, so waiters never hang on a failed fetch
+    private void fetch(Map<CacheKey, CompletableFuture<MarketQuoteOHLC>> owned, Interval interval) {
+        try {
+            List<String> keys = new ArrayList<>(owned.size());
+            owned.keySet().forEach(key -> keys.add(key.instrumentKey));
+            Map<String, MarketQuoteOHLC> fetched;
+            try {
+                fetched = fetcher.apply(keys, interval);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                fetched = Map.of();
+            }
+            long fetchedAt = System.nanoTime();
+            synchronized (entries) {
+                for (Map.Entry<CacheKey, CompletableFuture<MarketQuoteOHLC>> e : owned.entrySet()) {
+                    MarketQuoteOHLC quote = lookup(fetched, e.getKey().instrumentKey);
+                    if (quote != null) {
+                        entries.put(e.getKey(), new Entry(quote, fetchedAt));
+                    }
+                }
+            }
+            for (Map.Entry<CacheKey, CompletableFuture<MarketQuoteOHLC>> e : owned.entrySet()) {
+                inFlight.remove(e.getKey(), e.getValue());
+                e.getValue().complete(lookup(fetched, e.getKey().instrumentKey));
+            }
+        } catch (Throwable t) {
+            owned.values().forEach(future -> future.completeExceptionally(t));
+            throw t;
+        } finally {
+            owned.forEach(inFlight::remove);
+        }
+    }
+
+    // The OHLC endpoint keys its response by "SEGMENT:TRADING_SYMBOL" rather than by the instrument key we asked for
+    private static MarketQuoteOHLC lookup(Map<String, MarketQuoteOHLC> fetched, String instrumentKey) {
+        MarketQuoteOHLC quote = fetched.get(instrumentKey);
+        if (quote != null) {
+            return quote;
+        }
+        Stock stock = InstrumentRegistry.getInstance().getByInstrumentKey(instrumentKey);
+        int separator = instrumentKey.indexOf('|');
+        if (stock == null || separator < 0) {
+            return null;
+        }
+        return fetched.get(instrumentKey.substring(0, separator) + ":" + stock.getTrading_symbol());
+    }
+
+    private static void putResult(Map<String, MarketQuoteOHLC> result, CacheKey key,
+                                  CompletableFuture<MarketQuoteOHLC> future, Map<CacheKey, Entry> staleEntries) {
+        MarketQuoteOHLC quote = future.join();
+        if (quote == null && staleEntries.containsKey(key)) {
+            // Better an old quote than none when the refresh failed
+            quote = staleEntries.get(key).quote;
+        }
+        if (quote != null) {
+            result.put(key.instrumentKey, quote);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getStale() {
+        return stale.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return String.format("QuoteCache[size=%d, hits=%d, misses=%d, stale=%d, coalesced=%d, evictions=%d]",
+            size, getHits(), getMisses(), getStale(), getCoalesced(), getEvictions());
+    }
+
+    private static final class CacheKey {
+        private final String instrumentKey;
+        private final Interval interval;
+
+        CacheKey(String instrumentKey, Interval interval) {
+            this.instrumentKey = instrumentKey;
+            this.interval = interval;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return interval == other.interval && instrumentKey.equals(other.instrumentKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(instrumentKey, interval);
+        }
+    }
+
+    private static final class Entry {
+        private final MarketQuoteOHLC quote;
+        private final long fetchedAt;
+
+        Entry(MarketQuoteOHLC quote, long fetchedAt) {
+            this.quote = quote;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
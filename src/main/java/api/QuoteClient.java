@@ -0,0 +1,103 @@
+package api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.upstox.ApiException;
+import com.upstox.api.MarketQuoteOHLC;
+
+import model.Interval;
+
+/**
+ * Splits large OHLC requests into chunks that respect the broker's per-request symbol limit, fetches the
+ * chunks concurrently (bounded by the size of the worker pool) and merges the results. A failed chunk
+ * is retried on its own with exponential backoff; the other chunks are unaffected.
+ */
+public class QuoteClient {
+    public static final int MAX_KEYS_PER_REQUEST = 500;
+    public static final int DEFAULT_MAX_CONCURRENT = 4;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long INITIAL_BACKOFF_MILLIS = 200;
+
+    // Fetches one chunk: a comma separated list of at most chunkSize instrument keys
+    @FunctionalInterface
+    public interface ChunkFetcher {
+        Map<String, MarketQuoteOHLC> fetch(String instrumentKeys, Interval interval) throws ApiException;
+    }
+
+    private final ChunkFetcher fetcher;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final ExecutorService executor;
+
+    public QuoteClient(ChunkFetcher fetcher) {
+        this(fetcher, MAX_KEYS_PER_REQUEST, DEFAULT_MAX_CONCURRENT, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public QuoteClient(ChunkFetcher fetcher, int chunkSize, int maxConcurrent, int maxAttempts) {
+        this.fetcher = fetcher;
+        this.chunkSize = chunkSize;
+        this.maxAttempts = maxAttempts;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread t = new Thread(r, "quote-fetch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Returns every quote that could be fetched; chunks that still fail after retrying are logged and skipped
+    public Map<String, MarketQuoteOHLC> getOHLCQuotes(List<String> instrumentKeys, Interval interval) {
+        Map<String, MarketQuoteOHLC> quotes = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < instrumentKeys.size(); from += chunkSize) {
+            String keys = String.join(",", instrumentKeys.subList(from, Math.min(from + chunkSize, instrumentKeys.size())));
+            chunks.add(CompletableFuture.runAsync(() -> {
+                Map<String, MarketQuoteOHLC> result = fetchWithRetry(keys, interval);
+                if (result != null) {
+                    quotes.putAll(result);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+        return quotes;
+    }
+
+    private Map<String, MarketQuoteOHLC> fetchWithRetry(String keys, Interval interval) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return fetcher.fetch(keys, interval);
+            } catch (ApiException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    System.err.println("Quote chunk failed after " + attempt + " attempt(s): HTTP " + e.getCode());
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            backoff *= 2;
+        }
+    }
+
+    // Network errors (code 0), throttling and server errors are worth retrying; other 4xx are not
+    private static boolean isRetryable(ApiException e) {
+        int code = e.getCode();
+        return code == 0 || code == 429 || code >= 500;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
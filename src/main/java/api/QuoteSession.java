@@ -0,0 +1,136 @@
+package api;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.upstox.ApiClient;
+import com.upstox.ApiException;
+import com.upstox.Configuration;
+import com.upstox.api.MarketQuoteOHLC;
+import com.upstox.auth.OAuth;
+
+import authentication.AccessToken;
+import authentication.AccessTokenExpiredException;
+import database.DatabaseManager;
+import io.swagger.client.api.MarketQuoteApi;
+import model.Interval;
+import model.Stock;
+
+/**
+ * Long-lived quote session. Holds one ApiClient (and with it the HTTP connection pool) and one
+ * MarketQuoteApi for the life of the app, and keeps the access token in memory until it expires or
+ * the broker rejects it, so a quote poll no longer starts with a JDBC round-trip. A missing token is
+ * remembered for a few seconds as well, so polls made while logged out do not each go to H2.
+ */
+public class QuoteSession {
+    private static final String API_VERSION = "v2";
+    private static final int HTTP_UNAUTHORIZED = 401;
+    // How long a missing or expired token is remembered before H2 is asked again
+    private static final long NO_TOKEN_TTL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ApiClient apiClient;
+    private final OAuth oauth;
+    private final MarketQuoteApi marketQuoteApi;
+    private final QuoteClient quoteClient;
+
+    private volatile AccessToken accessToken;
+    private volatile long noTokenUntil = System.nanoTime();
+    private final AtomicLong tokenLoads = new AtomicLong();
+
+    private QuoteSession() {
+        apiClient = Configuration.getDefaultApiClient();
+        oauth = (OAuth) apiClient.getAuthentication("OAUTH2");
+        marketQuoteApi = new MarketQuoteApi(apiClient);
+        quoteClient = new QuoteClient(this::fetchChunk);
+    }
+
+    private static class Holder {
+        private static final QuoteSession INSTANCE = new QuoteSession();
+    }
+
+    public static QuoteSession getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public Map<String, MarketQuoteOHLC> getOHLCQuotes(List<Stock> stocks, Interval interval) {
+        List<String> instrumentKeys = stocks.stream()
+            .map(Stock::getInstrument_key)
+            .collect(Collectors.toList());
+        return getOHLCQuotesByKey(instrumentKeys, interval);
+    }
+
+    public Map<String, MarketQuoteOHLC> getOHLCQuotesByKey(List<String> instrumentKeys, Interval interval) {
+        return quoteClient.getOHLCQuotes(instrumentKeys, interval);
+    }
+
+    private Map<String, MarketQuoteOHLC> fetchChunk(String instrumentKeys, Interval interval) throws ApiException {
+        ensureToken();
+        try {
+            return requestOHLC(instrumentKeys, interval);
+        } catch (ApiException e) {
+            if (e.getCode() != HTTP_UNAUTHORIZED) {
+                throw e;
+            }
+            // The token was replaced or revoked behind our back; re-read it once and retry
+            invalidateToken();
+            ensureToken();
+            return requestOHLC(instrumentKeys, interval);
+        }
+    }
+
+    // Identical chunk requests that are still waiting for a permit are answered by one call
+    private Map<String, MarketQuoteOHLC> requestOHLC(String instrumentKeys, Interval interval) throws ApiException {
+        return RequestScheduler.getInstance().execute(RequestScheduler.Priority.QUOTE,
+            "ohlc:" + interval.getValue() + ":" + instrumentKeys,
+            () -> marketQuoteApi.getMarketQuoteOHLC(instrumentKeys, interval.getValue(), API_VERSION).getData());
+    }
+
+    private void ensureToken() {
+        AccessToken current = accessToken;
+        if (current != null && !current.isExpired() || System.nanoTime() - noTokenUntil < 0) {
+            return;
+        }
+        synchronized (this) {
+            current = accessToken;
+            if (current != null && !current.isExpired() || System.nanoTime() - noTokenUntil < 0) {
+                return;
+            }
+            try {
+                tokenLoads.incrementAndGet();
+                current = DatabaseManager.getInstance().getAccessToken();
+                oauth.setAccessToken(current.getToken());
+                accessToken = current;
+            } catch (AccessTokenExpiredException | SQLException e) {
+                accessToken = null;
+                noTokenUntil = System.nanoTime() + NO_TOKEN_TTL_NANOS;
+                System.err.println("Token expired, starting authorization");
+            }
+        }
+    }
+
+    // Token for the other broker endpoints (orders), or null when the user has to log in again
+    public String getAccessToken() {
+        ensureToken();
+        AccessToken current = accessToken;
+        return current == null ? null : current.getToken();
+    }
+
+    // Forces the next call to re-read the token from H2, e.g. after a fresh login
+    public void invalidateToken() {
+        accessToken = null;
+        noTokenUntil = System.nanoTime();
+    }
+
+    // Number of times the token had to be read from H2
+    public long getTokenLoads() {
+        return tokenLoads.get();
+    }
+
+    public ApiClient getApiClient() {
+        return apiClient;
+    }
+}
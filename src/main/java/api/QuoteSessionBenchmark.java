@@ -0,0 +1,58 @@
+package api;
+
+import java.sql.SQLException;
+
+import authentication.AccessTokenExpiredException;
+import database.DatabaseManager;
+
+/**
+ * Cost of {@link QuoteSession#getAccessToken()}, which every quote poll and order call goes through,
+ * against reading the token from H2 each time. Works with or without a stored token: without one it
+ * measures the cached "no token" answer. Reports ns per call and how many H2 reads the session made.
+ *
+ * <pre>java -cp ... api.QuoteSessionBenchmark [calls]</pre>
+ */
+public class QuoteSessionBenchmark {
+    private static final int WARMUP = 1_000_000;
+    private static final int DATABASE_CALLS = 1_000;
+
+    private QuoteSessionBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        QuoteSession session = QuoteSession.getInstance();
+        DatabaseManager database = DatabaseManager.getInstance();
+
+        long sink = run(session, WARMUP);
+        long loadsBefore = session.getTokenLoads();
+        long start = System.nanoTime();
+        sink += run(session, calls);
+        long sessionNanos = System.nanoTime() - start;
+        long loads = session.getTokenLoads() - loadsBefore;
+
+        start = System.nanoTime();
+        for (int i = 0; i < DATABASE_CALLS; i++) {
+            try {
+                sink += database.getAccessToken().getToken().length();
+            } catch (AccessTokenExpiredException | SQLException e) {
+                sink++;
+            }
+        }
+        long databaseNanos = System.nanoTime() - start;
+
+        System.out.printf("token %s%n", session.getAccessToken() == null ? "missing" : "present");
+        System.out.printf("session: %.1f ns/call, %d H2 reads in %d calls over %.1f s%n",
+            (double) sessionNanos / calls, loads, calls, sessionNanos / 1e9);
+        System.out.printf("H2:      %.1f us/call (checksum %d)%n", databaseNanos / 1e3 / DATABASE_CALLS, sink);
+    }
+
+    private static long run(QuoteSession session, int calls) {
+        long sum = 0;
+        for (int i = 0; i < calls; i++) {
+            String token = session.getAccessToken();
+            sum += token == null ? 1 : token.length();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,50 @@
+package api;
+
+import java.util.concurrent.TimeUnit;
+
+// Token bucket: holds up to 'capacity' permits and refills at 'permitsPerSecond'.
+public class RateLimiter {
+    private final double capacity;
+    private final double permitsPerNano;
+    private double available;
+    private long lastRefill;
+
+    public RateLimiter(double permitsPerSecond, int capacity) {
+        this.capacity = capacity;
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.available = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    // Blocks until a permit is available and returns how long the caller waited, in nanoseconds
+    public long acquire() throws InterruptedException {
+        long start = System.nanoTime();
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (available >= 1) {
+                    available -= 1;
+                    return System.nanoTime() - start;
+                }
+                waitNanos = (long) Math.ceil((1 - available) / permitsPerNano);
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (available >= 1) {
+            available -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,268 @@
+package api;
+
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.upstox.ApiException;
+
+/**
+ * Single entry point for broker API calls. Requests wait in priority queues and one granting thread hands
+ * out permits from a token bucket sized to the broker's rate limit, so bursts are smoothed out client-side
+ * instead of being answered with 429s. Each permit goes to the highest-priority request waiting at the
+ * moment it is granted, and only when a dispatcher is free to run it: orders before quotes before bulk
+ * history. One dispatcher is reserved for orders, so an order never waits for a slow quote or history call
+ * to finish; orders may also use a free general dispatcher. Requests with the same coalescing key that
+ * have not started share one call.
+ */
+public class RequestScheduler {
+
+    public enum Priority {
+        ORDER,
+        QUOTE,
+        HISTORY
+    }
+
+    private static final String RATE_PROPERTY = "upstox.rateLimit.perSecond";
+    private static final int DEFAULT_PERMITS_PER_SECOND = 25;
+    private static final int DISPATCHER_THREADS = 4;
+
+    private final RateLimiter rateLimiter;
+    private final ExecutorService orderDispatcher;
+    private final ExecutorService dispatchers;
+    private final Map<String, Request<?>> queuedByKey = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Guarded by lock; only the granting thread takes requests and claims idle dispatchers
+    private final Object lock = new Object();
+    private final PriorityQueue<Request<?>> orders = new PriorityQueue<>();
+    private final PriorityQueue<Request<?>> queue = new PriorityQueue<>();
+    private boolean orderDispatcherIdle = true;
+    private int idleDispatchers;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder totalPermitWaitNanos = new LongAdder();
+    private final AtomicLong maxPermitWaitNanos = new AtomicLong();
+    private final LongAdder totalQueueWaitNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+    // dispatcherThreads serve quotes, history and overflow orders; one more thread is reserved for orders
+    public RequestScheduler(double permitsPerSecond, int burst, int dispatcherThreads) {
+        this.rateLimiter = new RateLimiter(permitsPerSecond, burst);
+        this.orderDispatcher = Executors.newSingleThreadExecutor(daemon("broker-dispatch-order"));
+        this.dispatchers = Executors.newFixedThreadPool(dispatcherThreads, daemon("broker-dispatch-"));
+        this.idleDispatchers = dispatcherThreads;
+        Thread granter = daemon("broker-permits").newThread(this::grantLoop);
+        granter.start();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name.endsWith("-") ? name + count.incrementAndGet() : name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static class Holder {
+        private static final int RATE = Integer.getInteger(RATE_PROPERTY, DEFAULT_PERMITS_PER_SECOND);
+        private static final RequestScheduler INSTANCE = new RequestScheduler(RATE, RATE, DISPATCHER_THREADS);
+    }
+
+    public static RequestScheduler getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public <T> CompletableFuture<T> submit(Priority priority, Callable<T> call) {
+        return submit(priority, null, call);
+    }
+
+    // Requests with the same non-null coalesceKey that are still queued share a single call and result
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(Priority priority, String coalesceKey, Callable<T> call) {
+        submitted.increment();
+        Request<T> request = new Request<>(priority, sequence.incrementAndGet(), coalesceKey, call);
+        if (coalesceKey != null) {
+            Request<?> existing = queuedByKey.putIfAbsent(coalesceKey, request);
+            if (existing != null) {
+                coalesced.increment();
+                return (CompletableFuture<T>) existing.future;
+            }
+        }
+        synchronized (lock) {
+            (priority == Priority.ORDER ? orders : queue).add(request);
+            lock.notifyAll();
+        }
+        return request.future;
+    }
+
+    // Blocking form for callers that speak the SDK's exception type
+    public <T> T execute(Priority priority, String coalesceKey, Callable<T> call) throws ApiException {
+        try {
+            return submit(priority, coalesceKey, call).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ApiException) {
+                throw (ApiException) e.getCause();
+            }
+            throw new ApiException(e.getCause());
+        }
+    }
+
+    // Waits until some request could run now, takes a permit, then gives it to the best request at that moment
+    private void grantLoop() {
+        while (true) {
+            long permitWait;
+            try {
+                synchronized (lock) {
+                    while (!dispatchable()) {
+                        lock.wait();
+                    }
+                }
+                // Only requests and free dispatchers added since the check, so one is still dispatchable
+                permitWait = rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Request<?> request;
+            ExecutorService dispatcher;
+            synchronized (lock) {
+                if (!orders.isEmpty() && (orderDispatcherIdle || idleDispatchers > 0)) {
+                    request = orders.poll();
+                    if (orderDispatcherIdle) {
+                        orderDispatcherIdle = false;
+                        dispatcher = orderDispatcher;
+                    } else {
+                        idleDispatchers--;
+                        dispatcher = dispatchers;
+                    }
+                } else {
+                    request = queue.poll();
+                    idleDispatchers--;
+                    dispatcher = dispatchers;
+                }
+            }
+            record(permitWait, System.nanoTime() - request.enqueuedAt);
+            if (request.coalesceKey != null) {
+                // Later identical requests must not attach to a call that has already started
+                queuedByKey.remove(request.coalesceKey, request);
+            }
+            dispatched.increment();
+            dispatcher.execute(() -> {
+                try {
+                    request.run();
+                } finally {
+                    synchronized (lock) {
+                        if (dispatcher == orderDispatcher) {
+                            orderDispatcherIdle = true;
+                        } else {
+                            idleDispatchers++;
+                        }
+                        lock.notifyAll();
+                    }
+                }
+            });
+        }
+    }
+
+    private boolean dispatchable() {
+        return !orders.isEmpty() && (orderDispatcherIdle || idleDispatchers > 0) || !queue.isEmpty() && idleDispatchers > 0;
+    }
+
+    private void record(long permitWait, long queueWait) {
+        totalPermitWaitNanos.add(permitWait);
+        maxPermitWaitNanos.accumulateAndGet(permitWait, Math::max);
+        totalQueueWaitNanos.add(queueWait);
+        maxQueueWaitNanos.accumulateAndGet(queueWait, Math::max);
+    }
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size() + orders.size();
+        }
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    public long getTotalPermitWaitNanos() {
+        return totalPermitWaitNanos.sum();
+    }
+
+    public long getMaxPermitWaitNanos() {
+        return maxPermitWaitNanos.get();
+    }
+
+    // From submission to dispatch, permit wait included
+    public long getTotalQueueWaitNanos() {
+        return totalQueueWaitNanos.sum();
+    }
+
+    public long getMaxQueueWaitNanos() {
+        return maxQueueWaitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        long count = getDispatched();
+        return String.format("RequestScheduler[queued=%d, submitted=%d, coalesced=%d, dispatched=%d, "
+                + "avgPermitWait=%.1fms, maxPermitWait=%.1fms, avgQueueWait=%.1fms, maxQueueWait=%.1fms]",
+            getQueueDepth(), getSubmitted(), getCoalesced(), count,
+            count == 0 ? 0.0 : getTotalPermitWaitNanos() / 1e6 / count, getMaxPermitWaitNanos() / 1e6,
+            count == 0 ? 0.0 : getTotalQueueWaitNanos() / 1e6 / count, getMaxQueueWaitNanos() / 1e6);
+    }
+
+    private static class Request<T> implements Comparable<Request<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final String coalesceKey;
+        private final Callable<T> call;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+
+        Request(Priority priority, long sequence, String coalesceKey, Callable<T> call) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.coalesceKey = coalesceKey;
+            this.call = call;
+        }
+
+        void run() {
+            try {
+                future.complete(call.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        // Higher priority first, FIFO within a priority
+        @Override
+        public int compareTo(Request<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package authentication;
+
+public class AccessToken {
+    private final String token;
+    private final long expiresAt;
+
+    public AccessToken(String token, long expiresAt) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    // Epoch millis after which the broker will reject the token
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+}
@@ -1,6 +1,7 @@
 package authentication;
 
 public class AccessTokenExpiredException extends Exception {
+    private static final long serialVersionUID = 1L;
 
     public AccessTokenExpiredException(String message) {
         super(message);
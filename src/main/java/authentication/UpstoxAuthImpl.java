@@ -22,6 +22,7 @@ import org.json.JSONObject;
 
 import com.sun.net.httpserver.HttpsServer;
 
+import api.QuoteSession;
 import database.DatabaseManager;
 
 import com.sun.net.httpserver.HttpsConfigurator;
@@ -187,7 +188,8 @@ public class UpstoxAuthImpl implements Authenticator {
             String tokenString = jsonResponse.getString("access_token");
             System.out.println("Access token response: " + tokenString);
             DatabaseManager dbManager = DatabaseManager.getInstance();
-            dbManager.saveToken(tokenString);                
+            dbManager.saveToken(tokenString);
+            QuoteSession.getInstance().invalidateToken();
         }
 
         conn.disconnect();
@@ -11,6 +11,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.function.Consumer;
 
+import api.QuoteSession;
 import database.DatabaseManager;
 import org.json.JSONObject;
 import com.sun.net.httpserver.HttpsConfigurator;
@@ -106,6 +107,7 @@ public class AuthoriseUI {
                 System.out.println("Access token response: " + tokenString);
                 DatabaseManager dbManager = DatabaseManager.getInstance();
                 dbManager.saveToken(tokenString);
+                QuoteSession.getInstance().invalidateToken();
                 if (tokenCallback != null) {
                     tokenCallback.accept(tokenString);
                 }
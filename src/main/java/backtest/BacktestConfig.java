@@ -0,0 +1,35 @@
+package backtest;
+
+/**
+ * Account and execution assumptions for a backtest run.
+ *
+ * commissionRate is a fraction of traded value (0.0003 = 3 bps); slippageTicks moves every market fill
+ * against the order by that many ticks.
+ */
+public class BacktestConfig {
+    private final double initialCash;
+    private final double commissionRate;
+    private final int slippageTicks;
+
+    public BacktestConfig(double initialCash, double commissionRate, int slippageTicks) {
+        this.initialCash = initialCash;
+        this.commissionRate = commissionRate;
+        this.slippageTicks = slippageTicks;
+    }
+
+    public static BacktestConfig defaults() {
+        return new BacktestConfig(1_000_000, 0.0003, 1);
+    }
+
+    public double getInitialCash() {
+        return initialCash;
+    }
+
+    public double getCommissionRate() {
+        return commissionRate;
+    }
+
+    public int getSlippageTicks() {
+        return slippageTicks;
+    }
+}
@@ -0,0 +1,235 @@
+package backtest;
+
+import java.util.Arrays;
+
+import history.Candles;
+import model.Stock;
+
+/**
+ * State of a single backtest run: cash, positions and pending orders, indexed by instrument.
+ *
+ * Orders are executed on the instrument's next bar. Market orders fill at that bar's open moved by the
+ * configured slippage; limit orders rest until a bar trades through the limit and fill at the limit or at a
+ * better open. Quantities are rounded toward zero to whole lots and prices to the instrument's tick size
+ * (against the trader), and buys are cut down to what the cash balance can pay for.
+ */
+public class BacktestContext {
+    private final BacktestData data;
+    private final BacktestConfig config;
+
+    private double cash;
+    private double marketValue;
+    private final int[] position;
+    private final double[] lastPrice;
+    private final int[] bar;
+    private long time = Long.MIN_VALUE;
+
+    private final int[] marketQuantity;
+    private final int[] limitQuantity;
+    private final double[] limitPrice;
+
+    private double peakEquity;
+    private double maxDrawdown;
+    private int trades;
+    private int rejected;
+    private double commission;
+
+    BacktestContext(BacktestData data, BacktestConfig config) {
+        this.data = data;
+        this.config = config;
+        int n = data.instrumentCount();
+        cash = config.getInitialCash();
+        peakEquity = cash;
+        position = new int[n];
+        lastPrice = new double[n];
+        bar = new int[n];
+        marketQuantity = new int[n];
+        limitQuantity = new int[n];
+        limitPrice = new double[n];
+        Arrays.fill(bar, -1);
+    }
+
+    // Executes pending orders against the new bar, then marks the position to its close
+    void onBar(int instrument, int index) {
+        Candles candles = data.getCandles(instrument);
+        double open = candles.open[index];
+        marketValue += position[instrument] * (open - lastPrice[instrument]);
+        lastPrice[instrument] = open;
+
+        if (marketQuantity[instrument] != 0) {
+            int quantity = marketQuantity[instrument];
+            marketQuantity[instrument] = 0;
+            double tick = data.getStock(instrument).getTick_size();
+            double price = roundToTick(open + Integer.signum(quantity) * config.getSlippageTicks() * tick, tick, quantity > 0);
+            fill(instrument, quantity, price);
+        }
+        if (limitQuantity[instrument] > 0 && candles.low[index] <= limitPrice[instrument]) {
+            fill(instrument, limitQuantity[instrument], Math.min(open, limitPrice[instrument]));
+            limitQuantity[instrument] = 0;
+        } else if (limitQuantity[instrument] < 0 && candles.high[index] >= limitPrice[instrument]) {
+            fill(instrument, limitQuantity[instrument], Math.max(open, limitPrice[instrument]));
+            limitQuantity[instrument] = 0;
+        }
+
+        double close = candles.close[index];
+        marketValue += position[instrument] * (close - lastPrice[instrument]);
+        lastPrice[instrument] = close;
+        bar[instrument] = index;
+        time = candles.timestamps[index];
+
+        double equity = equity();
+        if (equity > peakEquity) {
+            peakEquity = equity;
+        } else if (peakEquity > 0) {
+            maxDrawdown = Math.max(maxDrawdown, (peakEquity - equity) / peakEquity);
+        }
+    }
+
+    private void fill(int instrument, int quantity, double price) {
+        if (quantity > 0) {
+            int lot = lotSize(instrument);
+            int affordable = (int) (cash / (price * (1 + config.getCommissionRate())) / lot) * lot;
+            if (affordable < quantity) {
+                quantity = Math.max(affordable, 0);
+            }
+            if (quantity == 0) {
+                rejected++;
+                return;
+            }
+        }
+        double value = Math.abs(quantity) * price;
+        double fee = value * config.getCommissionRate();
+        cash -= quantity * price + fee;
+        commission += fee;
+        // New shares are marked at the bar open like the rest of the position
+        marketValue += quantity * lastPrice[instrument];
+        position[instrument] += quantity;
+        trades++;
+    }
+
+    static double roundToTick(double price, double tick, boolean up) {
+        if (tick <= 0) {
+            return price;
+        }
+        double ticks = price / tick;
+        return (up ? Math.ceil(ticks - 1e-9) : Math.floor(ticks + 1e-9)) * tick;
+    }
+
+    private int lotSize(int instrument) {
+        return Math.max(1, data.getStock(instrument).getLot_size());
+    }
+
+    private int toLots(int instrument, int quantity) {
+        int lot = lotSize(instrument);
+        return quantity / lot * lot;
+    }
+
+    /**
+     * Queues a market order for the next bar; positive quantities buy, negative sell. Returns the quantity
+     * after rounding to whole lots, or 0 if nothing was queued.
+     */
+    public int order(int instrument, int quantity) {
+        int lots = toLots(instrument, quantity);
+        if (lots == 0) {
+            if (quantity != 0) {
+                rejected++;
+            }
+            return 0;
+        }
+        marketQuantity[instrument] += lots;
+        return lots;
+    }
+
+    // Replaces any resting limit order on the instrument
+    public int limitOrder(int instrument, int quantity, double price) {
+        int lots = toLots(instrument, quantity);
+        if (lots == 0 || price <= 0) {
+            rejected++;
+            return 0;
+        }
+        limitQuantity[instrument] = lots;
+        limitPrice[instrument] = roundToTick(price, data.getStock(instrument).getTick_size(), lots < 0);
+        return lots;
+    }
+
+    // Orders the difference between the target and the current position plus queued market orders
+    public int orderTarget(int instrument, int target) {
+        return order(instrument, target - position[instrument] - marketQuantity[instrument]);
+    }
+
+    public void cancel(int instrument) {
+        marketQuantity[instrument] = 0;
+        limitQuantity[instrument] = 0;
+    }
+
+    public int instrumentCount() {
+        return data.instrumentCount();
+    }
+
+    public Stock getStock(int instrument) {
+        return data.getStock(instrument);
+    }
+
+    // Index of the instrument's latest bar, or -1 before its first bar
+    public int getBar(int instrument) {
+        return bar[instrument];
+    }
+
+    public double getClose(int instrument) {
+        return lastPrice[instrument];
+    }
+
+    // Past bars only, 0 to getBar(instrument): the shared series also holds bars that have not happened yet
+    public long getTimestamp(int instrument, int index) {
+        return data.getCandles(instrument).timestamps[checkBar(instrument, index)];
+    }
+
+    public double getOpen(int instrument, int index) {
+        return data.getCandles(instrument).open[checkBar(instrument, index)];
+    }
+
+    public double getHigh(int instrument, int index) {
+        return data.getCandles(instrument).high[checkBar(instrument, index)];
+    }
+
+    public double getLow(int instrument, int index) {
+        return data.getCandles(instrument).low[checkBar(instrument, index)];
+    }
+
+    public double getClose(int instrument, int index) {
+        return data.getCandles(instrument).close[checkBar(instrument, index)];
+    }
+
+    public long getVolume(int instrument, int index) {
+        return data.getCandles(instrument).volume[checkBar(instrument, index)];
+    }
+
+    private int checkBar(int instrument, int index) {
+        if (index < 0 || index > bar[instrument]) {
+            throw new IndexOutOfBoundsException("Bar " + index + " of " + data.getStock(instrument).getSymbol()
+                + " is not in the past; latest is " + bar[instrument]);
+        }
+        return index;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getPosition(int instrument) {
+        return position[instrument];
+    }
+
+    public double getCash() {
+        return cash;
+    }
+
+    public double equity() {
+        return cash + marketValue;
+    }
+
+    BacktestResult result(Parameters parameters, long bars) {
+        return new BacktestResult(parameters, config.getInitialCash(), equity(), maxDrawdown, trades, rejected,
+            commission, bars, null);
+    }
+}
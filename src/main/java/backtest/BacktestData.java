@@ -0,0 +1,144 @@
+package backtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import database.DatabaseManager;
+import history.CandleSeries;
+import history.CandleStore;
+import history.Candles;
+import model.Interval;
+import model.Stock;
+
+/**
+ * Candles for a fixed set of instruments, loaded once and shared read-only by every backtest run, plus the
+ * replay order: all bars merged by timestamp, ties broken by instrument index so replays are deterministic.
+ */
+public class BacktestData {
+    private final List<Stock> stocks;
+    private final Candles[] candles;
+    private final int[] eventInstrument;
+    private final int[] eventBar;
+
+    public BacktestData(List<Stock> stocks, Candles[] candles) {
+        this.stocks = List.copyOf(stocks);
+        this.candles = candles;
+        int events = 0;
+        for (Candles c : candles) {
+            events += c.size();
+        }
+        eventInstrument = new int[events];
+        eventBar = new int[events];
+        merge();
+    }
+
+    public static BacktestData loadNifty50(Interval interval, long from, long to) {
+        return load(DatabaseManager.getInstance().getNifty50FromDB(), CandleStore.getInstance(), interval, from, to);
+    }
+
+    public static BacktestData load(List<Stock> stocks, CandleStore store, Interval interval, long from, long to) {
+        List<Stock> loaded = new ArrayList<>();
+        List<Candles> series = new ArrayList<>();
+        for (Stock stock : stocks) {
+            CandleSeries stored = store.open(stock.getInstrument_key(), interval);
+            Candles bars = new Candles(16);
+            if (stored.read(from, to, bars) == 0) {
+                System.out.println("No " + interval.getValue() + " candles stored for " + stock.getSymbol() + ", skipping");
+                continue;
+            }
+            loaded.add(stock);
+            series.add(bars);
+        }
+        BacktestData data = new BacktestData(loaded, series.toArray(new Candles[0]));
+        System.out.println("Backtest data: " + data.instrumentCount() + " instruments, " + data.eventCount() + " bars");
+        return data;
+    }
+
+    // K-way merge of the per-instrument series with a binary heap of instrument indexes
+    private void merge() {
+        int n = candles.length;
+        int[] cursor = new int[n];
+        int[] heap = new int[n];
+        int heapSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (candles[i].size() > 0) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, cursor);
+            }
+        }
+        int event = 0;
+        while (heapSize > 0) {
+            int instrument = heap[0];
+            eventInstrument[event] = instrument;
+            eventBar[event++] = cursor[instrument]++;
+            if (cursor[instrument] == candles[instrument].size()) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, cursor);
+        }
+    }
+
+    private boolean before(int a, int b, int[] cursor) {
+        long ta = candles[a].timestamps[cursor[a]];
+        long tb = candles[b].timestamps[cursor[b]];
+        return ta < tb || (ta == tb && a < b);
+    }
+
+    private void siftUp(int[] heap, int index, int[] cursor) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(heap[index], heap[parent], cursor)) {
+                return;
+            }
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size, int[] cursor) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int child = left + 1 < size && before(heap[left + 1], heap[left], cursor) ? left + 1 : left;
+            if (!before(heap[child], heap[index], cursor)) {
+                return;
+            }
+            swap(heap, index, child);
+            index = child;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    public int instrumentCount() {
+        return stocks.size();
+    }
+
+    public Stock getStock(int instrument) {
+        return stocks.get(instrument);
+    }
+
+    // Shared between runs; strategies must not modify it
+    public Candles getCandles(int instrument) {
+        return candles[instrument];
+    }
+
+    public int eventCount() {
+        return eventInstrument.length;
+    }
+
+    int eventInstrument(int event) {
+        return eventInstrument[event];
+    }
+
+    int eventBar(int event) {
+        return eventBar[event];
+    }
+}
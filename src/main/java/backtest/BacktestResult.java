@@ -0,0 +1,84 @@
+package backtest;
+
+/**
+ * Outcome of one backtest run. A run whose strategy threw has the exception in getError() and no
+ * meaningful figures.
+ */
+public class BacktestResult {
+    private final Parameters parameters;
+    private final double initialCash;
+    private final double finalEquity;
+    private final double maxDrawdown;
+    private final int trades;
+    private final int rejected;
+    private final double commission;
+    private final long bars;
+    private final Throwable error;
+
+    BacktestResult(Parameters parameters, double initialCash, double finalEquity, double maxDrawdown, int trades,
+                   int rejected, double commission, long bars, Throwable error) {
+        this.parameters = parameters;
+        this.initialCash = initialCash;
+        this.finalEquity = finalEquity;
+        this.maxDrawdown = maxDrawdown;
+        this.trades = trades;
+        this.rejected = rejected;
+        this.commission = commission;
+        this.bars = bars;
+        this.error = error;
+    }
+
+    static BacktestResult failed(Parameters parameters, double initialCash, long bars, Throwable error) {
+        return new BacktestResult(parameters, initialCash, Double.NaN, Double.NaN, 0, 0, 0, bars, error);
+    }
+
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    public double getFinalEquity() {
+        return finalEquity;
+    }
+
+    public double getReturn() {
+        return finalEquity / initialCash - 1;
+    }
+
+    // Largest peak-to-trough equity decline as a fraction of the peak
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public int getTrades() {
+        return trades;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public double getCommission() {
+        return commission;
+    }
+
+    public long getBars() {
+        return bars;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return parameters + " failed: " + error;
+        }
+        return String.format("%s return=%.2f%% maxDD=%.2f%% trades=%d rejected=%d commission=%.2f",
+            parameters, getReturn() * 100, maxDrawdown * 100, trades, rejected, commission);
+    }
+}
@@ -0,0 +1,28 @@
+package backtest;
+
+/**
+ * Replays {@link BacktestData} bar by bar through a {@link Strategy}. Single-threaded and deterministic:
+ * the same data, strategy and config always produce the same result.
+ */
+public class Backtester {
+
+    private Backtester() {
+    }
+
+    public static BacktestResult run(BacktestData data, Strategy strategy, BacktestConfig config) {
+        return run(data, strategy, config, null);
+    }
+
+    static BacktestResult run(BacktestData data, Strategy strategy, BacktestConfig config, Parameters parameters) {
+        BacktestContext ctx = new BacktestContext(data, config);
+        strategy.onStart(ctx);
+        int events = data.eventCount();
+        for (int e = 0; e < events; e++) {
+            int instrument = data.eventInstrument(e);
+            ctx.onBar(instrument, data.eventBar(e));
+            strategy.onBar(ctx, instrument);
+        }
+        strategy.onFinish(ctx);
+        return ctx.result(parameters, events);
+    }
+}
@@ -0,0 +1,61 @@
+package backtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Cartesian product of named parameter values, enumerated in a fixed order
+public class ParameterGrid {
+    private final Map<String, double[]> axes = new LinkedHashMap<>();
+
+    public ParameterGrid add(String name, double... values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No values for parameter " + name);
+        }
+        axes.put(name, values.clone());
+        return this;
+    }
+
+    // from, from + step, ... up to and including to
+    public ParameterGrid range(String name, double from, double to, double step) {
+        if (step <= 0 || to < from) {
+            throw new IllegalArgumentException("Invalid range for parameter " + name);
+        }
+        int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = from + i * step;
+        }
+        return add(name, values);
+    }
+
+    public int size() {
+        int size = 1;
+        for (double[] values : axes.values()) {
+            size *= values.length;
+        }
+        return size;
+    }
+
+    public List<Parameters> combinations() {
+        List<String> names = new ArrayList<>(axes.keySet());
+        List<Parameters> result = new ArrayList<>(size());
+        int[] index = new int[names.size()];
+        for (int n = size(); n > 0; n--) {
+            Map<String, Double> point = new LinkedHashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                point.put(names.get(i), axes.get(names.get(i))[index[i]]);
+            }
+            result.add(new Parameters(point));
+            // Odometer increment, last axis fastest
+            for (int i = names.size() - 1; i >= 0; i--) {
+                if (++index[i] < axes.get(names.get(i)).length) {
+                    break;
+                }
+                index[i] = 0;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package backtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import model.Interval;
+
+/**
+ * Runs one backtest per point of a {@link ParameterGrid} across all cores.
+ *
+ * Runs are isolated: the candle data is shared read-only, while every run gets its own strategy instance
+ * from the factory and its own account state. A run whose strategy throws is reported as failed without
+ * affecting the others. Results come back in grid order regardless of scheduling.
+ *
+ * <pre>java -cp ... backtest.ParameterSweep</pre>
+ */
+public class ParameterSweep {
+    private final int threads;
+
+    public ParameterSweep() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParameterSweep(int threads) {
+        this.threads = threads;
+    }
+
+    public SweepReport run(BacktestData data, ParameterGrid grid, Function<Parameters, Strategy> factory,
+                           BacktestConfig config) throws InterruptedException {
+        List<Parameters> points = grid.combinations();
+        int poolSize = Math.min(threads, Math.max(points.size(), 1));
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "backtest-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        long start = System.nanoTime();
+        try {
+            List<Future<BacktestResult>> futures = new ArrayList<>(points.size());
+            for (Parameters parameters : points) {
+                futures.add(executor.submit(() -> runIsolated(data, factory, config, parameters)));
+            }
+            List<BacktestResult> results = new ArrayList<>(points.size());
+            for (Future<BacktestResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // runIsolated catches strategy failures; anything here is a bug in the engine
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            SweepReport report = new SweepReport(results, System.nanoTime() - start, poolSize);
+            System.out.println(report);
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static BacktestResult runIsolated(BacktestData data, Function<Parameters, Strategy> factory,
+                                              BacktestConfig config, Parameters parameters) {
+        try {
+            return Backtester.run(data, factory.apply(parameters), config, parameters);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return BacktestResult.failed(parameters, config.getInitialCash(), data.eventCount(), e);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long to = System.currentTimeMillis();
+        long from = to - 5L * 365 * 24 * 60 * 60 * 1000;
+        BacktestData data = BacktestData.loadNifty50(Interval.ONE_DAY, from, to);
+        ParameterGrid grid = new ParameterGrid()
+            .range("fast", 5, 50, 5)
+            .range("slow", 50, 200, 10);
+        SweepReport report = new ParameterSweep().run(data, grid, SmaCrossStrategy::new, BacktestConfig.defaults());
+        report.top(10).forEach(System.out::println);
+    }
+}
@@ -0,0 +1,43 @@
+package backtest;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// One point of a parameter grid, e.g. {fast=10, slow=50}
+public class Parameters {
+    private final Map<String, Double> values;
+
+    public Parameters(Map<String, Double> values) {
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    public double get(String name) {
+        Double value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown parameter: " + name);
+        }
+        return value;
+    }
+
+    public int getInt(String name) {
+        return (int) Math.round(get(name));
+    }
+
+    public Map<String, Double> asMap() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Double> e : values.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            double v = e.getValue();
+            sb.append(e.getKey()).append('=').append(v == Math.rint(v) ? String.valueOf((long) v) : String.valueOf(v));
+        }
+        return sb.append('}').toString();
+    }
+}
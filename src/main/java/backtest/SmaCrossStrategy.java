@@ -0,0 +1,51 @@
+package backtest;
+
+import indicators.Sma;
+
+/**
+ * Long-only moving average crossover: holds an equal slice of the starting capital in every instrument
+ * whose fast SMA of closes is above its slow SMA. Parameters: fast, slow.
+ */
+public class SmaCrossStrategy implements Strategy {
+    private final int fastPeriod;
+    private final int slowPeriod;
+    private Sma[] fast;
+    private Sma[] slow;
+    private double allocation;
+
+    public SmaCrossStrategy(Parameters parameters) {
+        this(parameters.getInt("fast"), parameters.getInt("slow"));
+    }
+
+    public SmaCrossStrategy(int fastPeriod, int slowPeriod) {
+        this.fastPeriod = fastPeriod;
+        this.slowPeriod = slowPeriod;
+    }
+
+    @Override
+    public void onStart(BacktestContext ctx) {
+        int n = ctx.instrumentCount();
+        fast = new Sma[n];
+        slow = new Sma[n];
+        for (int i = 0; i < n; i++) {
+            fast[i] = new Sma(fastPeriod);
+            slow[i] = new Sma(slowPeriod);
+        }
+        allocation = n == 0 ? 0 : ctx.getCash() / n;
+    }
+
+    @Override
+    public void onBar(BacktestContext ctx, int instrument) {
+        double close = ctx.getClose(instrument);
+        double f = fast[instrument].update(close);
+        double s = slow[instrument].update(close);
+        if (!slow[instrument].isReady()) {
+            return;
+        }
+        if (f > s && ctx.getPosition(instrument) == 0) {
+            ctx.orderTarget(instrument, (int) (allocation / close));
+        } else if (f < s && ctx.getPosition(instrument) > 0) {
+            ctx.orderTarget(instrument, 0);
+        }
+    }
+}
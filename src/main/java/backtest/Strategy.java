@@ -0,0 +1,16 @@
+package backtest;
+
+/**
+ * Strategy callbacks driven by the backtester. A new instance is created for every run, so strategies
+ * may keep mutable state in fields without affecting other runs of a sweep.
+ */
+public interface Strategy {
+    default void onStart(BacktestContext ctx) {
+    }
+
+    // Called after each bar of the instrument closes; orders placed here fill from the next bar
+    void onBar(BacktestContext ctx, int instrument);
+
+    default void onFinish(BacktestContext ctx) {
+    }
+}
@@ -0,0 +1,63 @@
+package backtest;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Results of a parameter sweep in grid order, with throughput figures
+public class SweepReport {
+    private final List<BacktestResult> results;
+    private final long elapsedNanos;
+    private final int threads;
+
+    SweepReport(List<BacktestResult> results, long elapsedNanos, int threads) {
+        this.results = List.copyOf(results);
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+    }
+
+    public List<BacktestResult> getResults() {
+        return results;
+    }
+
+    // Threads the sweep actually ran on
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getBars() {
+        long bars = 0;
+        for (BacktestResult result : results) {
+            bars += result.getBars();
+        }
+        return bars;
+    }
+
+    public double runsPerSecond() {
+        return results.size() / (elapsedNanos / 1e9);
+    }
+
+    public double barsPerSecond() {
+        return getBars() / (elapsedNanos / 1e9);
+    }
+
+    // Best successful runs by return
+    public List<BacktestResult> top(int limit) {
+        return results.stream()
+            .filter(r -> !r.isFailed())
+            .sorted(Comparator.comparingDouble(BacktestResult::getReturn).reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        long failed = results.stream().filter(BacktestResult::isFailed).count();
+        return String.format("Sweep: %d runs (%d failed) on %d threads in %.2fs, %.1f runs/sec, %.0f bars/sec",
+            results.size(), failed, threads, elapsedNanos / 1e9, runsPerSecond(), barsPerSecond());
+    }
+}
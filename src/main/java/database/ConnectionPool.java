@@ -0,0 +1,217 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of long-lived H2 connections. Callers keep using try-with-resources: closing a leased
+ * connection returns it to the pool, and statements from {@code prepareStatement(String)} are cached
+ * per physical connection so that closing them only clears their parameters.
+ */
+public class ConnectionPool {
+
+    public enum Mode {
+        // Single process owns the database file
+        EMBEDDED(""),
+        // First process starts a server so other processes (e.g. an external console) can share the file
+        AUTO_SERVER(";AUTO_SERVER=TRUE");
+
+        private final String urlSuffix;
+
+        Mode(String urlSuffix) {
+            this.urlSuffix = urlSuffix;
+        }
+
+        public String getUrlSuffix() {
+            return urlSuffix;
+        }
+    }
+
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    private final String url;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final BlockingQueue<PooledConnection> idle;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong physicalConnections = new AtomicLong();
+
+    public ConnectionPool(String baseUrl, Mode mode, int maxSize) {
+        this.url = baseUrl + mode.getUrlSuffix();
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("Timed out waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = idle.poll();
+            if (pooled == null || pooled.physical.isClosed()) {
+                pooled = new PooledConnection(DriverManager.getConnection(url));
+                physicalConnections.incrementAndGet();
+            }
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void recordWait(long nanos) {
+        acquisitions.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            idle.offer(pooled);
+        } catch (SQLException e) {
+            pooled.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void close() {
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        long count = getAcquisitions();
+        return String.format("ConnectionPool[size=%d, open=%d, acquisitions=%d, avgWait=%.3fms, maxWait=%.3fms]",
+            maxSize, physicalConnections.get(), count,
+            count == 0 ? 0.0 : getTotalWaitNanos() / 1e6 / count, getMaxWaitNanos() / 1e6);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class PooledConnection {
+        private final Connection physical;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new LeaseHandler(this));
+        }
+
+        PreparedStatement cachedStatement(String sql) throws SQLException {
+            PreparedStatement pstmt = statements.get(sql);
+            if (pstmt == null || pstmt.isClosed()) {
+                PreparedStatement physicalStatement = physical.prepareStatement(sql);
+                pstmt = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close")) {
+                            physicalStatement.clearBatch();
+                            physicalStatement.clearParameters();
+                            return null;
+                        }
+                        return invoke(physicalStatement, method, args);
+                    });
+                statements.put(sql, pstmt);
+            }
+            return pstmt;
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            physicalConnections.decrementAndGet();
+        }
+    }
+
+    // One handler per lease, so a connection closed twice is only returned to the pool once
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                return pooled.cachedStatement((String) args[0]);
+            }
+            return ConnectionPool.invoke(pooled.physical, method, args);
+        }
+    }
+}
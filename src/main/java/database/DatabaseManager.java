@@ -1,33 +1,101 @@
 package database;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.sql.*;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+import authentication.AccessToken;
 import authentication.AccessTokenExpiredException;
 
+import history.MarketSession;
+import model.Exchange;
+import model.InstrumentTable;
+import model.Segment;
 import model.Stock;
+import util.BackgroundExecutor;
+import util.DownloadCache;
+import util.ProgressListener;
 import util.Scrapper;
 
 public class DatabaseManager {
     private static final String DB_FILE = "trading_app";  // Will create trading_app.mv.db
     private static final String CONNECTION_URL = "jdbc:h2:file:./" + DB_FILE;
+    static final String MERGE_INSTRUMENT_SQL =
+        "MERGE INTO instruments (name, exchange, isin, instrument_type, instrument_key, lot_size, freeze_quantity, " +
+        "exchange_token, tick_size, trading_symbol, short_name, qty_multiplier, security_type, segment, " +
+        "strike_price, expiry, underlying_symbol, underlying_key) " +
+        "KEY(instrument_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-    private static DatabaseManager instance;
+    public static final long TOKEN_VALIDITY_MILLIS = 8 * 60 * 60 * 1000;
+
+    private static final String MODE_PROPERTY = "trading.db.mode";            // embedded | auto_server
+    private static final String POOL_SIZE_PROPERTY = "trading.db.poolSize";
+    private static final int DEFAULT_POOL_SIZE = 4;
+
+    private static final String REFRESH_TIME_PROPERTY = "instruments.refreshTime";
+    private static final String DEFAULT_REFRESH_TIME = "07:30";
+    private static final int STARTUP_REFRESH_DELAY_SECONDS = 30;
+
+    private static final String SEGMENTS_PROPERTY = "instruments.segments";
+    private static final String DEFAULT_SEGMENTS = "NSE_EQ,NSE_FO,BSE_EQ,MCX_FO";
+
+    private final ConnectionPool connectionPool;
+    private volatile boolean initialized;
+    private ScheduledExecutorService refreshScheduler;
+    // Held by loadStocks and refreshInstruments, so a long first load does not block the other synchronized methods
+    private final ReentrantLock instrumentLock = new ReentrantLock();
 
     private DatabaseManager() {
         // Private constructor to prevent direct instantiation
+        ConnectionPool.Mode mode = ConnectionPool.Mode.valueOf(
+            System.getProperty(MODE_PROPERTY, "embedded").toUpperCase(Locale.ROOT));
+        int poolSize = Integer.getInteger(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE);
+        connectionPool = new ConnectionPool(CONNECTION_URL, mode, poolSize);
+    }
+
+    // Initialization-on-demand holder: the JVM guarantees the instance is created exactly once
+    private static class Holder {
+        private static final DatabaseManager INSTANCE = new DatabaseManager();
     }
 
     public static DatabaseManager getInstance() {
-        if (instance == null) {
-            instance = new DatabaseManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
+    }
+
+    Connection openConnection() throws SQLException {
+        return connectionPool.getConnection();
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
     
-    public void initDatabase() {
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL)) {
+    // Creates the schema once per run; later calls return immediately
+    public synchronized void initDatabase() {
+        if (initialized) {
+            return;
+        }
+        try (Connection conn = openConnection()) {
             // Example table creation
             try (Statement stmt = conn.createStatement()) {
                 stmt.execute(
@@ -56,17 +124,41 @@ public class DatabaseManager {
                     "trading_symbol VARCHAR(50), " +
                     "short_name VARCHAR(50), " +
                     "qty_multiplier INT, " +
-                    "security_type VARCHAR(50)" +
+                    "security_type VARCHAR(50), " +
+                    "segment VARCHAR(20), " +
+                    "strike_price DECIMAL(12,2), " +
+                    "expiry BIGINT, " +
+                    "underlying_symbol VARCHAR(50), " +
+                    "underlying_key VARCHAR(100)" +
                     ")"
                 );
+                stmt.execute("ALTER TABLE instruments ADD COLUMN IF NOT EXISTS segment VARCHAR(20)");
+                // Option contract terms; expiry is epoch millis as in the instrument file
+                stmt.execute("ALTER TABLE instruments ADD COLUMN IF NOT EXISTS strike_price DECIMAL(12,2)");
+                stmt.execute("ALTER TABLE instruments ADD COLUMN IF NOT EXISTS expiry BIGINT");
+                stmt.execute("ALTER TABLE instruments ADD COLUMN IF NOT EXISTS underlying_symbol VARCHAR(50)");
+                stmt.execute("ALTER TABLE instruments ADD COLUMN IF NOT EXISTS underlying_key VARCHAR(100)");
+                // Trading symbols repeat across exchanges; the instrument key is the unique one and the MERGE key
+                stmt.execute("DROP INDEX IF EXISTS idx_instruments_trading_symbol");
+                stmt.execute(
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_instruments_instrument_key ON instruments(instrument_key)"
+                );
+                stmt.execute(
+                    "CREATE INDEX IF NOT EXISTS idx_instruments_segment_symbol ON instruments(segment, trading_symbol)"
+                );
+                // Rows stored before segments were recorded all came from the NSE equity filter
+                stmt.executeUpdate("UPDATE instruments SET segment = 'NSE_EQ' WHERE segment IS NULL");
+                stmt.execute(DownloadMetadata.CREATE_TABLE_SQL);
+                stmt.execute(DownloadMetadata.DROP_URL_TABLE_SQL);
             }                
+            initialized = true;
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     public void saveToken(String token) {
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL);
+        try (Connection conn = openConnection();
              PreparedStatement pstmt = conn.prepareStatement("INSERT INTO auth_tokens (token) VALUES (?)")) {
             pstmt.setString(1, token);
             pstmt.executeUpdate();
@@ -76,15 +168,18 @@ public class DatabaseManager {
     }
 
     public String getToken() throws AccessTokenExpiredException, SQLException {
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL);
+        return getAccessToken().getToken();
+    }
+
+    public AccessToken getAccessToken() throws AccessTokenExpiredException, SQLException {
+        try (Connection conn = openConnection();
             Statement stmt = conn.createStatement()) {
             ResultSet rs = stmt.executeQuery("SELECT token, created_at FROM auth_tokens");
             if (rs.next()) {
-                Timestamp createdAt = rs.getTimestamp("created_at");
-                Timestamp twentyFourHoursAgo = new Timestamp(System.currentTimeMillis() - (8 * 60 * 60 * 1000));
+                long expiresAt = rs.getTimestamp("created_at").getTime() + TOKEN_VALIDITY_MILLIS;
                 
-                if (createdAt.after(twentyFourHoursAgo)) {
-                    return rs.getString("token");
+                if (expiresAt > System.currentTimeMillis()) {
+                    return new AccessToken(rs.getString("token"), expiresAt);
                 }
                 // Delete expired token
                 stmt.executeUpdate("DELETE FROM auth_tokens");
@@ -96,7 +191,7 @@ public class DatabaseManager {
     }
 
     public void saveStock(model.Stock stock) {
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL);
+        try (Connection conn = openConnection();
              PreparedStatement pstmt = conn.prepareStatement(
                  "INSERT INTO Nifty50 (symbol, name) VALUES (?, ?)"
              )) {
@@ -109,7 +204,7 @@ public class DatabaseManager {
     }
 
     public void saveNiftyStocks(java.util.List<model.Stock> stocks) {
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL);
+        try (Connection conn = openConnection();
              PreparedStatement pstmt = conn.prepareStatement(
                  "INSERT INTO Nifty50 (symbol) VALUES (?)"
              )) {
@@ -124,41 +219,405 @@ public class DatabaseManager {
     }
 
     public void loadStocks() {
-        if(getStocksFromDB().isEmpty()) {
-            List<Stock> stocks = Scrapper.fetchStocksList();
-            saveStocks(stocks);
+        loadStocks(ProgressListener.NONE);
+    }
+
+    // Segments to load, from -Dinstruments.segments (comma separated, default NSE_EQ,NSE_FO,BSE_EQ,MCX_FO)
+    public static Set<Segment> getConfiguredSegments() {
+        return Segment.parseList(System.getProperty(SEGMENTS_PROPERTY, DEFAULT_SEGMENTS));
+    }
+
+    // Loads the registry from instruments already stored, if any, without touching the network. Segments are
+    // read in parallel, each from the binary snapshot of the file it was built from when there is one, which
+    // skips scanning H2.
+    public void warmInstrumentRegistry() {
+        Set<Segment> stored = storedSegments();
+        if (stored.isEmpty()) {
+            return;
         }
+        InstrumentRegistry.getInstance().loadSegments(readSegments(stored, storedHashes(), true));
     }
 
-    public void saveStocks(java.util.List<model.Stock> stocks) {
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL);
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "MERGE INTO instruments KEY(trading_symbol) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
-             )) {
-            for (model.Stock stock : stocks) {
-                pstmt.setString(1, stock.getName());
-                pstmt.setString(2, stock.getExchange());
-                pstmt.setString(3, stock.getIsin());
-                pstmt.setString(4, stock.getInstrument_type());
-                pstmt.setString(5, stock.getInstrument_key());
-                pstmt.setInt(6, stock.getLot_size());
-                pstmt.setInt(7, stock.getFreeze_quantity());
-                pstmt.setString(8, stock.getExchange_token());
-                pstmt.setDouble(9, stock.getTick_size());
-                pstmt.setString(10, stock.getTrading_symbol());
-                pstmt.setString(11, stock.getShort_name());
-                pstmt.setInt(12, stock.getQty_multiplier());
-                pstmt.setString(13, stock.getSecurity_type());
-                pstmt.addBatch();
+    // Reads each segment on the background pool, from its snapshot for the hash of the file its rows were
+    // built from when useSnapshots is set and one exists, otherwise from H2, in which case the snapshot is rewritten
+    private Map<String, InstrumentTable> readSegments(Collection<Segment> segments, Map<Segment, String> hashes,
+                                                      boolean useSnapshots) {
+        Map<Segment, CompletableFuture<InstrumentTable>> reads = new EnumMap<>(Segment.class);
+        for (Segment segment : segments) {
+            String hash = hashes.get(segment);
+            reads.put(segment, CompletableFuture.supplyAsync(() -> {
+                InstrumentTable table = useSnapshots ? InstrumentSnapshot.read(segment, hash) : null;
+                if (table == null) {
+                    table = getInstrumentTableFromDB(segment);
+                    writeSnapshot(table, segment, hash);
+                }
+                return table;
+            }, BackgroundExecutor.getInstance()::execute));
+        }
+        Map<String, InstrumentTable> tables = new HashMap<>();
+        reads.forEach((segment, read) -> tables.put(segment.name(), read.join()));
+        return tables;
+    }
+
+    private static void writeSnapshot(InstrumentTable table, Segment segment, String contentHash) {
+        if (contentHash == null || table.size() == 0) {
+            return;
+        }
+        try {
+            InstrumentSnapshot.write(table, segment, contentHash);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Excludes refreshInstruments so a scheduled refresh never diffs against a half-written first load.
+    // Only configured segments with no stored rows are downloaded, one pipeline per exchange, all in parallel.
+    public void loadStocks(ProgressListener progress) {
+        try {
+            instrumentLock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            System.out.println("Instrument load cancelled");
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            loadMissingSegments(progress);
+        } finally {
+            instrumentLock.unlock();
+        }
+    }
+
+    private void loadMissingSegments(ProgressListener progress) {
+        InstrumentRegistry registry = InstrumentRegistry.getInstance();
+        Set<Segment> missing = EnumSet.noneOf(Segment.class);
+        for (Segment segment : getConfiguredSegments()) {
+            if (isSegmentEmpty(segment)) {
+                missing.add(segment);
+            }
+        }
+        if (registry.size() == 0) {
+            // Startup may not have loaded what is already stored
+            warmInstrumentRegistry();
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        // Wiped database but cached instrument files: lookups work from their snapshots while H2 is refilled
+        Map<Exchange, String> cachedHashes = new EnumMap<>(Exchange.class);
+        Map<String, InstrumentTable> snapshots = new HashMap<>();
+        for (Segment segment : missing) {
+            String hash = cachedHashes.computeIfAbsent(segment.getExchange(),
+                exchange -> DownloadCache.getInstance().getHash(exchange.getInstrumentUrl()));
+            InstrumentTable snapshot = InstrumentSnapshot.read(segment, hash);
+            if (snapshot != null) {
+                snapshots.put(segment.name(), snapshot);
+            }
+        }
+        if (!snapshots.isEmpty()) {
+            registry.updateSegments(snapshots);
+        }
+
+        Map<Exchange, Set<Segment>> byExchange = byExchange(missing);
+        CombinedProgress combined = new CombinedProgress(progress, byExchange.size());
+        Map<Exchange, Future<String>> loads = new EnumMap<>(Exchange.class);
+        int part = 0;
+        for (Map.Entry<Exchange, Set<Segment>> entry : byExchange.entrySet()) {
+            ProgressListener listener = combined.part(part++, entry.getKey());
+            loads.put(entry.getKey(), BackgroundExecutor.getInstance().submit(
+                () -> loadExchange(entry.getKey(), entry.getValue(), listener)));
+        }
+        Map<Segment, String> loadedHashes = new EnumMap<>(Segment.class);
+        try {
+            for (Map.Entry<Exchange, Future<String>> load : loads.entrySet()) {
+                String hash = load.getValue().get();
+                if (hash != null) {
+                    for (Segment segment : byExchange.get(load.getKey())) {
+                        loadedHashes.put(segment, hash);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Each load drops its own partial rows once its pipeline has stopped
+            loads.values().forEach(load -> load.cancel(true));
+            System.out.println("Instrument load cancelled");
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+
+        Set<Segment> publish = EnumSet.noneOf(Segment.class);
+        for (Segment segment : missing) {
+            String hash = loadedHashes.get(segment);
+            // Already indexed from this file's snapshot, or the snapshot is the best copy left after a failure
+            boolean indexed = snapshots.containsKey(segment.name())
+                && (hash == null || hash.equals(cachedHashes.get(segment.getExchange())));
+            if (hash != null && !indexed) {
+                publish.add(segment);
+            }
+        }
+        if (!publish.isEmpty()) {
+            progress.onProgress("Indexing instruments", -1, -1);
+            registry.updateSegments(readSegments(publish, loadedHashes, false));
+        }
+    }
+
+    // Loads one exchange's segments into H2 and returns the hash of the file, or null when the load failed.
+    // Only these segments take the file's validators; stored segments of the exchange keep their own.
+    private String loadExchange(Exchange exchange, Set<Segment> segments, ProgressListener progress) {
+        try {
+            InstrumentPipeline pipeline = new InstrumentPipeline(this, exchange, segments).setProgressListener(progress);
+            int rows = pipeline.run();
+            System.out.println(exchange + " instruments loaded: " + rows + " " + segments);
+            try (Connection conn = openConnection()) {
+                DownloadMetadata.saveChanged(conn, pipeline.getUrl(), segments, pipeline.getETag(),
+                    pipeline.getLastModified(), pipeline.getContentHash());
+            }
+            return pipeline.getContentHash();
+        } catch (InterruptedIOException e) {
+            // Chunks are committed as they arrive; drop a partial first load so the next login starts over
+            clearSegments(segments);
+            return null;
+        } catch (IOException | SQLException e) {
+            e.printStackTrace();
+            clearSegments(segments);
+            return null;
+        }
+    }
+
+    // Conditional, diff-based refresh of the loaded segments, one request per exchange. Segments not loaded
+    // yet are left to the first load at login, with progress. Exchanges whose refresh failed are left out.
+    // Skipped while a load is running, which brings its segments up to date anyway.
+    public List<InstrumentRefresher.Result> refreshInstruments() {
+        List<InstrumentRefresher.Result> results = new ArrayList<>();
+        if (DownloadCache.isOffline()) {
+            System.out.println("Offline, instrument refresh skipped");
+            return results;
+        }
+        if (!instrumentLock.tryLock()) {
+            System.out.println("Instrument load in progress, refresh skipped");
+            return results;
+        }
+        try {
+            refreshStoredSegments(results);
+        } finally {
+            instrumentLock.unlock();
+        }
+        return results;
+    }
+
+    private void refreshStoredSegments(List<InstrumentRefresher.Result> results) {
+        for (Map.Entry<Exchange, Set<Segment>> entry : byExchange(storedSegments()).entrySet()) {
+            try {
+                InstrumentRefresher.Result result = new InstrumentRefresher(this, entry.getKey(), entry.getValue()).run();
+                System.out.println(result);
+                if (result.hasChanges()) {
+                    Map<Segment, String> hashes = new EnumMap<>(Segment.class);
+                    entry.getValue().forEach(segment -> hashes.put(segment, result.getContentHash()));
+                    InstrumentRegistry.getInstance().updateSegments(readSegments(entry.getValue(), hashes, false));
+                } else if (result.isModified()) {
+                    // Same rows from a new file: keep the registry, but name the snapshots after the new file
+                    for (Segment segment : entry.getValue()) {
+                        InstrumentRegistry.Shard shard = InstrumentRegistry.getInstance().getShard(segment);
+                        if (shard != null) {
+                            writeSnapshot(shard.getSegmentTable(), segment, result.getContentHash());
+                        }
+                    }
+                }
+                results.add(result);
+            } catch (IOException | SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Runs refreshInstruments every day at -Dinstruments.refreshTime (HH:mm IST, default 07:30), and once
+    // shortly after startup if the last check is more than a day old
+    public synchronized void scheduleInstrumentRefresh() {
+        if (refreshScheduler != null) {
+            return;
+        }
+        refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "instrument-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        LocalTime at = LocalTime.parse(System.getProperty(REFRESH_TIME_PROPERTY, DEFAULT_REFRESH_TIME));
+        ZonedDateTime now = ZonedDateTime.now(MarketSession.ZONE);
+        ZonedDateTime next = now.with(at);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        Runnable refresh = () -> {
+            try {
+                refreshInstruments();
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule
+                e.printStackTrace();
+            }
+        };
+        refreshScheduler.scheduleAtFixedRate(refresh, Duration.between(now, next).toMillis(),
+            TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        if (lastInstrumentCheck() < System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)) {
+            refreshScheduler.schedule(refresh, STARTUP_REFRESH_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+        System.out.println("Instrument refresh scheduled daily at " + at + " IST, next " + next.toLocalDateTime());
+    }
+
+    // Oldest check among the stored segments
+    private long lastInstrumentCheck() {
+        long oldest = Long.MAX_VALUE;
+        for (Segment segment : storedSegments()) {
+            oldest = Math.min(oldest, instrumentMetadata(segment).checkedAt);
+        }
+        return oldest == Long.MAX_VALUE ? 0 : oldest;
+    }
+
+    private DownloadMetadata instrumentMetadata(Segment segment) {
+        String url = segment.getExchange().getInstrumentUrl();
+        try (Connection conn = openConnection()) {
+            return DownloadMetadata.load(conn, url, segment);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new DownloadMetadata(url, null, null, 0, null);
+        }
+    }
+
+    // Hash of the file each segment's stored rows were built from
+    private Map<Segment, String> storedHashes() {
+        Map<Segment, String> hashes = new EnumMap<>(Segment.class);
+        for (Segment segment : Segment.values()) {
+            hashes.put(segment, instrumentMetadata(segment).contentHash);
+        }
+        return hashes;
+    }
+
+    // Configured segments that have rows in H2
+    private Set<Segment> storedSegments() {
+        Set<Segment> stored = EnumSet.noneOf(Segment.class);
+        for (Segment segment : getConfiguredSegments()) {
+            if (!isSegmentEmpty(segment)) {
+                stored.add(segment);
             }
+        }
+        return stored;
+    }
+
+    private static Map<Exchange, Set<Segment>> byExchange(Set<Segment> segments) {
+        Map<Exchange, Set<Segment>> byExchange = new EnumMap<>(Exchange.class);
+        for (Segment segment : segments) {
+            byExchange.computeIfAbsent(segment.getExchange(), e -> EnumSet.noneOf(Segment.class)).add(segment);
+        }
+        return byExchange;
+    }
+
+    // Sums the download progress of the per-exchange pipelines into one listener
+    private static class CombinedProgress {
+        private final ProgressListener target;
+        private final long[] done;
+        private final long[] total;
+
+        CombinedProgress(ProgressListener target, int parts) {
+            this.target = target;
+            this.done = new long[parts];
+            this.total = new long[parts];
+            Arrays.fill(total, -1);
+        }
+
+        ProgressListener part(int index, Exchange exchange) {
+            return (message, partDone, partTotal) -> {
+                long sumDone = 0;
+                long sumTotal = 0;
+                synchronized (this) {
+                    done[index] = partDone;
+                    total[index] = partTotal;
+                    for (int i = 0; i < done.length; i++) {
+                        sumDone += done[i];
+                        // Unknown while any part's length is unknown
+                        sumTotal = sumTotal < 0 || total[i] < 0 ? -1 : sumTotal + total[i];
+                    }
+                }
+                target.onProgress(exchange + ": " + message, sumDone, sumTotal);
+            };
+        }
+    }
+
+    private void clearSegments(Collection<Segment> segments) {
+        try (Connection conn = openConnection();
+            PreparedStatement pstmt = conn.prepareStatement("DELETE FROM instruments WHERE segment = ?")) {
+            for (Segment segment : segments) {
+                pstmt.setString(1, segment.name());
+                pstmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean isSegmentEmpty(Segment segment) {
+        try (Connection conn = openConnection();
+            PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM instruments WHERE segment = ? LIMIT 1")) {
+            pstmt.setString(1, segment.name());
+            return !pstmt.executeQuery().next();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return true;
+        }
+    }
+
+    private boolean isTableEmpty(String table) {
+        try (Connection conn = openConnection();
+            Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + table + " LIMIT 1");
+            return !rs.next();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return true;
+        }
+    }
+
+    public void saveStocks(java.util.List<model.Stock> stocks) {
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(MERGE_INSTRUMENT_SQL)) {
+            bindInstruments(pstmt, stocks);
             pstmt.executeBatch();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    static void bindInstruments(PreparedStatement pstmt, List<Stock> stocks) throws SQLException {
+        for (model.Stock stock : stocks) {
+            pstmt.setString(1, stock.getName());
+            pstmt.setString(2, stock.getExchange());
+            pstmt.setString(3, stock.getIsin());
+            pstmt.setString(4, stock.getInstrument_type());
+            pstmt.setString(5, stock.getInstrument_key());
+            pstmt.setInt(6, stock.getLot_size());
+            pstmt.setInt(7, stock.getFreeze_quantity());
+            pstmt.setString(8, stock.getExchange_token());
+            pstmt.setDouble(9, stock.getTick_size());
+            pstmt.setString(10, stock.getTrading_symbol());
+            pstmt.setString(11, stock.getShort_name());
+            pstmt.setInt(12, stock.getQty_multiplier());
+            pstmt.setString(13, stock.getSecurity_type());
+            pstmt.setString(14, stock.getSegment());
+            pstmt.setDouble(15, stock.getStrike_price());
+            pstmt.setLong(16, stock.getExpiry());
+            pstmt.setString(17, stock.getUnderlying_symbol());
+            pstmt.setString(18, stock.getUnderlying_key());
+            pstmt.addBatch();
+        }
+    }
+
     public void loadNiftyList() {
-        if(getNifty50FromDB().isEmpty()) {
+        loadNiftyList(ProgressListener.NONE);
+    }
+
+    // Checks Nifty50 on its own rather than joined with instruments, so it can run while instruments load
+    public void loadNiftyList(ProgressListener progress) {
+        if(isTableEmpty("Nifty50")) {
+            progress.onProgress("Fetching Nifty 50 constituents", -1, -1);
             List<Stock> stocks = Scrapper.fetchNiftyList();
             saveNiftyStocks(stocks);
         }
@@ -166,29 +625,14 @@ public class DatabaseManager {
 
     public List<Stock> getNifty50FromDB() {
         List<Stock> stocks = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL);
+        try (Connection conn = openConnection();
             Statement stmt = conn.createStatement()) {
             ResultSet rs = stmt.executeQuery(
                 "SELECT n.symbol, i.* FROM Nifty50 n " +
-                "JOIN instruments i ON n.symbol = i.trading_symbol"
+                "JOIN instruments i ON n.symbol = i.trading_symbol AND i.segment = '" + Segment.NSE_EQ + "'"
             );
             while (rs.next()) {
-                String symbol = rs.getString("trading_symbol");
-                String name = rs.getString("name");
-                Stock stock = new Stock(symbol, name);
-                stock.setIsin(rs.getString("isin"));
-                stock.setExchange(rs.getString("exchange")); 
-                stock.setInstrument_type(rs.getString("instrument_type"));
-                stock.setInstrument_key(rs.getString("instrument_key"));
-                stock.setLot_size(rs.getInt("lot_size"));
-                stock.setFreeze_quantity(rs.getInt("freeze_quantity"));
-                stock.setExchange_token(rs.getString("exchange_token"));
-                stock.setTick_size(rs.getDouble("tick_size"));
-                stock.setTrading_symbol(rs.getString("trading_symbol"));
-                stock.setShort_name(rs.getString("short_name"));
-                stock.setQty_multiplier(rs.getInt("qty_multiplier"));
-                stock.setSecurity_type(rs.getString("security_type"));
-                stocks.add(stock);
+                stocks.add(readStock(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -199,30 +643,67 @@ public class DatabaseManager {
 
     public List<Stock> getStocksFromDB() {
         List<Stock> stocks = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(CONNECTION_URL);
+        try (Connection conn = openConnection();
             Statement stmt = conn.createStatement()) {
             ResultSet rs = stmt.executeQuery("SELECT * FROM instruments");
             while (rs.next()) {
-                String symbol = rs.getString("trading_symbol");
-                String name = rs.getString("name");
-                Stock stock = new model.Stock(symbol, name);
-                stock.setIsin(rs.getString("isin"));
-                stock.setExchange(rs.getString("exchange"));
-                stock.setInstrument_type(rs.getString("instrument_type"));
-                stock.setInstrument_key(rs.getString("instrument_key"));
-                stock.setLot_size(rs.getInt("lot_size"));
-                stock.setFreeze_quantity(rs.getInt("freeze_quantity"));
-                stock.setExchange_token(rs.getString("exchange_token"));
-                stock.setTick_size(rs.getDouble("tick_size"));
-                stock.setTrading_symbol(rs.getString("trading_symbol"));
-                stock.setShort_name(rs.getString("short_name"));
-                stock.setQty_multiplier(rs.getInt("qty_multiplier"));
-                stock.setSecurity_type(rs.getString("security_type"));
-                stocks.add(stock);
+                stocks.add(readStock(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return stocks;
     }
+
+    // Reads the instruments table straight into columnar storage without keeping a Stock per row
+    public InstrumentTable getInstrumentTableFromDB() {
+        InstrumentTable.Builder builder = new InstrumentTable.Builder();
+        try (Connection conn = openConnection();
+            Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT * FROM instruments");
+            while (rs.next()) {
+                builder.add(readStock(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return builder.build();
+    }
+
+    public InstrumentTable getInstrumentTableFromDB(Segment segment) {
+        InstrumentTable.Builder builder = new InstrumentTable.Builder();
+        try (Connection conn = openConnection();
+            PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM instruments WHERE segment = ?")) {
+            pstmt.setString(1, segment.name());
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                builder.add(readStock(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return builder.build();
+    }
+
+    static Stock readStock(ResultSet rs) throws SQLException {
+        Stock stock = new Stock(rs.getString("trading_symbol"), rs.getString("name"));
+        stock.setIsin(rs.getString("isin"));
+        stock.setExchange(rs.getString("exchange"));
+        stock.setInstrument_type(rs.getString("instrument_type"));
+        stock.setInstrument_key(rs.getString("instrument_key"));
+        stock.setLot_size(rs.getInt("lot_size"));
+        stock.setFreeze_quantity(rs.getInt("freeze_quantity"));
+        stock.setExchange_token(rs.getString("exchange_token"));
+        stock.setTick_size(rs.getDouble("tick_size"));
+        stock.setTrading_symbol(rs.getString("trading_symbol"));
+        stock.setShort_name(rs.getString("short_name"));
+        stock.setQty_multiplier(rs.getInt("qty_multiplier"));
+        stock.setSecurity_type(rs.getString("security_type"));
+        stock.setSegment(rs.getString("segment"));
+        stock.setStrike_price(rs.getDouble("strike_price"));
+        stock.setExpiry(rs.getLong("expiry"));
+        stock.setUnderlying_symbol(rs.getString("underlying_symbol"));
+        stock.setUnderlying_key(rs.getString("underlying_key"));
+        return stock;
+    }
 } 
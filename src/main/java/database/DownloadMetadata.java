@@ -0,0 +1,122 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Objects;
+import java.util.Set;
+
+import model.Segment;
+
+/**
+ * HTTP validators (ETag / Last-Modified) of the download a segment's stored rows were last built from,
+ * kept in the segment_download_metadata table so the next request can be conditional. Segments of one
+ * exchange share a URL but are loaded at different times, so each keeps its own row.
+ */
+class DownloadMetadata {
+    // content_hash is the SHA-256 of the body the segment's rows were built from; it names the cached file and snapshot
+    static final String CREATE_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS segment_download_metadata (" +
+        "url VARCHAR(500), " +
+        "segment VARCHAR(20), " +
+        "etag VARCHAR(255), " +
+        "last_modified VARCHAR(100), " +
+        "checked_at TIMESTAMP, " +
+        "changed_at TIMESTAMP, " +
+        "content_hash VARCHAR(64), " +
+        "PRIMARY KEY (url, segment)" +
+        ")";
+
+    // Rows keyed by URL alone cannot tell which segments they describe; the next refresh downloads once
+    static final String DROP_URL_TABLE_SQL = "DROP TABLE IF EXISTS download_metadata";
+
+    final String url;
+    final String etag;
+    final String lastModified;
+    final long checkedAt;
+    final String contentHash;
+
+    DownloadMetadata(String url, String etag, String lastModified, long checkedAt, String contentHash) {
+        this.url = url;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.checkedAt = checkedAt;
+        this.contentHash = contentHash;
+    }
+
+    // Returns empty validators when the segment has never been downloaded
+    static DownloadMetadata load(Connection conn, String url, Segment segment) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT etag, last_modified, checked_at, content_hash FROM segment_download_metadata " +
+                "WHERE url = ? AND segment = ?")) {
+            pstmt.setString(1, url);
+            pstmt.setString(2, segment.name());
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                return new DownloadMetadata(url, null, null, 0, null);
+            }
+            Timestamp checked = rs.getTimestamp("checked_at");
+            return new DownloadMetadata(url, rs.getString("etag"), rs.getString("last_modified"),
+                checked != null ? checked.getTime() : 0, rs.getString("content_hash"));
+        }
+    }
+
+    // Validators shared by all the segments, or empty ones when any of them was built from a different download
+    static DownloadMetadata load(Connection conn, String url, Set<Segment> segments) throws SQLException {
+        DownloadMetadata shared = null;
+        for (Segment segment : segments) {
+            DownloadMetadata metadata = load(conn, url, segment);
+            if (shared == null) {
+                shared = metadata;
+            } else if (!shared.sameDownload(metadata)) {
+                return new DownloadMetadata(url, null, null, Math.min(shared.checkedAt, metadata.checkedAt), null);
+            } else if (metadata.checkedAt < shared.checkedAt) {
+                shared = metadata;
+            }
+        }
+        return shared != null ? shared : new DownloadMetadata(url, null, null, 0, null);
+    }
+
+    private boolean sameDownload(DownloadMetadata other) {
+        return Objects.equals(etag, other.etag) && Objects.equals(lastModified, other.lastModified)
+            && Objects.equals(contentHash, other.contentHash);
+    }
+
+    boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+
+    // Records a download of new content that the segments' rows were built from
+    static void saveChanged(Connection conn, String url, Set<Segment> segments, String etag, String lastModified,
+                            String contentHash) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "MERGE INTO segment_download_metadata " +
+                "(url, segment, etag, last_modified, checked_at, changed_at, content_hash) " +
+                "KEY(url, segment) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, ?)")) {
+            for (Segment segment : segments) {
+                pstmt.setString(1, url);
+                pstmt.setString(2, segment.name());
+                pstmt.setString(3, etag);
+                pstmt.setString(4, lastModified);
+                pstmt.setString(5, contentHash);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Records a check that found the content unchanged
+    static void saveChecked(Connection conn, String url, Set<Segment> segments) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE segment_download_metadata SET checked_at = CURRENT_TIMESTAMP WHERE url = ? AND segment = ?")) {
+            for (Segment segment : segments) {
+                pstmt.setString(1, url);
+                pstmt.setString(2, segment.name());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+}
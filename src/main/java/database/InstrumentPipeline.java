@@ -0,0 +1,302 @@
+package database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.Exchange;
+import model.Segment;
+import model.Stock;
+import util.DownloadCache;
+import util.ProgressListener;
+import util.Scrapper;
+
+/**
+ * Loads the instrument master as three concurrent stages connected by bounded queues:
+ * download (raw gzip bytes) -> parse (gunzip + JSON, filtered to the wanted segments) -> write (chunked MERGE into H2).
+ * A refresh therefore takes about as long as the slowest stage rather than the sum of all three.
+ * The download stage reads through the {@link DownloadCache}, so a cached file is loaded without the network.
+ */
+public class InstrumentPipeline {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNK_QUEUE_CAPACITY = 32;
+    private static final int BATCH_QUEUE_CAPACITY = 4;
+    private static final byte[] END_OF_DOWNLOAD = new byte[0];
+    private static final List<Stock> END_OF_PARSE = new ArrayList<>();
+
+    private final DatabaseManager dbManager;
+    private final String url;
+    private final Set<Segment> segments;
+    private final int batchSize;
+
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(CHUNK_QUEUE_CAPACITY);
+    private final BlockingQueue<List<Stock>> batches = new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY);
+
+    private final StageStats downloadStats = new StageStats("download", "KB");
+    private final StageStats parseStats = new StageStats("parse", "instruments");
+    private final StageStats writeStats = new StageStats("write", "rows");
+
+    private ProgressListener progress = ProgressListener.NONE;
+    private volatile long downloadedBytes;
+    private volatile long contentLength = -1;
+    private volatile String etag;
+    private volatile String lastModified;
+    private volatile String contentHash;
+
+    public InstrumentPipeline(DatabaseManager dbManager) {
+        this(dbManager, Scrapper.NSE_URL, Scrapper.DEFAULT_BATCH_SIZE);
+    }
+
+    public InstrumentPipeline(DatabaseManager dbManager, String url, int batchSize) {
+        this(dbManager, url, EnumSet.of(Segment.NSE_EQ), batchSize);
+    }
+
+    // Loads the given segments of one exchange's instrument file
+    public InstrumentPipeline(DatabaseManager dbManager, Exchange exchange, Set<Segment> segments) {
+        this(dbManager, exchange.getInstrumentUrl(), segments, Scrapper.DEFAULT_BATCH_SIZE);
+    }
+
+    public InstrumentPipeline(DatabaseManager dbManager, String url, Set<Segment> segments, int batchSize) {
+        this.dbManager = dbManager;
+        this.url = url;
+        this.segments = segments;
+        this.batchSize = batchSize;
+    }
+
+    // Progress is reported in downloaded bytes, the only stage whose total is known in advance
+    public InstrumentPipeline setProgressListener(ProgressListener progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    // Runs all stages to completion and returns the number of rows written.
+    public int run() throws IOException, SQLException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "instrument-pipeline-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Integer> stages = new ExecutorCompletionService<>(executor);
+        stages.submit(this::download);
+        stages.submit(this::parse);
+        stages.submit(this::write);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                stages.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Instrument load interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new IOException("Instrument load failed", cause);
+        } finally {
+            // Interrupts any stage still blocked on a queue when another stage has failed
+            executor.shutdownNow();
+        }
+
+        System.out.println(downloadStats);
+        System.out.println(parseStats);
+        System.out.println(writeStats);
+        return (int) writeStats.units;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    // Validators of the downloaded file, for conditional refreshes later
+    public String getETag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    // SHA-256 of the loaded file, once run() has completed
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    private Integer download() throws IOException, InterruptedException {
+        downloadStats.start();
+        DownloadCache.Download in = DownloadCache.getInstance().open(url);
+        try (in) {
+            contentLength = in.getContentLength();
+            etag = in.getETag();
+            lastModified = in.getLastModified();
+            while (true) {
+                byte[] chunk = in.readNBytes(CHUNK_SIZE);
+                if (chunk.length == 0) {
+                    break;
+                }
+                downloadStats.add(chunk.length / 1024.0);
+                downloadedBytes += chunk.length;
+                progress.onProgress(String.format("Downloading instruments (%,d KB)", downloadedBytes / 1024),
+                    downloadedBytes, contentLength);
+                downloadStats.put(chunks, chunk);
+            }
+        }
+        contentHash = in.getHash();
+        downloadStats.put(chunks, END_OF_DOWNLOAD);
+        downloadStats.finish();
+        return 0;
+    }
+
+    private Integer parse() throws IOException, InterruptedException {
+        parseStats.start();
+        int parsed = Scrapper.parseStocks(new ChunkInputStream(), segments, batchSize, batch -> {
+            parseStats.add(batch.size());
+            try {
+                parseStats.put(batches, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Parse stage interrupted", e);
+            }
+        });
+        parseStats.put(batches, END_OF_PARSE);
+        parseStats.finish();
+        return parsed;
+    }
+
+    private Integer write() throws SQLException, InterruptedException {
+        writeStats.start();
+        try (Connection conn = dbManager.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(DatabaseManager.MERGE_INSTRUMENT_SQL)) {
+            conn.setAutoCommit(false);
+            while (true) {
+                List<Stock> batch = writeStats.take(batches);
+                if (batch == END_OF_PARSE) {
+                    break;
+                }
+                DatabaseManager.bindInstruments(pstmt, batch);
+                pstmt.executeBatch();
+                conn.commit();
+                writeStats.add(batch.size());
+                progress.onProgress(String.format("Saving instruments (%,.0f)", writeStats.units),
+                    downloadedBytes, contentLength);
+            }
+        }
+        writeStats.finish();
+        return (int) writeStats.units;
+    }
+
+    // Exposes the download queue as an InputStream for the GZIP/JSON parser.
+    private class ChunkInputStream extends InputStream {
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean finished;
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            while (!finished && position == current.length) {
+                try {
+                    byte[] next = parseStats.take(chunks);
+                    if (next == END_OF_DOWNLOAD) {
+                        finished = true;
+                    } else {
+                        current = next;
+                        position = 0;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Parse stage interrupted");
+                }
+            }
+            return position < current.length;
+        }
+    }
+
+    // Per-stage throughput, including how long the stage spent blocked on its neighbours.
+    private static class StageStats {
+        private final String name;
+        private final String unit;
+        private long startNanos;
+        private long endNanos;
+        private long blockedNanos;
+        private double units;
+
+        StageStats(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        void start() {
+            startNanos = System.nanoTime();
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        void add(double count) {
+            units += count;
+        }
+
+        <T> void put(BlockingQueue<T> queue, T item) throws InterruptedException {
+            long t = System.nanoTime();
+            queue.put(item);
+            blockedNanos += System.nanoTime() - t;
+        }
+
+        <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+            long t = System.nanoTime();
+            T item = queue.take();
+            blockedNanos += System.nanoTime() - t;
+            return item;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = (endNanos - startNanos) / 1e9;
+            return String.format("Instrument pipeline %-8s %,.0f %s in %.2fs (%,.0f %s/s, blocked %.2fs)",
+                name, units, unit, seconds, seconds > 0 ? units / seconds : units, unit, blockedNanos / 1e9);
+        }
+    }
+}
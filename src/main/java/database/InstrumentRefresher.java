@@ -0,0 +1,244 @@
+package database;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import model.Exchange;
+import model.Segment;
+import model.Stock;
+import util.DownloadCache;
+import util.Scrapper;
+
+/**
+ * Brings the stored segments of one exchange up to date. The download is conditional on the stored
+ * ETag / Last-Modified when all the segments were built from the same download, so an unchanged file
+ * costs one 304 round trip; a segment loaded later from a newer file makes it unconditional. A changed
+ * file is diffed against those segments' rows by instrument key and only inserted, updated and deleted
+ * rows are written, together with the new validators, in a single transaction. The new file is also
+ * written to the {@link DownloadCache} as it is parsed.
+ */
+public class InstrumentRefresher {
+    private static final int TIMEOUT_MILLIS = 30_000;
+
+    private final DatabaseManager dbManager;
+    private final String url;
+    private final Set<Segment> segments;
+
+    public InstrumentRefresher(DatabaseManager dbManager) {
+        this(dbManager, Scrapper.NSE_URL);
+    }
+
+    public InstrumentRefresher(DatabaseManager dbManager, String url) {
+        this(dbManager, url, EnumSet.of(Segment.NSE_EQ));
+    }
+
+    public InstrumentRefresher(DatabaseManager dbManager, Exchange exchange, Set<Segment> segments) {
+        this(dbManager, exchange.getInstrumentUrl(), segments);
+    }
+
+    public InstrumentRefresher(DatabaseManager dbManager, String url, Set<Segment> segments) {
+        this.dbManager = dbManager;
+        this.url = url;
+        this.segments = segments;
+    }
+
+    public Result run() throws IOException, SQLException {
+        long start = System.nanoTime();
+        DownloadMetadata metadata;
+        try (Connection conn = dbManager.openConnection()) {
+            metadata = DownloadMetadata.load(conn, url, segments);
+        }
+
+        HttpURLConnection http = (HttpURLConnection) new URL(url).openConnection();
+        http.setConnectTimeout(TIMEOUT_MILLIS);
+        http.setReadTimeout(TIMEOUT_MILLIS);
+        if (metadata.etag != null) {
+            http.setRequestProperty("If-None-Match", metadata.etag);
+        }
+        if (metadata.lastModified != null) {
+            http.setRequestProperty("If-Modified-Since", metadata.lastModified);
+        }
+        Map<String, Stock> latest = new HashMap<>();
+        String etag;
+        String lastModified;
+        String contentHash;
+        try {
+            int status = http.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                try (Connection conn = dbManager.openConnection()) {
+                    DownloadMetadata.saveChecked(conn, url, segments);
+                }
+                return new Result(url, false, 0, 0, 0, metadata.contentHash, System.nanoTime() - start);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Instrument download failed: HTTP " + status);
+            }
+            etag = http.getHeaderField("ETag");
+            lastModified = http.getHeaderField("Last-Modified");
+            DownloadCache.Download in = DownloadCache.getInstance()
+                .record(url, http.getInputStream(), etag, lastModified, http.getContentLengthLong());
+            try (in) {
+                Scrapper.parseStocks(in, segments, Scrapper.DEFAULT_BATCH_SIZE, batch -> {
+                    for (Stock stock : batch) {
+                        latest.put(stock.getInstrument_key(), stock);
+                    }
+                });
+                // Drain what follows the JSON array so the whole body is hashed and cached
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            contentHash = in.getHash();
+        } finally {
+            http.disconnect();
+        }
+        // A truncated or reshaped file must not be read as "every instrument was delisted"
+        if (latest.isEmpty()) {
+            throw new IOException("Instrument file contained no instruments of " + segments);
+        }
+        return apply(latest, etag, lastModified, contentHash, start);
+    }
+
+    private Result apply(Map<String, Stock> latest, String etag, String lastModified, String contentHash, long start)
+            throws SQLException {
+        try (Connection conn = dbManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Stock> upserts = new ArrayList<>();
+                List<String> deletes = new ArrayList<>();
+                int inserted = 0;
+                try (PreparedStatement select = conn.prepareStatement(
+                        "SELECT * FROM instruments WHERE segment = ANY(?)")) {
+                    select.setObject(1, segments.stream().map(Segment::name).toArray(String[]::new));
+                    ResultSet rs = select.executeQuery();
+                    Map<String, Stock> remaining = new HashMap<>(latest);
+                    while (rs.next()) {
+                        Stock stored = DatabaseManager.readStock(rs);
+                        Stock current = remaining.remove(stored.getInstrument_key());
+                        if (current == null) {
+                            deletes.add(stored.getInstrument_key());
+                        } else if (!sameRow(stored, current)) {
+                            upserts.add(current);
+                        }
+                    }
+                    inserted = remaining.size();
+                    upserts.addAll(remaining.values());
+                }
+                if (!upserts.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(DatabaseManager.MERGE_INSTRUMENT_SQL)) {
+                        DatabaseManager.bindInstruments(pstmt, upserts);
+                        pstmt.executeBatch();
+                    }
+                }
+                if (!deletes.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "DELETE FROM instruments WHERE instrument_key = ?")) {
+                        for (String key : deletes) {
+                            pstmt.setString(1, key);
+                            pstmt.addBatch();
+                        }
+                        pstmt.executeBatch();
+                    }
+                }
+                DownloadMetadata.saveChanged(conn, url, segments, etag, lastModified, contentHash);
+                conn.commit();
+                return new Result(url, true, inserted, upserts.size() - inserted, deletes.size(), contentHash,
+                    System.nanoTime() - start);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Compares the columns as stored; tick_size and strike_price are DECIMAL(_,2), so compare at that scale
+    private static boolean sameRow(Stock a, Stock b) {
+        return Objects.equals(a.getName(), b.getName())
+            && Objects.equals(a.getExchange(), b.getExchange())
+            && Objects.equals(a.getIsin(), b.getIsin())
+            && Objects.equals(a.getInstrument_type(), b.getInstrument_type())
+            && Objects.equals(a.getTrading_symbol(), b.getTrading_symbol())
+            && a.getLot_size() == b.getLot_size()
+            && a.getFreeze_quantity() == b.getFreeze_quantity()
+            && Objects.equals(a.getExchange_token(), b.getExchange_token())
+            && Math.round(a.getTick_size() * 100) == Math.round(b.getTick_size() * 100)
+            && Objects.equals(a.getShort_name(), b.getShort_name())
+            && a.getQty_multiplier() == b.getQty_multiplier()
+            && Objects.equals(a.getSecurity_type(), b.getSecurity_type())
+            && Objects.equals(a.getSegment(), b.getSegment())
+            && Math.round(a.getStrike_price() * 100) == Math.round(b.getStrike_price() * 100)
+            && a.getExpiry() == b.getExpiry()
+            && Objects.equals(a.getUnderlying_symbol(), b.getUnderlying_symbol())
+            && Objects.equals(a.getUnderlying_key(), b.getUnderlying_key());
+    }
+
+    public static class Result {
+        private final String url;
+        private final boolean modified;
+        private final int inserted;
+        private final int updated;
+        private final int deleted;
+        private final String contentHash;
+        private final long elapsedNanos;
+
+        Result(String url, boolean modified, int inserted, int updated, int deleted, String contentHash,
+               long elapsedNanos) {
+            this.url = url;
+            this.modified = modified;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.deleted = deleted;
+            this.contentHash = contentHash;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // False when the server answered 304 Not Modified
+        public boolean isModified() {
+            return modified;
+        }
+
+        public boolean hasChanges() {
+            return inserted + updated + deleted > 0;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        // SHA-256 of the instrument file the table now reflects
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        @Override
+        public String toString() {
+            double millis = elapsedNanos / 1e6;
+            if (!modified) {
+                return String.format("Instrument master %s not modified (%.0f ms)", url, millis);
+            }
+            return String.format("Instrument master %s refreshed: %d inserted, %d updated, %d deleted (%.0f ms)",
+                url, inserted, updated, deleted, millis);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import model.InstrumentTable;
+import model.Segment;
+import model.Stock;
+
+/**
+ * In-memory index over the instruments table. Every refresh builds a complete immutable snapshot and
+ * publishes it with a single volatile write, so lookups never lock and never see a half-built index.
+ * Instruments are stored column-wise in an {@link InstrumentTable}; a row number doubles as the
+ * instrument id and lookups return flyweight {@link Stock} views.
+ *
+ * Ids are stable: an instrument key gets an id the first time it is published and keeps it for the life
+ * of the process, and ids are never reused. An instrument dropped by a later publish keeps its row (it
+ * is only removed from the indexes), so an id held by an order, a position or a watchlist never comes
+ * to name a different instrument. New instruments get ids past the previous {@link #size()}; consumers
+ * with per-id arrays grow them from a {@link TableListener}.
+ *
+ * The snapshot is sharded by segment: each segment has its own indexes, so a lookup or search in one
+ * segment (say NSE_FO options) never touches another's, and republishing one segment re-indexes only
+ * that segment. Lookups without a segment try the shards in {@link Segment} order; instrument keys carry
+ * their segment ("NSE_FO|43210") and go straight to their shard.
+ */
+public class InstrumentRegistry {
+    public static final int NOT_FOUND = -1;
+
+    // Known segments in enum order, then anything else by name
+    private static final Comparator<String> SHARD_ORDER = Comparator
+        .comparing((String code) -> Segment.fromCode(code) == null ? Integer.MAX_VALUE : Segment.fromCode(code).ordinal())
+        .thenComparing(Comparator.naturalOrder());
+
+    private volatile Snapshot snapshot = new Snapshot();
+    private final List<TableListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final Map<String, Integer> idsByKey = new HashMap<>();
+    private int nextId;
+
+    private InstrumentRegistry() {
+    }
+
+    private static class Holder {
+        private static final InstrumentRegistry INSTANCE = new InstrumentRegistry();
+    }
+
+    public static InstrumentRegistry getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Reloads from H2. Readers keep using the previous snapshot until the new one is ready.
+    public void refresh() {
+        load(DatabaseManager.getInstance().getInstrumentTableFromDB());
+    }
+
+    public void load(List<Stock> stocks) {
+        load(InstrumentTable.of(stocks));
+    }
+
+    public void load(InstrumentTable table) {
+        Map<String, InstrumentTable.Builder> builders = new HashMap<>();
+        for (int id = 0; id < table.size(); id++) {
+            builders.computeIfAbsent(shardKey(table.segment(id)), key -> new InstrumentTable.Builder())
+                .add(table.get(id));
+        }
+        Map<String, InstrumentTable> segments = new HashMap<>();
+        builders.forEach((key, builder) -> segments.put(key, builder.build()));
+        loadSegments(segments);
+    }
+
+    // Replaces every shard, one table per segment code; segments left out are dropped
+    public synchronized void loadSegments(Map<String, InstrumentTable> segments) {
+        publish(segments, segments.keySet());
+    }
+
+    // Replaces the shards of the given segments and keeps the others, indexes included
+    public synchronized void updateSegments(Map<String, InstrumentTable> segments) {
+        Map<String, InstrumentTable> merged = new HashMap<>();
+        for (Shard shard : snapshot.shards.values()) {
+            merged.put(shard.segment, shard.segmentTable);
+        }
+        merged.putAll(segments);
+        publish(merged, segments.keySet());
+    }
+
+    private void publish(Map<String, InstrumentTable> segments, Set<String> changed) {
+        long start = System.nanoTime();
+        Snapshot previous = snapshot;
+        Map<String, InstrumentTable> ordered = new TreeMap<>(SHARD_ORDER);
+        ordered.putAll(segments);
+
+        List<Shard> shards = new ArrayList<>();
+        List<Shard> toIndex = new ArrayList<>();
+        for (Map.Entry<String, InstrumentTable> entry : ordered.entrySet()) {
+            Shard old = previous.shards.get(entry.getKey());
+            if (old != null && !changed.contains(entry.getKey()) && old.segmentTable == entry.getValue()) {
+                shards.add(old);
+            } else {
+                Shard shard = new Shard(entry.getKey(), entry.getValue(), assignIds(entry.getValue()));
+                shards.add(shard);
+                toIndex.add(shard);
+            }
+        }
+        InstrumentTable table = buildTable(previous.table, shards);
+        // Shards index independently; a large options shard does not hold up the others
+        toIndex.parallelStream().forEach(shard -> shard.index(table));
+        Map<String, Shard> byCode = new LinkedHashMap<>();
+        for (Shard shard : shards) {
+            byCode.put(shard.segment, shard);
+        }
+        snapshot = new Snapshot(table, byCode, previous.version + 1);
+
+        StringBuilder sizes = new StringBuilder();
+        for (Shard shard : shards) {
+            sizes.append(sizes.length() == 0 ? "" : ", ").append(shard.segment).append(' ').append(shard.size());
+        }
+        System.out.printf("Instrument registry loaded: %d (%s), %d re-indexed, in %.1f ms%n", table.size(), sizes,
+            toIndex.size(), (System.nanoTime() - start) / 1e6);
+        for (TableListener listener : listeners) {
+            listener.onTableChanged(table, snapshot.version);
+        }
+    }
+
+    // Global id of every row of a segment table, reusing the id of any key seen before
+    private int[] assignIds(InstrumentTable segmentTable) {
+        int[] ids = new int[segmentTable.size()];
+        for (int row = 0; row < ids.length; row++) {
+            String key = segmentTable.instrumentKey(row);
+            ids[row] = key == null ? nextId++ : idsByKey.computeIfAbsent(key, k -> nextId++);
+        }
+        return ids;
+    }
+
+    // Places every shard row at its id; ids no shard has any more keep their row from the previous table
+    private InstrumentTable buildTable(InstrumentTable previous, List<Shard> shards) {
+        List<InstrumentTable> parts = new ArrayList<>();
+        int[] rows = new int[nextId];
+        Arrays.fill(rows, -1);
+        int offset = 0;
+        for (Shard shard : shards) {
+            parts.add(shard.segmentTable);
+            for (int row = 0; row < shard.ids.length; row++) {
+                rows[shard.ids[row]] = offset + row;
+            }
+            offset += shard.segmentTable.size();
+        }
+        boolean identity = true;
+        boolean dropped = false;
+        for (int id = 0; id < rows.length; id++) {
+            identity &= rows[id] == id;
+            dropped |= rows[id] < 0;
+        }
+        if (dropped) {
+            parts.add(previous);
+            for (int id = 0; id < rows.length; id++) {
+                if (rows[id] < 0) {
+                    rows[id] = offset + id;
+                }
+            }
+        }
+        InstrumentTable concatenated = InstrumentTable.concat(parts);
+        // The first load assigns ids in shard order, so the concatenation is already the table
+        return identity && concatenated.size() == rows.length ? concatenated : concatenated.select(rows);
+    }
+
+    public void addListener(TableListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TableListener listener) {
+        listeners.remove(listener);
+    }
+
+    private static String shardKey(String segment) {
+        return segment == null ? "" : segment;
+    }
+
+    // All instruments ever published, dropped ones included; ids are rows of this table
+    public InstrumentTable getTable() {
+        return snapshot.table;
+    }
+
+    // Every id is below size()
+    public int size() {
+        return snapshot.table.size();
+    }
+
+    // Incremented by every publish, so callers can tell whether cached lookups are still current
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    // Instruments currently listed, without the dropped ones
+    public List<Stock> getAll() {
+        Snapshot s = snapshot;
+        List<Stock> all = new ArrayList<>();
+        for (Shard shard : s.shards.values()) {
+            for (int id : shard.ids) {
+                all.add(s.table.get(id));
+            }
+        }
+        return all;
+    }
+
+    // The instruments of one segment, or null when it is not loaded
+    public Shard getShard(Segment segment) {
+        return snapshot.shards.get(segment.name());
+    }
+
+    public Stock getBySymbol(String tradingSymbol) {
+        Snapshot s = snapshot;
+        for (Shard shard : s.shards.values()) {
+            Integer id = shard.symbolIndex.get(tradingSymbol);
+            if (id != null) {
+                return s.table.get(id);
+            }
+        }
+        return null;
+    }
+
+    public Stock getBySymbol(Segment segment, String tradingSymbol) {
+        Snapshot s = snapshot;
+        Shard shard = s.shards.get(segment.name());
+        return shard == null ? null : s.view(shard.symbolIndex.get(tradingSymbol));
+    }
+
+    public Stock getByInstrumentKey(String instrumentKey) {
+        int id = getId(instrumentKey);
+        return id == NOT_FOUND ? null : snapshot.table.get(id);
+    }
+
+    public Stock getByIsin(String isin) {
+        Snapshot s = snapshot;
+        for (Shard shard : s.shards.values()) {
+            Integer id = shard.isinIndex.get(isin);
+            if (id != null) {
+                return s.table.get(id);
+            }
+        }
+        return null;
+    }
+
+    public Stock getByExchangeToken(String exchangeToken) {
+        Snapshot s = snapshot;
+        for (Shard shard : s.shards.values()) {
+            Integer id = shard.tokenIndex.get(exchangeToken);
+            if (id != null) {
+                return s.table.get(id);
+            }
+        }
+        return null;
+    }
+
+    // Exchange tokens are only unique within a segment
+    public Stock getByExchangeToken(Segment segment, String exchangeToken) {
+        Snapshot s = snapshot;
+        Shard shard = s.shards.get(segment.name());
+        return shard == null ? null : s.view(shard.tokenIndex.get(exchangeToken));
+    }
+
+    // Instrument id (row in getTable()) for an instrument key, or NOT_FOUND
+    public int getId(String instrumentKey) {
+        Snapshot s = snapshot;
+        int separator = instrumentKey.indexOf('|');
+        Shard shard = separator > 0 ? s.shards.get(instrumentKey.substring(0, separator)) : null;
+        if (shard != null) {
+            Integer id = shard.keyIndex.get(instrumentKey);
+            return id == null ? NOT_FOUND : id;
+        }
+        for (Shard other : s.shards.values()) {
+            Integer id = other.keyIndex.get(instrumentKey);
+            if (id != null) {
+                return id;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    // Symbols starting with prefix (case-insensitive), in symbol order within each segment
+    public List<Stock> searchPrefix(String prefix, int limit) {
+        Snapshot s = snapshot;
+        List<Stock> matches = new ArrayList<>();
+        for (Shard shard : s.shards.values()) {
+            shard.addPrefixMatches(s.table, prefix, limit, matches);
+        }
+        return matches;
+    }
+
+    public List<Stock> searchPrefix(Segment segment, String prefix, int limit) {
+        Snapshot s = snapshot;
+        List<Stock> matches = new ArrayList<>();
+        Shard shard = s.shards.get(segment.name());
+        if (shard != null) {
+            shard.addPrefixMatches(s.table, prefix, limit, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Search for the watchlist box. Ranks symbol prefix matches first, then symbols containing the query,
+     * then company names containing it, then symbols containing its letters in order (e.g. "HDFCB" -> "HDFCBANK").
+     * Searches every segment; use {@link #search(Segment, String, int)} to stay within one.
+     */
+    public List<Stock> search(String query, int limit) {
+        Snapshot s = snapshot;
+        return search(s, new ArrayList<>(s.shards.values()), query, limit);
+    }
+
+    public List<Stock> search(Segment segment, String query, int limit) {
+        Snapshot s = snapshot;
+        Shard shard = s.shards.get(segment.name());
+        return shard == null ? Collections.emptyList() : search(s, List.of(shard), query, limit);
+    }
+
+    private static List<Stock> search(Snapshot s, List<Shard> shards, String query, int limit) {
+        String q = query.trim();
+        if (q.isEmpty()) {
+            return Collections.emptyList();
+        }
+        InstrumentTable table = s.table;
+        List<Stock> prefixMatches = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.addPrefixMatches(table, q, limit, prefixMatches);
+        }
+        Set<Stock> matches = new LinkedHashSet<>(prefixMatches);
+        for (Shard shard : shards) {
+            for (int i = 0; i < shard.sortedIds.length && matches.size() < limit; i++) {
+                if (containsIgnoreCase(table.symbol(shard.sortedIds[i]), q)) {
+                    matches.add(table.get(shard.sortedIds[i]));
+                }
+            }
+        }
+        for (Shard shard : shards) {
+            for (int i = 0; i < shard.sortedIds.length && matches.size() < limit; i++) {
+                if (containsIgnoreCase(table.name(shard.sortedIds[i]), q)) {
+                    matches.add(table.get(shard.sortedIds[i]));
+                }
+            }
+        }
+        for (Shard shard : shards) {
+            for (int i = 0; i < shard.sortedIds.length && matches.size() < limit; i++) {
+                if (isSubsequenceIgnoreCase(q, table.symbol(shard.sortedIds[i]))) {
+                    matches.add(table.get(shard.sortedIds[i]));
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    private static boolean containsIgnoreCase(String text, String query) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i + query.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Told after every publish, on the publishing thread, with the new table and version. Ids of
+     * instruments already known are unchanged; new instruments have ids up to table.size() - 1.
+     */
+    @FunctionalInterface
+    public interface TableListener {
+        void onTableChanged(InstrumentTable table, long version);
+    }
+
+    private static boolean isSubsequenceIgnoreCase(String query, String text) {
+        int q = 0;
+        for (int t = 0; t < text.length() && q < query.length(); t++) {
+            if (Character.toUpperCase(text.charAt(t)) == Character.toUpperCase(query.charAt(q))) {
+                q++;
+            }
+        }
+        return q == query.length();
+    }
+
+    private static class Snapshot {
+        private final InstrumentTable table;
+        private final Map<String, Shard> shards;
+        private final long version;
+
+        Snapshot() {
+            this(InstrumentTable.of(Collections.emptyList()), Collections.emptyMap(), 0);
+        }
+
+        Snapshot(InstrumentTable table, Map<String, Shard> shards, long version) {
+            this.table = table;
+            this.shards = shards;
+            this.version = version;
+        }
+
+        Stock view(Integer id) {
+            return id == null ? null : table.get(id);
+        }
+    }
+
+    /**
+     * The instruments of one segment: row r of the segment table has id {@link #id(int) id(r)} in
+     * {@link #getTable()}, and the indexes map to those ids. Immutable once published, so an unchanged
+     * segment's shard carries over to the next snapshot as is.
+     */
+    public static class Shard {
+        private final String segment;
+        private final InstrumentTable segmentTable;
+        private final int[] ids;
+        private int[] sortedIds;
+        private Map<String, Integer> symbolIndex;
+        private Map<String, Integer> keyIndex;
+        private Map<String, Integer> isinIndex;
+        private Map<String, Integer> tokenIndex;
+
+        Shard(String segment, InstrumentTable segmentTable, int[] ids) {
+            this.segment = segment;
+            this.segmentTable = segmentTable;
+            this.ids = ids;
+        }
+
+        // Runs before the snapshot is published, which makes the fields visible to readers
+        private void index(InstrumentTable table) {
+            int size = ids.length;
+            sortedIds = Arrays.stream(ids)
+                .filter(id -> table.symbol(id) != null)
+                .boxed()
+                .sorted((a, b) -> String.CASE_INSENSITIVE_ORDER.compare(table.symbol(a), table.symbol(b)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+            symbolIndex = new HashMap<>(size * 2);
+            keyIndex = new HashMap<>(size * 2);
+            isinIndex = new HashMap<>(size * 2);
+            tokenIndex = new HashMap<>(size * 2);
+            for (int id : sortedIds) {
+                symbolIndex.put(table.symbol(id), id);
+                putIfPresent(keyIndex, table.instrumentKey(id), id);
+                putIfPresent(isinIndex, table.isin(id), id);
+                putIfPresent(tokenIndex, table.exchangeToken(id), id);
+            }
+        }
+
+        private static void putIfPresent(Map<String, Integer> index, String key, int id) {
+            if (key != null && !key.isEmpty()) {
+                index.put(key, id);
+            }
+        }
+
+        private void addPrefixMatches(InstrumentTable table, String prefix, int limit, List<Stock> matches) {
+            for (int i = firstAtOrAfter(table, prefix); i < sortedIds.length && matches.size() < limit; i++) {
+                String symbol = table.symbol(sortedIds[i]);
+                if (!symbol.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    break;
+                }
+                matches.add(table.get(sortedIds[i]));
+            }
+        }
+
+        // Binary search for the first symbol >= prefix, ignoring case
+        private int firstAtOrAfter(InstrumentTable table, String prefix) {
+            int low = 0;
+            int high = sortedIds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (String.CASE_INSENSITIVE_ORDER.compare(table.symbol(sortedIds[mid]), prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        public String getSegment() {
+            return segment;
+        }
+
+        // Id of row r of the segment table
+        public int id(int row) {
+            return ids[row];
+        }
+
+        public int[] getIds() {
+            return ids.clone();
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        // The segment's rows on their own, numbered from 0
+        public InstrumentTable getSegmentTable() {
+            return segmentTable;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package database;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import model.InstrumentTable;
+import model.Segment;
+import util.DownloadCache;
+
+/**
+ * Binary copy of one segment's instruments, named after the segment and the SHA-256 of the instrument file
+ * it was built from (snapshots/&lt;segment&gt;-&lt;hash&gt;.bin under the download cache). Cold starts
+ * memory-map it and bulk copy the columns instead of scanning H2 and re-encoding every row.
+ *
+ * Layout: magic, version, then {@link InstrumentTable#writeColumns}.
+ */
+public class InstrumentSnapshot {
+    private static final int MAGIC = 0x494E5354;  // "INST"
+    private static final int VERSION = 2;
+
+    private InstrumentSnapshot() {
+    }
+
+    public static Path path(Segment segment, String sourceHash) {
+        return DownloadCache.getInstance().getRoot().resolve("snapshots").resolve(segment + "-" + sourceHash + ".bin");
+    }
+
+    // Writes the segment's snapshot for sourceHash and deletes its snapshots of older files
+    public static void write(InstrumentTable table, Segment segment, String sourceHash) throws IOException {
+        Path target = path(segment, sourceHash);
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, "snapshot", ".part");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            table.writeColumns(out);
+        }
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(dir, segment + "-*.bin")) {
+            for (Path snapshot : snapshots) {
+                if (!snapshot.equals(target)) {
+                    Files.deleteIfExists(snapshot);
+                }
+            }
+        }
+    }
+
+    // Returns null when there is no usable snapshot of the segment for sourceHash
+    public static InstrumentTable read(Segment segment, String sourceHash) {
+        if (sourceHash == null) {
+            return null;
+        }
+        Path file = path(segment, sourceHash);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                System.err.println("Ignoring instrument snapshot with an unknown format: " + file);
+                return null;
+            }
+            return InstrumentTable.readColumns(buffer);
+        } catch (IOException | RuntimeException e) {
+            // A truncated or corrupt snapshot only costs the slower load from H2
+            System.err.println("Ignoring unreadable instrument snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package history;
+
+import java.util.Arrays;
+
+import model.Interval;
+
+/**
+ * Incrementally maintains the current bar of every interval for a set of instruments. State lives in
+ * primitive arrays indexed by instrument and interval, so each trade or 1-minute bar costs a fixed amount
+ * of arithmetic per interval and allocates nothing. A bar is emitted to the listener as soon as an update
+ * falls into the next bucket, or when {@link #flush(long)} passes its end. Updates outside NSE trading
+ * hours are ignored, and intraday bars never straddle the close.
+ *
+ * Not thread-safe: one thread owns an aggregator. See {@link ShardedBarAggregator} for multi-core use.
+ */
+public class BarAggregator {
+    private static final long NO_BAR = Long.MIN_VALUE;
+
+    private final int[] minutes;
+    private final int intervalCount;
+    private final int shard;
+    private final int shardCount;
+    private final BarListener listener;
+
+    // Indexed by slot(instrument) * intervalCount + interval
+    private final long[] bucket;
+    private final long[] bucketEnd;
+    // End of the last emitted bar; updates before it arrived too late and are dropped
+    private final long[] closedUntil;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+
+    private long nextFlush = Long.MAX_VALUE;
+
+    public BarAggregator(int instrumentCount, int[] intervalMinutes, BarListener listener) {
+        this(instrumentCount, intervalMinutes, listener, 0, 1);
+    }
+
+    // Owns the instruments with id % shardCount == shard
+    BarAggregator(int instrumentCount, int[] intervalMinutes, BarListener listener, int shard, int shardCount) {
+        this.minutes = intervalMinutes.clone();
+        this.intervalCount = intervalMinutes.length;
+        this.shard = shard;
+        this.shardCount = shardCount;
+        this.listener = listener;
+        int slots = (instrumentCount + shardCount - 1) / shardCount * intervalCount;
+        bucket = new long[slots];
+        bucketEnd = new long[slots];
+        closedUntil = new long[slots];
+        open = new double[slots];
+        high = new double[slots];
+        low = new double[slots];
+        close = new double[slots];
+        volume = new long[slots];
+        Arrays.fill(bucket, NO_BAR);
+        Arrays.fill(closedUntil, Long.MIN_VALUE);
+    }
+
+    public static int[] minutes(Interval... intervals) {
+        int[] result = new int[intervals.length];
+        for (int i = 0; i < intervals.length; i++) {
+            result[i] = intervals[i].getMinutes();
+        }
+        return result;
+    }
+
+    public boolean owns(int instrumentId) {
+        return instrumentId % shardCount == shard;
+    }
+
+    // A trade (or last-price tick) at epochMillis
+    public void onTrade(int instrumentId, long epochMillis, double price, long quantity) {
+        update(instrumentId, epochMillis, price, price, price, price, quantity);
+    }
+
+    // A completed 1-minute bar starting at epochMillis
+    public void onBar(int instrumentId, long epochMillis, double o, double h, double l, double c, long v) {
+        update(instrumentId, epochMillis, o, h, l, c, v);
+    }
+
+    private void update(int instrumentId, long epochMillis, double o, double h, double l, double c, long v) {
+        if (!MarketSession.isOpen(epochMillis)) {
+            return;
+        }
+        flush(epochMillis);
+        int base = instrumentId / shardCount * intervalCount;
+        for (int k = 0; k < intervalCount; k++) {
+            int i = base + k;
+            long b = MarketSession.bucketStart(epochMillis, minutes[k]);
+            if (b != bucket[i]) {
+                if (b < closedUntil[i] || (bucket[i] != NO_BAR && b < bucket[i])) {
+                    // Late update for a bar that has already been emitted
+                    continue;
+                }
+                if (bucket[i] != NO_BAR) {
+                    emit(instrumentId, k, i);
+                }
+                bucket[i] = b;
+                bucketEnd[i] = MarketSession.bucketEnd(b, minutes[k]);
+                open[i] = o;
+                high[i] = h;
+                low[i] = l;
+                volume[i] = 0;
+                if (bucketEnd[i] < nextFlush) {
+                    nextFlush = bucketEnd[i];
+                }
+            } else {
+                if (h > high[i]) {
+                    high[i] = h;
+                }
+                if (l < low[i]) {
+                    low[i] = l;
+                }
+            }
+            close[i] = c;
+            volume[i] += v;
+        }
+    }
+
+    /**
+     * Emits every open bar whose period has ended by epochMillis. Called automatically on each update;
+     * call it from a timer as well so quiet instruments still close their bars at session boundaries.
+     */
+    public void flush(long epochMillis) {
+        if (epochMillis < nextFlush) {
+            return;
+        }
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < bucket.length; i++) {
+            if (bucket[i] == NO_BAR) {
+                continue;
+            }
+            if (bucketEnd[i] <= epochMillis) {
+                int slot = i / intervalCount;
+                emit(slot * shardCount + shard, i % intervalCount, i);
+                bucket[i] = NO_BAR;
+            } else if (bucketEnd[i] < earliest) {
+                earliest = bucketEnd[i];
+            }
+        }
+        nextFlush = earliest;
+    }
+
+    private void emit(int instrumentId, int intervalIndex, int i) {
+        closedUntil[i] = bucketEnd[i];
+        listener.onBar(instrumentId, intervalIndex, bucket[i], open[i], high[i], low[i], close[i], volume[i]);
+    }
+
+    // Current (still forming) bar, or NaN close if there is none
+    public double currentClose(int instrumentId, int intervalIndex) {
+        int i = instrumentId / shardCount * intervalCount + intervalIndex;
+        return bucket[i] == NO_BAR ? Double.NaN : close[i];
+    }
+
+    public long currentBarStart(int instrumentId, int intervalIndex) {
+        return bucket[instrumentId / shardCount * intervalCount + intervalIndex];
+    }
+
+    // Interval lengths in minutes, in listener index order
+    public int[] getMinutes() {
+        return minutes.clone();
+    }
+}
@@ -0,0 +1,7 @@
+package history;
+
+@FunctionalInterface
+public interface BarListener {
+    // A completed bar. intervalIndex refers to the aggregator's interval list. Called on the aggregating thread.
+    void onBar(int instrumentId, int intervalIndex, long start, double open, double high, double low, double close, long volume);
+}
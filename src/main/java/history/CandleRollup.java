@@ -0,0 +1,85 @@
+package history;
+
+import java.io.IOException;
+
+import model.Interval;
+
+/**
+ * Builds coarser bars from stored 1-minute bars. Incremental: only minutes after the last stored target
+ * bar are read, and the trailing bar is written only once its period has fully elapsed in the source data.
+ *
+ * <pre>java -cp ... history.CandleRollup [candle dir]</pre>
+ */
+public class CandleRollup {
+
+    private CandleRollup() {
+    }
+
+    public static int rollup(CandleStore store, String instrumentKey, Interval target) throws IOException {
+        CandleSeries source = store.open(instrumentKey, Interval.ONE_MINUTE);
+        CandleSeries existing = store.open(instrumentKey, target);
+        int minutes = target.getMinutes();
+
+        long resumeFrom = existing.size() == 0 ? Long.MIN_VALUE
+            : MarketSession.bucketEnd(existing.lastTimestamp(), minutes);
+        int start = source.lowerBound(resumeFrom);
+        Candles bars = new Candles(256);
+        aggregate(source, start, source.size(), minutes, bars);
+
+        // The last bucket may still be filling up; keep it back until the source covers its whole period
+        if (bars.size() > 0) {
+            long lastBucket = bars.lastTimestamp();
+            long sourceEnd = source.lastTimestamp() + Interval.ONE_MINUTE.getMinutes() * 60_000L;
+            if (sourceEnd < MarketSession.bucketEnd(lastBucket, minutes)) {
+                bars.setSize(bars.size() - 1);
+            }
+        }
+        return store.append(instrumentKey, target, bars);
+    }
+
+    // Aggregates source bars [from, to) into buckets of the given length, appending to out
+    public static void aggregate(CandleSeries source, int from, int to, int minutes, Candles out) {
+        long bucket = Long.MIN_VALUE;
+        double o = 0, h = 0, l = 0, c = 0;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            long ts = source.timestamp(i);
+            if (!MarketSession.isOpen(ts)) {
+                continue;
+            }
+            long b = MarketSession.bucketStart(ts, minutes);
+            if (b != bucket) {
+                if (bucket != Long.MIN_VALUE) {
+                    out.add(bucket, o, h, l, c, v);
+                }
+                bucket = b;
+                o = source.open(i);
+                h = source.high(i);
+                l = source.low(i);
+                v = 0;
+            } else {
+                h = Math.max(h, source.high(i));
+                l = Math.min(l, source.low(i));
+            }
+            c = source.close(i);
+            v += source.volume(i);
+        }
+        if (bucket != Long.MIN_VALUE) {
+            out.add(bucket, o, h, l, c, v);
+        }
+    }
+
+    // Rolls every stored 1-minute series up into 30-minute and daily bars
+    public static void main(String[] args) throws IOException {
+        CandleStore store = args.length > 0 ? new CandleStore(java.nio.file.Paths.get(args[0])) : CandleStore.getInstance();
+        long start = System.nanoTime();
+        int series = 0;
+        for (String instrumentKey : store.instruments(Interval.ONE_MINUTE)) {
+            int thirty = rollup(store, instrumentKey, Interval.THIRTY_MINUTE);
+            int daily = rollup(store, instrumentKey, Interval.ONE_DAY);
+            System.out.println(instrumentKey + ": +" + thirty + " x 30m, +" + daily + " x 1d");
+            series++;
+        }
+        System.out.printf("Rolled up %d series in %.2fs%n", series, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,130 @@
+package history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of one instrument/interval series as it was when opened. Columns are
+ * fixed-width little-endian files, so bar i of every column sits at byte offset i * 8.
+ */
+public class CandleSeries {
+    static final String[] COLUMNS = { "timestamp", "open", "high", "low", "close", "volume" };
+    static final int WIDTH = Long.BYTES;
+
+    private final int size;
+    private final LongBuffer timestamps;
+    private final DoubleBuffer open;
+    private final DoubleBuffer high;
+    private final DoubleBuffer low;
+    private final DoubleBuffer close;
+    private final LongBuffer volume;
+
+    CandleSeries(Path directory) throws IOException {
+        size = completeRows(directory);
+        timestamps = map(directory, "timestamp").asLongBuffer();
+        open = map(directory, "open").asDoubleBuffer();
+        high = map(directory, "high").asDoubleBuffer();
+        low = map(directory, "low").asDoubleBuffer();
+        close = map(directory, "close").asDoubleBuffer();
+        volume = map(directory, "volume").asLongBuffer();
+    }
+
+    static Path columnFile(Path directory, String column) {
+        return directory.resolve(column + ".col");
+    }
+
+    // Rows present in every column; a crash mid-append can leave some columns one write ahead
+    static int completeRows(Path directory) throws IOException {
+        long rows = Long.MAX_VALUE;
+        for (String column : COLUMNS) {
+            Path file = columnFile(directory, column);
+            rows = Math.min(rows, Files.exists(file) ? Files.size(file) / WIDTH : 0);
+        }
+        return (int) rows;
+    }
+
+    private ByteBuffer map(Path directory, String column) throws IOException {
+        Path file = columnFile(directory, column);
+        if (!Files.exists(file)) {
+            return ByteBuffer.allocate(0);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) size * WIDTH);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timestamp(int index) {
+        return timestamps.get(index);
+    }
+
+    public double open(int index) {
+        return open.get(index);
+    }
+
+    public double high(int index) {
+        return high.get(index);
+    }
+
+    public double low(int index) {
+        return low.get(index);
+    }
+
+    public double close(int index) {
+        return close.get(index);
+    }
+
+    public long volume(int index) {
+        return volume.get(index);
+    }
+
+    public long lastTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamps.get(size - 1);
+    }
+
+    // Index of the first bar with timestamp >= epochMillis (size() if none)
+    public int lowerBound(long epochMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps.get(mid) < epochMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Bulk-copies bars with from <= timestamp < to into the candles block, replacing its contents
+    public int read(long from, long to, Candles into) {
+        int start = lowerBound(from);
+        int end = lowerBound(to);
+        return read(start, end - start, into);
+    }
+
+    public int read(int start, int count, Candles into) {
+        into.setSize(count);
+        timestamps.get(start, into.timestamps, 0, count);
+        open.get(start, into.open, 0, count);
+        high.get(start, into.high, 0, count);
+        low.get(start, into.low, 0, count);
+        close.get(start, into.close, 0, count);
+        volume.get(start, into.volume, 0, count);
+        return count;
+    }
+}
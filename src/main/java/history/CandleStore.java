@@ -0,0 +1,129 @@
+package history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import model.Interval;
+
+/**
+ * Append-only OHLCV history on disk, one directory per interval and instrument:
+ * {@code candles/<interval>/<instrument key>/{timestamp,open,high,low,close,volume}.col}.
+ * Each column is a flat array of 8-byte little-endian values. Reads go through memory-mapped
+ * {@link CandleSeries} views, so range scans run without JDBC or per-bar objects.
+ */
+public class CandleStore {
+    public static final Path DEFAULT_ROOT = Paths.get("candles");
+
+    private final Path root;
+    private final Map<Path, CandleSeries> openSeries = new ConcurrentHashMap<>();
+
+    public CandleStore(Path root) {
+        this.root = root;
+    }
+
+    private static class Holder {
+        private static final CandleStore INSTANCE = new CandleStore(DEFAULT_ROOT);
+    }
+
+    public static CandleStore getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private Path directory(String instrumentKey, Interval interval) {
+        return root.resolve(interval.getValue()).resolve(URLEncoder.encode(instrumentKey, StandardCharsets.UTF_8));
+    }
+
+    // Mapped view of the series. Cached until the next append to the same series.
+    public CandleSeries open(String instrumentKey, Interval interval) {
+        return openSeries.computeIfAbsent(directory(instrumentKey, interval), dir -> {
+            try {
+                return new CandleSeries(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public int read(String instrumentKey, Interval interval, long from, long to, Candles into) {
+        return open(instrumentKey, interval).read(from, to, into);
+    }
+
+    /**
+     * Appends the bars that are newer than the last stored bar and returns how many were written.
+     * Bars must be sorted by timestamp; older or duplicate bars are skipped since the files are append-only.
+     */
+    public synchronized int append(String instrumentKey, Interval interval, Candles candles) throws IOException {
+        Path dir = directory(instrumentKey, interval);
+        Files.createDirectories(dir);
+        int stored = CandleSeries.completeRows(dir);
+        long last = stored == 0 ? Long.MIN_VALUE : new CandleSeries(dir).lastTimestamp();
+
+        int start = 0;
+        while (start < candles.size() && candles.timestamps[start] <= last) {
+            start++;
+        }
+        int count = candles.size() - start;
+        if (count == 0) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(count * CandleSeries.WIDTH).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asLongBuffer().put(candles.timestamps, start, count);
+        writeColumn(dir, "timestamp", stored, buffer);
+        buffer.asDoubleBuffer().put(candles.open, start, count);
+        writeColumn(dir, "open", stored, buffer);
+        buffer.asDoubleBuffer().put(candles.high, start, count);
+        writeColumn(dir, "high", stored, buffer);
+        buffer.asDoubleBuffer().put(candles.low, start, count);
+        writeColumn(dir, "low", stored, buffer);
+        buffer.asDoubleBuffer().put(candles.close, start, count);
+        writeColumn(dir, "close", stored, buffer);
+        buffer.asLongBuffer().put(candles.volume, start, count);
+        writeColumn(dir, "volume", stored, buffer);
+        openSeries.remove(dir);
+        return count;
+    }
+
+    private static void writeColumn(Path dir, String column, int stored, ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(CandleSeries.columnFile(dir, column),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop any partial write left by a crash before appending
+            channel.truncate((long) stored * CandleSeries.WIDTH);
+            channel.position((long) stored * CandleSeries.WIDTH);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        // Ready for the next column's view
+        buffer.clear();
+    }
+
+    // Instrument keys that have a series for the interval
+    public List<String> instruments(Interval interval) throws IOException {
+        Path dir = root.resolve(interval.getValue());
+        List<String> keys = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return keys;
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            children.filter(Files::isDirectory)
+                .forEach(child -> keys.add(URLDecoder.decode(child.getFileName().toString(), StandardCharsets.UTF_8)));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,67 @@
+package history;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented block of bars: one primitive array per field, sorted by timestamp (bar open, epoch millis).
+ * Arrays may be longer than {@link #size()}; only the first size entries are valid.
+ */
+public class Candles {
+    public long[] timestamps;
+    public double[] open;
+    public double[] high;
+    public double[] low;
+    public double[] close;
+    public long[] volume;
+    private int size;
+
+    public Candles(int capacity) {
+        timestamps = new long[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(long timestamp, double o, double h, double l, double c, long v) {
+        ensureCapacity(size + 1);
+        timestamps[size] = timestamp;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    public long lastTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamps[size - 1];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= timestamps.length) {
+            return;
+        }
+        int grown = Math.max(capacity, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, grown);
+        open = Arrays.copyOf(open, grown);
+        high = Arrays.copyOf(high, grown);
+        low = Arrays.copyOf(low, grown);
+        close = Arrays.copyOf(close, grown);
+        volume = Arrays.copyOf(volume, grown);
+    }
+}
@@ -0,0 +1,85 @@
+package history;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NSE cash-market trading hours (09:15 to 15:30 IST). Intraday buckets are aligned to the session open,
+ * so 30-minute bars are 09:15, 09:45, ... and the last one of the day is the short 15:15 bar.
+ */
+public final class MarketSession {
+    public static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+    public static final LocalTime OPEN = LocalTime.of(9, 15);
+    public static final LocalTime CLOSE = LocalTime.of(15, 30);
+    public static final int SESSION_MINUTES = 375;
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // IST has no daylight saving, so a fixed offset keeps the hot-path arithmetic allocation-free
+    private static final long OFFSET_MILLIS = TimeUnit.SECONDS.toMillis(ZONE.getRules().getOffset(Instant.EPOCH).getTotalSeconds());
+    private static final long OPEN_MILLIS_OF_DAY = OPEN.toSecondOfDay() * 1000L;
+
+    private MarketSession() {
+    }
+
+    // Days since epoch of the IST calendar date containing the timestamp
+    public static long sessionDay(long epochMillis) {
+        return Math.floorDiv(epochMillis + OFFSET_MILLIS, DAY_MILLIS);
+    }
+
+    // Epoch millis of IST midnight starting the given day
+    public static long dayStart(long sessionDay) {
+        return sessionDay * DAY_MILLIS - OFFSET_MILLIS;
+    }
+
+    // Epoch millis of the session open on the given IST day
+    public static long sessionOpen(long sessionDay) {
+        return dayStart(sessionDay) + OPEN_MILLIS_OF_DAY;
+    }
+
+    public static long sessionClose(long sessionDay) {
+        return sessionOpen(sessionDay) + SESSION_MINUTES * MINUTE_MILLIS;
+    }
+
+    // Minutes since the session open; negative before the open, >= SESSION_MINUTES after the close
+    public static int minuteOfSession(long epochMillis) {
+        return (int) Math.floorDiv(epochMillis - sessionOpen(sessionDay(epochMillis)), MINUTE_MILLIS);
+    }
+
+    public static boolean isOpen(long epochMillis) {
+        int minute = minuteOfSession(epochMillis);
+        return minute >= 0 && minute < SESSION_MINUTES;
+    }
+
+    /**
+     * Start of the bar of the given length that contains the timestamp. Intraday bars are aligned to the
+     * session open and never run past the close; lengths of a full session or more give one bar per day.
+     */
+    public static long bucketStart(long epochMillis, int minutes) {
+        long day = sessionDay(epochMillis);
+        long open = sessionOpen(day);
+        if (minutes >= SESSION_MINUTES) {
+            return open;
+        }
+        int minute = Math.max(0, Math.min(minuteOfSession(epochMillis), SESSION_MINUTES - 1));
+        return open + (long) (minute - minute % minutes) * MINUTE_MILLIS;
+    }
+
+    // End (exclusive) of the bar starting at bucketStart
+    public static long bucketEnd(long bucketStart, int minutes) {
+        long close = sessionClose(sessionDay(bucketStart));
+        return Math.min(bucketStart + minutes * MINUTE_MILLIS, close);
+    }
+
+    public static LocalDate date(long epochMillis) {
+        return LocalDate.ofEpochDay(sessionDay(epochMillis));
+    }
+
+    public static ZonedDateTime toZoned(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZONE);
+    }
+}
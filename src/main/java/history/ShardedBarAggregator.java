@@ -0,0 +1,115 @@
+package history;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import marketdata.Tick;
+import marketdata.TickRingBuffer;
+import model.Interval;
+
+/**
+ * Spreads bar aggregation across cores. Instrument ids are partitioned by id % shards, and each shard is
+ * an independent {@link BarAggregator} that only one thread touches at a time, so shards never contend.
+ * Live ticks are consumed by one ring-buffer subscriber per shard; history is replayed with one task per shard.
+ * The listener is called concurrently from all shards and must be thread-safe.
+ *
+ * The feed repeats the last trade on every quote update, so live volume is taken from the change in the
+ * day's cumulative volume when the feed carries it, and otherwise from the last trade quantity only when
+ * the last trade time has moved on.
+ */
+public class ShardedBarAggregator {
+    private final BarAggregator[] shards;
+    private final int instrumentCount;
+
+    public ShardedBarAggregator(int instrumentCount, int[] intervalMinutes, BarListener listener) {
+        this(instrumentCount, intervalMinutes, listener, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedBarAggregator(int instrumentCount, int[] intervalMinutes, BarListener listener, int shardCount) {
+        this.instrumentCount = instrumentCount;
+        shards = new BarAggregator[shardCount];
+        for (int s = 0; s < shardCount; s++) {
+            shards[s] = new BarAggregator(instrumentCount, intervalMinutes, listener, s, shardCount);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // One subscriber thread per shard; each skips ticks that belong to other shards
+    public void attach(TickRingBuffer ring) {
+        for (int s = 0; s < shards.length; s++) {
+            BarAggregator shard = shards[s];
+            TradedVolume traded = new TradedVolume((instrumentCount + shards.length - 1) / shards.length);
+            ring.subscribe("bars-" + s, (Tick tick) -> {
+                if (shard.owns(tick.getInstrumentId())) {
+                    long quantity = traded.since(tick.getInstrumentId() / shards.length, tick);
+                    synchronized (shard) {
+                        shard.onTrade(tick.getInstrumentId(), tick.getLastTradeTime(), tick.getLastPrice(), quantity);
+                    }
+                }
+            });
+        }
+    }
+
+    // Closes bars that have ended on every shard; call from a timer (e.g. every second, and at 15:30)
+    public void flush(long epochMillis) {
+        for (BarAggregator shard : shards) {
+            synchronized (shard) {
+                shard.flush(epochMillis);
+            }
+        }
+    }
+
+    /**
+     * Replays stored 1-minute bars through the aggregators in parallel. instrumentKeys.get(id) is the key of
+     * instrument id; instruments without stored bars are skipped.
+     */
+    public void replay(CandleStore store, List<String> instrumentKeys, long from, long to) {
+        IntStream.range(0, shards.length).parallel().forEach(s -> {
+            BarAggregator shard = shards[s];
+            Candles bars = new Candles(1024);
+            synchronized (shard) {
+                for (int id = s; id < instrumentKeys.size(); id += shards.length) {
+                    String key = instrumentKeys.get(id);
+                    if (key == null) {
+                        continue;
+                    }
+                    int n = store.read(key, Interval.ONE_MINUTE, from, to, bars);
+                    for (int i = 0; i < n; i++) {
+                        shard.onBar(id, bars.timestamps[i], bars.open[i], bars.high[i], bars.low[i], bars.close[i], bars.volume[i]);
+                    }
+                    // Each instrument's history is independent; close its last bars before moving on
+                    shard.flush(to);
+                }
+            }
+        });
+    }
+
+    // Quantity traded since the previous tick of each instrument; owned by one subscriber thread
+    private static class TradedVolume {
+        private final long[] cumulative;
+        private final long[] lastTradeTime;
+
+        TradedVolume(int slots) {
+            cumulative = new long[slots];
+            lastTradeTime = new long[slots];
+        }
+
+        long since(int slot, Tick tick) {
+            long volume = tick.getVolume();
+            if (volume > 0) {
+                long previous = cumulative[slot];
+                cumulative[slot] = volume;
+                // Nothing to difference against on the first tick; a drop means a new session
+                return previous == 0 ? 0 : volume >= previous ? volume - previous : volume;
+            }
+            if (tick.getLastTradeTime() <= lastTradeTime[slot]) {
+                return 0;
+            }
+            lastTradeTime[slot] = tick.getLastTradeTime();
+            return tick.getLastTradeQuantity();
+        }
+    }
+}
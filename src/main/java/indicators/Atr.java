@@ -0,0 +1,36 @@
+package indicators;
+
+// Streaming Wilder average true range.
+public class Atr {
+    private final int period;
+    private int count;
+    private double previousClose = Double.NaN;
+    private double sum;
+    private double value = Double.NaN;
+
+    public Atr(int period) {
+        this.period = period;
+    }
+
+    public double update(double high, double low, double close) {
+        double range = high - low;
+        if (!Double.isNaN(previousClose)) {
+            range = Math.max(range, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+        }
+        previousClose = close;
+        if (count < period) {
+            sum += range;
+            count++;
+            if (count == period) {
+                value = sum / period;
+            }
+            return value;
+        }
+        value = (value * (period - 1) + range) / period;
+        return value;
+    }
+
+    public double value() {
+        return value;
+    }
+}
@@ -0,0 +1,50 @@
+package indicators;
+
+// Streaming Bollinger bands: SMA middle band, outer bands k population standard deviations away.
+public class BollingerBands {
+    private final double[] window;
+    private final double k;
+    private int count;
+    private int next;
+    private double sum;
+    private double sumSquares;
+    private double middle = Double.NaN;
+    private double deviation = Double.NaN;
+
+    public BollingerBands(int period, double k) {
+        this.window = new double[period];
+        this.k = k;
+    }
+
+    // Returns the middle band
+    public double update(double close) {
+        if (count == window.length) {
+            double leaving = window[next];
+            sum -= leaving;
+            sumSquares -= leaving * leaving;
+        } else {
+            count++;
+        }
+        window[next] = close;
+        sum += close;
+        sumSquares += close * close;
+        next = next + 1 == window.length ? 0 : next + 1;
+        if (count == window.length) {
+            middle = sum / window.length;
+            deviation = Math.sqrt(Math.max(sumSquares / window.length - middle * middle, 0));
+        }
+        return middle;
+    }
+
+    public double middle() {
+        return middle;
+    }
+
+    public double upper() {
+        return middle + k * deviation;
+    }
+
+    public double lower() {
+        return middle - k * deviation;
+    }
+}
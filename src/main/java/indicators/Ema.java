@@ -0,0 +1,36 @@
+package indicators;
+
+// Streaming exponential moving average, seeded with the SMA of the first period values.
+public class Ema {
+    private final int period;
+    private final double alpha;
+    private int count;
+    private double value = Double.NaN;
+    private double seedSum;
+
+    public Ema(int period) {
+        this.period = period;
+        this.alpha = 2.0 / (period + 1);
+    }
+
+    public double update(double price) {
+        if (count < period) {
+            seedSum += price;
+            count++;
+            if (count == period) {
+                value = seedSum / period;
+            }
+            return value;
+        }
+        value += alpha * (price - value);
+        return value;
+    }
+
+    public double value() {
+        return value;
+    }
+
+    public boolean isReady() {
+        return count == period;
+    }
+}
@@ -0,0 +1,151 @@
+package indicators;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import database.DatabaseManager;
+import database.InstrumentRegistry;
+import history.MarketSession;
+import model.Segment;
+
+/**
+ * Throughput of the batch indicators over one-minute candles (20 sessions per instrument) for every NSE_EQ
+ * instrument, the way a screener runs them: one set of output buffers reused across instruments. The
+ * universe is the loaded NSE_EQ shard, else the NSE_EQ rows in H2, else the given count; prices are
+ * synthetic, drawn from a fixed pool of series. Reports the wall time of one full-universe recompute of
+ * all seven, ns per bar for each indicator and for all seven as streaming updates, and bytes allocated by
+ * the batch passes, which should be 0.
+ *
+ * <pre>java -cp ... indicators.IndicatorBenchmark [instruments if no NSE_EQ universe is stored]</pre>
+ */
+public class IndicatorBenchmark {
+    private static final int BARS = 20 * MarketSession.SESSION_MINUTES;
+    // Distinct synthetic series; instrument s uses series s % SERIES
+    private static final int SERIES = 200;
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    private IndicatorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int instruments = universeSize();
+        String source = "NSE_EQ";
+        if (instruments == 0) {
+            instruments = args.length > 0 ? Integer.parseInt(args[0]) : SERIES;
+            source = "synthetic";
+        }
+        int series = Math.min(instruments, SERIES);
+        long[] timestamps = new long[BARS];
+        long day = MarketSession.sessionDay(System.currentTimeMillis()) - 30;
+        for (int i = 0; i < BARS; i++) {
+            int session = i / MarketSession.SESSION_MINUTES;
+            timestamps[i] = MarketSession.sessionOpen(day + session) + (i % MarketSession.SESSION_MINUTES) * 60_000L;
+        }
+        double[][] high = new double[series][BARS];
+        double[][] low = new double[series][BARS];
+        double[][] close = new double[series][BARS];
+        long[][] volume = new long[series][BARS];
+        Random random = new Random(42);
+        for (int s = 0; s < series; s++) {
+            double price = 100 + random.nextInt(2_000);
+            for (int i = 0; i < BARS; i++) {
+                price *= 1 + 0.001 * random.nextGaussian();
+                close[s][i] = price;
+                high[s][i] = price * (1 + 0.0005 * random.nextDouble());
+                low[s][i] = price * (1 - 0.0005 * random.nextDouble());
+                volume[s][i] = 100 + random.nextInt(10_000);
+            }
+        }
+
+        double[] a = new double[BARS];
+        double[] b = new double[BARS];
+        double[] c = new double[BARS];
+        Map<String, IntConsumer> batch = new LinkedHashMap<>();
+        batch.put("sma(20)", s -> Indicators.sma(close[s % series], BARS, 20, a));
+        batch.put("ema(20)", s -> Indicators.ema(close[s % series], BARS, 20, a));
+        batch.put("rsi(14)", s -> Indicators.rsi(close[s % series], BARS, 14, a));
+        batch.put("macd", s -> Indicators.macd(close[s % series], BARS, 12, 26, 9, a, b, c));
+        batch.put("atr(14)", s -> Indicators.atr(high[s % series], low[s % series], close[s % series], BARS, 14, a));
+        batch.put("bollinger", s -> Indicators.bollinger(close[s % series], BARS, 20, 2, a, b, c));
+        batch.put("vwap", s -> Indicators.vwap(timestamps, high[s % series], low[s % series], close[s % series],
+            volume[s % series], BARS, a));
+        IntConsumer allSeven = s -> {
+            for (IntConsumer pass : batch.values()) {
+                pass.accept(s);
+            }
+        };
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double bars = (double) instruments * BARS * RUNS;
+        double sink = 0;
+        long allocated = 0;
+        System.out.printf("%d %s instruments x %d bars%n", instruments, source, BARS);
+        run(allSeven, instruments, WARMUP);
+        long recompute = Long.MAX_VALUE;
+        for (int r = 0; r < RUNS; r++) {
+            long start = System.nanoTime();
+            run(allSeven, instruments, 1);
+            recompute = Math.min(recompute, System.nanoTime() - start);
+        }
+        sink += a[BARS - 1];
+        System.out.printf("full universe, all seven: %.1f ms%n", recompute / 1e6);
+        for (Map.Entry<String, IntConsumer> entry : batch.entrySet()) {
+            run(entry.getValue(), instruments, WARMUP);
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            run(entry.getValue(), instruments, RUNS);
+            long nanos = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+            sink += a[BARS - 1];
+            System.out.printf("%-10s %6.2f ns/bar%n", entry.getKey(), nanos / bars);
+        }
+
+        IntConsumer streaming = k -> {
+            int s = k % series;
+            Sma sma = new Sma(20);
+            Ema ema = new Ema(20);
+            Rsi rsi = new Rsi(14);
+            Macd macd = new Macd(12, 26, 9);
+            Atr atr = new Atr(14);
+            BollingerBands bands = new BollingerBands(20, 2);
+            Vwap vwap = new Vwap();
+            for (int i = 0; i < BARS; i++) {
+                double px = close[s][i];
+                a[i] = sma.update(px) + ema.update(px) + rsi.update(px) + macd.update(px)
+                    + atr.update(high[s][i], low[s][i], px) + bands.update(px)
+                    + vwap.update(timestamps[i], high[s][i], low[s][i], px, volume[s][i]);
+            }
+        };
+        run(streaming, instruments, WARMUP);
+        long start = System.nanoTime();
+        run(streaming, instruments, RUNS);
+        long nanos = System.nanoTime() - start;
+        sink += a[BARS - 1];
+        System.out.printf("%-10s %6.2f ns/bar (all seven)%n", "streaming", nanos / bars);
+        System.out.println("Allocated during batch passes: " + allocated + " bytes (checksum " + sink + ")");
+    }
+
+    // Instruments in the NSE_EQ shard if one is loaded, else in H2; 0 when neither has any
+    private static int universeSize() {
+        InstrumentRegistry.Shard shard = InstrumentRegistry.getInstance().getShard(Segment.NSE_EQ);
+        if (shard != null && shard.size() > 0) {
+            return shard.size();
+        }
+        DatabaseManager database = DatabaseManager.getInstance();
+        database.initDatabase();
+        return database.getInstrumentTableFromDB(Segment.NSE_EQ).size();
+    }
+
+    private static void run(IntConsumer pass, int instruments, int runs) {
+        for (int r = 0; r < runs; r++) {
+            for (int s = 0; s < instruments; s++) {
+                pass.accept(s);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package indicators;
+
+import history.MarketSession;
+
+/**
+ * Batch indicators over primitive candle columns. Every function reads the first n values of its inputs,
+ * writes into caller-supplied output arrays (so a screener can reuse them across instruments) and fills
+ * the warm-up region with NaN. Results match the streaming classes in this package bar for bar.
+ *
+ * The loops are plain indexed array passes with no branches in the steady state, which is what
+ * HotSpot's superword optimisation needs to vectorise the element-wise parts.
+ */
+public final class Indicators {
+
+    private Indicators() {
+    }
+
+    public static void sma(double[] src, int n, int period, double[] out) {
+        double sum = 0;
+        int warm = Math.min(period - 1, n);
+        for (int i = 0; i < warm; i++) {
+            sum += src[i];
+            out[i] = Double.NaN;
+        }
+        for (int i = warm; i < n; i++) {
+            sum += src[i];
+            out[i] = sum / period;
+            sum -= src[i - period + 1];
+        }
+    }
+
+    // Seeded with the SMA of the first period values
+    public static void ema(double[] src, int n, int period, double[] out) {
+        emaFrom(src, 0, n, period, out);
+    }
+
+    // EMA over src[from, n); out[0, from + period - 1) is NaN
+    private static void emaFrom(double[] src, int from, int n, int period, double[] out) {
+        double alpha = 2.0 / (period + 1);
+        int seedEnd = Math.min(from + period, n);
+        double sum = 0;
+        for (int i = 0; i < seedEnd; i++) {
+            if (i >= from) {
+                sum += src[i];
+            }
+            out[i] = Double.NaN;
+        }
+        if (seedEnd - from < period) {
+            return;
+        }
+        double value = sum / period;
+        out[seedEnd - 1] = value;
+        for (int i = seedEnd; i < n; i++) {
+            value += alpha * (src[i] - value);
+            out[i] = value;
+        }
+    }
+
+    // Wilder's RSI
+    public static void rsi(double[] close, int n, int period, double[] out) {
+        double gain = 0;
+        double loss = 0;
+        int warm = Math.min(period + 1, n);
+        for (int i = 0; i < warm; i++) {
+            out[i] = Double.NaN;
+            if (i > 0) {
+                double change = close[i] - close[i - 1];
+                gain += Math.max(change, 0);
+                loss += Math.max(-change, 0);
+            }
+        }
+        if (n <= period) {
+            return;
+        }
+        gain /= period;
+        loss /= period;
+        out[period] = rsiValue(gain, loss);
+        for (int i = period + 1; i < n; i++) {
+            double change = close[i] - close[i - 1];
+            gain = (gain * (period - 1) + Math.max(change, 0)) / period;
+            loss = (loss * (period - 1) + Math.max(-change, 0)) / period;
+            out[i] = rsiValue(gain, loss);
+        }
+    }
+
+    static double rsiValue(double averageGain, double averageLoss) {
+        if (averageLoss == 0) {
+            return averageGain == 0 ? 50 : 100;
+        }
+        return 100 - 100 / (1 + averageGain / averageLoss);
+    }
+
+    /**
+     * MACD line (fast EMA - slow EMA), its signal EMA and the histogram. histogram doubles as scratch
+     * space for the slow EMA, so no temporary arrays are needed.
+     */
+    public static void macd(double[] close, int n, int fast, int slow, int signal,
+                            double[] macd, double[] signalOut, double[] histogram) {
+        ema(close, n, fast, macd);
+        ema(close, n, slow, histogram);
+        for (int i = 0; i < n; i++) {
+            macd[i] -= histogram[i];
+        }
+        int first = Math.min(slow - 1, n);
+        emaFrom(macd, first, n, signal, signalOut);
+        for (int i = 0; i < n; i++) {
+            histogram[i] = macd[i] - signalOut[i];
+        }
+    }
+
+    // Wilder's average true range
+    public static void atr(double[] high, double[] low, double[] close, int n, int period, double[] out) {
+        double sum = 0;
+        int warm = Math.min(period, n);
+        for (int i = 0; i < warm; i++) {
+            sum += trueRange(high, low, close, i);
+            out[i] = Double.NaN;
+        }
+        if (n < period) {
+            return;
+        }
+        double value = sum / period;
+        out[period - 1] = value;
+        for (int i = period; i < n; i++) {
+            value = (value * (period - 1) + trueRange(high, low, close, i)) / period;
+            out[i] = value;
+        }
+    }
+
+    static double trueRange(double[] high, double[] low, double[] close, int i) {
+        double range = high[i] - low[i];
+        if (i == 0) {
+            return range;
+        }
+        return Math.max(range, Math.max(Math.abs(high[i] - close[i - 1]), Math.abs(low[i] - close[i - 1])));
+    }
+
+    // Middle band is the SMA; outer bands are k population standard deviations away
+    public static void bollinger(double[] close, int n, int period, double k,
+                                 double[] middle, double[] upper, double[] lower) {
+        double sum = 0;
+        double sumSquares = 0;
+        int warm = Math.min(period - 1, n);
+        for (int i = 0; i < warm; i++) {
+            sum += close[i];
+            sumSquares += close[i] * close[i];
+            middle[i] = upper[i] = lower[i] = Double.NaN;
+        }
+        for (int i = warm; i < n; i++) {
+            sum += close[i];
+            sumSquares += close[i] * close[i];
+            double mean = sum / period;
+            double deviation = Math.sqrt(Math.max(sumSquares / period - mean * mean, 0));
+            middle[i] = mean;
+            upper[i] = mean + k * deviation;
+            lower[i] = mean - k * deviation;
+            double leaving = close[i - period + 1];
+            sum -= leaving;
+            sumSquares -= leaving * leaving;
+        }
+    }
+
+    // Session VWAP on typical price, reset at the start of each trading day
+    public static void vwap(long[] timestamps, double[] high, double[] low, double[] close, long[] volume,
+                            int n, double[] out) {
+        long day = Long.MIN_VALUE;
+        double priceVolume = 0;
+        double totalVolume = 0;
+        for (int i = 0; i < n; i++) {
+            long d = MarketSession.sessionDay(timestamps[i]);
+            if (d != day) {
+                day = d;
+                priceVolume = 0;
+                totalVolume = 0;
+            }
+            double typical = (high[i] + low[i] + close[i]) / 3;
+            priceVolume += typical * volume[i];
+            totalVolume += volume[i];
+            out[i] = totalVolume == 0 ? typical : priceVolume / totalVolume;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package indicators;
+
+// Streaming MACD: line = fast EMA - slow EMA, signal = EMA of the line, histogram = line - signal.
+public class Macd {
+    private final Ema fast;
+    private final Ema slow;
+    private final Ema signal;
+    private double line = Double.NaN;
+    private double histogram = Double.NaN;
+
+    public Macd(int fastPeriod, int slowPeriod, int signalPeriod) {
+        fast = new Ema(fastPeriod);
+        slow = new Ema(slowPeriod);
+        signal = new Ema(signalPeriod);
+    }
+
+    // Returns the MACD line
+    public double update(double close) {
+        double f = fast.update(close);
+        double s = slow.update(close);
+        if (!slow.isReady()) {
+            return line;
+        }
+        line = f - s;
+        double sig = signal.update(line);
+        histogram = signal.isReady() ? line - sig : Double.NaN;
+        return line;
+    }
+
+    public double line() {
+        return line;
+    }
+
+    public double signal() {
+        return signal.value();
+    }
+
+    public double histogram() {
+        return histogram;
+    }
+}
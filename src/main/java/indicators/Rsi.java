@@ -0,0 +1,45 @@
+package indicators;
+
+// Streaming Wilder RSI.
+public class Rsi {
+    private final int period;
+    private int changes;
+    private double previous = Double.NaN;
+    private double averageGain;
+    private double averageLoss;
+    private double value = Double.NaN;
+
+    public Rsi(int period) {
+        this.period = period;
+    }
+
+    public double update(double close) {
+        if (Double.isNaN(previous)) {
+            previous = close;
+            return value;
+        }
+        double change = close - previous;
+        previous = close;
+        double gain = Math.max(change, 0);
+        double loss = Math.max(-change, 0);
+        changes++;
+        if (changes <= period) {
+            averageGain += gain;
+            averageLoss += loss;
+            if (changes == period) {
+                averageGain /= period;
+                averageLoss /= period;
+                value = Indicators.rsiValue(averageGain, averageLoss);
+            }
+            return value;
+        }
+        averageGain = (averageGain * (period - 1) + gain) / period;
+        averageLoss = (averageLoss * (period - 1) + loss) / period;
+        value = Indicators.rsiValue(averageGain, averageLoss);
+        return value;
+    }
+
+    public double value() {
+        return value;
+    }
+}
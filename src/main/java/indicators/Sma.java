@@ -0,0 +1,34 @@
+package indicators;
+
+// Streaming simple moving average. O(1) per bar; the window is a preallocated ring.
+public class Sma {
+    private final double[] window;
+    private int count;
+    private int next;
+    private double sum;
+
+    public Sma(int period) {
+        window = new double[period];
+    }
+
+    // Returns the average including value, or NaN until period values have been seen
+    public double update(double value) {
+        if (count == window.length) {
+            sum -= window[next];
+        } else {
+            count++;
+        }
+        window[next] = value;
+        sum += value;
+        next = next + 1 == window.length ? 0 : next + 1;
+        return value();
+    }
+
+    public double value() {
+        return count < window.length ? Double.NaN : sum / window.length;
+    }
+
+    public boolean isReady() {
+        return count == window.length;
+    }
+}
@@ -0,0 +1,29 @@
+package indicators;
+
+import history.MarketSession;
+
+// Streaming session VWAP on typical price; resets when a bar from a new trading day arrives.
+public class Vwap {
+    private long day = Long.MIN_VALUE;
+    private double priceVolume;
+    private double totalVolume;
+    private double value = Double.NaN;
+
+    public double update(long epochMillis, double high, double low, double close, long volume) {
+        long d = MarketSession.sessionDay(epochMillis);
+        if (d != day) {
+            day = d;
+            priceVolume = 0;
+            totalVolume = 0;
+        }
+        double typical = (high + low + close) / 3;
+        priceVolume += typical * volume;
+        totalVolume += volume;
+        value = totalVolume == 0 ? typical : priceVolume / totalVolume;
+        return value;
+    }
+
+    public double value() {
+        return value;
+    }
+}
@@ -0,0 +1,227 @@
+package marketdata;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes the broker's protobuf FeedResponse frames straight into ring buffer slots. Only the fields
+ * we use are read (LTPC plus average price and volume from the full market feed); everything else is
+ * skipped by wire type. Works on absolute buffer offsets, so decoding allocates nothing.
+ *
+ * Each tick is published as soon as it is filled, so subscribers start on a frame before it is fully
+ * decoded, and a frame with more entries than the ring has free slots cannot deadlock the writer.
+ *
+ * <pre>
+ * FeedResponse   { Type type = 1; map&lt;string, Feed&gt; feeds = 2; }
+ * Feed           { oneof { LTPC ltpc = 1; FullFeed ff = 2; OptionChain oc = 3; } }
+ * FullFeed       { oneof { MarketFullFeed marketFF = 1; IndexFullFeed indexFF = 2; } }
+ * MarketFullFeed { LTPC ltpc = 1; ...; double atp = 5; int64 vtt = 6; ... }
+ * IndexFullFeed  { LTPC ltpc = 1; ... }
+ * OptionChain    { LTPC ltpc = 1; ... }
+ * LTPC           { double ltp = 1; int64 ltt = 2; int64 ltq = 3; double cp = 4; }
+ * </pre>
+ */
+public class FeedDecoder {
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int LENGTH_DELIMITED = 2;
+    private static final int FIXED32 = 5;
+
+    private volatile InstrumentKeyIndex keyIndex;
+    // Decoder cursor; kept in a field so the varint readers can return values without allocating
+    private int pos;
+
+    public FeedDecoder(InstrumentKeyIndex keyIndex) {
+        this.keyIndex = keyIndex;
+    }
+
+    // Swaps in the index of a new instrument table; takes effect from the next entry decoded
+    public void setKeyIndex(InstrumentKeyIndex keyIndex) {
+        this.keyIndex = keyIndex;
+    }
+
+    // Decodes one frame (buffer position to limit) and publishes a tick per known instrument. Returns the tick count.
+    public int decode(ByteBuffer frame, TickRingBuffer ring) {
+        frame.order(ByteOrder.LITTLE_ENDIAN);
+        long receivedNanos = System.nanoTime();
+        int end = frame.limit();
+        int published = 0;
+        pos = frame.position();
+        try {
+            while (pos < end) {
+                long tag = readVarint(frame);
+                int field = (int) (tag >>> 3);
+                int wireType = (int) (tag & 7);
+                if (field == 2 && wireType == LENGTH_DELIMITED) {
+                    int entryEnd = readLength(frame);
+                    if (decodeFeedEntry(frame, entryEnd, ring, receivedNanos)) {
+                        ring.publish();
+                        published++;
+                    }
+                    pos = entryEnd;
+                } else {
+                    skip(frame, wireType);
+                }
+            }
+        } finally {
+            // A slot abandoned half-way through a malformed entry keeps instrumentId -1 and is skipped by subscribers
+            ring.publish();
+        }
+        return published;
+    }
+
+    // map<string, Feed> entry: key = 1, value = 2
+    private boolean decodeFeedEntry(ByteBuffer frame, int end, TickRingBuffer ring, long receivedNanos) {
+        int keyOffset = -1;
+        int keyLength = 0;
+        int feedStart = -1;
+        int feedEnd = -1;
+        while (pos < end) {
+            long tag = readVarint(frame);
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 7);
+            if (field == 1 && wireType == LENGTH_DELIMITED) {
+                int keyEnd = readLength(frame);
+                keyOffset = pos;
+                keyLength = keyEnd - pos;
+                pos = keyEnd;
+            } else if (field == 2 && wireType == LENGTH_DELIMITED) {
+                feedEnd = readLength(frame);
+                feedStart = pos;
+                pos = feedEnd;
+            } else {
+                skip(frame, wireType);
+            }
+        }
+        if (keyOffset < 0 || feedStart < 0) {
+            return false;
+        }
+        int instrumentId = keyIndex.lookup(frame, keyOffset, keyLength);
+        if (instrumentId < 0) {
+            return false;
+        }
+        Tick tick = ring.claim();
+        tick.receivedNanos = receivedNanos;
+        pos = feedStart;
+        decodeFeed(frame, feedEnd, tick);
+        tick.instrumentId = instrumentId;
+        return true;
+    }
+
+    private void decodeFeed(ByteBuffer frame, int end, Tick tick) {
+        while (pos < end) {
+            long tag = readVarint(frame);
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 7);
+            if (wireType != LENGTH_DELIMITED) {
+                skip(frame, wireType);
+                continue;
+            }
+            int messageEnd = readLength(frame);
+            if (field == 1) {
+                decodeLtpc(frame, messageEnd, tick);
+            } else if (field == 2) {
+                decodeFullFeed(frame, messageEnd, tick);
+            } else if (field == 3) {
+                decodeLtpcHolder(frame, messageEnd, tick);
+            }
+            pos = messageEnd;
+        }
+    }
+
+    private void decodeFullFeed(ByteBuffer frame, int end, Tick tick) {
+        while (pos < end) {
+            long tag = readVarint(frame);
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 7);
+            if (wireType != LENGTH_DELIMITED) {
+                skip(frame, wireType);
+                continue;
+            }
+            int messageEnd = readLength(frame);
+            if (field == 1 || field == 2) {
+                decodeLtpcHolder(frame, messageEnd, tick);
+            }
+            pos = messageEnd;
+        }
+    }
+
+    // MarketFullFeed, IndexFullFeed and OptionChain all carry LTPC as field 1
+    private void decodeLtpcHolder(ByteBuffer frame, int end, Tick tick) {
+        while (pos < end) {
+            long tag = readVarint(frame);
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 7);
+            if (field == 1 && wireType == LENGTH_DELIMITED) {
+                int messageEnd = readLength(frame);
+                decodeLtpc(frame, messageEnd, tick);
+                pos = messageEnd;
+            } else if (field == 5 && wireType == FIXED64) {
+                tick.averagePrice = frame.getDouble(pos);
+                pos += 8;
+            } else if (field == 6 && wireType == VARINT) {
+                tick.volume = readVarint(frame);
+            } else {
+                skip(frame, wireType);
+            }
+        }
+    }
+
+    private void decodeLtpc(ByteBuffer frame, int end, Tick tick) {
+        while (pos < end) {
+            long tag = readVarint(frame);
+            int field = (int) (tag >>> 3);
+            int wireType = (int) (tag & 7);
+            if (field == 1 && wireType == FIXED64) {
+                tick.lastPrice = frame.getDouble(pos);
+                pos += 8;
+            } else if (field == 2 && wireType == VARINT) {
+                tick.lastTradeTime = readVarint(frame);
+            } else if (field == 3 && wireType == VARINT) {
+                tick.lastTradeQuantity = readVarint(frame);
+            } else if (field == 4 && wireType == FIXED64) {
+                tick.closePrice = frame.getDouble(pos);
+                pos += 8;
+            } else {
+                skip(frame, wireType);
+            }
+        }
+    }
+
+    private long readVarint(ByteBuffer frame) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = frame.get(pos++);
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at " + pos);
+    }
+
+    // Reads a length prefix and returns the absolute end offset of the field
+    private int readLength(ByteBuffer frame) {
+        int length = (int) readVarint(frame);
+        return pos + length;
+    }
+
+    private void skip(ByteBuffer frame, int wireType) {
+        switch (wireType) {
+            case VARINT:
+                readVarint(frame);
+                break;
+            case FIXED64:
+                pos += 8;
+                break;
+            case LENGTH_DELIMITED:
+                pos = readLength(frame);
+                break;
+            case FIXED32:
+                pos += 4;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported wire type " + wireType);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package marketdata;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Open-addressing map from instrument key bytes (e.g. "NSE_EQ|INE002A01018") to instrument id, so keys
+ * can be resolved straight from a feed frame without decoding them into Strings.
+ */
+public class InstrumentKeyIndex {
+    private final byte[][] keys;
+    private final int[] ids;
+    private final int mask;
+
+    public InstrumentKeyIndex(String[] instrumentKeys) {
+        int capacity = Integer.highestOneBit(Math.max(instrumentKeys.length, 1) * 4 - 1) << 1;
+        keys = new byte[capacity][];
+        ids = new int[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < instrumentKeys.length; id++) {
+            if (instrumentKeys[id] == null) {
+                continue;
+            }
+            byte[] key = instrumentKeys[id].getBytes(StandardCharsets.US_ASCII);
+            int slot = hash(key, 0, key.length) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            ids[slot] = id;
+        }
+    }
+
+    // Returns the id for the key stored in buffer[offset, offset + length), or -1 if unknown
+    public int lookup(ByteBuffer buffer, int offset, int length) {
+        int slot = hash(buffer, offset, length) & mask;
+        byte[] key;
+        while ((key = keys[slot]) != null) {
+            if (key.length == length && matches(key, buffer, offset)) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int offset) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] key, int offset, int length) {
+        int h = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ key[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(ByteBuffer buffer, int offset, int length) {
+        int h = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ buffer.get(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,216 @@
+package marketdata;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import api.QuoteSession;
+import api.RequestScheduler;
+import com.upstox.ApiException;
+import database.InstrumentRegistry;
+import model.InstrumentTable;
+
+/**
+ * Streaming market data over the broker's WebSocket feed. Binary frames are decoded on the socket's
+ * listener thread (the single writer) into a {@link TickRingBuffer}; consumers subscribe to the ring.
+ *
+ * <pre>
+ * MarketDataFeed feed = MarketDataFeed.getInstance();
+ * feed.getRing().subscribe("watchlist", tick -> ...);
+ * feed.connect().join();
+ * feed.subscribe(List.of("NSE_EQ|INE002A01018"), MarketDataFeed.Mode.FULL);
+ * </pre>
+ */
+public class MarketDataFeed {
+    public static final String AUTHORIZE_URL = "https://api.upstox.com/v2/feed/market-data-feed/authorize";
+    private static final int DEFAULT_RING_SIZE = 1 << 16;
+    private static final int INITIAL_FRAME_CAPACITY = 64 * 1024;
+    private static final int HTTP_UNAUTHORIZED = 401;
+
+    public enum Mode {
+        LTPC("ltpc"),
+        FULL("full");
+
+        private final String value;
+
+        Mode(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final TickRingBuffer ring;
+    private final FeedDecoder decoder;
+
+    private volatile WebSocket webSocket;
+
+    // Follows the instrument registry: the key index is rebuilt whenever a new table is published
+    public MarketDataFeed() {
+        this(buildKeyIndex(InstrumentRegistry.getInstance().getTable()), DEFAULT_RING_SIZE);
+        InstrumentRegistry.getInstance().addListener((table, version) -> decoder.setKeyIndex(buildKeyIndex(table)));
+    }
+
+    public MarketDataFeed(InstrumentKeyIndex keyIndex, int ringSize) {
+        this.ring = new TickRingBuffer(ringSize);
+        this.decoder = new FeedDecoder(keyIndex);
+    }
+
+    private static class Holder {
+        private static final MarketDataFeed INSTANCE = new MarketDataFeed();
+    }
+
+    // The app's shared feed and tick ring
+    public static MarketDataFeed getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public static InstrumentKeyIndex buildKeyIndex(InstrumentTable table) {
+        String[] keys = new String[table.size()];
+        for (int id = 0; id < keys.length; id++) {
+            keys[id] = table.instrumentKey(id);
+        }
+        return new InstrumentKeyIndex(keys);
+    }
+
+    public TickRingBuffer getRing() {
+        return ring;
+    }
+
+    // Asks the broker for a one-time feed URL and connects to it
+    public CompletableFuture<WebSocket> connect() {
+        return CompletableFuture.supplyAsync(this::authorize).thenCompose(this::connect);
+    }
+
+    // Connects to an explicit feed URL, e.g. a local replay server
+    public CompletableFuture<WebSocket> connect(URI feedUri) {
+        return httpClient.newWebSocketBuilder()
+            .buildAsync(feedUri, new FeedListener())
+            .thenApply(ws -> {
+                webSocket = ws;
+                System.out.println("Market data feed connected: " + feedUri.getHost());
+                return ws;
+            });
+    }
+
+    // Uses the session's cached token; a rejected token is dropped so the next attempt re-reads it
+    private URI authorize() {
+        QuoteSession session = QuoteSession.getInstance();
+        String token = session.getAccessToken();
+        if (token == null) {
+            throw new IllegalStateException("Could not authorize market data feed: no valid access token");
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(AUTHORIZE_URL))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+            HttpResponse<String> response = RequestScheduler.getInstance().execute(RequestScheduler.Priority.QUOTE, null,
+                () -> httpClient.send(request, HttpResponse.BodyHandlers.ofString()));
+            if (response.statusCode() == HTTP_UNAUTHORIZED) {
+                session.invalidateToken();
+            }
+            if (response.statusCode() != 200) {
+                throw new ApiException(response.statusCode(), "Feed authorization failed: " + response.body());
+            }
+            JSONObject data = new JSONObject(response.body()).getJSONObject("data");
+            return URI.create(data.optString("authorized_redirect_uri", data.optString("authorizedRedirectUri")));
+        } catch (ApiException | JSONException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("Could not authorize market data feed", e);
+        }
+    }
+
+    public CompletableFuture<WebSocket> subscribe(Collection<String> instrumentKeys, Mode mode) {
+        return send("sub", instrumentKeys, mode);
+    }
+
+    public CompletableFuture<WebSocket> unsubscribe(Collection<String> instrumentKeys) {
+        return send("unsub", instrumentKeys, null);
+    }
+
+    private CompletableFuture<WebSocket> send(String method, Collection<String> instrumentKeys, Mode mode) {
+        WebSocket ws = webSocket;
+        if (ws == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Market data feed is not connected"));
+        }
+        JSONObject data = new JSONObject().put("instrumentKeys", new JSONArray(instrumentKeys));
+        if (mode != null) {
+            data.put("mode", mode.getValue());
+        }
+        JSONObject message = new JSONObject()
+            .put("guid", UUID.randomUUID().toString())
+            .put("method", method)
+            .put("data", data);
+        // The feed only accepts subscription requests as binary frames
+        return ws.sendBinary(ByteBuffer.wrap(message.toString().getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    public void close() {
+        WebSocket ws = webSocket;
+        if (ws != null) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "closing");
+        }
+    }
+
+    private class FeedListener implements WebSocket.Listener {
+        // Reassembles fragmented frames; grows only when a larger frame arrives
+        private ByteBuffer frame = ByteBuffer.allocate(INITIAL_FRAME_CAPACITY);
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+            if (frame.remaining() < data.remaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(frame.capacity() * 2, frame.position() + data.remaining()));
+                frame.flip();
+                larger.put(frame);
+                frame = larger;
+            }
+            frame.put(data);
+            if (last) {
+                frame.flip();
+                try {
+                    decoder.decode(frame, ring);
+                } catch (RuntimeException e) {
+                    System.err.println("Dropping malformed market data frame: " + e.getMessage());
+                }
+                frame.clear();
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+            System.out.println("Market data feed closed: " + statusCode + " " + reason);
+            webSocket = null;
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            System.err.println("Market data feed error: " + error.getMessage());
+            webSocket = null;
+        }
+    }
+}
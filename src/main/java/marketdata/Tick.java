@@ -0,0 +1,61 @@
+package marketdata;
+
+// Mutable tick record. Instances live in the ring buffer and are overwritten in place; never hold on to one.
+public class Tick {
+    int instrumentId;
+    double lastPrice;
+    long lastTradeTime;
+    long lastTradeQuantity;
+    double closePrice;
+    double averagePrice;
+    long volume;
+    long receivedNanos;
+
+    void clear() {
+        instrumentId = -1;
+        lastPrice = 0;
+        lastTradeTime = 0;
+        lastTradeQuantity = 0;
+        closePrice = 0;
+        averagePrice = 0;
+        volume = 0;
+        receivedNanos = 0;
+    }
+
+    // Row of the instrument in the InstrumentRegistry table
+    public int getInstrumentId() {
+        return instrumentId;
+    }
+
+    public double getLastPrice() {
+        return lastPrice;
+    }
+
+    // Epoch millis of the last trade
+    public long getLastTradeTime() {
+        return lastTradeTime;
+    }
+
+    public long getLastTradeQuantity() {
+        return lastTradeQuantity;
+    }
+
+    // Previous session close
+    public double getClosePrice() {
+        return closePrice;
+    }
+
+    public double getAveragePrice() {
+        return averagePrice;
+    }
+
+    // Cumulative traded volume for the day, 0 when the feed mode does not carry it
+    public long getVolume() {
+        return volume;
+    }
+
+    // System.nanoTime() when the frame carrying this tick was decoded
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+}
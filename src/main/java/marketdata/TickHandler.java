@@ -0,0 +1,7 @@
+package marketdata;
+
+@FunctionalInterface
+public interface TickHandler {
+    // Called on the subscriber's own thread. The tick is reused once this returns.
+    void onTick(Tick tick);
+}
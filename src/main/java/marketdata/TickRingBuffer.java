@@ -0,0 +1,138 @@
+package marketdata;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer, multi-subscriber ring of preallocated ticks. The feed thread claims a slot, fills it
+ * in place and publishes it; every subscriber follows the cursor on its own thread. Nothing is
+ * allocated per tick. When the slowest subscriber is a full ring behind, the writer waits for it.
+ */
+public class TickRingBuffer {
+    private final Tick[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    // Writer-only state
+    private long claimed = -1;
+    private long cachedMinSubscriber = -1;
+
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+
+    public TickRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        slots = new Tick[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Tick();
+        }
+        mask = capacity - 1;
+    }
+
+    // Writer: returns the next slot to fill. Must be followed by publish().
+    Tick claim() {
+        long next = claimed + 1;
+        long wrapPoint = next - slots.length;
+        if (wrapPoint > cachedMinSubscriber) {
+            long min;
+            int idle = 0;
+            while (wrapPoint > (min = minSubscriberSequence(next - 1))) {
+                idle = backOff(idle);
+            }
+            cachedMinSubscriber = min;
+        }
+        claimed = next;
+        Tick tick = slots[(int) (next & mask)];
+        tick.clear();
+        return tick;
+    }
+
+    // Writer: makes every claimed slot visible to subscribers
+    void publish() {
+        cursor.set(claimed);
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    private long minSubscriberSequence(long fallback) {
+        long min = fallback;
+        for (Subscriber s : subscribers) {
+            min = Math.min(min, s.sequence.get());
+        }
+        return min;
+    }
+
+    // Starts a daemon thread that delivers every tick published from now on to handler
+    public synchronized Subscriber subscribe(String name, TickHandler handler) {
+        Subscriber subscriber = new Subscriber(handler, cursor.get());
+        Subscriber[] updated = Arrays.copyOf(subscribers, subscribers.length + 1);
+        updated[updated.length - 1] = subscriber;
+        subscribers = updated;
+        Thread thread = new Thread(subscriber::run, "tick-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        return subscriber;
+    }
+
+    public synchronized void unsubscribe(Subscriber subscriber) {
+        subscriber.running = false;
+        subscribers = Arrays.stream(subscribers).filter(s -> s != subscriber).toArray(Subscriber[]::new);
+    }
+
+    // Spin, then yield, then park briefly: keeps latency low without burning a core when the market is quiet
+    private static int backOff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+        return idle + 1;
+    }
+
+    public class Subscriber {
+        private final TickHandler handler;
+        private final AtomicLong sequence;
+        private volatile boolean running = true;
+
+        private Subscriber(TickHandler handler, long start) {
+            this.handler = handler;
+            this.sequence = new AtomicLong(start);
+        }
+
+        // Ticks published but not yet handled by this subscriber
+        public long getLag() {
+            return cursor.get() - sequence.get();
+        }
+
+        private void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (running) {
+                long available = cursor.get();
+                if (available < next) {
+                    idle = backOff(idle);
+                    continue;
+                }
+                idle = 0;
+                for (; next <= available; next++) {
+                    Tick tick = slots[(int) (next & mask)];
+                    if (tick.instrumentId < 0) {
+                        continue;
+                    }
+                    try {
+                        handler.onTick(tick);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                sequence.lazySet(available);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package model;
+
+// Exchanges whose instrument master is published as one gzipped JSON file covering all of its segments
+public enum Exchange {
+    NSE("https://assets.upstox.com/market-quote/instruments/exchange/NSE.json.gz"),
+    BSE("https://assets.upstox.com/market-quote/instruments/exchange/BSE.json.gz"),
+    MCX("https://assets.upstox.com/market-quote/instruments/exchange/MCX.json.gz");
+
+    private final String instrumentUrl;
+
+    Exchange(String instrumentUrl) {
+        this.instrumentUrl = instrumentUrl;
+    }
+
+    public String getInstrumentUrl() {
+        return instrumentUrl;
+    }
+}
@@ -0,0 +1,846 @@
+package model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Struct-of-arrays storage for instruments. Each row is an instrument id; categorical columns are
+ * dictionary encoded and numeric columns are primitive arrays, so the full master costs a few arrays
+ * instead of one object (plus a dozen strings) per instrument. {@link #get(int)} hands out lightweight
+ * {@link Stock} views that read straight from the columns.
+ */
+public class InstrumentTable {
+    private static final int NO_TOKEN = Integer.MIN_VALUE;
+    // Column encoding: string length markers for null and for "same object as the base column"
+    private static final int NULL_STRING = -1;
+    private static final int SAME_AS_BASE = -2;
+
+    private final int size;
+
+    // Mostly unique per instrument
+    private final String[] symbols;
+    private final String[] names;
+    private final String[] isins;
+    private final String[] instrumentKeys;
+    private final String[] tradingSymbols;
+    private final String[] shortNames;
+    private final int[] exchangeTokens;
+    private final Map<Integer, String> nonNumericTokens;
+
+    // Categorical, dictionary encoded
+    private final StringDictionary dictionary;
+    private final int[] exchanges;
+    private final int[] instrumentTypes;
+    private final int[] segments;
+    private final int[] securityTypes;
+    private final int[] underlyingSymbols;
+    private final int[] underlyingKeys;
+
+    private final int[] lotSizes;
+    private final int[] freezeQuantities;
+    private final int[] qtyMultipliers;
+    private final double[] tickSizes;
+
+    // Derivatives only, 0 elsewhere
+    private final double[] strikePrices;
+    private final long[] expiries;
+
+    private InstrumentTable(Builder b) {
+        size = b.size;
+        symbols = Arrays.copyOf(b.symbols, size);
+        names = Arrays.copyOf(b.names, size);
+        isins = Arrays.copyOf(b.isins, size);
+        instrumentKeys = Arrays.copyOf(b.instrumentKeys, size);
+        tradingSymbols = Arrays.copyOf(b.tradingSymbols, size);
+        shortNames = Arrays.copyOf(b.shortNames, size);
+        exchangeTokens = Arrays.copyOf(b.exchangeTokens, size);
+        nonNumericTokens = b.nonNumericTokens;
+        dictionary = b.dictionary;
+        exchanges = Arrays.copyOf(b.exchanges, size);
+        instrumentTypes = Arrays.copyOf(b.instrumentTypes, size);
+        segments = Arrays.copyOf(b.segments, size);
+        securityTypes = Arrays.copyOf(b.securityTypes, size);
+        underlyingSymbols = Arrays.copyOf(b.underlyingSymbols, size);
+        underlyingKeys = Arrays.copyOf(b.underlyingKeys, size);
+        lotSizes = Arrays.copyOf(b.lotSizes, size);
+        freezeQuantities = Arrays.copyOf(b.freezeQuantities, size);
+        qtyMultipliers = Arrays.copyOf(b.qtyMultipliers, size);
+        tickSizes = Arrays.copyOf(b.tickSizes, size);
+        strikePrices = Arrays.copyOf(b.strikePrices, size);
+        expiries = Arrays.copyOf(b.expiries, size);
+    }
+
+    private InstrumentTable(int size, String[] symbols, String[] names, String[] isins, String[] instrumentKeys,
+            String[] tradingSymbols, String[] shortNames, int[] exchangeTokens, Map<Integer, String> nonNumericTokens,
+            StringDictionary dictionary, int[] exchanges, int[] instrumentTypes, int[] segments, int[] securityTypes,
+            int[] underlyingSymbols, int[] underlyingKeys, int[] lotSizes, int[] freezeQuantities,
+            int[] qtyMultipliers, double[] tickSizes, double[] strikePrices, long[] expiries) {
+        this.size = size;
+        this.symbols = symbols;
+        this.names = names;
+        this.isins = isins;
+        this.instrumentKeys = instrumentKeys;
+        this.tradingSymbols = tradingSymbols;
+        this.shortNames = shortNames;
+        this.exchangeTokens = exchangeTokens;
+        this.nonNumericTokens = nonNumericTokens;
+        this.dictionary = dictionary;
+        this.exchanges = exchanges;
+        this.instrumentTypes = instrumentTypes;
+        this.segments = segments;
+        this.securityTypes = securityTypes;
+        this.underlyingSymbols = underlyingSymbols;
+        this.underlyingKeys = underlyingKeys;
+        this.lotSizes = lotSizes;
+        this.freezeQuantities = freezeQuantities;
+        this.qtyMultipliers = qtyMultipliers;
+        this.tickSizes = tickSizes;
+        this.strikePrices = strikePrices;
+        this.expiries = expiries;
+    }
+
+    public static InstrumentTable of(List<Stock> stocks) {
+        Builder builder = new Builder(stocks.size());
+        for (Stock stock : stocks) {
+            builder.add(stock);
+        }
+        return builder.build();
+    }
+
+    // One table holding the rows of parts back to back: row r of parts[i] becomes id (rows before parts[i]) + r
+    public static InstrumentTable concat(List<InstrumentTable> parts) {
+        int size = 0;
+        for (InstrumentTable part : parts) {
+            size += part.size;
+        }
+        String[] symbols = new String[size];
+        String[] names = new String[size];
+        String[] isins = new String[size];
+        String[] instrumentKeys = new String[size];
+        String[] tradingSymbols = new String[size];
+        String[] shortNames = new String[size];
+        int[] exchangeTokens = new int[size];
+        Map<Integer, String> nonNumericTokens = new HashMap<>();
+        StringDictionary dictionary = new StringDictionary();
+        int[] exchanges = new int[size];
+        int[] instrumentTypes = new int[size];
+        int[] segments = new int[size];
+        int[] securityTypes = new int[size];
+        int[] underlyingSymbols = new int[size];
+        int[] underlyingKeys = new int[size];
+        int[] lotSizes = new int[size];
+        int[] freezeQuantities = new int[size];
+        int[] qtyMultipliers = new int[size];
+        double[] tickSizes = new double[size];
+        double[] strikePrices = new double[size];
+        long[] expiries = new long[size];
+
+        int offset = 0;
+        for (InstrumentTable part : parts) {
+            int n = part.size;
+            System.arraycopy(part.symbols, 0, symbols, offset, n);
+            System.arraycopy(part.names, 0, names, offset, n);
+            System.arraycopy(part.isins, 0, isins, offset, n);
+            System.arraycopy(part.instrumentKeys, 0, instrumentKeys, offset, n);
+            System.arraycopy(part.tradingSymbols, 0, tradingSymbols, offset, n);
+            System.arraycopy(part.shortNames, 0, shortNames, offset, n);
+            System.arraycopy(part.exchangeTokens, 0, exchangeTokens, offset, n);
+            for (Map.Entry<Integer, String> token : part.nonNumericTokens.entrySet()) {
+                nonNumericTokens.put(token.getKey() + offset, token.getValue());
+            }
+            // Each part has its own dictionary; translate its codes into the merged one
+            int[] codes = new int[part.dictionary.size()];
+            for (int code = 0; code < codes.length; code++) {
+                codes[code] = dictionary.encode(part.dictionary.decode(code));
+            }
+            recode(part.exchanges, codes, exchanges, offset);
+            recode(part.instrumentTypes, codes, instrumentTypes, offset);
+            recode(part.segments, codes, segments, offset);
+            recode(part.securityTypes, codes, securityTypes, offset);
+            recode(part.underlyingSymbols, codes, underlyingSymbols, offset);
+            recode(part.underlyingKeys, codes, underlyingKeys, offset);
+            System.arraycopy(part.lotSizes, 0, lotSizes, offset, n);
+            System.arraycopy(part.freezeQuantities, 0, freezeQuantities, offset, n);
+            System.arraycopy(part.qtyMultipliers, 0, qtyMultipliers, offset, n);
+            System.arraycopy(part.tickSizes, 0, tickSizes, offset, n);
+            System.arraycopy(part.strikePrices, 0, strikePrices, offset, n);
+            System.arraycopy(part.expiries, 0, expiries, offset, n);
+            offset += n;
+        }
+        return new InstrumentTable(size, symbols, names, isins, instrumentKeys, tradingSymbols, shortNames,
+            exchangeTokens, nonNumericTokens, dictionary, exchanges, instrumentTypes, segments, securityTypes,
+            underlyingSymbols, underlyingKeys, lotSizes, freezeQuantities, qtyMultipliers, tickSizes, strikePrices,
+            expiries);
+    }
+
+    // A table whose row i is row rows[i] of this one; rows may repeat and need not be in order
+    public InstrumentTable select(int[] rows) {
+        int n = rows.length;
+        Map<Integer, String> tokens = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            String token = nonNumericTokens.get(rows[i]);
+            if (token != null) {
+                tokens.put(i, token);
+            }
+        }
+        return new InstrumentTable(n, pick(symbols, rows, new String[n]), pick(names, rows, new String[n]),
+            pick(isins, rows, new String[n]), pick(instrumentKeys, rows, new String[n]),
+            pick(tradingSymbols, rows, new String[n]), pick(shortNames, rows, new String[n]),
+            pick(exchangeTokens, rows), tokens, dictionary, pick(exchanges, rows), pick(instrumentTypes, rows),
+            pick(segments, rows), pick(securityTypes, rows), pick(underlyingSymbols, rows), pick(underlyingKeys, rows),
+            pick(lotSizes, rows), pick(freezeQuantities, rows), pick(qtyMultipliers, rows), pick(tickSizes, rows),
+            pick(strikePrices, rows), pick(expiries, rows));
+    }
+
+    private static String[] pick(String[] column, int[] rows, String[] target) {
+        for (int i = 0; i < rows.length; i++) {
+            target[i] = column[rows[i]];
+        }
+        return target;
+    }
+
+    private static int[] pick(int[] column, int[] rows) {
+        int[] target = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            target[i] = column[rows[i]];
+        }
+        return target;
+    }
+
+    private static double[] pick(double[] column, int[] rows) {
+        double[] target = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            target[i] = column[rows[i]];
+        }
+        return target;
+    }
+
+    private static long[] pick(long[] column, int[] rows) {
+        long[] target = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            target[i] = column[rows[i]];
+        }
+        return target;
+    }
+
+    private static void recode(int[] source, int[] codes, int[] target, int offset) {
+        for (int row = 0; row < source.length; row++) {
+            int code = source[row];
+            target[offset + row] = code == StringDictionary.NULL_CODE ? code : codes[code];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Stock get(int id) {
+        Objects.checkIndex(id, size);
+        return new StockView(this, id);
+    }
+
+    public List<Stock> asList() {
+        return new AbstractList<Stock>() {
+            @Override
+            public Stock get(int index) {
+                return InstrumentTable.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public String isin(int id) {
+        return isins[id];
+    }
+
+    public String instrumentKey(int id) {
+        return instrumentKeys[id];
+    }
+
+    public String tradingSymbol(int id) {
+        return tradingSymbols[id];
+    }
+
+    public String shortName(int id) {
+        return shortNames[id];
+    }
+
+    public String exchangeToken(int id) {
+        int token = exchangeTokens[id];
+        if (token == NO_TOKEN) {
+            return nonNumericTokens.get(id);
+        }
+        return Integer.toString(token);
+    }
+
+    public String exchange(int id) {
+        return dictionary.decode(exchanges[id]);
+    }
+
+    public String instrumentType(int id) {
+        return dictionary.decode(instrumentTypes[id]);
+    }
+
+    public String segment(int id) {
+        return dictionary.decode(segments[id]);
+    }
+
+    public String securityType(int id) {
+        return dictionary.decode(securityTypes[id]);
+    }
+
+    public int lotSize(int id) {
+        return lotSizes[id];
+    }
+
+    public int freezeQuantity(int id) {
+        return freezeQuantities[id];
+    }
+
+    public int qtyMultiplier(int id) {
+        return qtyMultipliers[id];
+    }
+
+    public double tickSize(int id) {
+        return tickSizes[id];
+    }
+
+    public String underlyingSymbol(int id) {
+        return dictionary.decode(underlyingSymbols[id]);
+    }
+
+    public String underlyingKey(int id) {
+        return dictionary.decode(underlyingKeys[id]);
+    }
+
+    public double strikePrice(int id) {
+        return strikePrices[id];
+    }
+
+    public long expiry(int id) {
+        return expiries[id];
+    }
+
+    // Writes the columns exactly as held in memory so readColumns can bulk copy them back without re-encoding
+    public void writeColumns(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        writeStrings(out, symbols, null);
+        writeStrings(out, names, null);
+        writeStrings(out, isins, null);
+        writeStrings(out, instrumentKeys, null);
+        writeStrings(out, tradingSymbols, symbols);
+        writeStrings(out, shortNames, names);
+        writeInts(out, exchangeTokens);
+        out.writeInt(nonNumericTokens.size());
+        for (Map.Entry<Integer, String> token : nonNumericTokens.entrySet()) {
+            out.writeInt(token.getKey());
+            writeString(out, token.getValue());
+        }
+        out.writeInt(dictionary.size());
+        for (int code = 0; code < dictionary.size(); code++) {
+            writeString(out, dictionary.decode(code));
+        }
+        writeInts(out, exchanges);
+        writeInts(out, instrumentTypes);
+        writeInts(out, segments);
+        writeInts(out, securityTypes);
+        writeInts(out, underlyingSymbols);
+        writeInts(out, underlyingKeys);
+        writeInts(out, lotSizes);
+        writeInts(out, freezeQuantities);
+        writeInts(out, qtyMultipliers);
+        writeDoubles(out, tickSizes);
+        writeDoubles(out, strikePrices);
+        for (int row = 0; row < size; row++) {
+            out.writeLong(expiries[row]);
+        }
+    }
+
+    // Reads what writeColumns wrote, leaving the buffer positioned after it
+    public static InstrumentTable readColumns(ByteBuffer in) {
+        int size = in.getInt();
+        String[] symbols = readStrings(in, size, null);
+        String[] names = readStrings(in, size, null);
+        String[] isins = readStrings(in, size, null);
+        String[] instrumentKeys = readStrings(in, size, null);
+        String[] tradingSymbols = readStrings(in, size, symbols);
+        String[] shortNames = readStrings(in, size, names);
+        int[] exchangeTokens = readInts(in, size);
+        int tokenCount = in.getInt();
+        Map<Integer, String> nonNumericTokens = new HashMap<>();
+        for (int i = 0; i < tokenCount; i++) {
+            int row = in.getInt();
+            nonNumericTokens.put(row, readString(in));
+        }
+        StringDictionary dictionary = new StringDictionary();
+        int dictionarySize = in.getInt();
+        for (int code = 0; code < dictionarySize; code++) {
+            dictionary.encode(readString(in));
+        }
+        int[] exchanges = readInts(in, size);
+        int[] instrumentTypes = readInts(in, size);
+        int[] segments = readInts(in, size);
+        int[] securityTypes = readInts(in, size);
+        int[] underlyingSymbols = readInts(in, size);
+        int[] underlyingKeys = readInts(in, size);
+        int[] lotSizes = readInts(in, size);
+        int[] freezeQuantities = readInts(in, size);
+        int[] qtyMultipliers = readInts(in, size);
+        double[] tickSizes = readDoubles(in, size);
+        double[] strikePrices = readDoubles(in, size);
+        long[] expiries = new long[size];
+        in.asLongBuffer().get(expiries);
+        in.position(in.position() + size * Long.BYTES);
+        return new InstrumentTable(size, symbols, names, isins, instrumentKeys, tradingSymbols, shortNames,
+            exchangeTokens, nonNumericTokens, dictionary, exchanges, instrumentTypes, segments, securityTypes,
+            underlyingSymbols, underlyingKeys, lotSizes, freezeQuantities, qtyMultipliers, tickSizes, strikePrices,
+            expiries);
+    }
+
+    // A length per row followed by all the UTF-8 bytes of the column, so reading is two bulk copies
+    private void writeStrings(DataOutputStream out, String[] column, String[] base) throws IOException {
+        byte[][] encoded = new byte[size][];
+        int total = 0;
+        for (int row = 0; row < size; row++) {
+            String value = column[row];
+            if (value == null) {
+                out.writeInt(NULL_STRING);
+            } else if (base != null && value == base[row]) {
+                out.writeInt(SAME_AS_BASE);
+            } else {
+                encoded[row] = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded[row].length);
+                total += encoded[row].length;
+            }
+        }
+        out.writeInt(total);
+        for (byte[] bytes : encoded) {
+            if (bytes != null) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer in, int size, String[] base) {
+        int[] lengths = readInts(in, size);
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        String[] column = new String[size];
+        int offset = 0;
+        for (int row = 0; row < size; row++) {
+            int length = lengths[row];
+            if (length == SAME_AS_BASE) {
+                column[row] = base[row];
+            } else if (length != NULL_STRING) {
+                column[row] = new String(bytes, offset, length, StandardCharsets.UTF_8);
+                offset += length;
+            }
+        }
+        return column;
+    }
+
+    private void writeInts(DataOutputStream out, int[] column) throws IOException {
+        for (int row = 0; row < size; row++) {
+            out.writeInt(column[row]);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer in, int size) {
+        int[] column = new int[size];
+        in.asIntBuffer().get(column);
+        in.position(in.position() + size * Integer.BYTES);
+        return column;
+    }
+
+    private void writeDoubles(DataOutputStream out, double[] column) throws IOException {
+        for (int row = 0; row < size; row++) {
+            out.writeDouble(column[row]);
+        }
+    }
+
+    private static double[] readDoubles(ByteBuffer in, int size) {
+        double[] column = new double[size];
+        in.asDoubleBuffer().get(column);
+        in.position(in.position() + size * Double.BYTES);
+        return column;
+    }
+
+    // The few strings outside the columns: tokens that are not numbers, dictionary entries
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Builder {
+        private int size;
+        private String[] symbols;
+        private String[] names;
+        private String[] isins;
+        private String[] instrumentKeys;
+        private String[] tradingSymbols;
+        private String[] shortNames;
+        private int[] exchangeTokens;
+        private final Map<Integer, String> nonNumericTokens = new HashMap<>();
+        private final StringDictionary dictionary = new StringDictionary();
+        private int[] exchanges;
+        private int[] instrumentTypes;
+        private int[] segments;
+        private int[] securityTypes;
+        private int[] underlyingSymbols;
+        private int[] underlyingKeys;
+        private int[] lotSizes;
+        private int[] freezeQuantities;
+        private int[] qtyMultipliers;
+        private double[] tickSizes;
+        private double[] strikePrices;
+        private long[] expiries;
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            symbols = new String[capacity];
+            names = new String[capacity];
+            isins = new String[capacity];
+            instrumentKeys = new String[capacity];
+            tradingSymbols = new String[capacity];
+            shortNames = new String[capacity];
+            exchangeTokens = new int[capacity];
+            exchanges = new int[capacity];
+            instrumentTypes = new int[capacity];
+            segments = new int[capacity];
+            securityTypes = new int[capacity];
+            underlyingSymbols = new int[capacity];
+            underlyingKeys = new int[capacity];
+            lotSizes = new int[capacity];
+            freezeQuantities = new int[capacity];
+            qtyMultipliers = new int[capacity];
+            tickSizes = new double[capacity];
+            strikePrices = new double[capacity];
+            expiries = new long[capacity];
+        }
+
+        // Copies the stock's fields into the columns, so callers may reuse one Stock as a row buffer
+        public Builder add(Stock stock) {
+            if (size == symbols.length) {
+                grow();
+            }
+            int row = size++;
+            symbols[row] = stock.getSymbol();
+            names[row] = stock.getName();
+            isins[row] = stock.getIsin();
+            instrumentKeys[row] = stock.getInstrument_key();
+            // trading_symbol almost always equals symbol; share the reference instead of a second copy
+            String tradingSymbol = stock.getTrading_symbol();
+            tradingSymbols[row] = Objects.equals(tradingSymbol, stock.getSymbol()) ? symbols[row] : tradingSymbol;
+            String shortName = stock.getShort_name();
+            shortNames[row] = Objects.equals(shortName, stock.getName()) ? names[row] : shortName;
+            exchangeTokens[row] = encodeToken(row, stock.getExchange_token());
+            exchanges[row] = dictionary.encode(stock.getExchange());
+            instrumentTypes[row] = dictionary.encode(stock.getInstrument_type());
+            segments[row] = dictionary.encode(stock.getSegment());
+            securityTypes[row] = dictionary.encode(stock.getSecurity_type());
+            underlyingSymbols[row] = dictionary.encode(stock.getUnderlying_symbol());
+            underlyingKeys[row] = dictionary.encode(stock.getUnderlying_key());
+            lotSizes[row] = stock.getLot_size();
+            freezeQuantities[row] = stock.getFreeze_quantity();
+            qtyMultipliers[row] = stock.getQty_multiplier();
+            tickSizes[row] = stock.getTick_size();
+            strikePrices[row] = stock.getStrike_price();
+            expiries[row] = stock.getExpiry();
+            return this;
+        }
+
+        private int encodeToken(int row, String token) {
+            // Only canonical digit strings round-trip through an int
+            if (token != null && !token.isEmpty() && token.length() <= 9 && token.chars().allMatch(Character::isDigit)
+                    && (token.length() == 1 || token.charAt(0) != '0')) {
+                return Integer.parseInt(token);
+            }
+            if (token != null) {
+                nonNumericTokens.put(row, token);
+            }
+            return NO_TOKEN;
+        }
+
+        private void grow() {
+            int capacity = symbols.length * 2;
+            symbols = Arrays.copyOf(symbols, capacity);
+            names = Arrays.copyOf(names, capacity);
+            isins = Arrays.copyOf(isins, capacity);
+            instrumentKeys = Arrays.copyOf(instrumentKeys, capacity);
+            tradingSymbols = Arrays.copyOf(tradingSymbols, capacity);
+            shortNames = Arrays.copyOf(shortNames, capacity);
+            exchangeTokens = Arrays.copyOf(exchangeTokens, capacity);
+            exchanges = Arrays.copyOf(exchanges, capacity);
+            instrumentTypes = Arrays.copyOf(instrumentTypes, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+            securityTypes = Arrays.copyOf(securityTypes, capacity);
+            underlyingSymbols = Arrays.copyOf(underlyingSymbols, capacity);
+            underlyingKeys = Arrays.copyOf(underlyingKeys, capacity);
+            lotSizes = Arrays.copyOf(lotSizes, capacity);
+            freezeQuantities = Arrays.copyOf(freezeQuantities, capacity);
+            qtyMultipliers = Arrays.copyOf(qtyMultipliers, capacity);
+            tickSizes = Arrays.copyOf(tickSizes, capacity);
+            strikePrices = Arrays.copyOf(strikePrices, capacity);
+            expiries = Arrays.copyOf(expiries, capacity);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public InstrumentTable build() {
+            return new InstrumentTable(this);
+        }
+    }
+
+    // Flyweight over one row of the table. Read-only: the table is shared by every reader.
+    public static final class StockView extends Stock {
+        private final InstrumentTable table;
+        private final int id;
+
+        private StockView(InstrumentTable table, int id) {
+            super(null);
+            this.table = table;
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String getSymbol() {
+            return table.symbol(id);
+        }
+
+        @Override
+        public String getName() {
+            return table.name(id);
+        }
+
+        @Override
+        public String getSegment() {
+            return table.segment(id);
+        }
+
+        @Override
+        public String getIsin() {
+            return table.isin(id);
+        }
+
+        @Override
+        public String getExchange() {
+            return table.exchange(id);
+        }
+
+        @Override
+        public String getInstrument_type() {
+            return table.instrumentType(id);
+        }
+
+        @Override
+        public String getInstrument_key() {
+            return table.instrumentKey(id);
+        }
+
+        @Override
+        public int getLot_size() {
+            return table.lotSize(id);
+        }
+
+        @Override
+        public int getFreeze_quantity() {
+            return table.freezeQuantity(id);
+        }
+
+        @Override
+        public String getExchange_token() {
+            return table.exchangeToken(id);
+        }
+
+        @Override
+        public double getTick_size() {
+            return table.tickSize(id);
+        }
+
+        @Override
+        public String getTrading_symbol() {
+            return table.tradingSymbol(id);
+        }
+
+        @Override
+        public String getShort_name() {
+            return table.shortName(id);
+        }
+
+        @Override
+        public int getQty_multiplier() {
+            return table.qtyMultiplier(id);
+        }
+
+        @Override
+        public String getSecurity_type() {
+            return table.securityType(id);
+        }
+
+        @Override
+        public double getStrike_price() {
+            return table.strikePrice(id);
+        }
+
+        @Override
+        public long getExpiry() {
+            return table.expiry(id);
+        }
+
+        @Override
+        public String getUnderlying_symbol() {
+            return table.underlyingSymbol(id);
+        }
+
+        @Override
+        public String getUnderlying_key() {
+            return table.underlyingKey(id);
+        }
+
+        @Override
+        public void setSymbol(String symbol) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setSegment(String segment) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIsin(String isin) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setExchange(String exchange) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setInstrument_type(String instrument_type) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setInstrument_key(String instrument_key) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLot_size(int lot_size) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFreeze_quantity(int freeze_quantity) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setExchange_token(String exchange_token) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTick_size(double tick_size) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTrading_symbol(String trading_symbol) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setShort_name(String short_name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setQty_multiplier(int qty_multiplier) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setSecurity_type(String security_type) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStrike_price(double strike_price) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setExpiry(long expiry) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUnderlying_symbol(String underlying_symbol) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUnderlying_key(String underlying_key) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Instrument views are read-only");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StockView && ((StockView) o).table == table && ((StockView) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(table) * 31 + id;
+        }
+    }
+}
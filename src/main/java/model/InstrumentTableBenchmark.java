@@ -0,0 +1,124 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retained heap of a synthetic NSE-like instrument master held as a List of {@link Stock} objects and as
+ * an {@link InstrumentTable}, plus the cost of a full column scan. Heap is read after repeated GCs, so run
+ * it with a fixed heap (e.g. -Xms2g -Xmx2g) and nothing else going on for stable numbers.
+ *
+ * <pre>java -cp ... model.InstrumentTableBenchmark [rows]</pre>
+ */
+public class InstrumentTableBenchmark {
+    private static final String[] UNDERLYINGS = {"NIFTY", "BANKNIFTY", "FINNIFTY", "RELIANCE", "HDFCBANK", "INFY"};
+    private static final int WARMUP = 20;
+    private static final int RUNS = 50;
+
+    private InstrumentTableBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        long base = usedAfterGc(memory);
+        List<Stock> stocks = generate(rows);
+        long asList = usedAfterGc(memory) - base;
+
+        long start = System.nanoTime();
+        InstrumentTable table = InstrumentTable.of(stocks);
+        long buildNanos = System.nanoTime() - start;
+        // The table keeps the unique strings but none of the Stock objects or the repeated categorical ones
+        stocks = null;
+        long asTable = usedAfterGc(memory) - base;
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += scan(table);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long t = System.nanoTime();
+            sink += scan(table);
+            best = Math.min(best, System.nanoTime() - t);
+        }
+
+        System.out.printf("%d rows%n", table.size());
+        System.out.printf("List<Stock>:     %6.1f MB, %5.0f B/row%n", asList / 1e6, (double) asList / rows);
+        System.out.printf("InstrumentTable: %6.1f MB, %5.0f B/row (%.0f%% smaller), built in %.1f ms%n",
+            asTable / 1e6, (double) asTable / rows, 100.0 * (asList - asTable) / asList, buildNanos / 1e6);
+        System.out.printf("column scan:     %.2f ns/row best (checksum %d)%n", (double) best / rows, sink);
+    }
+
+    // Lot-weighted strike of the near-month calls, reading only the columns it needs
+    private static long scan(InstrumentTable table) {
+        long cutoff = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(31);
+        double sum = 0;
+        for (int id = 0; id < table.size(); id++) {
+            if ("CE".equals(table.instrumentType(id)) && table.expiry(id) < cutoff) {
+                sum += table.strikePrice(id) * table.lotSize(id);
+            }
+        }
+        return (long) sum;
+    }
+
+    // A third equities, the rest futures and options over weekly and monthly expiries
+    private static List<Stock> generate(int rows) {
+        long now = System.currentTimeMillis();
+        List<Stock> stocks = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Stock stock;
+            if (i % 3 == 0) {
+                stock = new Stock("EQ" + i, "Equity Instrument Limited " + i);
+                stock.setIsin("INE" + String.format("%06d", i) + "01");
+                stock.setInstrument_key("NSE_EQ|" + stock.getIsin());
+                stock.setSegment(fresh("NSE_EQ"));
+                stock.setInstrument_type(fresh("EQ"));
+                stock.setSecurity_type(fresh("NORMAL"));
+                stock.setLot_size(1);
+            } else {
+                String underlying = UNDERLYINGS[i % UNDERLYINGS.length];
+                long expiry = now + TimeUnit.DAYS.toMillis(3 + 7L * (i % 12));
+                String type = i % 7 == 0 ? "FUT" : (i & 1) == 0 ? "CE" : "PE";
+                double strike = "FUT".equals(type) ? 0 : 10_000 + 50 * (i % 400);
+                stock = new Stock(underlying + expiry + type + (int) strike, fresh(underlying));
+                stock.setInstrument_key("NSE_FO|" + (30_000 + i));
+                stock.setSegment(fresh("NSE_FO"));
+                stock.setInstrument_type(fresh(type));
+                stock.setUnderlying_symbol(fresh(underlying));
+                stock.setUnderlying_key("NSE_INDEX|" + underlying);
+                stock.setLot_size(25 * (1 + i % 3));
+                stock.setFreeze_quantity(1800);
+                stock.setStrike_price(strike);
+                stock.setExpiry(expiry);
+            }
+            stock.setExchange(fresh("NSE"));
+            stock.setExchange_token(String.valueOf(30_000 + i));
+            stock.setTrading_symbol(stock.getSymbol());
+            stock.setShort_name(stock.getName());
+            stock.setQty_multiplier(1);
+            stock.setTick_size(0.05);
+            stocks.add(stock);
+        }
+        return stocks;
+    }
+
+    // The JSON parser hands out a new String for every field, repeated values included
+    private static String fresh(String value) {
+        return String.valueOf(value.toCharArray());
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -1,17 +1,24 @@
 package model;
 
 public enum Interval {
-    ONE_DAY("1d"),
-    ONE_MINUTE("I1"),
-    THIRTY_MINUTE("I30");
+    ONE_DAY("1d", 24 * 60),
+    ONE_MINUTE("I1", 1),
+    THIRTY_MINUTE("I30", 30);
 
     private String value;
+    private int minutes;
 
-    Interval(String value) {
+    Interval(String value, int minutes) {
         this.value = value;
+        this.minutes = minutes;
     }
 
     public String getValue() {
         return value;
     }
+
+    // Bar length; anything of a full trading session or longer is treated as one bar per day
+    public int getMinutes() {
+        return minutes;
+    }
 }
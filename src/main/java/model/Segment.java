@@ -0,0 +1,61 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Market segments the app stores, named as in instrument keys ("NSE_FO|43210"). Each segment comes from
+ * its exchange's instrument file; NSE_EQ keeps only EQ series, the other segments keep every instrument.
+ */
+public enum Segment {
+    NSE_EQ(Exchange.NSE, "EQ"),
+    NSE_FO(Exchange.NSE),
+    BSE_EQ(Exchange.BSE),
+    BSE_FO(Exchange.BSE),
+    MCX_FO(Exchange.MCX);
+
+    private final Exchange exchange;
+    private final Set<String> instrumentTypes;
+
+    Segment(Exchange exchange, String... instrumentTypes) {
+        this.exchange = exchange;
+        this.instrumentTypes = instrumentTypes.length == 0
+            ? Collections.emptySet() : new HashSet<>(Arrays.asList(instrumentTypes));
+    }
+
+    public Exchange getExchange() {
+        return exchange;
+    }
+
+    public boolean accepts(String instrumentType) {
+        return instrumentTypes.isEmpty() || instrumentTypes.contains(instrumentType);
+    }
+
+    // The segment for a code such as "NSE_FO", or null for segments the app does not store
+    public static Segment fromCode(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (Segment segment : values()) {
+            if (segment.name().equals(code)) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    // Parses a comma separated list such as "NSE_EQ,NSE_FO"
+    public static Set<Segment> parseList(String list) {
+        Set<Segment> segments = EnumSet.noneOf(Segment.class);
+        for (String code : list.split(",")) {
+            if (!code.isBlank()) {
+                segments.add(valueOf(code.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        return segments;
+    }
+}
@@ -16,6 +16,11 @@ public class Stock {
     private int qty_multiplier;
     private String security_type;
     private String segment;
+    // Derivatives only; expiry is epoch millis as published in the instrument file, 0 when there is none
+    private double strike_price;
+    private long expiry;
+    private String underlying_symbol;
+    private String underlying_key;
 
     public Stock(String symbol) {
         this.symbol = symbol;
@@ -146,5 +151,35 @@ public class Stock {
         this.security_type = security_type;
     }
 
-    
+    public double getStrike_price() {
+        return strike_price;
+    }
+
+    public void setStrike_price(double strike_price) {
+        this.strike_price = strike_price;
+    }
+
+    public long getExpiry() {
+        return expiry;
+    }
+
+    public void setExpiry(long expiry) {
+        this.expiry = expiry;
+    }
+
+    public String getUnderlying_symbol() {
+        return underlying_symbol;
+    }
+
+    public void setUnderlying_symbol(String underlying_symbol) {
+        this.underlying_symbol = underlying_symbol;
+    }
+
+    public String getUnderlying_key() {
+        return underlying_key;
+    }
+
+    public void setUnderlying_key(String underlying_key) {
+        this.underlying_key = underlying_key;
+    }
 }
@@ -0,0 +1,156 @@
+package options;
+
+/**
+ * Black-Scholes prices, Greeks and implied volatility for European options. The underlying pays a
+ * continuous yield (0 for index options priced off spot; pricing off a future is the same as a yield equal
+ * to the rate). Times are in years, rates and volatilities are annualised decimals.
+ *
+ * The batch {@link #greeks} is a plain indexed pass over primitive strike and volatility columns with the
+ * call/put choice hoisted out of the loop, so a whole chain side is one tight loop with no per-option objects.
+ */
+public final class BlackScholes {
+    public static final double MIN_VOL = 1e-4;
+    public static final double MAX_VOL = 10;
+    private static final int MAX_ITERATIONS = 100;
+    private static final double PRICE_TOLERANCE = 1e-10;
+    private static final double VOL_TOLERANCE = 1e-12;
+    private static final double INV_SQRT_2PI = 0.3989422804014327;
+    private static final double DAYS_PER_YEAR = 365;
+
+    private BlackScholes() {
+    }
+
+    public static double price(boolean call, double spot, double strike, double years, double rate, double yield,
+                               double vol) {
+        double volSqrtT = vol * Math.sqrt(years);
+        double d1 = (Math.log(spot / strike) + (rate - yield + 0.5 * vol * vol) * years) / volSqrtT;
+        double d2 = d1 - volSqrtT;
+        double sign = call ? 1 : -1;
+        return sign * (spot * Math.exp(-yield * years) * normCdf(sign * d1)
+            - strike * Math.exp(-rate * years) * normCdf(sign * d2));
+    }
+
+    // Sensitivity of the price to a change of 1.0 in vol, the same for calls and puts
+    private static double vega(double spot, double strike, double years, double rate, double yield, double vol) {
+        double sqrtT = Math.sqrt(years);
+        double d1 = (Math.log(spot / strike) + (rate - yield + 0.5 * vol * vol) * years) / (vol * sqrtT);
+        return spot * Math.exp(-yield * years) * Math.exp(-0.5 * d1 * d1) * INV_SQRT_2PI * sqrtT;
+    }
+
+    /**
+     * Volatility at which the model price equals price, or NaN when there is none (price outside the
+     * no-arbitrage bounds, expired option). Newton steps on vega, falling back to bisection of the bracket
+     * kept around the root whenever a step leaves it, so deep in- or out-of-the-money options with a
+     * vanishing vega still converge. An in-the-money option is solved as its out-of-the-money parity
+     * partner, whose price is all time value, so the intrinsic part cannot swamp it.
+     */
+    public static double impliedVol(boolean call, double price, double spot, double strike, double years, double rate,
+                                    double yield) {
+        if (!(price > 0 && spot > 0 && strike > 0 && years > 0)) {
+            return Double.NaN;
+        }
+        double forward = spot * Math.exp(-yield * years);
+        double discountedStrike = strike * Math.exp(-rate * years);
+        double intrinsic = Math.max(call ? forward - discountedStrike : discountedStrike - forward, 0);
+        if (price <= intrinsic) {
+            return Double.NaN;
+        }
+        if (intrinsic > 0) {
+            // Put-call parity: C - P = forward - discountedStrike
+            call = !call;
+            price -= intrinsic;
+        }
+        if (price >= (call ? forward : discountedStrike)) {
+            return Double.NaN;
+        }
+
+        double lo = MIN_VOL;
+        double hi = MAX_VOL;
+        // Manaster-Koehler start: the vol at which d1 is 0, where vega is largest
+        double moneyness = Math.abs(Math.log(forward / discountedStrike));
+        double vol = Math.min(Math.max(Math.sqrt(2 * moneyness / years), 0.1), 2);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double diff = price(call, spot, strike, years, rate, yield, vol) - price;
+            if (Math.abs(diff) < PRICE_TOLERANCE * price) {
+                return vol;
+            }
+            // The price increases with vol, so the root stays inside [lo, hi]
+            if (diff > 0) {
+                hi = vol;
+            } else {
+                lo = vol;
+            }
+            double next = vol - diff / vega(spot, strike, years, rate, yield, vol);
+            if (!(next > lo && next < hi)) {
+                next = 0.5 * (lo + hi);
+            }
+            if (hi - lo < VOL_TOLERANCE) {
+                return next;
+            }
+            vol = next;
+        }
+        return vol;
+    }
+
+    /**
+     * Greeks of the options with strikes[from, to) at volatilities vols[from, to). Vega is per volatility
+     * point (0.01) and theta per calendar day. A NaN volatility gives NaN Greeks.
+     */
+    public static void greeks(boolean call, double spot, double[] strikes, int from, int to, double years, double rate,
+                              double yield, double[] vols, double[] delta, double[] gamma, double[] theta,
+                              double[] vega) {
+        double sqrtT = Math.sqrt(years);
+        double discount = Math.exp(-rate * years);
+        double carry = Math.exp(-yield * years);
+        double sign = call ? 1 : -1;
+        for (int i = from; i < to; i++) {
+            double vol = vols[i];
+            double volSqrtT = vol * sqrtT;
+            double d1 = (Math.log(spot / strikes[i]) + (rate - yield + 0.5 * vol * vol) * years) / volSqrtT;
+            double d2 = d1 - volSqrtT;
+            double pdf = Math.exp(-0.5 * d1 * d1) * INV_SQRT_2PI;
+            double nd1 = normCdf(sign * d1);
+            double nd2 = normCdf(sign * d2);
+            delta[i] = sign * carry * nd1;
+            gamma[i] = carry * pdf / (spot * volSqrtT);
+            vega[i] = spot * carry * pdf * sqrtT / 100;
+            theta[i] = (-spot * carry * pdf * vol / (2 * sqrtT) - sign * rate * strikes[i] * discount * nd2
+                + sign * yield * spot * carry * nd1) / DAYS_PER_YEAR;
+        }
+    }
+
+    // Cumulative standard normal to double precision (Hart's rational approximation, as given by West)
+    public static double normCdf(double x) {
+        double z = Math.abs(x);
+        double tail;
+        if (z > 37) {
+            tail = 0;
+        } else {
+            double e = Math.exp(-0.5 * z * z);
+            if (z < 7.07106781186547) {
+                double n = 3.52624965998911e-02 * z + 0.700383064443688;
+                n = n * z + 6.37396220353165;
+                n = n * z + 33.912866078383;
+                n = n * z + 112.079291497871;
+                n = n * z + 221.213596169931;
+                n = n * z + 220.206867912376;
+                double d = 8.83883476483184e-02 * z + 1.75566716318264;
+                d = d * z + 16.064177579207;
+                d = d * z + 86.7807322029461;
+                d = d * z + 296.564248779674;
+                d = d * z + 637.333633378831;
+                d = d * z + 793.826512519948;
+                d = d * z + 440.413735824752;
+                tail = e * n / d;
+            } else {
+                double d = z + 0.65;
+                d = z + 4 / d;
+                d = z + 3 / d;
+                d = z + 2 / d;
+                d = z + 1 / d;
+                tail = e / d / 2.506628274631;
+            }
+        }
+        return x > 0 ? 1 - tail : tail;
+    }
+}
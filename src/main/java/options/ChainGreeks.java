@@ -0,0 +1,108 @@
+package options;
+
+import java.util.Arrays;
+
+/**
+ * Implied volatility and Greeks of every option in one {@link OptionChain}, row for row, at one spot and
+ * time. Rows with no price or no implied volatility (a strike listed on one side only, a price outside
+ * the no-arbitrage bounds) are NaN. Vega is per volatility point and theta per calendar day.
+ */
+public class ChainGreeks {
+    private final OptionChain chain;
+    private final double spot;
+    private final double years;
+    private final Side calls;
+    private final Side puts;
+
+    ChainGreeks(OptionChain chain, double spot, double years) {
+        this.chain = chain;
+        this.spot = spot;
+        this.years = years;
+        this.calls = new Side(true, chain.size());
+        this.puts = new Side(false, chain.size());
+    }
+
+    public OptionChain getChain() {
+        return chain;
+    }
+
+    public double getSpot() {
+        return spot;
+    }
+
+    public double getYearsToExpiry() {
+        return years;
+    }
+
+    public Side getCalls() {
+        return calls;
+    }
+
+    public Side getPuts() {
+        return puts;
+    }
+
+    // Solves rows [from, to) of both sides
+    void compute(int from, int to, double rate, double yield) {
+        calls.compute(chain.strikes(), from, to, spot, years, rate, yield);
+        puts.compute(chain.strikes(), from, to, spot, years, rate, yield);
+    }
+
+    // The calls or the puts of the chain, as columns indexed like the chain's strikes
+    public static class Side {
+        private final boolean call;
+        final double[] prices;
+        private final double[] vols;
+        private final double[] delta;
+        private final double[] gamma;
+        private final double[] theta;
+        private final double[] vega;
+
+        Side(boolean call, int size) {
+            this.call = call;
+            this.prices = new double[size];
+            this.vols = new double[size];
+            this.delta = new double[size];
+            this.gamma = new double[size];
+            this.theta = new double[size];
+            this.vega = new double[size];
+            Arrays.fill(prices, Double.NaN);
+        }
+
+        private void compute(double[] strikes, int from, int to, double spot, double years, double rate, double yield) {
+            // Root finding is iterative per option; the Greeks are then one pass over the solved columns
+            for (int i = from; i < to; i++) {
+                vols[i] = BlackScholes.impliedVol(call, prices[i], spot, strikes[i], years, rate, yield);
+            }
+            BlackScholes.greeks(call, spot, strikes, from, to, years, rate, yield, vols, delta, gamma, theta, vega);
+        }
+
+        public boolean isCall() {
+            return call;
+        }
+
+        public double price(int i) {
+            return prices[i];
+        }
+
+        public double impliedVol(int i) {
+            return vols[i];
+        }
+
+        public double delta(int i) {
+            return delta[i];
+        }
+
+        public double gamma(int i) {
+            return gamma[i];
+        }
+
+        public double theta(int i) {
+            return theta[i];
+        }
+
+        public double vega(int i) {
+            return vega[i];
+        }
+    }
+}
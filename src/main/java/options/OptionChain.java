@@ -0,0 +1,105 @@
+package options;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import history.MarketSession;
+
+/**
+ * The options of one underlying and expiry, as sorted primitive columns: row i is strike i, with the
+ * instrument ids of its call and put ({@link #NONE} when only one side is listed). Ids are rows of the
+ * instrument table the chain was built from.
+ */
+public class OptionChain {
+    public static final int NONE = -1;
+    private static final double MILLIS_PER_YEAR = 365.0 * 24 * 60 * 60 * 1000;
+
+    private final String underlyingSymbol;
+    private final String underlyingKey;
+    private final long expiry;
+    private final int lotSize;
+    private final double[] strikes;
+    private final int[] callIds;
+    private final int[] putIds;
+
+    OptionChain(String underlyingSymbol, String underlyingKey, long expiry, int lotSize, double[] strikes,
+                int[] callIds, int[] putIds) {
+        this.underlyingSymbol = underlyingSymbol;
+        this.underlyingKey = underlyingKey;
+        this.expiry = expiry;
+        this.lotSize = lotSize;
+        this.strikes = strikes;
+        this.callIds = callIds;
+        this.putIds = putIds;
+    }
+
+    public String getUnderlyingSymbol() {
+        return underlyingSymbol;
+    }
+
+    public String getUnderlyingKey() {
+        return underlyingKey;
+    }
+
+    // Epoch millis, as in the instrument file
+    public long getExpiry() {
+        return expiry;
+    }
+
+    public int getLotSize() {
+        return lotSize;
+    }
+
+    public int size() {
+        return strikes.length;
+    }
+
+    public double strike(int i) {
+        return strikes[i];
+    }
+
+    public int callId(int i) {
+        return callIds[i];
+    }
+
+    public int putId(int i) {
+        return putIds[i];
+    }
+
+    // Row of the strike, or a negative value as for Arrays.binarySearch when it is not listed
+    public int indexOf(double strike) {
+        return Arrays.binarySearch(strikes, strike);
+    }
+
+    // Row of the strike closest to spot, or -1 for an empty chain
+    public int atmIndex(double spot) {
+        int i = Arrays.binarySearch(strikes, spot);
+        if (i >= 0) {
+            return i;
+        }
+        int above = -i - 1;
+        if (above == 0) {
+            return strikes.length > 0 ? 0 : -1;
+        }
+        if (above == strikes.length) {
+            return above - 1;
+        }
+        return spot - strikes[above - 1] <= strikes[above] - spot ? above - 1 : above;
+    }
+
+    // Time left in years; 0 once expired
+    public double yearsToExpiry(long nowMillis) {
+        return Math.max(expiry - nowMillis, 0) / MILLIS_PER_YEAR;
+    }
+
+    // Shared with the calculator, which reads but never writes it
+    double[] strikes() {
+        return strikes;
+    }
+
+    @Override
+    public String toString() {
+        return underlyingSymbol + " " + Instant.ofEpochMilli(expiry).atZone(MarketSession.ZONE).toLocalDate()
+            + " (" + strikes.length + " strikes)";
+    }
+}
@@ -0,0 +1,114 @@
+package options;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.InstrumentTable;
+import model.Stock;
+
+/**
+ * Times a full recompute of implied volatility and Greeks for a synthetic NIFTY option universe: every
+ * expiry, 50-point strikes from 70% to 130% of spot, calls and puts, priced from a volatility smile.
+ * Reports ms per recompute and the largest implied volatility error against the smile.
+ *
+ * <pre>java -cp ... options.OptionChainBenchmark [expiries]</pre>
+ */
+public class OptionChainBenchmark {
+    private static final double SPOT = 24_000;
+    private static final double RATE = 0.065;
+    private static final double TICK = 0.05;
+    private static final int WARMUP = 50;
+    private static final int RUNS = 200;
+
+    private OptionChainBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int expiries = args.length > 0 ? Integer.parseInt(args[0]) : 18;
+        long now = System.currentTimeMillis();
+        InstrumentTable.Builder builder = new InstrumentTable.Builder();
+        for (int e = 0; e < expiries; e++) {
+            // Weekly expiries first, then monthly, the way the NSE lists them
+            long expiry = now + TimeUnit.DAYS.toMillis(e < 8 ? 3 + 7L * e : 60 + 30L * (e - 8) * (e - 7) / 2);
+            for (double strike = SPOT * 0.7; strike <= SPOT * 1.3; strike += 50) {
+                builder.add(option("CE", strike, expiry));
+                builder.add(option("PE", strike, expiry));
+            }
+        }
+        InstrumentTable table = builder.build();
+        OptionChains chains = OptionChains.of(table);
+        List<OptionChain> all = chains.getChains("NIFTY");
+
+        double[] prices = new double[table.size()];
+        for (OptionChain chain : all) {
+            double years = chain.yearsToExpiry(now);
+            for (int i = 0; i < chain.size(); i++) {
+                double vol = smile(chain.strike(i), years);
+                prices[chain.callId(i)] = BlackScholes.price(true, SPOT, chain.strike(i), years, RATE, 0, vol);
+                prices[chain.putId(i)] = BlackScholes.price(false, SPOT, chain.strike(i), years, RATE, 0, vol);
+            }
+        }
+
+        OptionChainCalculator calculator = new OptionChainCalculator(RATE);
+        List<ChainGreeks> results = null;
+        for (int i = 0; i < WARMUP; i++) {
+            results = calculator.computeAll(all, c -> SPOT, id -> prices[id], now);
+        }
+        long best = Long.MAX_VALUE;
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            long t = System.nanoTime();
+            results = calculator.computeAll(all, c -> SPOT, id -> prices[id], now);
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        long total = System.nanoTime() - start;
+
+        // Options worth less than a tick over intrinsic cannot be traded at a price that pins down a vol
+        int solved = 0;
+        int priced = 0;
+        double maxError = 0;
+        for (ChainGreeks greeks : results) {
+            for (ChainGreeks.Side side : List.of(greeks.getCalls(), greeks.getPuts())) {
+                for (int i = 0; i < greeks.getChain().size(); i++) {
+                    double strike = greeks.getChain().strike(i);
+                    double discountedStrike = strike * Math.exp(-RATE * greeks.getYearsToExpiry());
+                    double intrinsic = Math.max(side.isCall() ? SPOT - discountedStrike : discountedStrike - SPOT, 0);
+                    if (side.price(i) - intrinsic < TICK) {
+                        continue;
+                    }
+                    priced++;
+                    double vol = side.impliedVol(i);
+                    if (!Double.isNaN(vol)) {
+                        solved++;
+                        maxError = Math.max(maxError, Math.abs(vol - smile(strike, greeks.getYearsToExpiry())));
+                    }
+                }
+            }
+        }
+        System.out.printf("%d chains, %d contracts, %d threads%n", all.size(), chains.getContractCount(),
+            Runtime.getRuntime().availableProcessors());
+        System.out.printf("full recompute: %.2f ms mean, %.2f ms best%n", total / 1e6 / RUNS, best / 1e6);
+        System.out.printf("solved %d of %d with a tick of time value, max implied vol error %.2e%n", solved, priced,
+            maxError);
+    }
+
+    private static Stock option(String type, double strike, long expiry) {
+        Stock stock = new Stock("NIFTY" + expiry + type + (int) strike, "NIFTY");
+        stock.setInstrument_type(type);
+        stock.setInstrument_key("NSE_FO|" + expiry + type + strike);
+        stock.setSegment("NSE_FO");
+        stock.setLot_size(75);
+        stock.setTick_size(TICK);
+        stock.setStrike_price(strike);
+        stock.setExpiry(expiry);
+        stock.setUnderlying_symbol("NIFTY");
+        stock.setUnderlying_key("NSE_INDEX|Nifty 50");
+        return stock;
+    }
+
+    // Skewed smile, steeper for near expiries
+    private static double smile(double strike, double years) {
+        double m = Math.log(strike / SPOT);
+        return 0.12 + (0.4 * m * m - 0.05 * m) / Math.sqrt(years + 0.02);
+    }
+}
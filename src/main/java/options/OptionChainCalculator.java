@@ -0,0 +1,101 @@
+package options;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Implied volatility and Greeks for whole option chains on a fork-join pool.
+ *
+ * Prices are gathered into each chain's columns first; then every chain is cut into blocks of strikes
+ * and all blocks of all chains are solved as one fork-join job, so a single long chain and many short
+ * ones spread across the cores alike. Each block writes only its own rows.
+ */
+public class OptionChainCalculator {
+    private static final int BLOCK_SIZE = 32;
+
+    private final double rate;
+    private final double yield;
+    private final ForkJoinPool pool;
+
+    public OptionChainCalculator(double rate) {
+        this(rate, 0, ForkJoinPool.commonPool());
+    }
+
+    public OptionChainCalculator(double rate, double yield, ForkJoinPool pool) {
+        this.rate = rate;
+        this.yield = yield;
+        this.pool = pool;
+    }
+
+    // prices gives the last traded price of an instrument id, NaN when there is none
+    public ChainGreeks compute(OptionChain chain, double spot, IntToDoubleFunction prices, long nowMillis) {
+        return computeAll(List.of(chain), c -> spot, prices, nowMillis).get(0);
+    }
+
+    // Results in the order of chains; spots gives the underlying's price for each chain
+    public List<ChainGreeks> computeAll(List<OptionChain> chains, ToDoubleFunction<OptionChain> spots,
+                                        IntToDoubleFunction prices, long nowMillis) {
+        List<ChainGreeks> results = new ArrayList<>(chains.size());
+        List<Block> blocks = new ArrayList<>();
+        for (OptionChain chain : chains) {
+            ChainGreeks greeks = new ChainGreeks(chain, spots.applyAsDouble(chain), chain.yearsToExpiry(nowMillis));
+            for (int i = 0; i < chain.size(); i++) {
+                greeks.getCalls().prices[i] = priceOf(chain.callId(i), prices);
+                greeks.getPuts().prices[i] = priceOf(chain.putId(i), prices);
+            }
+            for (int from = 0; from < chain.size(); from += BLOCK_SIZE) {
+                blocks.add(new Block(greeks, from, Math.min(from + BLOCK_SIZE, chain.size())));
+            }
+            results.add(greeks);
+        }
+        pool.invoke(new Blocks(blocks, 0, blocks.size()));
+        return results;
+    }
+
+    private static double priceOf(int id, IntToDoubleFunction prices) {
+        return id == OptionChain.NONE ? Double.NaN : prices.applyAsDouble(id);
+    }
+
+    private static class Block {
+        final ChainGreeks greeks;
+        final int from;
+        final int to;
+
+        Block(ChainGreeks greeks, int from, int to) {
+            this.greeks = greeks;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private class Blocks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Block> blocks;
+        private final int from;
+        private final int to;
+
+        Blocks(List<Block> blocks, int from, int to) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    Block block = blocks.get(i);
+                    block.greeks.compute(block.from, block.to, rate, yield);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Blocks(blocks, from, mid), new Blocks(blocks, mid, to));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package options;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import database.InstrumentRegistry;
+import model.InstrumentTable;
+import model.Segment;
+
+/**
+ * Every option chain of an instrument table, grouped by underlying and then by expiry. Underlyings are
+ * keyed by instrument key ("NSE_INDEX|Nifty 50") and can also be looked up by symbol ("NIFTY"). Built
+ * once per instrument load; the chains are immutable and safe to share.
+ */
+public class OptionChains {
+    private static final Set<Segment> DERIVATIVE_SEGMENTS = EnumSet.of(Segment.NSE_FO, Segment.BSE_FO, Segment.MCX_FO);
+
+    private final Map<String, NavigableMap<Long, OptionChain>> byUnderlying;
+    private final Map<String, String> keysBySymbol;
+    private final int contracts;
+
+    private OptionChains(Map<String, NavigableMap<Long, OptionChain>> byUnderlying, Map<String, String> keysBySymbol,
+                         int contracts) {
+        this.byUnderlying = byUnderlying;
+        this.keysBySymbol = keysBySymbol;
+        this.contracts = contracts;
+    }
+
+    // Chains of the registry's derivative shards, with ids into its global table
+    public static OptionChains fromRegistry() {
+        InstrumentRegistry registry = InstrumentRegistry.getInstance();
+        Builder builder = new Builder(registry.getTable());
+        for (Segment segment : DERIVATIVE_SEGMENTS) {
+            InstrumentRegistry.Shard shard = registry.getShard(segment);
+            if (shard != null) {
+                builder.addIds(shard.getIds());
+            }
+        }
+        return builder.build();
+    }
+
+    public static OptionChains of(InstrumentTable table) {
+        return new Builder(table).addRange(0, table.size()).build();
+    }
+
+    public Set<String> getUnderlyings() {
+        return Collections.unmodifiableSet(new TreeSet<>(byUnderlying.keySet()));
+    }
+
+    // Chains of an underlying by expiry, nearest first; empty when it has no options
+    public List<OptionChain> getChains(String underlying) {
+        NavigableMap<Long, OptionChain> chains = byUnderlying.get(resolve(underlying));
+        return chains == null ? Collections.emptyList() : new ArrayList<>(chains.values());
+    }
+
+    public OptionChain get(String underlying, long expiry) {
+        NavigableMap<Long, OptionChain> chains = byUnderlying.get(resolve(underlying));
+        return chains == null ? null : chains.get(expiry);
+    }
+
+    // First chain expiring at or after nowMillis, or null
+    public OptionChain nearest(String underlying, long nowMillis) {
+        NavigableMap<Long, OptionChain> chains = byUnderlying.get(resolve(underlying));
+        if (chains == null) {
+            return null;
+        }
+        Map.Entry<Long, OptionChain> entry = chains.ceilingEntry(nowMillis);
+        return entry == null ? null : entry.getValue();
+    }
+
+    public List<OptionChain> getAll() {
+        List<OptionChain> all = new ArrayList<>();
+        for (NavigableMap<Long, OptionChain> chains : byUnderlying.values()) {
+            all.addAll(chains.values());
+        }
+        return all;
+    }
+
+    // Number of option contracts across all chains
+    public int getContractCount() {
+        return contracts;
+    }
+
+    private String resolve(String underlying) {
+        return byUnderlying.containsKey(underlying) ? underlying : keysBySymbol.getOrDefault(underlying, underlying);
+    }
+
+    private static class Builder {
+        private final InstrumentTable table;
+        private final Map<String, Map<Long, Group>> groups = new HashMap<>();
+        private final Map<String, String> keysBySymbol = new HashMap<>();
+        private int contracts;
+
+        Builder(InstrumentTable table) {
+            this.table = table;
+        }
+
+        Builder addRange(int from, int to) {
+            for (int id = from; id < to; id++) {
+                add(id);
+            }
+            return this;
+        }
+
+        Builder addIds(int[] ids) {
+            for (int id : ids) {
+                add(id);
+            }
+            return this;
+        }
+
+        private void add(int id) {
+            String type = table.instrumentType(id);
+            boolean call = "CE".equals(type);
+            if (!call && !"PE".equals(type)) {
+                return;
+            }
+            String symbol = table.underlyingSymbol(id);
+            String key = table.underlyingKey(id);
+            if (key == null) {
+                key = symbol;
+            }
+            if (key == null) {
+                return;
+            }
+            if (symbol != null) {
+                keysBySymbol.putIfAbsent(symbol, key);
+            }
+            String underlyingKey = key;
+            groups.computeIfAbsent(key, k -> new HashMap<>())
+                .computeIfAbsent(table.expiry(id), expiry -> new Group(symbol, underlyingKey, expiry))
+                .add(id, call);
+            contracts++;
+        }
+
+        OptionChains build() {
+            Map<String, NavigableMap<Long, OptionChain>> byUnderlying = new HashMap<>();
+            groups.forEach((key, expiries) -> {
+                NavigableMap<Long, OptionChain> chains = new TreeMap<>();
+                expiries.forEach((expiry, group) -> chains.put(expiry, group.build(table)));
+                byUnderlying.put(key, chains);
+            });
+            return new OptionChains(byUnderlying, keysBySymbol, contracts);
+        }
+    }
+
+    // Ids of one underlying and expiry, in load order until built
+    private static class Group {
+        private final String symbol;
+        private final String key;
+        private final long expiry;
+        private int[] ids = new int[16];
+        private boolean[] calls = new boolean[16];
+        private int size;
+
+        Group(String symbol, String key, long expiry) {
+            this.symbol = symbol;
+            this.key = key;
+            this.expiry = expiry;
+        }
+
+        void add(int id, boolean call) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                calls = Arrays.copyOf(calls, size * 2);
+            }
+            ids[size] = id;
+            calls[size++] = call;
+        }
+
+        OptionChain build(InstrumentTable table) {
+            double[] all = new double[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = table.strikePrice(ids[i]);
+            }
+            Arrays.sort(all);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || all[i] != all[distinct - 1]) {
+                    all[distinct++] = all[i];
+                }
+            }
+            double[] strikes = Arrays.copyOf(all, distinct);
+            int[] callIds = new int[distinct];
+            int[] putIds = new int[distinct];
+            Arrays.fill(callIds, OptionChain.NONE);
+            Arrays.fill(putIds, OptionChain.NONE);
+            for (int i = 0; i < size; i++) {
+                int row = Arrays.binarySearch(strikes, table.strikePrice(ids[i]));
+                (calls[i] ? callIds : putIds)[row] = ids[i];
+            }
+            return new OptionChain(symbol, key, expiry, table.lotSize(ids[0]), strikes, callIds, putIds);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package orders;
+
+/**
+ * A single order and its lifecycle. Created by the caller, validated and tracked by {@link OrderManager};
+ * the lifecycle fields are updated from the dispatcher threads as the broker answers.
+ */
+public class Order {
+
+    public enum Side {
+        BUY,
+        SELL
+    }
+
+    public enum Type {
+        MARKET("MARKET"),
+        LIMIT("LIMIT"),
+        STOP_LOSS("SL"),
+        STOP_LOSS_MARKET("SL-M");
+
+        private final String value;
+
+        Type(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean hasPrice() {
+            return this == LIMIT || this == STOP_LOSS;
+        }
+
+        public boolean hasTrigger() {
+            return this == STOP_LOSS || this == STOP_LOSS_MARKET;
+        }
+    }
+
+    // I = intraday, D = delivery
+    public enum Product {
+        I,
+        D
+    }
+
+    public enum Status {
+        NEW,
+        SENT,
+        OPEN,
+        COMPLETE,
+        CANCELLED,
+        REJECTED;
+
+        public boolean isTerminal() {
+            return this == COMPLETE || this == CANCELLED || this == REJECTED;
+        }
+
+        static Status fromBroker(String status) {
+            switch (status) {
+                case "complete":
+                    return COMPLETE;
+                case "cancelled":
+                    return CANCELLED;
+                case "rejected":
+                    return REJECTED;
+                default:
+                    // open, trigger pending, put order req received, validation pending, ...
+                    return OPEN;
+            }
+        }
+    }
+
+    // Remapped when the OrderManager moves to a new instrument table
+    private volatile int instrumentId;
+    private final Side side;
+    private final int quantity;
+    private final Type type;
+    private final double price;
+    private final double triggerPrice;
+    private final Product product;
+
+    private long clientId;
+    private String instrumentKey;
+    private volatile String orderId;
+    private volatile Status status = Status.NEW;
+    private volatile int filledQuantity;
+    private volatile double averagePrice;
+    private volatile String message;
+
+    // Quantity is held in the RiskGate until the order ends
+    private boolean riskReserved;
+
+    // System.nanoTime() stamps for latency measurement
+    long tickNanos;
+    long sentNanos;
+    long ackNanos;
+
+    public Order(int instrumentId, Side side, int quantity, Type type, double price, double triggerPrice, Product product) {
+        this.instrumentId = instrumentId;
+        this.side = side;
+        this.quantity = quantity;
+        this.type = type;
+        this.price = price;
+        this.triggerPrice = triggerPrice;
+        this.product = product;
+    }
+
+    public static Order market(int instrumentId, Side side, int quantity, Product product) {
+        return new Order(instrumentId, side, quantity, Type.MARKET, 0, 0, product);
+    }
+
+    public static Order limit(int instrumentId, Side side, int quantity, double price, Product product) {
+        return new Order(instrumentId, side, quantity, Type.LIMIT, price, 0, product);
+    }
+
+    void assign(long clientId, String instrumentKey) {
+        this.clientId = clientId;
+        this.instrumentKey = instrumentKey;
+    }
+
+    void setInstrumentId(int instrumentId) {
+        this.instrumentId = instrumentId;
+    }
+
+    synchronized void update(Status status, int filledQuantity, double averagePrice, String message) {
+        // Never move back out of a terminal state on a late or reordered response
+        if (this.status.isTerminal()) {
+            return;
+        }
+        this.status = status;
+        this.filledQuantity = filledQuantity;
+        this.averagePrice = averagePrice;
+        this.message = message;
+    }
+
+    synchronized void reserveRisk() {
+        riskReserved = true;
+    }
+
+    // Signed quantity that will never fill, once, after the order has ended; 0 otherwise
+    synchronized int releaseRisk() {
+        if (!riskReserved || !status.isTerminal()) {
+            return 0;
+        }
+        riskReserved = false;
+        int unfilled = quantity - filledQuantity;
+        return side == Side.BUY ? unfilled : -unfilled;
+    }
+
+    void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public int getInstrumentId() {
+        return instrumentId;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    // Quantity with the sign of the side: positive buys, negative sells
+    public int getSignedQuantity() {
+        return side == Side.BUY ? quantity : -quantity;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getTriggerPrice() {
+        return triggerPrice;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    // Local id, also sent to the broker as the order tag
+    public long getClientId() {
+        return clientId;
+    }
+
+    public String getInstrumentKey() {
+        return instrumentKey;
+    }
+
+    // Broker order id, null until the broker has accepted the order
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    public double getAveragePrice() {
+        return averagePrice;
+    }
+
+    // Broker or validation message for rejected orders
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "Order[" + clientId + (orderId == null ? "" : "/" + orderId) + " " + side + " " + quantity + " "
+            + instrumentKey + " " + type + (type.hasPrice() ? " @" + price : "") + " " + status
+            + (filledQuantity > 0 ? " filled " + filledQuantity + " @" + averagePrice : "")
+            + (message == null ? "" : " (" + message + ")") + "]";
+    }
+}
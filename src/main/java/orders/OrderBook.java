@@ -0,0 +1,61 @@
+package orders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Working orders held in memory, by local client id and by broker order id. Orders leave the book as
+ * soon as they reach a terminal state.
+ */
+public class OrderBook {
+    private final Map<Long, Order> byClientId = new ConcurrentHashMap<>();
+    private final Map<String, Order> byOrderId = new ConcurrentHashMap<>();
+
+    void add(Order order) {
+        byClientId.put(order.getClientId(), order);
+    }
+
+    void accepted(Order order, String orderId) {
+        order.setOrderId(orderId);
+        byOrderId.put(orderId, order);
+        order.update(Order.Status.OPEN, order.getFilledQuantity(), order.getAveragePrice(), null);
+    }
+
+    void update(Order order, Order.Status status, int filledQuantity, double averagePrice, String message) {
+        order.update(status, filledQuantity, averagePrice, message);
+        if (order.getStatus().isTerminal()) {
+            byClientId.remove(order.getClientId());
+            if (order.getOrderId() != null) {
+                byOrderId.remove(order.getOrderId());
+            }
+        }
+    }
+
+    public Order get(long clientId) {
+        return byClientId.get(clientId);
+    }
+
+    public Order getByOrderId(String orderId) {
+        return byOrderId.get(orderId);
+    }
+
+    public List<Order> getWorkingOrders() {
+        return new ArrayList<>(byClientId.values());
+    }
+
+    public List<Order> getWorkingOrders(int instrumentId) {
+        List<Order> result = new ArrayList<>();
+        for (Order order : byClientId.values()) {
+            if (order.getInstrumentId() == instrumentId) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return byClientId.size();
+    }
+}
@@ -0,0 +1,190 @@
+package orders;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.upstox.ApiException;
+
+import api.RequestScheduler;
+
+/**
+ * Sends orders to the broker's order REST API over one long-lived {@link HttpClient}.
+ *
+ * The client keeps its connection open between orders; {@link #warmUp()} pays for DNS, TCP and TLS before
+ * the first order, and an idle ping keeps the connection from being closed by the server between
+ * bursts. Calls go through the {@link RequestScheduler} at ORDER priority so they share the account's rate
+ * limit with quotes but are always dispatched first.
+ */
+public class OrderGateway {
+    public static final String BASE_URL_PROPERTY = "upstox.order.baseUrl";
+    public static final String DEFAULT_BASE_URL = "https://api-hft.upstox.com";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final String baseUrl;
+    private final Supplier<String> accessToken;
+    private final HttpClient httpClient;
+    private final RequestScheduler scheduler;
+    private volatile long lastUsedNanos;
+    private volatile boolean connected;
+    private ScheduledExecutorService keepAlive;
+
+    public OrderGateway(String baseUrl, Supplier<String> accessToken, RequestScheduler scheduler) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.accessToken = accessToken;
+        this.scheduler = scheduler;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(TIMEOUT)
+            .build();
+    }
+
+    // Opens the connection with a harmless authenticated read and starts the idle ping. Before login there
+    // is no token to send, so the first ping after login opens the connection instead.
+    public synchronized void warmUp() {
+        long start = System.nanoTime();
+        if (accessToken.get() == null) {
+            System.out.println("Order gateway warm-up deferred until login");
+        } else {
+            try {
+                send(request("/v2/order/retrieve-all").GET().build());
+                System.out.printf("Order gateway warmed up in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+            } catch (ApiException e) {
+                System.err.println("Order gateway warm-up failed: " + e.getMessage());
+            }
+        }
+        if (keepAlive == null) {
+            keepAlive = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "order-keepalive");
+                t.setDaemon(true);
+                return t;
+            });
+            keepAlive.scheduleWithFixedDelay(this::pingIfIdle, KEEP_ALIVE_SECONDS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void pingIfIdle() {
+        if (connected && System.nanoTime() - lastUsedNanos < TimeUnit.SECONDS.toNanos(KEEP_ALIVE_SECONDS)
+                || accessToken.get() == null) {
+            return;
+        }
+        scheduler.submit(RequestScheduler.Priority.ORDER, "order-keepalive",
+            () -> send(request("/v2/order/retrieve-all").GET().build()));
+    }
+
+    // Completes with the broker order id
+    public CompletableFuture<String> place(Order order) {
+        JSONObject body = new JSONObject()
+            .put("instrument_token", order.getInstrumentKey())
+            .put("transaction_type", order.getSide().name())
+            .put("order_type", order.getType().getValue())
+            .put("quantity", order.getQuantity())
+            .put("price", order.getType().hasPrice() ? order.getPrice() : 0)
+            .put("trigger_price", order.getType().hasTrigger() ? order.getTriggerPrice() : 0)
+            .put("product", order.getProduct().name())
+            .put("validity", "DAY")
+            .put("disclosed_quantity", 0)
+            .put("is_amo", false)
+            .put("tag", Long.toString(order.getClientId()));
+        HttpRequest request = request("/v2/order/place")
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+            .build();
+        return scheduler.submit(RequestScheduler.Priority.ORDER, () -> {
+            order.sentNanos = System.nanoTime();
+            JSONObject response = send(request);
+            order.ackNanos = System.nanoTime();
+            return response.getJSONObject("data").getString("order_id");
+        });
+    }
+
+    public CompletableFuture<String> cancel(String orderId) {
+        HttpRequest request = request("/v2/order/cancel?order_id=" + URLEncoder.encode(orderId, StandardCharsets.UTF_8))
+            .DELETE()
+            .build();
+        return scheduler.submit(RequestScheduler.Priority.ORDER,
+            () -> send(request).getJSONObject("data").getString("order_id"));
+    }
+
+    public CompletableFuture<String> modify(String orderId, int quantity, Order.Type type, double price, double triggerPrice) {
+        JSONObject body = new JSONObject()
+            .put("order_id", orderId)
+            .put("quantity", quantity)
+            .put("order_type", type.getValue())
+            .put("price", type.hasPrice() ? price : 0)
+            .put("trigger_price", type.hasTrigger() ? triggerPrice : 0)
+            .put("validity", "DAY")
+            .put("disclosed_quantity", 0);
+        HttpRequest request = request("/v2/order/modify")
+            .header("Content-Type", "application/json")
+            .PUT(HttpRequest.BodyPublishers.ofString(body.toString()))
+            .build();
+        return scheduler.submit(RequestScheduler.Priority.ORDER,
+            () -> send(request).getJSONObject("data").getString("order_id"));
+    }
+
+    // Latest broker view of the order: status, filled_quantity, average_price, status_message
+    public CompletableFuture<JSONObject> details(String orderId) {
+        HttpRequest request = request("/v2/order/details?order_id=" + URLEncoder.encode(orderId, StandardCharsets.UTF_8))
+            .GET()
+            .build();
+        return scheduler.submit(RequestScheduler.Priority.ORDER, () -> send(request).getJSONObject("data"));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(TIMEOUT)
+            .header("Accept", "application/json")
+            .header("Authorization", "Bearer " + accessToken.get());
+    }
+
+    private JSONObject send(HttpRequest request) throws ApiException {
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new ApiException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e);
+        } finally {
+            lastUsedNanos = System.nanoTime();
+        }
+        connected = true;
+        try {
+            JSONObject json = new JSONObject(response.body());
+            if (response.statusCode() / 100 != 2 || !"success".equals(json.optString("status"))) {
+                throw new ApiException(response.statusCode(), errorMessage(json));
+            }
+            return json;
+        } catch (JSONException e) {
+            throw new ApiException(response.statusCode(), "Unexpected response: " + response.body());
+        }
+    }
+
+    private static String errorMessage(JSONObject json) {
+        if (json.has("errors") && json.getJSONArray("errors").length() > 0) {
+            JSONObject error = json.getJSONArray("errors").getJSONObject(0);
+            return error.optString("errorCode") + ": " + error.optString("message");
+        }
+        return json.toString();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+}
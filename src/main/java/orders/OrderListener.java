@@ -0,0 +1,6 @@
+package orders;
+
+// Order lifecycle callbacks, invoked on the broker dispatcher threads
+public interface OrderListener {
+    void onOrderUpdate(Order order);
+}
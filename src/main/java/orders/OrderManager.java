@@ -0,0 +1,298 @@
+package orders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.json.JSONObject;
+
+import api.QuoteSession;
+import api.RequestScheduler;
+import database.InstrumentRegistry;
+import marketdata.MarketDataFeed;
+import marketdata.TickRingBuffer;
+import model.InstrumentTable;
+import util.BackgroundExecutor;
+
+/**
+ * Entry point for trading: validates orders against instrument metadata, passes them through the
+ * {@link RiskGate}, tracks them in the {@link OrderBook} and sends them through the {@link OrderGateway}.
+ *
+ * The risk gate is rebuilt when the instrument table changes. Order placement and risk releases hold the
+ * read side of a lock and the swap holds the write side, so no reservation is made on the old gate after
+ * its state has been copied; working orders are remapped to the new table's ids by instrument key.
+ *
+ * Latency is measured from the tick that triggered an order (pass {@code Tick.getReceivedNanos()}) to the
+ * moment the request is handed to the HTTP client, and from there to the broker's acknowledgement.
+ */
+public class OrderManager {
+    private final Supplier<InstrumentTable> instruments;
+    private final OrderGateway gateway;
+    private final OrderBook book = new OrderBook();
+    private final List<OrderListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextClientId = new AtomicLong(System.currentTimeMillis());
+    private volatile OrderValidator validator;
+    private volatile RiskGate riskGate;
+    private final ReadWriteLock gateLock = new ReentrantReadWriteLock();
+
+    private final LatencyHistogram tickToSend = new LatencyHistogram("tick-to-send");
+    private final LatencyHistogram sendToAck = new LatencyHistogram("send-to-ack");
+    private final LatencyHistogram tickToAck = new LatencyHistogram("tick-to-ack");
+
+    public OrderManager(Supplier<InstrumentTable> instruments, OrderGateway gateway) {
+        this.instruments = instruments;
+        this.gateway = gateway;
+    }
+
+    private static class Holder {
+        private static final OrderManager INSTANCE = create();
+    }
+
+    // Risk checks take their reference prices from the shared tick ring. The gateway connects in the
+    // background so the first order does not pay for DNS, TCP and TLS.
+    private static OrderManager create() {
+        OrderGateway gateway = new OrderGateway(
+            System.getProperty(OrderGateway.BASE_URL_PROPERTY, OrderGateway.DEFAULT_BASE_URL),
+            QuoteSession.getInstance()::getAccessToken, RequestScheduler.getInstance());
+        OrderManager manager = new OrderManager(InstrumentRegistry.getInstance()::getTable, gateway);
+        manager.attach(MarketDataFeed.getInstance().getRing());
+        BackgroundExecutor.getInstance().execute(gateway::warmUp);
+        return manager;
+    }
+
+    public static OrderManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Rebuilt only when the registry has loaded a new instrument table
+    private OrderValidator validator() {
+        InstrumentTable table = instruments.get();
+        OrderValidator current = validator;
+        if (current == null || current.getTable() != table) {
+            gateLock.writeLock().lock();
+            try {
+                current = validator;
+                if (current == null || current.getTable() != table) {
+                    RiskGate gate = new RiskGate(table);
+                    if (riskGate != null) {
+                        Map<String, Integer> ids = gate.copyStateFrom(riskGate);
+                        for (Order order : book.getWorkingOrders()) {
+                            Integer id = order.getInstrumentKey() == null ? null : ids.get(order.getInstrumentKey());
+                            order.setInstrumentId(id == null ? -1 : id);
+                        }
+                    }
+                    riskGate = gate;
+                    current = new OrderValidator(table);
+                    validator = current;
+                }
+            } finally {
+                gateLock.writeLock().unlock();
+            }
+        }
+        return current;
+    }
+
+    // Feeds last traded prices to whichever gate is current
+    public TickRingBuffer.Subscriber attach(TickRingBuffer ring) {
+        getRiskGate();
+        return ring.subscribe("risk", tick -> riskGate.onPrice(tick.getInstrumentId(), tick.getLastPrice()));
+    }
+
+    public RiskGate getRiskGate() {
+        validator();
+        return riskGate;
+    }
+
+    public CompletableFuture<Order> place(Order order) {
+        return place(order, System.nanoTime());
+    }
+
+    // tickNanos is the receive time of the market data that triggered the order
+    public CompletableFuture<Order> place(Order order, long tickNanos) {
+        validator();
+        int code;
+        gateLock.readLock().lock();
+        try {
+            // Read under the lock: the validator and gate are swapped together
+            OrderValidator validator = this.validator;
+            int id = order.getInstrumentId();
+            boolean known = id >= 0 && id < validator.getTable().size();
+            order.assign(nextClientId.incrementAndGet(), known ? validator.getTable().instrumentKey(id) : null);
+            order.tickNanos = tickNanos;
+
+            code = validator.validate(order);
+            if (code == OrderValidator.OK) {
+                code = riskGate.acquire(id, order.getSignedQuantity(), order.getType().hasPrice() ? order.getPrice() : 0);
+            }
+            if (code == OrderValidator.OK) {
+                // In the book before the lock is released, so a gate swap remaps it
+                order.reserveRisk();
+                book.add(order);
+            }
+        } finally {
+            gateLock.readLock().unlock();
+        }
+        if (code != OrderValidator.OK) {
+            order.update(Order.Status.REJECTED, 0, 0, RiskGate.reason(code));
+            notifyListeners(order);
+            return CompletableFuture.completedFuture(order);
+        }
+
+        order.update(Order.Status.SENT, 0, 0, null);
+        return gateway.place(order).handle((orderId, error) -> {
+            if (error != null) {
+                book.update(order, Order.Status.REJECTED, 0, 0, rootCause(error).getMessage());
+                release(order);
+            } else {
+                book.accepted(order, orderId);
+                tickToSend.record(order.sentNanos - order.tickNanos);
+                sendToAck.record(order.ackNanos - order.sentNanos);
+                tickToAck.record(order.ackNanos - order.tickNanos);
+            }
+            notifyListeners(order);
+            return order;
+        });
+    }
+
+    public CompletableFuture<Order> cancel(Order order) {
+        if (order.getOrderId() == null || order.getStatus().isTerminal()) {
+            return CompletableFuture.completedFuture(order);
+        }
+        // A cancel that loses the race with a fill fails at the broker; either way the refreshed status says what happened
+        return gateway.cancel(order.getOrderId()).handle((orderId, error) -> order).thenCompose(this::refresh);
+    }
+
+    // Quantity can only be reduced: the risk reservation was made for the original quantity
+    public CompletableFuture<Order> modify(Order order, int quantity, double price) {
+        if (quantity > order.getQuantity()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Modify cannot increase quantity"));
+        }
+        int code = validator().validate(order.getInstrumentId(), quantity, order.getType(), price, order.getTriggerPrice());
+        if (code == OrderValidator.OK) {
+            // Only the new price needs checking; the position is already reserved
+            gateLock.readLock().lock();
+            try {
+                code = riskGate.check(order.getInstrumentId(), 0, order.getType().hasPrice() ? price : 0);
+            } finally {
+                gateLock.readLock().unlock();
+            }
+        }
+        if (code != OrderValidator.OK) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(RiskGate.reason(code)));
+        }
+        return gateway.modify(order.getOrderId(), quantity, order.getType(), price, order.getTriggerPrice())
+            .thenCompose(orderId -> refresh(order));
+    }
+
+    // Pulls the broker's current status, fills and average price for the order
+    public CompletableFuture<Order> refresh(Order order) {
+        return gateway.details(order.getOrderId()).thenApply(details -> {
+            apply(order, details);
+            return order;
+        });
+    }
+
+    // Refreshes every working order the broker has accepted
+    public CompletableFuture<Void> syncWorkingOrders() {
+        List<CompletableFuture<Order>> refreshes = new ArrayList<>();
+        for (Order order : book.getWorkingOrders()) {
+            if (order.getOrderId() != null) {
+                refreshes.add(refresh(order));
+            }
+        }
+        return CompletableFuture.allOf(refreshes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void apply(Order order, JSONObject details) {
+        Order.Status before = order.getStatus();
+        int filledBefore = order.getFilledQuantity();
+        book.update(order, Order.Status.fromBroker(details.optString("status")), details.optInt("filled_quantity"),
+            details.optDouble("average_price", 0), details.optString("status_message", null));
+        release(order);
+        if (order.getStatus() != before || order.getFilledQuantity() != filledBefore) {
+            notifyListeners(order);
+        }
+    }
+
+    // Returns the unfilled part of an ended order to the current gate, under the id it has there
+    private void release(Order order) {
+        gateLock.readLock().lock();
+        try {
+            riskGate.release(order.getInstrumentId(), order.releaseRisk());
+        } finally {
+            gateLock.readLock().unlock();
+        }
+    }
+
+    // Stops all new orders and cancels everything still working
+    public CompletableFuture<Void> killSwitch(String reason) {
+        validator();
+        gateLock.readLock().lock();
+        try {
+            riskGate.engageKillSwitch(reason);
+        } finally {
+            gateLock.readLock().unlock();
+        }
+        List<CompletableFuture<Order>> cancels = new ArrayList<>();
+        for (Order order : book.getWorkingOrders()) {
+            cancels.add(cancel(order));
+        }
+        return CompletableFuture.allOf(cancels.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void notifyListeners(Order order) {
+        for (OrderListener listener : listeners) {
+            try {
+                listener.onOrderUpdate(order);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    public void addListener(OrderListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OrderListener listener) {
+        listeners.remove(listener);
+    }
+
+    public OrderBook getOrderBook() {
+        return book;
+    }
+
+    public OrderGateway getGateway() {
+        return gateway;
+    }
+
+    public LatencyHistogram getTickToSendLatency() {
+        return tickToSend;
+    }
+
+    public LatencyHistogram getSendToAckLatency() {
+        return sendToAck;
+    }
+
+    public LatencyHistogram getTickToAckLatency() {
+        return tickToAck;
+    }
+
+    public String getLatencyReport() {
+        return tickToSend + "\n" + sendToAck + "\n" + tickToAck;
+    }
+}
@@ -0,0 +1,110 @@
+package orders;
+
+import model.InstrumentTable;
+
+/**
+ * Exchange-rule checks against instrument metadata, answered from arrays copied out of the
+ * {@link InstrumentTable} once instead of per-order lookups or DB queries. Returns an int reject code;
+ * {@link #OK} means the order may be sent.
+ */
+public class OrderValidator {
+    public static final int OK = 0;
+    public static final int UNKNOWN_INSTRUMENT = 1;
+    public static final int INVALID_QUANTITY = 2;
+    public static final int NOT_LOT_MULTIPLE = 3;
+    public static final int ABOVE_FREEZE_QUANTITY = 4;
+    public static final int INVALID_PRICE = 5;
+    public static final int NOT_TICK_MULTIPLE = 6;
+
+    private static final String[] REASONS = {
+        "OK",
+        "Unknown instrument",
+        "Quantity must be positive",
+        "Quantity is not a multiple of the lot size",
+        "Quantity is above the exchange freeze quantity",
+        "Price must be positive",
+        "Price is not a multiple of the tick size",
+    };
+
+    // Prices within this fraction of a tick of a tick multiple are treated as on the grid
+    private static final double TICK_EPSILON = 1e-6;
+
+    private final InstrumentTable table;
+    private final int[] lotSize;
+    private final int[] freezeQuantity;
+    private final double[] tickSize;
+
+    public OrderValidator(InstrumentTable table) {
+        this.table = table;
+        int n = table.size();
+        lotSize = new int[n];
+        freezeQuantity = new int[n];
+        tickSize = new double[n];
+        for (int id = 0; id < n; id++) {
+            lotSize[id] = Math.max(1, table.lotSize(id));
+            freezeQuantity[id] = table.freezeQuantity(id);
+            tickSize[id] = table.tickSize(id);
+        }
+    }
+
+    public int validate(int instrumentId, int quantity, Order.Type type, double price, double triggerPrice) {
+        if (instrumentId < 0 || instrumentId >= lotSize.length) {
+            return UNKNOWN_INSTRUMENT;
+        }
+        if (quantity <= 0) {
+            return INVALID_QUANTITY;
+        }
+        if (quantity % lotSize[instrumentId] != 0) {
+            return NOT_LOT_MULTIPLE;
+        }
+        // 0 means the exchange publishes no freeze limit for the instrument
+        if (freezeQuantity[instrumentId] > 0 && quantity > freezeQuantity[instrumentId]) {
+            return ABOVE_FREEZE_QUANTITY;
+        }
+        if (type.hasPrice()) {
+            int code = checkPrice(instrumentId, price);
+            if (code != OK) {
+                return code;
+            }
+        }
+        if (type.hasTrigger()) {
+            return checkPrice(instrumentId, triggerPrice);
+        }
+        return OK;
+    }
+
+    public int validate(Order order) {
+        return validate(order.getInstrumentId(), order.getQuantity(), order.getType(), order.getPrice(),
+            order.getTriggerPrice());
+    }
+
+    private int checkPrice(int instrumentId, double price) {
+        if (!(price > 0)) {
+            return INVALID_PRICE;
+        }
+        double tick = tickSize[instrumentId];
+        if (tick > 0) {
+            double ticks = price / tick;
+            if (Math.abs(ticks - Math.rint(ticks)) > TICK_EPSILON * Math.max(1, ticks)) {
+                return NOT_TICK_MULTIPLE;
+            }
+        }
+        return OK;
+    }
+
+    public static String reason(int code) {
+        return code >= 0 && code < REASONS.length ? REASONS[code] : "Rejected (" + code + ")";
+    }
+
+    public InstrumentTable getTable() {
+        return table;
+    }
+
+    public int lotSize(int instrumentId) {
+        return lotSize[instrumentId];
+    }
+
+    public double tickSize(int instrumentId) {
+        return tickSize[instrumentId];
+    }
+}
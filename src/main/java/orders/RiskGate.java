@@ -0,0 +1,224 @@
+package orders;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import model.InstrumentTable;
+
+/**
+ * Pre-trade risk checks on the order hot path: kill switch, freeze quantity, maximum position, maximum
+ * order notional and a price band around the last traded price.
+ *
+ * Every limit is precomputed per instrument into primitive arrays when the gate is built. A check reads
+ * only those arrays and atomics, takes no locks, allocates nothing and answers with an int code
+ * ({@link OrderValidator#OK} to pass). {@link #acquire} also reserves the order's quantity against the
+ * position limit with a CAS, so the reserved exposure always covers fills plus working orders.
+ *
+ * Defaults come from -Drisk.maxPosition (units, default 10000), -Drisk.maxOrderNotional (default 1000000)
+ * and -Drisk.priceBandPercent (default 5).
+ */
+public class RiskGate {
+    public static final int KILL_SWITCH = 7;
+    public static final int MAX_POSITION = 8;
+    public static final int MAX_NOTIONAL = 9;
+    public static final int PRICE_BAND = 10;
+    public static final int NO_REFERENCE_PRICE = 11;
+
+    private static final String[] REASONS = {
+        "Kill switch engaged",
+        "Order would exceed the maximum position",
+        "Order value exceeds the maximum order notional",
+        "Price is outside the allowed band around the last traded price",
+        "No last traded price to check a market order against",
+    };
+
+    private final InstrumentTable table;
+    private final int[] freezeQuantity;
+    private final int[] maxPosition;
+    private final double[] maxNotional;
+    private final double[] bandFraction;
+    private final double[] tickSize;
+
+    // Signed quantity of fills plus working orders, per instrument
+    private final AtomicIntegerArray reserved;
+    // Last traded price as raw double bits, written by the tick thread
+    private final AtomicLongArray referencePrice;
+
+    private volatile boolean killed;
+    private volatile String killReason;
+
+    public RiskGate(InstrumentTable table) {
+        this(table, Integer.getInteger("risk.maxPosition", 10_000),
+            Double.parseDouble(System.getProperty("risk.maxOrderNotional", "1000000")),
+            Double.parseDouble(System.getProperty("risk.priceBandPercent", "5")) / 100);
+    }
+
+    public RiskGate(InstrumentTable table, int defaultMaxPosition, double defaultMaxNotional, double defaultBandFraction) {
+        this.table = table;
+        int n = table.size();
+        freezeQuantity = new int[n];
+        maxPosition = new int[n];
+        maxNotional = new double[n];
+        bandFraction = new double[n];
+        tickSize = new double[n];
+        reserved = new AtomicIntegerArray(n);
+        referencePrice = new AtomicLongArray(n);
+        for (int id = 0; id < n; id++) {
+            int lot = Math.max(1, table.lotSize(id));
+            int freeze = table.freezeQuantity(id);
+            freezeQuantity[id] = freeze > 0 ? freeze : Integer.MAX_VALUE;
+            maxPosition[id] = Math.max(lot, defaultMaxPosition / lot * lot);
+            maxNotional[id] = defaultMaxNotional;
+            bandFraction[id] = defaultBandFraction;
+            tickSize[id] = table.tickSize(id);
+        }
+    }
+
+    // Runs every check without reserving anything
+    public int check(int instrumentId, int signedQuantity, double price) {
+        int code = checkOrder(instrumentId, signedQuantity, price);
+        if (code != OrderValidator.OK) {
+            return code;
+        }
+        return exceedsPosition(instrumentId, reserved.get(instrumentId), signedQuantity) ? MAX_POSITION : OrderValidator.OK;
+    }
+
+    /**
+     * Runs every check and, if they pass, reserves signedQuantity against the position limit. A price of 0
+     * means a market order and is checked at the last traded price. Callers must {@link #release} whatever
+     * part of the order does not fill.
+     */
+    public int acquire(int instrumentId, int signedQuantity, double price) {
+        int code = checkOrder(instrumentId, signedQuantity, price);
+        if (code != OrderValidator.OK) {
+            return code;
+        }
+        while (true) {
+            int current = reserved.get(instrumentId);
+            if (exceedsPosition(instrumentId, current, signedQuantity)) {
+                return MAX_POSITION;
+            }
+            if (reserved.compareAndSet(instrumentId, current, current + signedQuantity)) {
+                return OrderValidator.OK;
+            }
+        }
+    }
+
+    // Orders that reduce the absolute position are always allowed
+    private boolean exceedsPosition(int instrumentId, int current, int signedQuantity) {
+        long updated = Math.abs((long) current + signedQuantity);
+        return updated > maxPosition[instrumentId] && updated > Math.abs((long) current);
+    }
+
+    private int checkOrder(int instrumentId, int signedQuantity, double price) {
+        if (killed) {
+            return KILL_SWITCH;
+        }
+        if (instrumentId < 0 || instrumentId >= maxPosition.length) {
+            return OrderValidator.UNKNOWN_INSTRUMENT;
+        }
+        int quantity = Math.abs(signedQuantity);
+        if (quantity > freezeQuantity[instrumentId]) {
+            return OrderValidator.ABOVE_FREEZE_QUANTITY;
+        }
+        double reference = Double.longBitsToDouble(referencePrice.get(instrumentId));
+        if (price == 0) {
+            if (reference == 0) {
+                return NO_REFERENCE_PRICE;
+            }
+            price = reference;
+        } else if (reference > 0) {
+            // The band is never narrower than one tick either side
+            double band = Math.max(reference * bandFraction[instrumentId], tickSize[instrumentId]);
+            if (Math.abs(price - reference) > band) {
+                return PRICE_BAND;
+            }
+        }
+        if (quantity * price > maxNotional[instrumentId]) {
+            return MAX_NOTIONAL;
+        }
+        return OrderValidator.OK;
+    }
+
+    // Returns quantity that was reserved but will not fill (cancelled, rejected or expired remainder)
+    public void release(int instrumentId, int signedQuantity) {
+        if (instrumentId >= 0 && instrumentId < maxPosition.length && signedQuantity != 0) {
+            reserved.addAndGet(instrumentId, -signedQuantity);
+        }
+    }
+
+    public void onPrice(int instrumentId, double price) {
+        if (instrumentId >= 0 && instrumentId < maxPosition.length) {
+            referencePrice.lazySet(instrumentId, Double.doubleToRawLongBits(price));
+        }
+    }
+
+    // Halts all new orders until reset
+    public void engageKillSwitch(String reason) {
+        killReason = reason;
+        killed = true;
+        System.err.println("Kill switch engaged: " + reason);
+    }
+
+    public void resetKillSwitch() {
+        killed = false;
+        killReason = null;
+        System.out.println("Kill switch reset");
+    }
+
+    public boolean isKilled() {
+        return killed;
+    }
+
+    public String getKillReason() {
+        return killReason;
+    }
+
+    // Limits are plain array writes; set them before the gate is used for trading
+    public void setLimits(int instrumentId, int maxPosition, double maxNotional, double bandFraction) {
+        this.maxPosition[instrumentId] = maxPosition;
+        this.maxNotional[instrumentId] = maxNotional;
+        this.bandFraction[instrumentId] = bandFraction;
+    }
+
+    // Seeds the position carried over from the broker, e.g. at startup
+    public void setPosition(int instrumentId, int position) {
+        reserved.set(instrumentId, position);
+    }
+
+    public int getReserved(int instrumentId) {
+        return reserved.get(instrumentId);
+    }
+
+    public InstrumentTable getTable() {
+        return table;
+    }
+
+    /**
+     * Carries the kill switch, reservations and prices over from the gate of a previous instrument table.
+     * Nothing may acquire or release on either gate meanwhile. Returns this gate's ids by instrument key.
+     */
+    Map<String, Integer> copyStateFrom(RiskGate previous) {
+        if (previous.killed) {
+            engageKillSwitch(previous.killReason);
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        for (int id = 0; id < table.size(); id++) {
+            ids.put(table.instrumentKey(id), id);
+        }
+        for (int old = 0; old < previous.maxPosition.length; old++) {
+            Integer id = ids.get(previous.table.instrumentKey(old));
+            if (id != null) {
+                reserved.set(id, previous.reserved.get(old));
+                referencePrice.set(id, previous.referencePrice.get(old));
+            }
+        }
+        return ids;
+    }
+
+    public static String reason(int code) {
+        return code >= KILL_SWITCH && code <= NO_REFERENCE_PRICE ? REASONS[code - KILL_SWITCH] : OrderValidator.reason(code);
+    }
+}
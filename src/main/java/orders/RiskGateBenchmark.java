@@ -0,0 +1,76 @@
+package orders;
+
+import java.lang.management.ManagementFactory;
+
+import model.InstrumentTable;
+import model.Stock;
+
+/**
+ * Latency and allocation check for {@link RiskGate#check} and {@link RiskGate#acquire} on a synthetic
+ * universe. Reports mean ns per call over large batches, per-call percentiles (which include the ~20 ns
+ * cost of System.nanoTime) and bytes allocated by the measuring thread, which should be 0.
+ *
+ * <pre>java -cp ... orders.RiskGateBenchmark [instruments]</pre>
+ */
+public class RiskGateBenchmark {
+    private static final int WARMUP = 5_000_000;
+    private static final int BATCH = 10_000_000;
+
+    private RiskGateBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int instruments = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        InstrumentTable.Builder builder = new InstrumentTable.Builder(instruments);
+        for (int i = 0; i < instruments; i++) {
+            Stock stock = new Stock("SYM" + i, "Instrument " + i);
+            stock.setInstrument_key("NSE_EQ|BENCH" + i);
+            stock.setLot_size(i % 4 == 0 ? 25 : 1);
+            stock.setFreeze_quantity(i % 4 == 0 ? 1800 : 0);
+            stock.setTick_size(0.05);
+            builder.add(stock);
+        }
+        RiskGate gate = new RiskGate(builder.build(), 1_000_000, 1e12, 0.05);
+        for (int i = 0; i < instruments; i++) {
+            gate.onPrice(i, 100 + i % 900);
+        }
+
+        long sink = run(gate, instruments, WARMUP, false) + run(gate, instruments, WARMUP, true);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        sink += run(gate, instruments, BATCH, false);
+        long checkNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        sink += run(gate, instruments, BATCH, true);
+        long acquireNanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        LatencyHistogram perCall = new LatencyHistogram("acquire per call");
+        for (int i = 0; i < BATCH / 10; i++) {
+            int id = i % instruments;
+            long t = System.nanoTime();
+            sink += gate.acquire(id, (i & 1) == 0 ? 1 : -1, 100 + id % 900);
+            perCall.record(System.nanoTime() - t);
+        }
+
+        System.out.printf("check:   %.1f ns/op%n", (double) checkNanos / BATCH);
+        System.out.printf("acquire: %.1f ns/op%n", (double) acquireNanos / BATCH);
+        System.out.println(perCall);
+        System.out.println("Allocated during measured batches: " + allocated + " bytes (checksum " + sink + ")");
+    }
+
+    // Alternating buys and sells keep reservations near zero so every call takes the full path
+    private static long run(RiskGate gate, int instruments, int iterations, boolean acquire) {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            int id = i % instruments;
+            int quantity = (i & 1) == 0 ? 1 : -1;
+            double price = 100 + id % 900;
+            sum += acquire ? gate.acquire(id, quantity, price) : gate.check(id, quantity, price);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,286 @@
+package orders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the broker's order API (/v2/order/place, modify, cancel, details, retrieve-all) with
+ * the same request and response shapes, for running the order path offline. Point the app at it with
+ * {@code -Dupstox.order.baseUrl=http://localhost:<port>}.
+ *
+ * Market orders fill at once at the last price set for the instrument; limit orders rest until
+ * {@link #setLastPrice} crosses them. Requests without a bearer token are rejected with 401.
+ *
+ * <pre>java -cp ... orders.SimulatedExchange [port]</pre>
+ */
+public class SimulatedExchange {
+    static {
+        // The JDK server writes headers and body separately; without this Nagle adds ~40 ms to every response
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final Map<String, JSONObject> orders = new LinkedHashMap<>();
+    private final Map<String, Double> lastPrices = new HashMap<>();
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+    private final AtomicInteger listRequests = new AtomicInteger();
+
+    public SimulatedExchange(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/v2/order/place", exchange -> handle(exchange, "POST", this::place));
+        server.createContext("/v2/order/modify", exchange -> handle(exchange, "PUT", this::modify));
+        server.createContext("/v2/order/cancel", exchange -> handle(exchange, "DELETE", this::cancel));
+        server.createContext("/v2/order/details", exchange -> handle(exchange, "GET", this::details));
+        server.createContext("/v2/order/retrieve-all", exchange -> handle(exchange, "GET", this::retrieveAll));
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "simulated-exchange");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Simulated exchange listening on " + getBaseUrl());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    // Sets the traded price of an instrument and fills resting limit orders it crosses
+    public synchronized void setLastPrice(String instrumentKey, double price) {
+        lastPrices.put(instrumentKey, price);
+        for (JSONObject order : orders.values()) {
+            if (order.getString("instrument_token").equals(instrumentKey) && "open".equals(order.getString("status"))) {
+                match(order);
+            }
+        }
+    }
+
+    public synchronized int getOrderCount() {
+        return orders.size();
+    }
+
+    // Calls to retrieve-all, which the gateway uses for its warm-up and keep-alive
+    public int getListRequestCount() {
+        return listRequests.get();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        JSONObject handle(JSONObject body, Map<String, String> query) throws SimulatedError;
+    }
+
+    private static class SimulatedError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final String code;
+
+        SimulatedError(int status, String code, String message) {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        int status = 200;
+        JSONObject response;
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                throw new SimulatedError(405, "UDAPI100050", "Method not allowed");
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("Bearer ") || authorization.length() <= 7
+                    || authorization.equals("Bearer null")) {
+                throw new SimulatedError(401, "UDAPI100050", "Invalid token used to access API");
+            }
+            JSONObject body;
+            try (InputStream in = exchange.getRequestBody()) {
+                String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                body = text.isBlank() ? new JSONObject() : new JSONObject(text);
+            }
+            JSONObject data;
+            synchronized (this) {
+                data = handler.handle(body, query(exchange.getRequestURI().getRawQuery()));
+            }
+            response = new JSONObject().put("status", "success").put("data", data == null ? JSONObject.NULL : data);
+        } catch (SimulatedError e) {
+            status = e.status;
+            response = error(e.code, e.getMessage());
+        } catch (JSONException e) {
+            status = 400;
+            response = error("UDAPI1000", "Invalid request body: " + e.getMessage());
+        }
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static JSONObject error(String code, String message) {
+        JSONObject error = new JSONObject().put("errorCode", code).put("message", message);
+        return new JSONObject().put("status", "error").put("errors", new JSONArray().put(error));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private JSONObject place(JSONObject body, Map<String, String> query) throws SimulatedError {
+        int quantity = body.optInt("quantity");
+        String type = body.optString("order_type");
+        String side = body.optString("transaction_type");
+        if (body.optString("instrument_token").isEmpty()) {
+            throw new SimulatedError(400, "UDAPI100036", "Invalid instrument_token");
+        }
+        if (quantity <= 0) {
+            throw new SimulatedError(400, "UDAPI100037", "Quantity must be greater than 0");
+        }
+        if (!side.equals("BUY") && !side.equals("SELL")) {
+            throw new SimulatedError(400, "UDAPI100038", "Invalid transaction_type");
+        }
+        if (!type.equals("MARKET") && !type.equals("LIMIT") && !type.equals("SL") && !type.equals("SL-M")) {
+            throw new SimulatedError(400, "UDAPI100039", "Invalid order_type");
+        }
+        String orderId = String.format("SIM%012d", nextOrderId.getAndIncrement());
+        JSONObject order = new JSONObject()
+            .put("order_id", orderId)
+            .put("instrument_token", body.getString("instrument_token"))
+            .put("transaction_type", side)
+            .put("order_type", type)
+            .put("product", body.optString("product", "D"))
+            .put("validity", body.optString("validity", "DAY"))
+            .put("quantity", quantity)
+            .put("price", body.optDouble("price", 0))
+            .put("trigger_price", body.optDouble("trigger_price", 0))
+            .put("tag", body.optString("tag", ""))
+            .put("status", "open")
+            .put("filled_quantity", 0)
+            .put("average_price", 0.0)
+            .put("status_message", "")
+            .put("order_timestamp", System.currentTimeMillis());
+        orders.put(orderId, order);
+        match(order);
+        return new JSONObject().put("order_id", orderId);
+    }
+
+    private JSONObject modify(JSONObject body, Map<String, String> query) throws SimulatedError {
+        JSONObject order = openOrder(body.optString("order_id"));
+        if (body.has("quantity")) {
+            order.put("quantity", body.getInt("quantity"));
+        }
+        if (body.has("price")) {
+            order.put("price", body.getDouble("price"));
+        }
+        if (body.has("trigger_price")) {
+            order.put("trigger_price", body.getDouble("trigger_price"));
+        }
+        if (body.has("order_type")) {
+            order.put("order_type", body.getString("order_type"));
+        }
+        match(order);
+        return new JSONObject().put("order_id", order.getString("order_id"));
+    }
+
+    private JSONObject cancel(JSONObject body, Map<String, String> query) throws SimulatedError {
+        JSONObject order = openOrder(query.get("order_id"));
+        order.put("status", "cancelled").put("status_message", "Cancelled by user");
+        return new JSONObject().put("order_id", order.getString("order_id"));
+    }
+
+    private JSONObject details(JSONObject body, Map<String, String> query) throws SimulatedError {
+        JSONObject order = orders.get(query.get("order_id"));
+        if (order == null) {
+            throw new SimulatedError(404, "UDAPI100010", "Order not found");
+        }
+        return order;
+    }
+
+    private JSONObject retrieveAll(JSONObject body, Map<String, String> query) {
+        listRequests.incrementAndGet();
+        // The real endpoint returns an array in data; wrap it so handlers keep one return type
+        return new JSONObject().put("orders", new JSONArray(orders.values()));
+    }
+
+    private JSONObject openOrder(String orderId) throws SimulatedError {
+        JSONObject order = orders.get(orderId);
+        if (order == null) {
+            throw new SimulatedError(404, "UDAPI100010", "Order not found");
+        }
+        if (!"open".equals(order.getString("status"))) {
+            throw new SimulatedError(400, "UDAPI100040", "Order is already " + order.getString("status"));
+        }
+        return order;
+    }
+
+    // Fills the whole order if the last traded price allows it
+    private void match(JSONObject order) {
+        Double last = lastPrices.get(order.getString("instrument_token"));
+        if (last == null) {
+            return;
+        }
+        boolean buy = order.getString("transaction_type").equals("BUY");
+        String type = order.getString("order_type");
+        double price = order.getDouble("price");
+        double trigger = order.getDouble("trigger_price");
+        if (type.startsWith("SL") && (buy ? last < trigger : last > trigger)) {
+            return;
+        }
+        double fill;
+        if (type.equals("MARKET") || type.equals("SL-M")) {
+            fill = last;
+        } else if (buy ? last <= price : last >= price) {
+            fill = buy ? Math.min(last, price) : Math.max(last, price);
+        } else {
+            return;
+        }
+        order.put("status", "complete")
+            .put("filled_quantity", order.getInt("quantity"))
+            .put("average_price", fill);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        SimulatedExchange exchange = new SimulatedExchange(args.length > 0 ? Integer.parseInt(args[0]) : 8200);
+        exchange.start();
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,428 @@
+package portfolio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import database.InstrumentRegistry;
+import marketdata.MarketDataFeed;
+import marketdata.TickRingBuffer;
+import model.InstrumentTable;
+import orders.Order;
+import orders.OrderListener;
+import orders.OrderManager;
+
+/**
+ * Positions and live P&L held in primitive arrays indexed by instrument id.
+ *
+ * Portfolio totals (unrealized and realized P&L, gross and net exposure, margin used) are kept as running
+ * sums: a price update only applies the change in its own instrument's contribution, and a fill removes the
+ * instrument's contribution, updates the position and adds it back, so both are O(1) regardless of how
+ * many positions are open. The open positions are also kept in a compact id list so reconciliation and
+ * snapshots never walk the whole instrument universe.
+ *
+ * Ids are rows of the supplied instrument table. When the supplier returns a new table the arrays are
+ * carried over to it by instrument key before the next update is applied; a table that only appends
+ * instruments (as the registry's does) just grows them.
+ *
+ * Listeners receive immutable {@link PortfolioSnapshot}s at most once per snapshot interval, and only when
+ * something changed.
+ */
+public class PortfolioEngine implements OrderListener {
+    private static final long DEFAULT_SNAPSHOT_MILLIS = 250;
+    private static final double DEFAULT_INTRADAY_MARGIN = 0.2;
+    private static final double DEFAULT_DELIVERY_MARGIN = 1.0;
+    // Re-sums the totals from the open positions this often to stop floating point drift from accumulating
+    private static final int RECONCILE_EVERY = 1 << 20;
+
+    private final Supplier<InstrumentTable> instruments;
+    // Table the arrays are indexed by
+    private InstrumentTable table;
+
+    private int[] quantity;
+    private double[] averageCost;
+    private double[] lastPrice;
+    private double[] realized;
+    private double[] marginRate;
+    private int[] openIndex;
+    private int[] openIds = new int[64];
+    private int openCount;
+
+    private double unrealizedTotal;
+    private double realizedTotal;
+    private double grossExposure;
+    private double netExposure;
+    private double marginUsed;
+
+    private long updates;
+    private long version;
+    private long publishedVersion = -1;
+
+    // Broker fills already applied, per order, to turn cumulative fill reports into increments
+    private final Map<Long, double[]> appliedFills = new HashMap<>();
+
+    private final List<Consumer<PortfolioSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService publisher;
+
+    public PortfolioEngine(Supplier<InstrumentTable> instruments, int capacity, long snapshotMillis) {
+        this.instruments = instruments;
+        quantity = new int[capacity];
+        averageCost = new double[capacity];
+        lastPrice = new double[capacity];
+        realized = new double[capacity];
+        marginRate = new double[capacity];
+        openIndex = new int[capacity];
+        Arrays.fill(marginRate, DEFAULT_INTRADAY_MARGIN);
+        Arrays.fill(openIndex, -1);
+        publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "portfolio-snapshots");
+            t.setDaemon(true);
+            return t;
+        });
+        publisher.scheduleAtFixedRate(this::publish, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Holder {
+        private static final PortfolioEngine INSTANCE = create();
+    }
+
+    // Fills come from the app's orders and prices from the shared tick ring
+    private static PortfolioEngine create() {
+        PortfolioEngine engine = new PortfolioEngine(InstrumentRegistry.getInstance()::getTable,
+            Math.max(1024, InstrumentRegistry.getInstance().size()), DEFAULT_SNAPSHOT_MILLIS);
+        OrderManager.getInstance().addListener(engine);
+        engine.attach(MarketDataFeed.getInstance().getRing());
+        return engine;
+    }
+
+    public static PortfolioEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Marks to market every tick on its own subscriber thread
+    public TickRingBuffer.Subscriber attach(TickRingBuffer ring) {
+        return ring.subscribe("portfolio", tick -> onPrice(tick.getInstrumentId(), tick.getLastPrice()));
+    }
+
+    public synchronized void onPrice(int instrumentId, double price) {
+        sync();
+        if (instrumentId >= quantity.length) {
+            ensureCapacity(instrumentId + 1);
+        }
+        double change = price - lastPrice[instrumentId];
+        lastPrice[instrumentId] = price;
+        int qty = quantity[instrumentId];
+        if (qty == 0 || change == 0) {
+            return;
+        }
+        double valueChange = qty * change;
+        double grossChange = Math.abs(qty) * change;
+        unrealizedTotal += valueChange;
+        netExposure += valueChange;
+        grossExposure += grossChange;
+        marginUsed += grossChange * marginRate[instrumentId];
+        changed();
+    }
+
+    // Applies a fill of signedQuantity (positive buys) at price
+    public synchronized void onFill(int instrumentId, int signedQuantity, double price) {
+        if (signedQuantity == 0) {
+            return;
+        }
+        sync();
+        if (instrumentId >= quantity.length) {
+            ensureCapacity(instrumentId + 1);
+        }
+        if (lastPrice[instrumentId] == 0) {
+            lastPrice[instrumentId] = price;
+        }
+        remove(instrumentId);
+
+        int qty = quantity[instrumentId];
+        int updated = qty + signedQuantity;
+        if (qty == 0 || Integer.signum(qty) == Integer.signum(signedQuantity)) {
+            // Opening or adding: blend the cost
+            averageCost[instrumentId] = (averageCost[instrumentId] * qty + price * signedQuantity) / updated;
+        } else {
+            // Reducing, closing or flipping: realize P&L on the closed part
+            int closed = Math.min(Math.abs(qty), Math.abs(signedQuantity)) * Integer.signum(qty);
+            double pnl = closed * (price - averageCost[instrumentId]);
+            realized[instrumentId] += pnl;
+            realizedTotal += pnl;
+            if (updated == 0) {
+                averageCost[instrumentId] = 0;
+            } else if (Integer.signum(updated) != Integer.signum(qty)) {
+                averageCost[instrumentId] = price;
+            }
+        }
+        quantity[instrumentId] = updated;
+
+        add(instrumentId);
+        trackOpen(instrumentId);
+        changed();
+    }
+
+    private void remove(int id) {
+        int qty = quantity[id];
+        if (qty == 0) {
+            return;
+        }
+        double price = lastPrice[id];
+        unrealizedTotal -= qty * (price - averageCost[id]);
+        netExposure -= qty * price;
+        grossExposure -= Math.abs(qty) * price;
+        marginUsed -= Math.abs(qty) * price * marginRate[id];
+    }
+
+    private void add(int id) {
+        int qty = quantity[id];
+        if (qty == 0) {
+            return;
+        }
+        double price = lastPrice[id];
+        unrealizedTotal += qty * (price - averageCost[id]);
+        netExposure += qty * price;
+        grossExposure += Math.abs(qty) * price;
+        marginUsed += Math.abs(qty) * price * marginRate[id];
+    }
+
+    private void trackOpen(int id) {
+        boolean open = quantity[id] != 0;
+        if (open && openIndex[id] < 0) {
+            if (openCount == openIds.length) {
+                openIds = Arrays.copyOf(openIds, openCount * 2);
+            }
+            openIndex[id] = openCount;
+            openIds[openCount++] = id;
+        } else if (!open && openIndex[id] >= 0) {
+            int slot = openIndex[id];
+            int last = openIds[--openCount];
+            openIds[slot] = last;
+            openIndex[last] = slot;
+            openIndex[id] = -1;
+        }
+    }
+
+    private void changed() {
+        version++;
+        if (++updates % RECONCILE_EVERY == 0) {
+            reconcile();
+        }
+    }
+
+    // Recomputes the running totals exactly from the open positions
+    private void reconcile() {
+        unrealizedTotal = 0;
+        netExposure = 0;
+        grossExposure = 0;
+        marginUsed = 0;
+        for (int i = 0; i < openCount; i++) {
+            add(openIds[i]);
+        }
+    }
+
+    // Fraction of position value blocked as margin: 0.2 (5x leverage) for intraday, 1.0 for delivery
+    public synchronized void setMarginRate(int instrumentId, double rate) {
+        sync();
+        if (instrumentId >= quantity.length) {
+            ensureCapacity(instrumentId + 1);
+        }
+        remove(instrumentId);
+        marginRate[instrumentId] = rate;
+        add(instrumentId);
+        changed();
+    }
+
+    // Broker fills arrive as cumulative quantity and average price per order; apply only the new part
+    @Override
+    public void onOrderUpdate(Order order) {
+        int filled = order.getFilledQuantity();
+        if (filled == 0) {
+            return;
+        }
+        int increment;
+        double price;
+        synchronized (this) {
+            double[] applied = appliedFills.computeIfAbsent(order.getClientId(), id -> new double[2]);
+            increment = filled - (int) applied[0];
+            if (increment <= 0) {
+                return;
+            }
+            double notional = order.getAveragePrice() * filled;
+            price = (notional - applied[1]) / increment;
+            applied[0] = filled;
+            applied[1] = notional;
+            if (order.getStatus().isTerminal()) {
+                appliedFills.remove(order.getClientId());
+            }
+            // A new position takes the margin rate of the product it was opened with
+            if (getQuantity(order.getInstrumentId()) == 0) {
+                setMarginRate(order.getInstrumentId(),
+                    order.getProduct() == Order.Product.D ? DEFAULT_DELIVERY_MARGIN : DEFAULT_INTRADAY_MARGIN);
+            }
+            onFill(order.getInstrumentId(), order.getSide() == Order.Side.BUY ? increment : -increment, price);
+        }
+    }
+
+    // Moves the arrays to the supplier's current table if it has changed
+    private void sync() {
+        InstrumentTable current = instruments.get();
+        if (current == table || current == null) {
+            return;
+        }
+        InstrumentTable previous = table;
+        table = current;
+        if (previous == null || isPrefix(previous, current)) {
+            if (current.size() > quantity.length) {
+                ensureCapacity(current.size());
+            }
+            return;
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        for (int id = 0; id < current.size(); id++) {
+            ids.put(current.instrumentKey(id), id);
+        }
+        int[] oldQuantity = quantity;
+        double[] oldAverageCost = averageCost;
+        double[] oldLastPrice = lastPrice;
+        double[] oldRealized = realized;
+        double[] oldMarginRate = marginRate;
+        int capacity = Math.max(oldQuantity.length, current.size());
+        quantity = new int[capacity];
+        averageCost = new double[capacity];
+        lastPrice = new double[capacity];
+        realized = new double[capacity];
+        marginRate = new double[capacity];
+        openIndex = new int[capacity];
+        Arrays.fill(marginRate, DEFAULT_INTRADAY_MARGIN);
+        Arrays.fill(openIndex, -1);
+        openCount = 0;
+        for (int old = 0; old < Math.min(previous.size(), oldQuantity.length); old++) {
+            Integer id = ids.get(previous.instrumentKey(old));
+            if (id == null) {
+                if (oldQuantity[old] != 0) {
+                    System.err.println("Dropping position in delisted instrument " + previous.instrumentKey(old));
+                }
+                continue;
+            }
+            quantity[id] = oldQuantity[old];
+            averageCost[id] = oldAverageCost[old];
+            lastPrice[id] = oldLastPrice[old];
+            realized[id] = oldRealized[old];
+            marginRate[id] = oldMarginRate[old];
+            trackOpen(id);
+        }
+        reconcile();
+        changed();
+    }
+
+    // True when every row of previous has the same instrument key in current
+    private static boolean isPrefix(InstrumentTable previous, InstrumentTable current) {
+        if (previous.size() > current.size()) {
+            return false;
+        }
+        for (int id = 0; id < previous.size(); id++) {
+            if (!Objects.equals(previous.instrumentKey(id), current.instrumentKey(id))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        int grown = Math.max(capacity, quantity.length * 2);
+        int old = quantity.length;
+        quantity = Arrays.copyOf(quantity, grown);
+        averageCost = Arrays.copyOf(averageCost, grown);
+        lastPrice = Arrays.copyOf(lastPrice, grown);
+        realized = Arrays.copyOf(realized, grown);
+        marginRate = Arrays.copyOf(marginRate, grown);
+        openIndex = Arrays.copyOf(openIndex, grown);
+        Arrays.fill(marginRate, old, grown, DEFAULT_INTRADAY_MARGIN);
+        Arrays.fill(openIndex, old, grown, -1);
+    }
+
+    public void addListener(Consumer<PortfolioSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<PortfolioSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    private void publish() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        PortfolioSnapshot snapshot;
+        synchronized (this) {
+            if (version == publishedVersion) {
+                return;
+            }
+            publishedVersion = version;
+            snapshot = snapshot();
+        }
+        for (Consumer<PortfolioSnapshot> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public synchronized PortfolioSnapshot snapshot() {
+        sync();
+        List<PortfolioSnapshot.Position> positions = new ArrayList<>(openCount);
+        for (int i = 0; i < openCount; i++) {
+            int id = openIds[i];
+            String symbol = table != null && id < table.size() ? table.tradingSymbol(id) : String.valueOf(id);
+            positions.add(new PortfolioSnapshot.Position(id, symbol, quantity[id], averageCost[id], lastPrice[id],
+                quantity[id] * (lastPrice[id] - averageCost[id]), realized[id]));
+        }
+        return new PortfolioSnapshot(System.currentTimeMillis(), positions, unrealizedTotal, realizedTotal,
+            grossExposure, netExposure, marginUsed);
+    }
+
+    public synchronized int getQuantity(int instrumentId) {
+        sync();
+        return instrumentId < quantity.length ? quantity[instrumentId] : 0;
+    }
+
+    public synchronized double getUnrealizedPnl() {
+        return unrealizedTotal;
+    }
+
+    public synchronized double getRealizedPnl() {
+        return realizedTotal;
+    }
+
+    public synchronized double getGrossExposure() {
+        return grossExposure;
+    }
+
+    public synchronized double getNetExposure() {
+        return netExposure;
+    }
+
+    public synchronized double getMarginUsed() {
+        return marginUsed;
+    }
+
+    public synchronized int getOpenPositionCount() {
+        return openCount;
+    }
+
+    public void shutdown() {
+        publisher.shutdownNow();
+    }
+}
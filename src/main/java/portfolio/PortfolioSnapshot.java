@@ -0,0 +1,107 @@
+package portfolio;
+
+import java.util.List;
+
+// Immutable point-in-time copy of the portfolio, safe to hand to the FX thread
+public class PortfolioSnapshot {
+    private final long timestamp;
+    private final List<Position> positions;
+    private final double unrealizedPnl;
+    private final double realizedPnl;
+    private final double grossExposure;
+    private final double netExposure;
+    private final double marginUsed;
+
+    PortfolioSnapshot(long timestamp, List<Position> positions, double unrealizedPnl, double realizedPnl,
+                      double grossExposure, double netExposure, double marginUsed) {
+        this.timestamp = timestamp;
+        this.positions = List.copyOf(positions);
+        this.unrealizedPnl = unrealizedPnl;
+        this.realizedPnl = realizedPnl;
+        this.grossExposure = grossExposure;
+        this.netExposure = netExposure;
+        this.marginUsed = marginUsed;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Open positions only
+    public List<Position> getPositions() {
+        return positions;
+    }
+
+    public double getUnrealizedPnl() {
+        return unrealizedPnl;
+    }
+
+    public double getRealizedPnl() {
+        return realizedPnl;
+    }
+
+    public double getTotalPnl() {
+        return unrealizedPnl + realizedPnl;
+    }
+
+    public double getGrossExposure() {
+        return grossExposure;
+    }
+
+    public double getNetExposure() {
+        return netExposure;
+    }
+
+    public double getMarginUsed() {
+        return marginUsed;
+    }
+
+    public static class Position {
+        private final int instrumentId;
+        private final String symbol;
+        private final int quantity;
+        private final double averageCost;
+        private final double lastPrice;
+        private final double unrealizedPnl;
+        private final double realizedPnl;
+
+        Position(int instrumentId, String symbol, int quantity, double averageCost, double lastPrice,
+                 double unrealizedPnl, double realizedPnl) {
+            this.instrumentId = instrumentId;
+            this.symbol = symbol;
+            this.quantity = quantity;
+            this.averageCost = averageCost;
+            this.lastPrice = lastPrice;
+            this.unrealizedPnl = unrealizedPnl;
+            this.realizedPnl = realizedPnl;
+        }
+
+        public int getInstrumentId() {
+            return instrumentId;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getAverageCost() {
+            return averageCost;
+        }
+
+        public double getLastPrice() {
+            return lastPrice;
+        }
+
+        public double getUnrealizedPnl() {
+            return unrealizedPnl;
+        }
+
+        public double getRealizedPnl() {
+            return realizedPnl;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package screener;
+
+interface Condition {
+    boolean test(ScreenContext ctx);
+
+    int requiredBars();
+
+    default boolean needsSession() {
+        return false;
+    }
+}
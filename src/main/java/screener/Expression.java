@@ -0,0 +1,16 @@
+package screener;
+
+// Numeric operand of a filter, evaluated on the latest bar of the current instrument
+interface Expression {
+    double evaluate(ScreenContext ctx);
+
+    // Bars of history needed for the value to be meaningful
+    default int requiredBars() {
+        return 1;
+    }
+
+    // Whether the value needs every bar of the latest bar's trading day, however many that is
+    default boolean needsSession() {
+        return false;
+    }
+}
@@ -0,0 +1,379 @@
+package screener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import indicators.Indicators;
+
+/**
+ * Recursive-descent compiler from filter text to a tree of {@link Condition}s and {@link Expression}s.
+ *
+ * <pre>
+ * filter     := or
+ * or         := and (OR and)*
+ * and        := unary (AND unary)*
+ * unary      := NOT unary | '(' or ')' | comparison
+ * comparison := operand op operand
+ * operand    := number | '-' number | name | name '(' [number (',' number)*] ')'
+ * </pre>
+ */
+class FilterParser {
+    // EMA-style indicators need several periods of history before they stop depending on the seed
+    private static final int CONVERGENCE_FACTOR = 4;
+
+    private final String text;
+    private int pos;
+    private int slots;
+
+    FilterParser(String text) {
+        this.text = text;
+    }
+
+    ScreenFilter parse() {
+        Condition condition = parseOr();
+        skipWhitespace();
+        if (pos < text.length()) {
+            throw error("Unexpected '" + text.charAt(pos) + "'");
+        }
+        return new ScreenFilter(text, condition, slots);
+    }
+
+    private Condition parseOr() {
+        Condition left = parseAnd();
+        while (acceptKeyword("OR") || accept("||")) {
+            Condition a = left;
+            Condition b = parseAnd();
+            left = new Condition() {
+                public boolean test(ScreenContext ctx) {
+                    return a.test(ctx) || b.test(ctx);
+                }
+
+                public int requiredBars() {
+                    return Math.max(a.requiredBars(), b.requiredBars());
+                }
+
+                public boolean needsSession() {
+                    return a.needsSession() || b.needsSession();
+                }
+            };
+        }
+        return left;
+    }
+
+    private Condition parseAnd() {
+        Condition left = parseUnary();
+        while (acceptKeyword("AND") || accept("&&")) {
+            Condition a = left;
+            Condition b = parseUnary();
+            left = new Condition() {
+                public boolean test(ScreenContext ctx) {
+                    return a.test(ctx) && b.test(ctx);
+                }
+
+                public int requiredBars() {
+                    return Math.max(a.requiredBars(), b.requiredBars());
+                }
+
+                public boolean needsSession() {
+                    return a.needsSession() || b.needsSession();
+                }
+            };
+        }
+        return left;
+    }
+
+    private Condition parseUnary() {
+        if (acceptKeyword("NOT") || accept("!")) {
+            Condition inner = parseUnary();
+            return new Condition() {
+                public boolean test(ScreenContext ctx) {
+                    return !inner.test(ctx);
+                }
+
+                public int requiredBars() {
+                    return inner.requiredBars();
+                }
+
+                public boolean needsSession() {
+                    return inner.needsSession();
+                }
+            };
+        }
+        if (accept("(")) {
+            Condition inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private Condition parseComparison() {
+        Expression left = parseOperand();
+        skipWhitespace();
+        String op;
+        if (accept("<=") || accept("\u2264")) {
+            op = "<=";
+        } else if (accept(">=") || accept("\u2265")) {
+            op = ">=";
+        } else if (accept("!=") || accept("<>")) {
+            op = "!=";
+        } else if (accept("==") || accept("=")) {
+            op = "=";
+        } else if (accept("<")) {
+            op = "<";
+        } else if (accept(">")) {
+            op = ">";
+        } else {
+            throw error("Expected a comparison operator");
+        }
+        Expression right = parseOperand();
+        int required = Math.max(left.requiredBars(), right.requiredBars());
+        boolean session = left.needsSession() || right.needsSession();
+        return new Condition() {
+            public boolean test(ScreenContext ctx) {
+                double a = left.evaluate(ctx);
+                double b = right.evaluate(ctx);
+                switch (op) {
+                    case "<": return a < b;
+                    case "<=": return a <= b;
+                    case ">": return a > b;
+                    case ">=": return a >= b;
+                    case "=": return a == b;
+                    default: return a != b && !Double.isNaN(a) && !Double.isNaN(b);
+                }
+            }
+
+            public int requiredBars() {
+                return required;
+            }
+
+            public boolean needsSession() {
+                return session;
+            }
+        };
+    }
+
+    private Expression parseOperand() {
+        skipWhitespace();
+        int start = pos;
+        if (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '-' || text.charAt(pos) == '.')) {
+            double value = parseNumber();
+            return ctx -> value;
+        }
+        String name = parseName();
+        if (name.isEmpty()) {
+            throw error("Expected a number, field or indicator");
+        }
+        skipWhitespace();
+        if (accept("(")) {
+            List<Double> args = new ArrayList<>();
+            skipWhitespace();
+            if (!accept(")")) {
+                do {
+                    args.add(parseNumber());
+                } while (accept(","));
+                expect(")");
+            }
+            return indicator(name, args, start);
+        }
+        return field(name, start);
+    }
+
+    private Expression field(String name, int start) {
+        switch (name) {
+            case "OPEN": return ctx -> last(ctx.candles.open, ctx);
+            case "HIGH": return ctx -> last(ctx.candles.high, ctx);
+            case "LOW": return ctx -> last(ctx.candles.low, ctx);
+            case "CLOSE": return ctx -> last(ctx.candles.close, ctx);
+            case "VOLUME": return ctx -> ctx.size() == 0 ? Double.NaN : ctx.candles.volume[ctx.size() - 1];
+            case "LOT_SIZE": return ctx -> ctx.table.lotSize(ctx.instrumentId);
+            case "TICK_SIZE": return ctx -> ctx.table.tickSize(ctx.instrumentId);
+            case "FREEZE_QUANTITY": return ctx -> ctx.table.freezeQuantity(ctx.instrumentId);
+            case "QTY_MULTIPLIER": return ctx -> ctx.table.qtyMultiplier(ctx.instrumentId);
+            default:
+                pos = start;
+                throw error("Unknown field " + name);
+        }
+    }
+
+    private Expression indicator(String name, List<Double> args, int start) {
+        int slot = slots++;
+        switch (name) {
+            case "SMA": {
+                int period = intArg(args, 0, 1, start);
+                return cached(slot, period, (ctx, n, out) -> Indicators.sma(ctx.candles.close, n, period, out));
+            }
+            case "EMA": {
+                int period = intArg(args, 0, 1, start);
+                return cached(slot, period * CONVERGENCE_FACTOR, (ctx, n, out) -> Indicators.ema(ctx.candles.close, n, period, out));
+            }
+            case "RSI": {
+                int period = intArg(args, 0, 1, start);
+                return cached(slot, period * CONVERGENCE_FACTOR + 1, (ctx, n, out) -> Indicators.rsi(ctx.candles.close, n, period, out));
+            }
+            case "ATR": {
+                int period = intArg(args, 0, 1, start);
+                return cached(slot, period * CONVERGENCE_FACTOR,
+                    (ctx, n, out) -> Indicators.atr(ctx.candles.high, ctx.candles.low, ctx.candles.close, n, period, out));
+            }
+            case "VWAP": {
+                intArg(args, 0, 0, start);
+                // Resets every trading day, so it needs the whole day rather than a fixed number of bars
+                return cached(slot, 1, true, (ctx, n, out) -> Indicators.vwap(ctx.candles.timestamps,
+                    ctx.candles.high, ctx.candles.low, ctx.candles.close, ctx.candles.volume, n, out));
+            }
+            case "MACD":
+            case "MACD_SIGNAL": {
+                int fast = intArg(args, 0, 3, start);
+                int slow = intArg(args, 1, 3, start);
+                int signal = intArg(args, 2, 3, start);
+                boolean line = name.equals("MACD");
+                return cached(slot, (slow + signal) * CONVERGENCE_FACTOR, (ctx, n, out) -> {
+                    double[] other = ctx.column2(slot);
+                    double[] histogram = ctx.column3(slot);
+                    if (line) {
+                        Indicators.macd(ctx.candles.close, n, fast, slow, signal, out, other, histogram);
+                    } else {
+                        Indicators.macd(ctx.candles.close, n, fast, slow, signal, other, out, histogram);
+                    }
+                });
+            }
+            case "BB_UPPER":
+            case "BB_LOWER": {
+                int period = intArg(args, 0, 2, start);
+                double k = args.get(1);
+                boolean upper = name.equals("BB_UPPER");
+                return cached(slot, period, (ctx, n, out) -> {
+                    double[] middle = ctx.column2(slot);
+                    double[] other = ctx.column3(slot);
+                    if (upper) {
+                        Indicators.bollinger(ctx.candles.close, n, period, k, middle, out, other);
+                    } else {
+                        Indicators.bollinger(ctx.candles.close, n, period, k, middle, other, out);
+                    }
+                });
+            }
+            default:
+                pos = start;
+                throw error("Unknown indicator " + name);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Computation {
+        void compute(ScreenContext ctx, int n, double[] out);
+    }
+
+    // Computes the indicator column once per instrument and reads its latest value
+    private static Expression cached(int slot, int requiredBars, Computation computation) {
+        return cached(slot, requiredBars, false, computation);
+    }
+
+    private static Expression cached(int slot, int requiredBars, boolean needsSession, Computation computation) {
+        return new Expression() {
+            public double evaluate(ScreenContext ctx) {
+                int n = ctx.size();
+                if (n == 0) {
+                    return Double.NaN;
+                }
+                double[] out = ctx.column(slot);
+                if (!ctx.isComputed(slot)) {
+                    computation.compute(ctx, n, out);
+                    ctx.markComputed(slot);
+                }
+                return out[n - 1];
+            }
+
+            public int requiredBars() {
+                return requiredBars;
+            }
+
+            public boolean needsSession() {
+                return needsSession;
+            }
+        };
+    }
+
+    private static double last(double[] column, ScreenContext ctx) {
+        return ctx.size() == 0 ? Double.NaN : column[ctx.size() - 1];
+    }
+
+    private int intArg(List<Double> args, int index, int expected, int start) {
+        if (args.size() != expected) {
+            pos = start;
+            throw error("Expected " + expected + " argument(s)");
+        }
+        if (expected == 0) {
+            return 0;
+        }
+        double value = args.get(index);
+        if (value < 1 || value != Math.rint(value)) {
+            pos = start;
+            throw error("Period must be a positive whole number");
+        }
+        return (int) value;
+    }
+
+    private double parseNumber() {
+        skipWhitespace();
+        int start = pos;
+        if (pos < text.length() && text.charAt(pos) == '-') {
+            pos++;
+        }
+        while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+            pos++;
+        }
+        try {
+            return Double.parseDouble(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("Expected a number");
+        }
+    }
+
+    private String parseName() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            pos++;
+        }
+        return text.substring(start, pos).toUpperCase(Locale.ROOT);
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        skipWhitespace();
+        int end = pos + keyword.length();
+        if (end <= text.length() && text.regionMatches(true, pos, keyword, 0, keyword.length())
+                && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean accept(String token) {
+        skipWhitespace();
+        if (text.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("Expected '" + token + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private FilterSyntaxException error(String message) {
+        return new FilterSyntaxException(message, text, pos);
+    }
+}
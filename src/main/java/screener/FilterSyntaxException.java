@@ -0,0 +1,9 @@
+package screener;
+
+public class FilterSyntaxException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public FilterSyntaxException(String message, String filter, int position) {
+        super(message + " at position " + position + " in: " + filter);
+    }
+}
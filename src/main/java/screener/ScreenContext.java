@@ -0,0 +1,68 @@
+package screener;
+
+import java.util.Arrays;
+
+import history.Candles;
+import model.InstrumentTable;
+
+/**
+ * Per-thread evaluation state for one instrument at a time: its candles, its metadata row and a scratch
+ * column per indicator in the filter, each computed at most once per instrument.
+ */
+public class ScreenContext {
+    final Candles candles = new Candles(256);
+    InstrumentTable table;
+    int instrumentId;
+
+    private double[][] scratch;
+    private double[][] scratch2;
+    private double[][] scratch3;
+    private boolean[] computed;
+
+    ScreenContext(int indicatorSlots) {
+        scratch = new double[indicatorSlots][];
+        scratch2 = new double[indicatorSlots][];
+        scratch3 = new double[indicatorSlots][];
+        computed = new boolean[indicatorSlots];
+    }
+
+    void reset(InstrumentTable table, int instrumentId) {
+        this.table = table;
+        this.instrumentId = instrumentId;
+        Arrays.fill(computed, false);
+    }
+
+    int size() {
+        return candles.size();
+    }
+
+    boolean isComputed(int slot) {
+        return computed[slot];
+    }
+
+    void markComputed(int slot) {
+        computed[slot] = true;
+    }
+
+    // Primary output column for an indicator slot, grown to the current candle count
+    double[] column(int slot) {
+        scratch[slot] = ensure(scratch[slot]);
+        return scratch[slot];
+    }
+
+    // Extra columns for indicators with several outputs (MACD, Bollinger)
+    double[] column2(int slot) {
+        scratch2[slot] = ensure(scratch2[slot]);
+        return scratch2[slot];
+    }
+
+    double[] column3(int slot) {
+        scratch3[slot] = ensure(scratch3[slot]);
+        return scratch3[slot];
+    }
+
+    private double[] ensure(double[] array) {
+        int n = Math.max(candles.size(), 1);
+        return array != null && array.length >= n ? array : new double[Math.max(n, 256)];
+    }
+}
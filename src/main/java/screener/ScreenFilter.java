@@ -0,0 +1,53 @@
+package screener;
+
+/**
+ * A compiled screening filter such as {@code RSI(14) < 30 AND close > SMA(200) AND lot_size >= 1}.
+ *
+ * Operands are numbers, bar fields of the latest candle (open, high, low, close, volume), instrument fields
+ * (lot_size, tick_size, freeze_quantity, qty_multiplier) and indicators: SMA(n), EMA(n), RSI(n), ATR(n),
+ * VWAP(), MACD(fast, slow, signal), MACD_SIGNAL(fast, slow, signal), BB_UPPER(n, k), BB_LOWER(n, k).
+ * Comparisons are &lt; &lt;= &gt; &gt;= = != (also &#8804; &#8805;), combined with AND, OR, NOT and parentheses.
+ * A comparison involving an indicator that is still warming up (NaN) is false.
+ */
+public class ScreenFilter {
+    private final String source;
+    private final Condition condition;
+    private final int indicatorSlots;
+    private final int requiredBars;
+    private final boolean needsSession;
+
+    ScreenFilter(String source, Condition condition, int indicatorSlots) {
+        this.source = source;
+        this.condition = condition;
+        this.indicatorSlots = indicatorSlots;
+        this.requiredBars = Math.max(1, condition.requiredBars());
+        this.needsSession = condition.needsSession();
+    }
+
+    public static ScreenFilter compile(String filter) {
+        return new FilterParser(filter).parse();
+    }
+
+    boolean matches(ScreenContext ctx) {
+        return condition.test(ctx);
+    }
+
+    ScreenContext newContext() {
+        return new ScreenContext(indicatorSlots);
+    }
+
+    // Bars of history the filter needs per instrument
+    public int getRequiredBars() {
+        return requiredBars;
+    }
+
+    // Whether the filter also needs every bar of the latest bar's trading day (VWAP)
+    public boolean needsSession() {
+        return needsSession;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
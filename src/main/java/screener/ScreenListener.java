@@ -0,0 +1,18 @@
+package screener;
+
+import model.Stock;
+
+/**
+ * Receives screener results as they are found. Called from fork-join worker threads, so UI listeners
+ * must hand off to the FX thread themselves.
+ */
+public interface ScreenListener {
+    void onMatch(Stock stock);
+
+    default void onComplete(int scanned, int matched, long elapsedNanos) {
+    }
+
+    default void onError(Throwable error) {
+        error.printStackTrace();
+    }
+}
@@ -0,0 +1,162 @@
+package screener;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import database.InstrumentRegistry;
+import history.CandleSeries;
+import history.CandleStore;
+import history.MarketSession;
+import model.InstrumentTable;
+import model.Interval;
+import model.Segment;
+
+/**
+ * Evaluates a {@link ScreenFilter} over the cached candles of every NSE_EQ instrument in parallel.
+ *
+ * The universe is split into chunks of instruments on a fork-join pool; each chunk reuses one
+ * {@link ScreenContext} so only the tail of each series needed by the filter is copied out of the mapped
+ * candle files. Matches are pushed to the listener as soon as they are found. Cancelling the returned
+ * future stops the scan at the next instrument.
+ */
+public class Screener {
+    public static final String SEGMENT = Segment.NSE_EQ.name();
+    private static final int CHUNK_SIZE = 64;
+
+    private final CandleStore store;
+    private final ForkJoinPool pool;
+
+    public Screener() {
+        this(CandleStore.getInstance(), ForkJoinPool.commonPool());
+    }
+
+    public Screener(CandleStore store, ForkJoinPool pool) {
+        this.store = store;
+        this.pool = pool;
+    }
+
+    public CompletableFuture<Integer> scan(String filter, Interval interval, ScreenListener listener) {
+        return scan(ScreenFilter.compile(filter), interval, listener);
+    }
+
+    // Completes with the number of matches. Only the registry's NSE_EQ shard is visited.
+    public CompletableFuture<Integer> scan(ScreenFilter filter, Interval interval, ScreenListener listener) {
+        InstrumentRegistry registry = InstrumentRegistry.getInstance();
+        InstrumentRegistry.Shard shard = registry.getShard(Segment.NSE_EQ);
+        // The table only grows, so read after the shard it covers every id of the shard
+        InstrumentTable table = registry.getTable();
+        if (shard == null) {
+            return scan(filter, table, interval, listener);
+        }
+        return scan(filter, table, shard.getIds(), interval, listener);
+    }
+
+    public CompletableFuture<Integer> scan(ScreenFilter filter, InstrumentTable table, Interval interval,
+                                           ScreenListener listener) {
+        return scan(filter, table, universe(table), interval, listener);
+    }
+
+    private CompletableFuture<Integer> scan(ScreenFilter filter, InstrumentTable table, int[] ids, Interval interval,
+                                            ScreenListener listener) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Scan scan = new Scan(filter, table, interval, listener, ids, result);
+        pool.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                pool.invoke(new Chunk(scan, 0, ids.length));
+                int matched = scan.matched.get();
+                listener.onComplete(scan.scanned.get(), matched, System.nanoTime() - started);
+                result.complete(matched);
+            } catch (Throwable e) {
+                listener.onError(e);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    // Rows loaded before segments were stored have no segment; their instrument key still names it
+    private static int[] universe(InstrumentTable table) {
+        String keyPrefix = SEGMENT + "|";
+        int[] ids = new int[table.size()];
+        int count = 0;
+        for (int id = 0; id < table.size(); id++) {
+            String segment = table.segment(id);
+            String key = table.instrumentKey(id);
+            if (segment != null ? SEGMENT.equals(segment) : key != null && key.startsWith(keyPrefix)) {
+                ids[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private void screen(Scan scan, int from, int to) {
+        ScreenContext ctx = scan.filter.newContext();
+        int required = scan.filter.getRequiredBars();
+        for (int i = from; i < to && !scan.result.isDone(); i++) {
+            int id = scan.ids[i];
+            CandleSeries series = store.open(scan.table.instrumentKey(id), scan.interval);
+            int size = series.size();
+            int count = Math.min(size, required);
+            if (scan.filter.needsSession() && size > 0) {
+                long dayStart = MarketSession.dayStart(MarketSession.sessionDay(series.lastTimestamp()));
+                count = Math.max(count, size - series.lowerBound(dayStart));
+            }
+            series.read(size - count, count, ctx.candles);
+            ctx.reset(scan.table, id);
+            scan.scanned.incrementAndGet();
+            if (count > 0 && scan.filter.matches(ctx)) {
+                scan.matched.incrementAndGet();
+                scan.listener.onMatch(scan.table.get(id));
+            }
+        }
+    }
+
+    private static class Scan {
+        final ScreenFilter filter;
+        final InstrumentTable table;
+        final Interval interval;
+        final ScreenListener listener;
+        final int[] ids;
+        final CompletableFuture<Integer> result;
+        final AtomicInteger scanned = new AtomicInteger();
+        final AtomicInteger matched = new AtomicInteger();
+
+        Scan(ScreenFilter filter, InstrumentTable table, Interval interval, ScreenListener listener, int[] ids,
+             CompletableFuture<Integer> result) {
+            this.filter = filter;
+            this.table = table;
+            this.interval = interval;
+            this.listener = listener;
+            this.ids = ids;
+            this.result = result;
+        }
+    }
+
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Scan scan;
+        private final int from;
+        private final int to;
+
+        Chunk(Scan scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                screen(scan, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(scan, from, mid), new Chunk(scan, mid, to));
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package ui;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import database.DatabaseManager;
+import javafx.application.Platform;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.Button;
 import javafx.geometry.Insets;
 import javafx.scene.control.SplitPane;
+import marketdata.MarketDataFeed;
+import model.Stock;
+import util.BackgroundExecutor;
 
 public class HomePanel extends BorderPane {
     private WatchlistPane watchlistPane;
@@ -31,10 +40,9 @@ public class HomePanel extends BorderPane {
 
         leftPanel.getChildren().addAll(watchlistBtn, portfolioBtn, strategyBtn);
 
-        // Initialize the content panes
+        // Only the watchlist is shown at first; the other panes are built on first use
         watchlistPane = new WatchlistPane();
-        portfolioPane = new PortfolioPane();
-        strategyBuilderPane = new StrategyBuilderPane();
+        showNifty50();
 
         // Create split pane for resizable boundary
         splitPane = new SplitPane();
@@ -46,12 +54,40 @@ public class HomePanel extends BorderPane {
             splitPane.getItems().set(1, watchlistPane);
         });
         portfolioBtn.setOnAction(e -> {
+            if (portfolioPane == null) {
+                portfolioPane = new PortfolioPane();
+            }
             splitPane.getItems().set(1, portfolioPane);
         });
         strategyBtn.setOnAction(e -> {
+            if (strategyBuilderPane == null) {
+                strategyBuilderPane = new StrategyBuilderPane();
+            }
             splitPane.getItems().set(1, strategyBuilderPane);
         });
 
         setCenter(splitPane);
     }
+
+    // Fills the watchlist with the Nifty 50 from the database and streams their quotes
+    private void showNifty50() {
+        MarketDataFeed feed = MarketDataFeed.getInstance();
+        watchlistPane.attach(feed.getRing());
+        CompletableFuture.supplyAsync(() -> DatabaseManager.getInstance().getNifty50FromDB(),
+                BackgroundExecutor.getInstance()::execute)
+            .thenCompose(stocks -> {
+                Platform.runLater(() -> watchlistPane.setInstruments(stocks));
+                List<String> keys = new ArrayList<>();
+                for (Stock stock : stocks) {
+                    if (stock.getInstrument_key() != null) {
+                        keys.add(stock.getInstrument_key());
+                    }
+                }
+                return feed.connect().thenCompose(ws -> feed.subscribe(keys, MarketDataFeed.Mode.FULL));
+            })
+            .exceptionally(error -> {
+                System.err.println("Watchlist quotes unavailable: " + error.getMessage());
+                return null;
+            });
+    }
 }
@@ -5,21 +5,30 @@ import java.util.function.Consumer;
 import authentication.*;
 import authentication.Authenticator.Status;
 import database.DatabaseManager;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.VBox;
+import util.BackgroundExecutor;
 
 public class LoginPage extends VBox {
 
     private static final String LOGIN_MESSAGE = """
-    Login with your preferred broker. 
+    Login with your preferred broker.
     You will be redirected to the broker's login page.
     Once the authentication is succesfull, return this application to continue.
     """;
     private Consumer<Status> authenticationListener;
 
-    
+    private final Button loginButton;
+    private final Label successLabel;
+    private final Label failureLabel;
+    private final Label fetchingLabel;
+    private final ProgressBar progressBar;
+    private final Button cancelButton;
+    private StockLoadTask loadTask;
 
     public LoginPage() {
         super(20); // spacing between elements
@@ -33,58 +42,105 @@ public class LoginPage extends VBox {
         welcomeLabel.setAlignment(Pos.CENTER);
 
         // Login button
-        Button loginButton = new Button("Login to Upstox");
+        loginButton = new Button("Login to Upstox");
         loginButton.setPrefWidth(200);
 
         // Status labels
-        Label successLabel = new Label("Login Successful!");
+        successLabel = new Label("Login Successful!");
         successLabel.setStyle("-fx-text-fill: green;");
         successLabel.setVisible(false);
 
-        Label failureLabel = new Label("Authentication failed. Please try logging in again.");
+        failureLabel = new Label("Authentication failed. Please try logging in again.");
         failureLabel.setStyle("-fx-text-fill: red;");
         failureLabel.setVisible(false);
 
-        Label fetchingLabel = new Label("Fetching Stocks...");
+        fetchingLabel = new Label("Fetching Stocks...");
         fetchingLabel.setStyle("-fx-text-fill: blue;");
         fetchingLabel.setVisible(false);
 
+        // Load progress, shown while stocks are fetched
+        progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.setVisible(false);
+
+        cancelButton = new Button("Cancel");
+        cancelButton.setVisible(false);
+        cancelButton.setOnAction(e -> {
+            if (loadTask != null) {
+                loadTask.cancel();
+            }
+        });
+
         // Add elements to the VBox
-        getChildren().addAll(welcomeLabel, loginButton, successLabel, failureLabel, fetchingLabel);
+        getChildren().addAll(welcomeLabel, loginButton, successLabel, failureLabel, fetchingLabel, progressBar, cancelButton);
 
         // Login button action
         loginButton.setOnAction(e -> {
             loginButton.setDisable(true);
+            failureLabel.setVisible(false);
 
-            DatabaseManager dbManager = DatabaseManager.getInstance();
             UpstoxAuthImpl authenticator = new UpstoxAuthImpl();
 
-            authenticator.addListener(status -> {
-                if(status == Status.SUCCESS) {
-                    successLabel.setVisible(true);
-                    fetchingLabel.setVisible(true);
-
-                    dbManager.loadStocks();
-                    dbManager.loadNiftyList();
-                    
-                    // Notify the authentication listener
-                    if (authenticationListener != null) {
-                        authenticationListener.accept(status);
-                    }
-                } else {
-                    failureLabel.setVisible(true);
-                    loginButton.setDisable(false);
-                    
-                    // Notify the authentication listener of failure
-                    if (authenticationListener != null) {
-                        authenticationListener.accept(status);
-                    }
-                }
+            // The listener fires on whichever thread finished the login, often the redirect server's
+            authenticator.addListener(status -> Platform.runLater(() -> onAuthenticated(status)));
+
+            // initDatabase and the stored token lookup both hit H2, so even they stay off the FX thread
+            BackgroundExecutor.getInstance().execute(() -> {
+                DatabaseManager.getInstance().initDatabase();
+                authenticator.authenticate();
             });
+        });
+    }
 
-            dbManager.initDatabase();
-            authenticator.authenticate();
+    private void onAuthenticated(Status status) {
+        if(status == Status.SUCCESS) {
+            successLabel.setVisible(true);
+            startLoading();
+        } else {
+            failureLabel.setVisible(true);
+            loginButton.setDisable(false);
+
+            // Notify the authentication listener of failure
+            if (authenticationListener != null) {
+                authenticationListener.accept(status);
+            }
+        }
+    }
+
+    private void startLoading() {
+        loadTask = new StockLoadTask();
+        fetchingLabel.textProperty().bind(loadTask.messageProperty());
+        progressBar.progressProperty().bind(loadTask.progressProperty());
+        fetchingLabel.setVisible(true);
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+
+        loadTask.setOnSucceeded(e -> {
+            finishLoading();
+            // Notify the authentication listener
+            if (authenticationListener != null) {
+                authenticationListener.accept(Status.SUCCESS);
+            }
+        });
+        loadTask.setOnCancelled(e -> {
+            finishLoading();
+            fetchingLabel.setText("Loading cancelled. Log in again to retry.");
+            loginButton.setDisable(false);
+        });
+        loadTask.setOnFailed(e -> {
+            loadTask.getException().printStackTrace();
+            finishLoading();
+            fetchingLabel.setText("Loading stocks failed. Log in again to retry.");
+            loginButton.setDisable(false);
         });
+        BackgroundExecutor.getInstance().execute(loadTask);
+    }
+
+    private void finishLoading() {
+        fetchingLabel.textProperty().unbind();
+        progressBar.progressProperty().unbind();
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
     }
 
     public void setAuthenticationListener(Consumer<Status> listener) {
@@ -3,6 +3,7 @@ package ui;
 import authentication.Authenticator.Status;
 import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
+import util.StartupTimeline;
 
 public class MainFrame extends StackPane {
 
@@ -11,10 +12,9 @@ public class MainFrame extends StackPane {
 
     public MainFrame() {
         loginPage = new LoginPage();
-        homePanel = new HomePanel();
 
-        // Add both pages to the StackPane
-        getChildren().addAll(loginPage, homePanel);
+        // The home panel is only built after a successful login
+        getChildren().add(loginPage);
 
         showLoginPage();
 
@@ -31,10 +31,16 @@ public class MainFrame extends StackPane {
 
     public void showLoginPage() {
         loginPage.setVisible(true);
-        homePanel.setVisible(false);
+        if (homePanel != null) {
+            homePanel.setVisible(false);
+        }
     }
 
     public void showHomePage() {
+        if (homePanel == null) {
+            homePanel = StartupTimeline.getInstance().time("home panel", HomePanel::new);
+            getChildren().add(homePanel);
+        }
         loginPage.setVisible(false);
         homePanel.setVisible(true);
     }
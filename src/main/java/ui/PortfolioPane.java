@@ -1,12 +1,58 @@
 package ui;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import portfolio.PortfolioEngine;
+import portfolio.PortfolioSnapshot;
+import portfolio.PortfolioSnapshot.Position;
+
+import java.util.function.Function;
 
 public class PortfolioPane extends BorderPane {
+    private final TableView<Position> positionsTable = new TableView<>();
+    private final Label pnlLabel = new Label();
+    private final Label exposureLabel = new Label();
+    private final Label marginLabel = new Label();
 
     public PortfolioPane() {
-        
+        HBox summary = new HBox(30, pnlLabel, exposureLabel, marginLabel);
+        summary.setPadding(new Insets(10));
+        setTop(summary);
+
+        positionsTable.getColumns().add(column("Symbol", Position::getSymbol));
+        positionsTable.getColumns().add(column("Qty", Position::getQuantity));
+        positionsTable.getColumns().add(column("Avg", p -> format(p.getAverageCost())));
+        positionsTable.getColumns().add(column("LTP", p -> format(p.getLastPrice())));
+        positionsTable.getColumns().add(column("Unrealized", p -> format(p.getUnrealizedPnl())));
+        positionsTable.getColumns().add(column("Realized", p -> format(p.getRealizedPnl())));
+        positionsTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        setCenter(positionsTable);
+
+        show(PortfolioEngine.getInstance().snapshot());
+        // The engine already throttles snapshots, so one runLater per snapshot is cheap
+        PortfolioEngine.getInstance().addListener(snapshot -> Platform.runLater(() -> show(snapshot)));
+    }
+
+    private static <T> TableColumn<Position, T> column(String title, Function<Position, T> value) {
+        TableColumn<Position, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        return column;
+    }
+
+    private void show(PortfolioSnapshot snapshot) {
+        positionsTable.getItems().setAll(snapshot.getPositions());
+        pnlLabel.setText("P&L: " + format(snapshot.getTotalPnl()) + " (unrealized " + format(snapshot.getUnrealizedPnl()) + ")");
+        exposureLabel.setText("Exposure: " + format(snapshot.getGrossExposure()) + " gross / " + format(snapshot.getNetExposure()) + " net");
+        marginLabel.setText("Margin used: " + format(snapshot.getMarginUsed()));
+    }
 
-       
+    private static String format(double value) {
+        return String.format("%,.2f", value);
     }
-} 
\ No newline at end of file
+}
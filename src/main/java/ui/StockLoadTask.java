@@ -0,0 +1,52 @@
+package ui;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import database.DatabaseManager;
+import javafx.concurrent.Task;
+import util.BackgroundExecutor;
+
+/**
+ * Loads the instrument master and the Nifty 50 list after login. The two loads are independent and run
+ * in parallel; progress and messages come from the instrument load, which takes the longest. Cancelling
+ * the task interrupts both.
+ */
+class StockLoadTask extends Task<Void> {
+
+    @Override
+    protected Void call() throws Exception {
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        updateMessage("Fetching Stocks...");
+        updateProgress(-1, -1);
+
+        Future<?> nifty = BackgroundExecutor.getInstance().submit(() -> {
+            dbManager.loadNiftyList();
+            return null;
+        });
+        try {
+            dbManager.loadStocks((message, done, total) -> {
+                updateMessage(message);
+                updateProgress(done, total);
+            });
+            if (isCancelled()) {
+                return null;
+            }
+            if (!nifty.isDone()) {
+                updateMessage("Fetching Nifty 50 constituents");
+                updateProgress(-1, -1);
+            }
+            nifty.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } finally {
+            if (isCancelled()) {
+                nifty.cancel(true);
+            }
+        }
+        return null;
+    }
+}
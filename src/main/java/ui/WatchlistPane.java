@@ -1,11 +1,191 @@
 package ui;
 
-import javafx.scene.layout.BorderPane;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
+import database.InstrumentRegistry;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.BorderPane;
+import marketdata.TickRingBuffer;
+import model.Stock;
 
+/**
+ * Live quotes in a virtualized TableView. Ticks are coalesced off the FX thread by
+ * {@link WatchlistQuotes}; once per animation pulse the dirty rows are collected and only those that are
+ * currently on screen are written to their row properties. Off-screen rows stay pending and are updated
+ * when they scroll into view, so FX thread work per frame is bounded by the visible rows.
+ *
+ * The pulse timer runs only while the pane is in a scene. Instrument ids are resolved again whenever
+ * the registry publishes a new table, so instruments that were unknown when added start to update.
+ */
 public class WatchlistPane extends BorderPane {
+    private final TableView<Row> table = new TableView<>();
+    private final BitSet pending = new BitSet();
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            flush();
+        }
+    };
+    private List<Stock> stocks = List.of();
+    private long registryVersion = -1;
+    private volatile WatchlistQuotes quotes;
+    private VirtualFlow<?> flow;
+    private TickRingBuffer.Subscriber subscriber;
+
+    public WatchlistPane() {
+        TableColumn<Row, String> symbolColumn = new TableColumn<>("Symbol");
+        symbolColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().symbol));
+        TableColumn<Row, Number> ltpColumn = new TableColumn<>("LTP");
+        ltpColumn.setCellValueFactory(cell -> cell.getValue().lastPrice);
+        ltpColumn.setCellFactory(column -> numberCell("%,.2f", false));
+        TableColumn<Row, Number> changeColumn = new TableColumn<>("Change");
+        changeColumn.setCellValueFactory(cell -> cell.getValue().change);
+        changeColumn.setCellFactory(column -> numberCell("%+,.2f", true));
+        TableColumn<Row, Number> changePercentColumn = new TableColumn<>("Change %");
+        changePercentColumn.setCellValueFactory(cell -> cell.getValue().changePercent);
+        changePercentColumn.setCellFactory(column -> numberCell("%+.2f%%", true));
+        TableColumn<Row, Number> volumeColumn = new TableColumn<>("Volume");
+        volumeColumn.setCellValueFactory(cell -> cell.getValue().volume);
+        volumeColumn.setCellFactory(column -> numberCell("%,d", false));
+
+        table.getColumns().add(symbolColumn);
+        table.getColumns().add(ltpColumn);
+        table.getColumns().add(changeColumn);
+        table.getColumns().add(changePercentColumn);
+        table.getColumns().add(volumeColumn);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        // Fixed row height lets the virtual flow skip measuring rows
+        table.setFixedCellSize(24);
+        setCenter(table);
+
+        sceneProperty().addListener((observable, previous, scene) -> {
+            if (scene != null) {
+                timer.start();
+            } else {
+                timer.stop();
+            }
+        });
+    }
+
+    // Replaces the watched instruments. FX thread.
+    public void setInstruments(List<Stock> stocks) {
+        List<Row> rows = new ArrayList<>(stocks.size());
+        for (int i = 0; i < stocks.size(); i++) {
+            rows.add(new Row(i, stocks.get(i).getSymbol()));
+        }
+        this.stocks = new ArrayList<>(stocks);
+        pending.clear();
+        quotes = new WatchlistQuotes(stocks, resolveIds());
+        table.getItems().setAll(rows);
+    }
+
+    // Ids in the registry's current table; records the version they belong to
+    private int[] resolveIds() {
+        InstrumentRegistry registry = InstrumentRegistry.getInstance();
+        registryVersion = registry.getVersion();
+        int[] ids = new int[stocks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = registry.getId(stocks.get(i).getInstrument_key());
+        }
+        return ids;
+    }
+
+    // Feeds the watchlist from the tick ring on its own subscriber thread
+    public void attach(TickRingBuffer ring) {
+        if (subscriber != null) {
+            ring.unsubscribe(subscriber);
+        }
+        subscriber = ring.subscribe("watchlist", tick -> {
+            WatchlistQuotes current = quotes;
+            if (current != null) {
+                current.onTick(tick);
+            }
+        });
+    }
+
+    private void flush() {
+        WatchlistQuotes current = quotes;
+        if (current == null) {
+            return;
+        }
+        if (InstrumentRegistry.getInstance().getVersion() != registryVersion) {
+            current.setInstrumentIds(resolveIds());
+        }
+        current.drainDirty(pending);
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (flow == null) {
+            flow = (VirtualFlow<?>) table.lookup(".virtual-flow");
+            if (flow == null) {
+                return;
+            }
+        }
+        if (flow.getFirstVisibleCell() == null) {
+            return;
+        }
+        List<Row> items = table.getItems();
+        int first = flow.getFirstVisibleCell().getIndex();
+        int last = Math.min(flow.getLastVisibleCell().getIndex(), items.size() - 1);
+        for (int i = Math.max(first, 0); i <= last; i++) {
+            Row row = items.get(i);
+            if (pending.get(row.index)) {
+                pending.clear(row.index);
+                row.update(current);
+            }
+        }
+    }
+
+    private static TableCell<Row, Number> numberCell(String format, boolean signColored) {
+        return new TableCell<>() {
+            @Override
+            protected void updateItem(Number value, boolean empty) {
+                super.updateItem(value, empty);
+                if (empty || value == null) {
+                    setText(null);
+                    setStyle("");
+                    return;
+                }
+                setText(value instanceof Long ? String.format(format, value.longValue()) : String.format(format, value.doubleValue()));
+                if (signColored) {
+                    double v = value.doubleValue();
+                    setStyle(v > 0 ? "-fx-text-fill: green;" : v < 0 ? "-fx-text-fill: red;" : "");
+                }
+            }
+        };
+    }
+
+    static class Row {
+        final int index;
+        final String symbol;
+        final SimpleDoubleProperty lastPrice = new SimpleDoubleProperty();
+        final SimpleDoubleProperty change = new SimpleDoubleProperty();
+        final SimpleDoubleProperty changePercent = new SimpleDoubleProperty();
+        final SimpleLongProperty volume = new SimpleLongProperty();
 
-    public WatchlistPane() {        
+        Row(int index, String symbol) {
+            this.index = index;
+            this.symbol = symbol;
+        }
 
+        void update(WatchlistQuotes quotes) {
+            double last = quotes.lastPrice(index);
+            double close = quotes.closePrice(index);
+            lastPrice.set(last);
+            if (close > 0) {
+                change.set(last - close);
+                changePercent.set((last - close) / close * 100);
+            }
+            volume.set(quotes.volume(index));
+        }
     }
-} 
\ No newline at end of file
+}
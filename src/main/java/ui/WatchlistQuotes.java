@@ -0,0 +1,111 @@
+package ui;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import marketdata.Tick;
+import model.Stock;
+
+/**
+ * Latest quote per watchlist row, written by the tick thread and read by the FX thread.
+ *
+ * The writer stores the values into primitive arrays and then sets the row's bit in a dirty bitmap; the
+ * reader swaps bitmap words to zero and reads the marked rows. The atomic bit update orders the array
+ * writes before the reader sees the bit, so no locks are needed, and any number of ticks for a row between
+ * two frames collapse into one dirty bit.
+ */
+class WatchlistQuotes {
+    // Replaced whole when the instrument ids are resolved again
+    private volatile int[] rowById;
+    private final double[] lastPrice;
+    private final double[] closePrice;
+    private final long[] volume;
+    private final AtomicLongArray dirty;
+
+    WatchlistQuotes(List<Stock> stocks, int[] instrumentIds) {
+        rowById = rowsById(instrumentIds);
+        lastPrice = new double[stocks.size()];
+        closePrice = new double[stocks.size()];
+        volume = new long[stocks.size()];
+        dirty = new AtomicLongArray((stocks.size() + 63) >>> 6);
+    }
+
+    // Instrument id of every row, -1 when unknown; quotes already received are kept
+    void setInstrumentIds(int[] instrumentIds) {
+        rowById = rowsById(instrumentIds);
+    }
+
+    private static int[] rowsById(int[] instrumentIds) {
+        int maxId = -1;
+        for (int id : instrumentIds) {
+            maxId = Math.max(maxId, id);
+        }
+        int[] rows = new int[maxId + 1];
+        Arrays.fill(rows, -1);
+        for (int row = 0; row < instrumentIds.length; row++) {
+            if (instrumentIds[row] >= 0) {
+                rows[instrumentIds[row]] = row;
+            }
+        }
+        return rows;
+    }
+
+    // Tick thread
+    void onTick(Tick tick) {
+        int id = tick.getInstrumentId();
+        int[] rowById = this.rowById;
+        int row = id >= 0 && id < rowById.length ? rowById[id] : -1;
+        if (row < 0) {
+            return;
+        }
+        lastPrice[row] = tick.getLastPrice();
+        if (tick.getClosePrice() > 0) {
+            closePrice[row] = tick.getClosePrice();
+        }
+        if (tick.getVolume() > 0) {
+            volume[row] = tick.getVolume();
+        }
+        markDirty(row);
+    }
+
+    private void markDirty(int row) {
+        int word = row >>> 6;
+        long bit = 1L << row;
+        long current;
+        do {
+            current = dirty.get(word);
+            if ((current & bit) != 0) {
+                return;
+            }
+        } while (!dirty.compareAndSet(word, current, current | bit));
+    }
+
+    // FX thread: moves the rows marked since the last call into pending
+    void drainDirty(BitSet pending) {
+        for (int word = 0; word < dirty.length(); word++) {
+            if (dirty.get(word) == 0) {
+                continue;
+            }
+            long bits = dirty.getAndSet(word, 0);
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                pending.set((word << 6) + bit);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    double lastPrice(int row) {
+        return lastPrice[row];
+    }
+
+    double closePrice(int row) {
+        return closePrice[row];
+    }
+
+    long volume(int row) {
+        return volume[row];
+    }
+}
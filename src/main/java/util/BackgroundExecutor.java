@@ -0,0 +1,42 @@
+package util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool for blocking work started from the UI: downloads, scraping and H2 access. Threads are
+ * daemons so a pending load never keeps the app from exiting, and the pool grows with demand because
+ * these tasks spend most of their time waiting on I/O. JavaFX Tasks are Runnables and can be passed to
+ * {@link #execute} directly.
+ */
+public class BackgroundExecutor {
+    private final ExecutorService executor;
+
+    private BackgroundExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "background-io-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static class Holder {
+        private static final BackgroundExecutor INSTANCE = new BackgroundExecutor();
+    }
+
+    public static BackgroundExecutor getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+}
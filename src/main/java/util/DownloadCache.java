@@ -0,0 +1,399 @@
+package util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content-addressed on-disk cache of raw downloads (the instrument master, the Nifty 50 page).
+ * Bodies are stored once under blobs/&lt;sha-256&gt;; index/&lt;sha-256 of url&gt;.properties maps a URL
+ * to its current blob together with ETag, Last-Modified and the time it was fetched.
+ *
+ * A fresh entry is served without touching the network. An expired one is revalidated with a
+ * conditional request, and a download streams through to the caller while it is written to the cache,
+ * so the first load is no slower than before. With -Doffline=true (or when the network fails) cached
+ * bodies are served whatever their age.
+ *
+ * Location from -Dcache.dir (default ./cache), expiry from -Dcache.ttlHours (default 24).
+ */
+public class DownloadCache {
+    public static final String OFFLINE_PROPERTY = "offline";
+    private static final String DIR_PROPERTY = "cache.dir";
+    private static final String TTL_PROPERTY = "cache.ttlHours";
+    private static final int DEFAULT_TTL_HOURS = 24;
+    private static final int TIMEOUT_MILLIS = 30_000;
+    // Wikipedia rejects requests without a descriptive User-Agent
+    private static final String USER_AGENT = "nifty-scraper/1.0 (Java)";
+
+    private final Path root;
+    private final Path blobs;
+    private final Path index;
+    private final Path tmp;
+    private final long ttlMillis;
+
+    private DownloadCache() {
+        root = Paths.get(System.getProperty(DIR_PROPERTY, "cache"));
+        blobs = root.resolve("blobs");
+        index = root.resolve("index");
+        tmp = root.resolve("tmp");
+        ttlMillis = TimeUnit.HOURS.toMillis(Integer.getInteger(TTL_PROPERTY, DEFAULT_TTL_HOURS));
+    }
+
+    private static class Holder {
+        private static final DownloadCache INSTANCE = new DownloadCache();
+    }
+
+    public static DownloadCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public static boolean isOffline() {
+        return Boolean.getBoolean(OFFLINE_PROPERTY);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Download open(String url) throws IOException {
+        return open(url, ttlMillis);
+    }
+
+    // Opens the body of url from the cache when it is younger than maxAgeMillis, otherwise from the network
+    public Download open(String url, long maxAgeMillis) throws IOException {
+        Properties entry = readEntry(url);
+        Path cached = entry != null ? blobs.resolve(entry.getProperty("hash")) : null;
+        boolean usable = cached != null && Files.isRegularFile(cached);
+        if (usable && (isOffline() || age(entry) < maxAgeMillis)) {
+            return fromCache(url, entry, cached);
+        }
+        if (isOffline()) {
+            throw new IOException("Offline and " + url + " is not cached in " + root.toAbsolutePath());
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MILLIS);
+        conn.setReadTimeout(TIMEOUT_MILLIS);
+        conn.setRequestProperty("User-Agent", USER_AGENT);
+        if (usable) {
+            if (entry.getProperty("etag") != null) {
+                conn.setRequestProperty("If-None-Match", entry.getProperty("etag"));
+            }
+            if (entry.getProperty("lastModified") != null) {
+                conn.setRequestProperty("If-Modified-Since", entry.getProperty("lastModified"));
+            }
+        }
+        try {
+            int status = conn.getResponseCode();
+            if (usable && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                conn.disconnect();
+                entry.setProperty("fetchedAt", Long.toString(System.currentTimeMillis()));
+                writeEntry(url, entry);
+                return fromCache(url, entry, cached);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Download of " + url + " failed: HTTP " + status);
+            }
+            return record(url, new DisconnectingInputStream(conn), conn.getHeaderField("ETag"),
+                conn.getHeaderField("Last-Modified"), conn.getContentLengthLong());
+        } catch (IOException e) {
+            conn.disconnect();
+            if (!usable) {
+                throw e;
+            }
+            System.err.println("Download of " + url + " failed (" + e.getMessage() + "), using cached copy");
+            return fromCache(url, entry, cached);
+        }
+    }
+
+    // Streams body through to the caller and stores it under url once it has been read to the end
+    public Download record(String url, InputStream body, String etag, String lastModified, long contentLength)
+            throws IOException {
+        Files.createDirectories(tmp);
+        Path file = Files.createTempFile(tmp, "download", ".part");
+        return new Download(this, url, body, etag, lastModified, contentLength, file);
+    }
+
+    // Hash of the body currently cached for url, or null
+    public String getHash(String url) {
+        try {
+            Properties entry = readEntry(url);
+            return entry != null ? entry.getProperty("hash") : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private Download fromCache(String url, Properties entry, Path cached) throws IOException {
+        return new Download(url, Files.newInputStream(cached), entry.getProperty("etag"),
+            entry.getProperty("lastModified"), Files.size(cached), entry.getProperty("hash"));
+    }
+
+    private static long age(Properties entry) {
+        return System.currentTimeMillis() - Long.parseLong(entry.getProperty("fetchedAt", "0"));
+    }
+
+    // Serialised with prune() so a blob is never deleted between being stored and being indexed
+    private synchronized void commit(String url, Path file, String hash, String etag, String lastModified)
+            throws IOException {
+        Files.createDirectories(blobs);
+        Path blob = blobs.resolve(hash);
+        if (Files.exists(blob)) {
+            Files.delete(file);
+        } else {
+            Files.move(file, blob, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Properties entry = new Properties();
+        entry.setProperty("url", url);
+        entry.setProperty("hash", hash);
+        entry.setProperty("fetchedAt", Long.toString(System.currentTimeMillis()));
+        if (etag != null) {
+            entry.setProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            entry.setProperty("lastModified", lastModified);
+        }
+        writeEntry(url, entry);
+        prune();
+    }
+
+    // Deletes blobs no index entry refers to any more
+    private void prune() throws IOException {
+        Set<String> live = new HashSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(index, "*.properties")) {
+            for (Path path : entries) {
+                live.add(load(path).getProperty("hash"));
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(blobs)) {
+            for (Path blob : files) {
+                if (!live.contains(blob.getFileName().toString())) {
+                    Files.deleteIfExists(blob);
+                }
+            }
+        }
+    }
+
+    private Properties readEntry(String url) throws IOException {
+        Path path = entryPath(url);
+        return Files.isRegularFile(path) ? load(path) : null;
+    }
+
+    private static Properties load(Path path) throws IOException {
+        Properties entry = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            entry.load(reader);
+        }
+        return entry;
+    }
+
+    private void writeEntry(String url, Properties entry) throws IOException {
+        Files.createDirectories(index);
+        Files.createDirectories(tmp);
+        Path file = Files.createTempFile(tmp, "index", ".part");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            entry.store(writer, null);
+        }
+        Files.move(file, entryPath(url), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path entryPath(String url) {
+        MessageDigest digest = sha256();
+        return index.resolve(hex(digest.digest(url.getBytes(StandardCharsets.UTF_8))) + ".properties");
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Body of a cached URL. A body coming from the network is hashed and copied to a temporary file as
+     * it is read; closing the stream after reading to the end stores it in the cache, closing it early
+     * discards the copy.
+     */
+    public static class Download extends FilterInputStream {
+        private final DownloadCache cache;
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final long contentLength;
+        private final boolean fromCache;
+        private final Path file;
+        private final OutputStream copy;
+        private final MessageDigest digest;
+        private boolean finished;
+        private boolean closed;
+        private String hash;
+
+        private Download(String url, InputStream in, String etag, String lastModified, long contentLength, String hash) {
+            super(in);
+            this.cache = null;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentLength = contentLength;
+            this.fromCache = true;
+            this.file = null;
+            this.copy = null;
+            this.digest = null;
+            this.hash = hash;
+        }
+
+        private Download(DownloadCache cache, String url, InputStream in, String etag, String lastModified,
+                long contentLength, Path file) throws IOException {
+            super(in);
+            this.cache = cache;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentLength = contentLength;
+            this.fromCache = false;
+            this.file = file;
+            this.copy = Files.newOutputStream(file);
+            this.digest = sha256();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                finished = true;
+            } else if (copy != null) {
+                copy.write(b);
+                digest.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n < 0) {
+                finished = true;
+            } else if (copy != null) {
+                copy.write(b, off, n);
+                digest.update(b, off, n);
+            }
+            return n;
+        }
+
+        // Skipped bytes still have to reach the copy
+        @Override
+        public long skip(long n) throws IOException {
+            if (copy == null) {
+                return in.skip(n);
+            }
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                in.close();
+            } finally {
+                if (copy != null) {
+                    copy.close();
+                    if (finished) {
+                        hash = hex(digest.digest());
+                        cache.commit(url, file, hash, etag, lastModified);
+                    } else {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        // -1 when the server did not send a length
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        public boolean isFromCache() {
+            return fromCache;
+        }
+
+        // SHA-256 of the body; for a network download, known once the stream has been read and closed
+        public String getHash() {
+            return hash;
+        }
+    }
+
+    // Disconnects the HTTP connection when its body stream is closed
+    private static class DisconnectingInputStream extends FilterInputStream {
+        private final HttpURLConnection conn;
+
+        DisconnectingInputStream(HttpURLConnection conn) throws IOException {
+            super(conn.getInputStream());
+            this.conn = conn;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                conn.disconnect();
+            }
+        }
+    }
+}
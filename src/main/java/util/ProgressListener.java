@@ -0,0 +1,10 @@
+package util;
+
+// Progress of a long-running load; total is negative when the amount of work is not known up front
+@FunctionalInterface
+public interface ProgressListener {
+    ProgressListener NONE = (message, done, total) -> {
+    };
+
+    void onProgress(String message, long done, long total);
+}
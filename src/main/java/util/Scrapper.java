@@ -1,23 +1,42 @@
 package util;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import model.Exchange;
+import model.Segment;
 import model.Stock;
 
 public class Scrapper {
     public static final String NIFTY_URL = "https://en.wikipedia.org/wiki/NIFTY_50";
-    public static final String NSE_URL = "https://assets.upstox.com/market-quote/instruments/exchange/NSE.json.gz";
+    public static final String NSE_URL = Exchange.NSE.getInstrumentUrl();
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     // Write a method that scrapes the NIFTY_URL and returns a list of all the companies in the NIFTY_50 index.
     public static List<Stock> fetchNiftyList() {
         List<Stock> companies = new ArrayList<>();
-        try {
-            Document doc = Jsoup.connect(NIFTY_URL).get();
+        try (InputStream in = DownloadCache.getInstance().open(NIFTY_URL)) {
+            // Read to the end so the page is stored in the cache
+            Document doc = Jsoup.parse(new String(in.readAllBytes(), StandardCharsets.UTF_8), NIFTY_URL);
             Element table = doc.getElementById("constituents");
             Elements rows = table.select("tr");
             
@@ -36,56 +55,120 @@ public class Scrapper {
     }
 
     public static List<Stock> fetchStocksList() {
+        return fetchStocksList(EnumSet.of(Segment.NSE_EQ));
+    }
+
+    // Instruments of the given segments, reading each exchange's file once
+    public static List<Stock> fetchStocksList(Set<Segment> segments) {
         List<Stock> stocks = new ArrayList<>();
-        try {
-            // Download and decompress the JSON data
-            java.net.URL url = new java.net.URL(NSE_URL);
-            java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
-            
-            // Read the gzipped content
-            java.util.zip.GZIPInputStream gzipStream = new java.util.zip.GZIPInputStream(conn.getInputStream());
-            java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(gzipStream));
-            
-            StringBuilder jsonContent = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonContent.append(line);
+        for (Exchange exchange : Exchange.values()) {
+            Set<Segment> wanted = EnumSet.noneOf(Segment.class);
+            for (Segment segment : segments) {
+                if (segment.getExchange() == exchange) {
+                    wanted.add(segment);
+                }
             }
-            
-            // Parse JSON
-            org.json.JSONArray jsonArray = new org.json.JSONArray(jsonContent.toString());
-            
-            // Iterate through JSON array and create Stock objects
-            for (int i = 0; i < jsonArray.length(); i++) {
-                org.json.JSONObject instrument = jsonArray.getJSONObject(i);
+            if (wanted.isEmpty()) {
+                continue;
+            }
+            try {
+                streamStocksList(exchange, wanted, DEFAULT_BATCH_SIZE, stocks::addAll);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return stocks;
+    }
+
+    public static int streamStocksList(int batchSize, Consumer<List<Stock>> batchConsumer) throws IOException {
+        return streamStocksList(Exchange.NSE, EnumSet.of(Segment.NSE_EQ), batchSize, batchConsumer);
+    }
+
+    // Reads an exchange's instrument master (from the download cache when fresh) and hands the instruments of
+    // the given segments to batchConsumer as they are parsed, so only one batch is ever held in memory.
+    // Returns the number of instruments delivered.
+    public static int streamStocksList(Exchange exchange, Set<Segment> segments, int batchSize,
+                                       Consumer<List<Stock>> batchConsumer) throws IOException {
+        try (InputStream in = DownloadCache.getInstance().open(exchange.getInstrumentUrl())) {
+            int delivered = parseStocks(in, segments, batchSize, batchConsumer);
+            // The rest of the body still has to pass through the cache
+            in.transferTo(OutputStream.nullOutputStream());
+            return delivered;
+        }
+    }
 
-                if(!instrument.getString("instrument_type").equals("EQ") || (instrument.has("segment") && !instrument.getString("segment").equals("NSE_EQ"))) { 
-                    continue;
+    public static int parseStocks(InputStream gzipped, int batchSize, Consumer<List<Stock>> batchConsumer) throws IOException {
+        return parseStocks(gzipped, EnumSet.of(Segment.NSE_EQ), batchSize, batchConsumer);
+    }
+
+    // Pull-parses a gzipped instrument array one object at a time instead of materialising the whole document,
+    // keeping the instruments of the given segments. A batch may mix segments.
+    public static int parseStocks(InputStream gzipped, Set<Segment> segments, int batchSize,
+                                  Consumer<List<Stock>> batchConsumer) throws IOException {
+        Reader reader = new BufferedReader(
+            new InputStreamReader(new GZIPInputStream(gzipped, BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE);
+        List<Stock> batch = new ArrayList<>(batchSize);
+        int delivered = 0;
+        try {
+            JSONTokener tokener = new JSONTokener(reader);
+            if (tokener.nextClean() != '[') {
+                throw tokener.syntaxError("Expected an array of instruments");
+            }
+            char next = tokener.nextClean();
+            while (next != ']') {
+                tokener.back();
+                JSONObject instrument = new JSONObject(tokener);
+                if (isWanted(instrument, segments)) {
+                    batch.add(toStock(instrument));
+                    if (batch.size() == batchSize) {
+                        batchConsumer.accept(batch);
+                        delivered += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                next = tokener.nextClean();
+                if (next == ',') {
+                    next = tokener.nextClean();
+                } else if (next != ']') {
+                    throw tokener.syntaxError("Expected ',' or ']' after instrument");
                 }
-                
-                Stock stock = new Stock(instrument.getString("trading_symbol"), instrument.getString("name"));
-                stock.setExchange(instrument.optString("exchange"));
-                stock.setIsin(instrument.optString("isin")); 
-                stock.setInstrument_type(instrument.optString("instrument_type"));
-                stock.setInstrument_key(instrument.optString("instrument_key"));
-                stock.setLot_size(instrument.optInt("lot_size", 0));
-                stock.setFreeze_quantity(instrument.optInt("freeze_quantity", 0));
-                stock.setExchange_token(instrument.optString("exchange_token"));
-                stock.setTick_size(instrument.getDouble("tick_size"));
-                stock.setTrading_symbol(instrument.optString("trading_symbol"));
-                stock.setShort_name(instrument.optString("short_name"));
-                stock.setQty_multiplier(instrument.optInt("qty_multiplier", 0));
-                stock.setSecurity_type(instrument.optString("security_type"));
-                stock.setSegment(instrument.optString("segment"));
-                stocks.add(stock);
             }
-
-            reader.close();            
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (JSONException e) {
+            throw new IOException("Malformed instrument file", e);
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+            delivered += batch.size();
         }
+        return delivered;
+    }
 
-        return stocks;
+    // Instruments without a segment are taken as NSE_EQ, as in older files
+    private static boolean isWanted(JSONObject instrument, Set<Segment> segments) {
+        Segment segment = Segment.fromCode(instrument.optString("segment", Segment.NSE_EQ.name()));
+        return segment != null && segments.contains(segment) && segment.accepts(instrument.optString("instrument_type"));
+    }
+
+    private static Stock toStock(JSONObject instrument) {
+        Stock stock = new Stock(instrument.getString("trading_symbol"), instrument.getString("name"));
+        stock.setExchange(instrument.optString("exchange"));
+        stock.setIsin(instrument.optString("isin"));
+        stock.setInstrument_type(instrument.optString("instrument_type"));
+        stock.setInstrument_key(instrument.optString("instrument_key"));
+        stock.setLot_size(instrument.optInt("lot_size", 0));
+        stock.setFreeze_quantity(instrument.optInt("freeze_quantity", 0));
+        stock.setExchange_token(instrument.optString("exchange_token"));
+        stock.setTick_size(instrument.getDouble("tick_size"));
+        stock.setTrading_symbol(instrument.optString("trading_symbol"));
+        stock.setShort_name(instrument.optString("short_name"));
+        stock.setQty_multiplier(instrument.optInt("qty_multiplier", 0));
+        stock.setSecurity_type(instrument.optString("security_type"));
+        stock.setSegment(instrument.optString("segment", Segment.NSE_EQ.name()));
+        stock.setStrike_price(instrument.optDouble("strike_price", 0));
+        stock.setExpiry(instrument.optLong("expiry", 0));
+        stock.setUnderlying_symbol(instrument.optString("underlying_symbol", null));
+        stock.setUnderlying_key(instrument.optString("underlying_key", null));
+        return stock;
     }
 
 }
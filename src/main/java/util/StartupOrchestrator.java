@@ -0,0 +1,79 @@
+package util;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+import database.DatabaseManager;
+import database.InstrumentRegistry;
+
+/**
+ * Starts the non-UI parts of the app in parallel with the FX thread building the window: H2 schema,
+ * the instrument registry from whatever is already stored locally (then the daily conditional refresh of
+ * it), and optionally the H2 web console.
+ * Each phase is recorded in the {@link StartupTimeline}.
+ *
+ * The H2 console is off unless started with -Dh2.console=true (port from -Dh2.console.port, default 8082).
+ */
+public class StartupOrchestrator {
+    public static final String CONSOLE_PROPERTY = "h2.console";
+
+    private CompletableFuture<Void> database;
+    private CompletableFuture<Void> ready;
+
+    private StartupOrchestrator() {
+    }
+
+    private static class Holder {
+        private static final StartupOrchestrator INSTANCE = new StartupOrchestrator();
+    }
+
+    public static StartupOrchestrator getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public synchronized CompletableFuture<Void> start() {
+        if (ready != null) {
+            return ready;
+        }
+        StartupTimeline timeline = StartupTimeline.getInstance();
+        BackgroundExecutor executor = BackgroundExecutor.getInstance();
+
+        database = CompletableFuture.runAsync(
+            () -> timeline.time("database schema", () -> DatabaseManager.getInstance().initDatabase()), executor::execute);
+        // Reference data from the last session, so lookups work before the post-login refresh completes
+        CompletableFuture<Void> registry = database.thenRunAsync(
+            () -> timeline.time("instrument registry", () -> DatabaseManager.getInstance().warmInstrumentRegistry()),
+            executor::execute)
+            .thenRun(() -> DatabaseManager.getInstance().scheduleInstrumentRefresh());
+        CompletableFuture<Void> console = Boolean.getBoolean(CONSOLE_PROPERTY)
+            ? CompletableFuture.runAsync(() -> timeline.time("h2 console", StartupOrchestrator::startConsole), executor::execute)
+            : CompletableFuture.completedFuture(null);
+
+        ready = CompletableFuture.allOf(registry, console).whenComplete((result, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+            }
+            timeline.mark("background init done");
+        });
+        return ready;
+    }
+
+    private static void startConsole() {
+        try {
+            String port = System.getProperty("h2.console.port", "8082");
+            org.h2.tools.Server.createWebServer("-web", "-webAllowOthers", "-webPort", port).start();
+            System.out.println("H2 console on http://localhost:" + port);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Completes once the schema exists
+    public synchronized CompletableFuture<Void> databaseReady() {
+        return database != null ? database : CompletableFuture.completedFuture(null);
+    }
+
+    public synchronized CompletableFuture<Void> ready() {
+        return ready != null ? ready : CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,78 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records when each startup phase ran, relative to JVM start, and on which thread, so the critical path
+ * of a cold start can be read off one log.
+ */
+public class StartupTimeline {
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    private StartupTimeline() {
+    }
+
+    private static class Holder {
+        private static final StartupTimeline INSTANCE = new StartupTimeline();
+    }
+
+    public static StartupTimeline getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void time(String name, Runnable phase) {
+        time(name, () -> {
+            phase.run();
+            return null;
+        });
+    }
+
+    public <T> T time(String name, Supplier<T> phase) {
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            return phase.get();
+        } finally {
+            record(name, startMillis, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Zero-length event, e.g. "main" or "window shown"
+    public void mark(String name) {
+        record(name, System.currentTimeMillis(), 0);
+    }
+
+    private synchronized void record(String name, long startMillis, long durationMillis) {
+        phases.add(new Phase(name, Thread.currentThread().getName(), startMillis - jvmStartMillis, durationMillis));
+    }
+
+    public synchronized void log() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort(Comparator.comparingLong(p -> p.offsetMillis));
+        StringBuilder sb = new StringBuilder("Startup timeline (ms since JVM start):\n");
+        for (Phase p : sorted) {
+            sb.append(String.format("  %6d %s %-28s %-24s%n", p.offsetMillis,
+                p.durationMillis > 0 ? String.format("%5d ms", p.durationMillis) : "        ", p.name, "[" + p.thread + "]"));
+        }
+        System.out.print(sb);
+    }
+
+    private static class Phase {
+        final String name;
+        final String thread;
+        final long offsetMillis;
+        final long durationMillis;
+
+        Phase(String name, String thread, long offsetMillis, long durationMillis) {
+            this.name = name;
+            this.thread = thread;
+            this.offsetMillis = offsetMillis;
+            this.durationMillis = durationMillis;
+        }
+    }
+}
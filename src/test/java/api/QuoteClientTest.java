@@ -0,0 +1,219 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.upstox.ApiException;
+import com.upstox.api.MarketQuoteOHLC;
+
+import model.Interval;
+
+/**
+ * Runs QuoteClient against a local stub of the OHLC endpoint. The stub answers every key it is asked
+ * for, except that a chunk can be made to fail with a given status a number of times first.
+ */
+public class QuoteClientTest {
+    private static final String PATH = "/v2/market-quote/ohlc";
+
+    private HttpServer server;
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final List<Integer> chunkSizes = new ArrayList<>();
+    private final Map<String, int[]> failures = new ConcurrentHashMap<>();
+    private final Set<String> intervals = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private volatile long responseDelayMillis;
+    private QuoteClient client;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        if (client != null) {
+            client.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void splitsIntoChunksAndMergesTheResults() {
+        client = new QuoteClient(this::fetch, 500, 4, 3);
+        Map<String, MarketQuoteOHLC> quotes = client.getOHLCQuotes(keys(1200), Interval.ONE_DAY);
+
+        assertEquals(1200, quotes.size());
+        assertEquals(List.of(200, 500, 500), sorted(chunkSizes));
+        assertEquals(Set.of(Interval.ONE_DAY.getValue()), intervals);
+    }
+
+    @Test
+    public void retriesThrottledChunkOnItsOwn() {
+        List<String> keys = keys(30);
+        failures.put(keys.get(10), new int[] {429, 2});
+        client = new QuoteClient(this::fetch, 10, 4, 3);
+        Map<String, MarketQuoteOHLC> quotes = client.getOHLCQuotes(keys, Interval.ONE_MINUTE);
+
+        assertEquals(30, quotes.size());
+        // Three chunks, one of them tried three times
+        assertEquals(5, chunkSizes.size());
+    }
+
+    @Test
+    public void skipsChunkThatFailsWithClientError() {
+        List<String> keys = keys(30);
+        failures.put(keys.get(20), new int[] {400, Integer.MAX_VALUE});
+        client = new QuoteClient(this::fetch, 10, 4, 3);
+        Map<String, MarketQuoteOHLC> quotes = client.getOHLCQuotes(keys, Interval.ONE_DAY);
+
+        assertEquals(20, quotes.size());
+        assertTrue(quotes.containsKey(keys.get(0)));
+        assertFalse(quotes.containsKey(keys.get(29)));
+        assertEquals(3, chunkSizes.size());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        List<String> keys = keys(20);
+        failures.put(keys.get(0), new int[] {503, Integer.MAX_VALUE});
+        client = new QuoteClient(this::fetch, 10, 4, 2);
+        Map<String, MarketQuoteOHLC> quotes = client.getOHLCQuotes(keys, Interval.ONE_DAY);
+
+        assertEquals(10, quotes.size());
+        assertEquals(3, chunkSizes.size());
+    }
+
+    @Test
+    public void boundsConcurrentRequests() {
+        responseDelayMillis = 50;
+        client = new QuoteClient(this::fetch, 5, 2, 1);
+        Map<String, MarketQuoteOHLC> quotes = client.getOHLCQuotes(keys(40), Interval.ONE_DAY);
+
+        assertEquals(40, quotes.size());
+        assertEquals(8, chunkSizes.size());
+        assertTrue("max concurrent " + maxConcurrent.get(), maxConcurrent.get() <= 2);
+    }
+
+    // The production fetcher goes through the SDK; this one speaks the same request and response shapes
+    private Map<String, MarketQuoteOHLC> fetch(String instrumentKeys, Interval interval) throws ApiException {
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + PATH + "?instrument_key="
+            + URLEncoder.encode(instrumentKeys, StandardCharsets.UTF_8) + "&interval=" + interval.getValue());
+        HttpResponse<String> response;
+        try {
+            response = http.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new ApiException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e);
+        }
+        if (response.statusCode() != 200) {
+            throw new ApiException(response.statusCode(), response.body());
+        }
+        JSONObject data = new JSONObject(response.body()).getJSONObject("data");
+        Map<String, MarketQuoteOHLC> quotes = new HashMap<>();
+        for (String key : data.keySet()) {
+            quotes.put(key, new MarketQuoteOHLC());
+        }
+        return quotes;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int running = concurrent.incrementAndGet();
+        maxConcurrent.accumulateAndGet(running, Math::max);
+        int status = 200;
+        JSONObject body = new JSONObject().put("status", "success");
+        try {
+            Map<String, String> query = new HashMap<>();
+            for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+                int eq = pair.indexOf('=');
+                query.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+            String[] keys = query.get("instrument_key").split(",");
+            synchronized (chunkSizes) {
+                chunkSizes.add(keys.length);
+            }
+            intervals.add(query.get("interval"));
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+            JSONObject data = new JSONObject();
+            for (String key : keys) {
+                int[] failure = failures.get(key);
+                if (failure != null && failure[1] > 0) {
+                    failure[1]--;
+                    status = failure[0];
+                    body.put("status", "error");
+                    break;
+                }
+                data.put(key, new JSONObject().put("last_price", 100.0));
+            }
+            if (status == 200) {
+                body.put("data", data);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Before the response goes out, so the client cannot start its next request while this one still counts
+            concurrent.decrementAndGet();
+        }
+        respond(exchange, status, body);
+    }
+
+    private static void respond(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static List<String> keys(int count) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add("NSE_EQ|INE" + String.format("%06d", i));
+        }
+        return keys;
+    }
+
+    private static List<Integer> sorted(List<Integer> values) {
+        List<Integer> copy;
+        synchronized (values) {
+            copy = new ArrayList<>(values);
+        }
+        copy.sort(null);
+        return copy;
+    }
+}
@@ -0,0 +1,102 @@
+package api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Holds the only general dispatcher busy while a backlog builds up, then checks which requests get the
+ * next permits and what the wait metrics report.
+ */
+public class RequestSchedulerTest {
+    private static final long HOLD_MILLIS = 300;
+
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+
+    @Test(timeout = 10_000)
+    public void higherPriorityOvertakesAQueuedBacklog() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1000, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> busy = scheduler.submit(RequestScheduler.Priority.HISTORY, () -> {
+            started.countDown();
+            release.await();
+            return record("history-0");
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<String>> all = new ArrayList<>();
+        all.add(busy);
+        for (int i = 1; i <= 10; i++) {
+            String name = "history-" + i;
+            all.add(scheduler.submit(RequestScheduler.Priority.HISTORY, () -> record(name)));
+        }
+        all.add(scheduler.submit(RequestScheduler.Priority.QUOTE, () -> record("quote")));
+        // The reserved order dispatcher is free, so the order need not wait for the backlog
+        scheduler.submit(RequestScheduler.Priority.ORDER, () -> record("order")).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("order"), ran);
+
+        Thread.sleep(HOLD_MILLIS);
+        release.countDown();
+        for (CompletableFuture<String> future : all) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals("history-0", ran.get(1));
+        assertEquals("quote", ran.get(2));
+        assertEquals("history-1", ran.get(3));
+        assertEquals("history-10", ran.get(ran.size() - 1));
+        assertEquals(0, scheduler.getQueueDepth());
+        assertEquals(13, scheduler.getDispatched());
+    }
+
+    @Test(timeout = 10_000)
+    public void idleDispatchersDoNotHoldBacklogWhileWaitingForPermits() throws Exception {
+        // One permit every 200ms and more dispatchers than permits
+        RequestScheduler scheduler = new RequestScheduler(5, 1, 3);
+        List<CompletableFuture<String>> all = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String name = "history-" + i;
+            all.add(scheduler.submit(RequestScheduler.Priority.HISTORY, () -> record(name)));
+        }
+        all.get(0).get(5, TimeUnit.SECONDS);
+        all.add(scheduler.submit(RequestScheduler.Priority.QUOTE, () -> record("quote")));
+        for (CompletableFuture<String> future : all) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        // At most the permit already being granted when the quote arrived goes to history
+        assertTrue(ran.toString(), ran.indexOf("quote") <= 2);
+    }
+
+    @Test(timeout = 10_000)
+    public void permitWaitExcludesTimeSpentBehindABusyDispatcher() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1000, 1000, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> busy = scheduler.submit(RequestScheduler.Priority.HISTORY, () -> {
+            started.countDown();
+            Thread.sleep(HOLD_MILLIS);
+            return "busy";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = scheduler.submit(RequestScheduler.Priority.HISTORY, () -> "queued");
+        busy.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+
+        long hold = TimeUnit.MILLISECONDS.toNanos(HOLD_MILLIS);
+        assertTrue(scheduler.toString(), scheduler.getMaxQueueWaitNanos() >= hold / 2);
+        assertTrue(scheduler.toString(), scheduler.getMaxPermitWaitNanos() < hold / 2);
+        assertTrue(scheduler.getTotalQueueWaitNanos() >= scheduler.getTotalPermitWaitNanos());
+    }
+
+    private String record(String name) {
+        ran.add(name);
+        return name;
+    }
+}
@@ -0,0 +1,237 @@
+package backtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import history.Candles;
+import model.Stock;
+
+/**
+ * Replays hand-built candles through small strategies and checks fills, rounding and account state, then
+ * runs sweeps to check that runs do not affect each other.
+ */
+public class BacktestTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void runsAreDeterministic() {
+        BacktestData data = randomData(5, 300);
+        BacktestResult first = Backtester.run(data, new SmaCrossStrategy(5, 20), BacktestConfig.defaults());
+        BacktestResult second = Backtester.run(data, new SmaCrossStrategy(5, 20), BacktestConfig.defaults());
+        assertTrue(first.getTrades() > 0);
+        assertEquals(first.toString(), second.toString());
+        assertEquals(first.getFinalEquity(), second.getFinalEquity(), 0);
+        assertEquals(first.getMaxDrawdown(), second.getMaxDrawdown(), 0);
+        assertEquals(1500, first.getBars());
+    }
+
+    @Test
+    public void marketOrdersFillAtTheNextOpen() {
+        BacktestData data = data(stock(1, 0.05), bars(100, 101, 102, 103));
+        List<String> seen = new ArrayList<>();
+        BacktestResult result = Backtester.run(data, (ctx, instrument) -> {
+            int bar = ctx.getBar(instrument);
+            seen.add(bar + ":" + ctx.getPosition(instrument) + "@" + ctx.getCash());
+            if (bar == 0) {
+                assertEquals(10, ctx.order(instrument, 10));
+                // Queued, not filled, until the next bar
+                assertEquals(0, ctx.getPosition(instrument));
+            }
+        }, new BacktestConfig(10_000, 0, 0));
+
+        // Bar 1 opens at 100.5
+        assertEquals(List.of("0:0@10000.0", "1:10@8995.0", "2:10@8995.0", "3:10@8995.0"), seen);
+        assertEquals(8995 + 10 * 103, result.getFinalEquity(), DELTA);
+        assertEquals(1, result.getTrades());
+    }
+
+    @Test
+    public void slippageRoundsToTicksAgainstTheTrader() {
+        Candles candles = new Candles(4);
+        candles.add(0, 100, 100, 100, 100, 1);
+        candles.add(DAY, 100.02, 100.5, 99.5, 100, 1);
+        candles.add(2 * DAY, 100.02, 100.5, 99.5, 100, 1);
+        BacktestData data = data(stock(1, 0.05), candles);
+        double[] cash = new double[3];
+        Backtester.run(data, (ctx, instrument) -> {
+            int bar = ctx.getBar(instrument);
+            cash[bar] = ctx.getCash();
+            if (bar == 0) {
+                ctx.order(instrument, 1);
+            } else if (bar == 1) {
+                ctx.order(instrument, -1);
+            }
+        }, new BacktestConfig(1_000, 0, 1));
+
+        // Buy: 100.02 + 0.05 = 100.07, up to 100.10. Sell: 100.02 - 0.05 = 99.97, down to 99.95.
+        assertEquals(1_000 - 100.10, cash[1], DELTA);
+        assertEquals(1_000 - 100.10 + 99.95, cash[2], DELTA);
+        assertEquals(100.1, BacktestContext.roundToTick(100.07, 0.05, true), DELTA);
+        assertEquals(100.05, BacktestContext.roundToTick(100.05, 0.05, true), DELTA);
+        assertEquals(100.05, BacktestContext.roundToTick(100.05, 0.05, false), DELTA);
+    }
+
+    @Test
+    public void quantitiesRoundDownToWholeLots() {
+        BacktestData data = data(stock(25, 0.05), bars(10, 10, 10));
+        int[] queued = new int[4];
+        BacktestResult result = Backtester.run(data, (ctx, instrument) -> {
+            if (ctx.getBar(instrument) == 0) {
+                queued[0] = ctx.order(instrument, 60);
+                queued[1] = ctx.order(instrument, -30);
+                queued[2] = ctx.order(instrument, 24);
+                queued[3] = ctx.limitOrder(instrument, 10, 9);
+            } else if (ctx.getBar(instrument) == 1) {
+                assertEquals(25, ctx.getPosition(instrument));
+            }
+        }, new BacktestConfig(10_000, 0, 0));
+
+        assertEquals(50, queued[0]);
+        assertEquals(-25, queued[1]);
+        assertEquals(0, queued[2]);
+        assertEquals(0, queued[3]);
+        assertEquals(2, result.getRejected());
+        assertEquals(1, result.getTrades());
+    }
+
+    @Test
+    public void buysAreCutDownToTheCash() {
+        BacktestData data = data(stock(1, 0.05), bars(100, 100, 100));
+        int[] position = new int[1];
+        BacktestResult result = Backtester.run(data, (ctx, instrument) -> {
+            if (ctx.getBar(instrument) == 0) {
+                ctx.order(instrument, 50);
+            }
+            position[0] = ctx.getPosition(instrument);
+        }, new BacktestConfig(1_000, 0.001, 0));
+
+        // 1000 / (100 * 1.001) affords 9 shares, not 10
+        assertEquals(9, position[0]);
+        assertEquals(1_000 - 0.9, result.getFinalEquity(), DELTA);
+        assertEquals(0.9, result.getCommission(), DELTA);
+
+        result = Backtester.run(data(stock(1, 0.05), bars(100, 2_000, 2_000)), (ctx, instrument) -> {
+            if (ctx.getBar(instrument) == 0) {
+                ctx.order(instrument, 1);
+            }
+        }, new BacktestConfig(1_000, 0, 0));
+        assertEquals(0, result.getTrades());
+        assertEquals(1, result.getRejected());
+    }
+
+    @Test
+    public void strategiesCannotReadBarsThatHaveNotHappened() {
+        BacktestData data = data(stock(1, 0.05), bars(100, 101, 102));
+        List<Integer> failures = new ArrayList<>();
+        Backtester.run(data, (ctx, instrument) -> {
+            int bar = ctx.getBar(instrument);
+            assertEquals(bar + 100, ctx.getClose(instrument, bar), DELTA);
+            assertEquals(100, ctx.getClose(instrument, 0), DELTA);
+            try {
+                ctx.getHigh(instrument, bar + 1);
+                fail("Read bar " + (bar + 1) + " during bar " + bar);
+            } catch (IndexOutOfBoundsException e) {
+                failures.add(bar);
+            }
+        }, BacktestConfig.defaults());
+        assertEquals(List.of(0, 1, 2), failures);
+    }
+
+    @Test
+    public void sweepRunsAreIsolated() throws InterruptedException {
+        BacktestData data = randomData(3, 200);
+        ParameterGrid grid = new ParameterGrid().add("fast", 5, 10).add("fail", 0, 1);
+        SweepReport report = new ParameterSweep(8).run(data, grid, parameters -> {
+            Strategy cross = new SmaCrossStrategy(parameters.getInt("fast"), 30);
+            if (parameters.getInt("fail") == 0) {
+                return cross;
+            }
+            return new Strategy() {
+                @Override
+                public void onStart(BacktestContext ctx) {
+                    cross.onStart(ctx);
+                }
+
+                // Trades and leaves orders queued before failing, which must not leak into other runs
+                @Override
+                public void onBar(BacktestContext ctx, int instrument) {
+                    cross.onBar(ctx, instrument);
+                    ctx.order(instrument, 1);
+                    if (ctx.getBar(instrument) == 100) {
+                        throw new IllegalStateException("strategy bug");
+                    }
+                }
+            };
+        }, BacktestConfig.defaults());
+
+        assertEquals(4, report.getThreads());
+        List<BacktestResult> results = report.getResults();
+        assertEquals(4, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BacktestResult result = results.get(i);
+            if (result.getParameters().getInt("fail") == 1) {
+                assertTrue(result.isFailed());
+                assertNotNull(result.getError());
+                assertEquals("strategy bug", result.getError().getMessage());
+                continue;
+            }
+            assertFalse(result.isFailed());
+            assertNull(result.getError());
+            BacktestResult alone = Backtester.run(data,
+                new SmaCrossStrategy(result.getParameters().getInt("fast"), 30), BacktestConfig.defaults());
+            assertEquals(alone.getFinalEquity(), result.getFinalEquity(), 0);
+            assertEquals(alone.getTrades(), result.getTrades());
+        }
+        assertEquals(2, report.top(10).size());
+    }
+
+    private static BacktestData randomData(int instruments, int bars) {
+        Random random = new Random(11);
+        List<Stock> stocks = new ArrayList<>();
+        Candles[] candles = new Candles[instruments];
+        for (int s = 0; s < instruments; s++) {
+            stocks.add(stock(1 + s, 0.05));
+            candles[s] = new Candles(bars);
+            double price = 100 + 50 * s;
+            for (int i = 0; i < bars; i++) {
+                double open = price;
+                price *= 1 + 0.02 * random.nextGaussian();
+                candles[s].add(i * DAY, open, Math.max(open, price) * 1.01, Math.min(open, price) * 0.99, price,
+                    1_000 + random.nextInt(1_000));
+            }
+        }
+        return new BacktestData(stocks, candles);
+    }
+
+    private static BacktestData data(Stock stock, Candles candles) {
+        return new BacktestData(List.of(stock), new Candles[] {candles});
+    }
+
+    // Daily bars closing at the given prices, each opening halfway from the previous close
+    private static Candles bars(double... closes) {
+        Candles candles = new Candles(closes.length);
+        for (int i = 0; i < closes.length; i++) {
+            double open = i == 0 ? closes[0] : (closes[i - 1] + closes[i]) / 2;
+            candles.add(i * DAY, open, Math.max(open, closes[i]), Math.min(open, closes[i]), closes[i], 1_000);
+        }
+        return candles;
+    }
+
+    private static Stock stock(int lotSize, double tickSize) {
+        Stock stock = new Stock("SYM" + lotSize, "Symbol " + lotSize);
+        stock.setLot_size(lotSize);
+        stock.setTick_size(tickSize);
+        return stock;
+    }
+}
@@ -0,0 +1,139 @@
+package indicators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import history.MarketSession;
+
+/**
+ * Feeds the same random candles through the batch functions and the streaming classes and checks they
+ * agree bar for bar, warm-up NaNs included. The series spans three sessions so VWAP resets are covered.
+ */
+public class IndicatorsTest {
+    private static final int BARS = 3 * MarketSession.SESSION_MINUTES;
+    private static final double TOLERANCE = 1e-9;
+
+    private final long[] timestamps = new long[BARS];
+    private final double[] high = new double[BARS];
+    private final double[] low = new double[BARS];
+    private final double[] close = new double[BARS];
+    private final long[] volume = new long[BARS];
+    private final double[] a = new double[BARS];
+    private final double[] b = new double[BARS];
+    private final double[] c = new double[BARS];
+
+    public IndicatorsTest() {
+        long day = MarketSession.sessionDay(System.currentTimeMillis()) - 10;
+        Random random = new Random(7);
+        double price = 500;
+        for (int i = 0; i < BARS; i++) {
+            timestamps[i] = MarketSession.sessionOpen(day + i / MarketSession.SESSION_MINUTES)
+                + (i % MarketSession.SESSION_MINUTES) * 60_000L;
+            price *= 1 + 0.002 * random.nextGaussian();
+            close[i] = price;
+            high[i] = price * (1 + 0.001 * random.nextDouble());
+            low[i] = price * (1 - 0.001 * random.nextDouble());
+            // Some zero-volume bars, including possibly a session's first
+            volume[i] = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(5_000);
+        }
+    }
+
+    @Test
+    public void smaMatches() {
+        Indicators.sma(close, BARS, 20, a);
+        Sma sma = new Sma(20);
+        for (int i = 0; i < BARS; i++) {
+            assertBar("sma", i, a[i], sma.update(close[i]));
+        }
+        assertWarmUp(a, 19);
+    }
+
+    @Test
+    public void emaMatches() {
+        Indicators.ema(close, BARS, 20, a);
+        Ema ema = new Ema(20);
+        for (int i = 0; i < BARS; i++) {
+            assertBar("ema", i, a[i], ema.update(close[i]));
+        }
+        assertWarmUp(a, 19);
+    }
+
+    @Test
+    public void rsiMatches() {
+        Indicators.rsi(close, BARS, 14, a);
+        Rsi rsi = new Rsi(14);
+        for (int i = 0; i < BARS; i++) {
+            assertBar("rsi", i, a[i], rsi.update(close[i]));
+        }
+        assertWarmUp(a, 14);
+    }
+
+    @Test
+    public void macdMatches() {
+        Indicators.macd(close, BARS, 12, 26, 9, a, b, c);
+        Macd macd = new Macd(12, 26, 9);
+        for (int i = 0; i < BARS; i++) {
+            assertBar("macd line", i, a[i], macd.update(close[i]));
+            assertBar("macd signal", i, b[i], macd.signal());
+            assertBar("macd histogram", i, c[i], macd.histogram());
+        }
+        assertWarmUp(a, 25);
+        assertWarmUp(b, 33);
+    }
+
+    @Test
+    public void atrMatches() {
+        Indicators.atr(high, low, close, BARS, 14, a);
+        Atr atr = new Atr(14);
+        for (int i = 0; i < BARS; i++) {
+            assertBar("atr", i, a[i], atr.update(high[i], low[i], close[i]));
+        }
+        assertWarmUp(a, 13);
+    }
+
+    @Test
+    public void bollingerMatches() {
+        Indicators.bollinger(close, BARS, 20, 2, a, b, c);
+        BollingerBands bands = new BollingerBands(20, 2);
+        for (int i = 0; i < BARS; i++) {
+            assertBar("bollinger middle", i, a[i], bands.update(close[i]));
+            assertBar("bollinger upper", i, b[i], bands.upper());
+            assertBar("bollinger lower", i, c[i], bands.lower());
+        }
+        assertWarmUp(b, 19);
+    }
+
+    @Test
+    public void vwapMatches() {
+        Indicators.vwap(timestamps, high, low, close, volume, BARS, a);
+        Vwap vwap = new Vwap();
+        for (int i = 0; i < BARS; i++) {
+            assertBar("vwap", i, a[i], vwap.update(timestamps[i], high[i], low[i], close[i], volume[i]));
+        }
+        // The first bar of each session is its own VWAP when it traded
+        int open = MarketSession.SESSION_MINUTES;
+        double typical = (high[open] + low[open] + close[open]) / 3;
+        assertEquals(typical, a[open], TOLERANCE * typical);
+    }
+
+    private static void assertBar(String name, int bar, double batch, double streaming) {
+        if (Double.isNaN(batch) || Double.isNaN(streaming)) {
+            assertTrue(name + " bar " + bar + ": " + batch + " vs " + streaming,
+                Double.isNaN(batch) && Double.isNaN(streaming));
+            return;
+        }
+        assertEquals(name + " bar " + bar, batch, streaming, TOLERANCE * Math.max(1, Math.abs(batch)));
+    }
+
+    // NaN exactly for the first warm bars
+    private static void assertWarmUp(double[] values, int warm) {
+        for (int i = 0; i < warm; i++) {
+            assertTrue("bar " + i + " should be warming up", Double.isNaN(values[i]));
+        }
+        assertTrue("bar " + warm + " should be ready", !Double.isNaN(values[warm]));
+    }
+}
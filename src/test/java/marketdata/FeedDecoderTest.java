@@ -0,0 +1,124 @@
+package marketdata;
+
+import static marketdata.FeedFrames.concat;
+import static marketdata.FeedFrames.describe;
+import static marketdata.FeedFrames.entry;
+import static marketdata.FeedFrames.frame;
+import static marketdata.FeedFrames.fullFeed;
+import static marketdata.FeedFrames.ltpcFeed;
+import static marketdata.FeedFrames.tag;
+import static marketdata.FeedFrames.varint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class FeedDecoderTest {
+    private static final String[] KEYS = {"NSE_EQ|INE002A01018", "NSE_INDEX|Nifty 50", "NSE_FO|43210"};
+
+    private final FeedDecoder decoder = new FeedDecoder(new InstrumentKeyIndex(KEYS));
+
+    @Test
+    public void decodesLtpcAndFullFeedEntries() throws Exception {
+        byte[] frame = frame(
+            entry(KEYS[0], ltpcFeed(2901.5, 1_700_000_000_000L, 25, 2880.0)),
+            entry(KEYS[1], fullFeed(24_010.25, 1_700_000_000_500L, 0, 23_950.0, 0, 0)),
+            entry(KEYS[2], fullFeed(101.05, 1_700_000_001_000L, 75, 98.5, 100.2, 1_234_500)));
+        List<String> ticks = run(4, 3, frame);
+
+        assertEquals("0 2901.5 1700000000000 25 2880.0 0.0 0", ticks.get(0));
+        assertEquals("1 24010.25 1700000000500 0 23950.0 0.0 0", ticks.get(1));
+        assertEquals("2 101.05 1700000001000 75 98.5 100.2 1234500", ticks.get(2));
+    }
+
+    @Test
+    public void skipsUnknownInstrumentsAndUnknownFields() throws Exception {
+        byte[] unknownField = concat(tag(1, 0), varint(1));
+        byte[] frame = concat(unknownField, frame(
+            entry("NSE_EQ|UNKNOWN", ltpcFeed(1, 1, 1, 1)),
+            entry(KEYS[2], ltpcFeed(99.95, 5, 1, 100))));
+        List<String> ticks = run(4, 1, frame);
+
+        assertEquals(1, ticks.size());
+        assertEquals("2 99.95 5 1 100.0 0.0 0", ticks.get(0));
+    }
+
+    @Test(timeout = 10_000)
+    public void frameLargerThanRingDoesNotBlockTheWriter() throws Exception {
+        byte[][] entries = new byte[100][];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = entry(KEYS[i % KEYS.length], ltpcFeed(100 + i, i, 1, 100));
+        }
+        List<String> ticks = run(8, entries.length, frame(entries));
+
+        assertEquals(entries.length, ticks.size());
+        assertEquals("0 100.0 0 1 100.0 0.0 0", ticks.get(0));
+        assertEquals("0 199.0 99 1 100.0 0.0 0", ticks.get(99));
+    }
+
+    @Test
+    public void newKeyIndexTakesEffectOnTheNextFrame() throws Exception {
+        TickRingBuffer ring = new TickRingBuffer(4);
+        List<String> ticks = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        ring.subscribe("test", tick -> {
+            ticks.add(describe(tick));
+            latch.countDown();
+        });
+        byte[] frame = frame(entry(KEYS[2], ltpcFeed(10, 1, 1, 10)));
+        decoder.decode(ByteBuffer.wrap(frame), ring);
+        decoder.setKeyIndex(new InstrumentKeyIndex(new String[] {null, null, null, null, null, KEYS[2]}));
+        decoder.decode(ByteBuffer.wrap(frame), ring);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, Integer.parseInt(ticks.get(0).split(" ")[0]));
+        assertEquals(5, Integer.parseInt(ticks.get(1).split(" ")[0]));
+    }
+
+    @Test
+    public void malformedFrameStillPublishesTheTicksBeforeIt() throws Exception {
+        byte[] good = frame(entry(KEYS[0], ltpcFeed(1, 1, 1, 1)));
+        // Length prefix past the end of the frame
+        byte[] truncated = concat(tag(2, 2), varint(50), tag(1, 2));
+        TickRingBuffer ring = new TickRingBuffer(4);
+        List<String> ticks = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        ring.subscribe("test", tick -> {
+            ticks.add(describe(tick));
+            latch.countDown();
+        });
+        try {
+            decoder.decode(ByteBuffer.wrap(concat(good, truncated)), ring);
+        } catch (RuntimeException expected) {
+            // The feed listener logs and drops the frame
+        }
+        decoder.decode(ByteBuffer.wrap(good), ring);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, ticks.size());
+    }
+
+    // Decodes the frames into a ring of the given size and waits for the expected number of ticks
+    private List<String> run(int ringSize, int expected, byte[]... frames) throws InterruptedException {
+        TickRingBuffer ring = new TickRingBuffer(ringSize);
+        List<String> ticks = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(expected);
+        ring.subscribe("test", tick -> {
+            ticks.add(describe(tick));
+            latch.countDown();
+        });
+        int published = 0;
+        for (byte[] frame : frames) {
+            published += decoder.decode(ByteBuffer.wrap(frame), ring);
+        }
+        assertEquals(expected, published);
+        assertTrue("ticks not delivered", latch.await(5, TimeUnit.SECONDS));
+        return ticks;
+    }
+}
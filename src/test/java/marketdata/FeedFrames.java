@@ -0,0 +1,81 @@
+package marketdata;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Hand-built protobuf FeedResponse frames, encoded the way the broker sends them
+final class FeedFrames {
+
+    private FeedFrames() {
+    }
+
+    // FeedResponse { type = 1; feeds = 2 }
+    static byte[] frame(byte[]... entries) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(concat(tag(1, 0), varint(1)));
+        for (byte[] entry : entries) {
+            out.writeBytes(message(2, entry));
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] entry(String key, byte[] feed) {
+        return concat(message(1, key.getBytes(StandardCharsets.US_ASCII)), message(2, feed));
+    }
+
+    // Feed { ltpc = 1 }
+    static byte[] ltpcFeed(double ltp, long ltt, long ltq, double cp) {
+        return message(1, ltpc(ltp, ltt, ltq, cp));
+    }
+
+    // Feed { ff = 2 { marketFF = 1 { ltpc = 1; atp = 5; vtt = 6 } } }
+    static byte[] fullFeed(double ltp, long ltt, long ltq, double cp, double atp, long vtt) {
+        byte[] marketFeed = message(1, ltpc(ltp, ltt, ltq, cp));
+        if (atp != 0) {
+            marketFeed = concat(marketFeed, tag(5, 1), fixed64(atp), tag(6, 0), varint(vtt));
+        }
+        return message(2, message(1, marketFeed));
+    }
+
+    static byte[] ltpc(double ltp, long ltt, long ltq, double cp) {
+        return concat(tag(1, 1), fixed64(ltp), tag(2, 0), varint(ltt), tag(3, 0), varint(ltq), tag(4, 1), fixed64(cp));
+    }
+
+    static byte[] message(int field, byte[] body) {
+        return concat(tag(field, 2), varint(body.length), body);
+    }
+
+    static byte[] tag(int field, int wireType) {
+        return varint((long) field << 3 | wireType);
+    }
+
+    static byte[] varint(long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+        return out.toByteArray();
+    }
+
+    static byte[] fixed64(double value) {
+        return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(value).array();
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    static String describe(Tick tick) {
+        return tick.getInstrumentId() + " " + tick.getLastPrice() + " " + tick.getLastTradeTime() + " "
+            + tick.getLastTradeQuantity() + " " + tick.getClosePrice() + " " + tick.getAveragePrice() + " "
+            + tick.getVolume();
+    }
+}
@@ -0,0 +1,207 @@
+package marketdata;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+
+/**
+ * In-process stand-in for the broker's market data WebSocket. Accepts one connection at a time, records
+ * every subscription request it receives and, on each "sub", replays its recorded FeedResponse frames as
+ * binary messages. A frame given as several parts is sent as that many WebSocket fragments.
+ */
+class FeedReplayServer implements Closeable {
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_TEXT = 0x1;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+
+    private final ServerSocket server;
+    private final List<byte[][]> frames;
+    private final BlockingQueue<JSONObject> requests = new LinkedBlockingQueue<>();
+    private final Thread acceptor;
+
+    FeedReplayServer(List<byte[][]> frames) throws IOException {
+        this.frames = frames;
+        this.server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptLoop, "feed-replay");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    URI getUri() {
+        return URI.create("ws://localhost:" + server.getLocalPort() + "/feed");
+    }
+
+    // Next subscription request from the client, or null if none arrives in time
+    JSONObject nextRequest(long timeout, TimeUnit unit) throws InterruptedException {
+        return requests.poll(timeout, unit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try (Socket socket = server.accept()) {
+                serve(socket);
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+        handshake(in, out);
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        while (true) {
+            int first = in.readUnsignedByte();
+            boolean fin = (first & 0x80) != 0;
+            int opcode = first & 0x0f;
+            byte[] payload = readPayload(in);
+            switch (opcode) {
+                case OP_CLOSE:
+                    writeFrame(out, true, OP_CLOSE, payload);
+                    out.flush();
+                    return;
+                case OP_PING:
+                    writeFrame(out, true, OP_PONG, payload);
+                    out.flush();
+                    break;
+                case OP_TEXT:
+                case OP_BINARY:
+                case OP_CONTINUATION:
+                    message.writeBytes(payload);
+                    if (fin) {
+                        JSONObject request = new JSONObject(new String(message.toByteArray(), StandardCharsets.UTF_8));
+                        message.reset();
+                        requests.add(request);
+                        if ("sub".equals(request.getString("method"))) {
+                            replay(out);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void replay(OutputStream out) throws IOException {
+        for (byte[][] parts : frames) {
+            for (int i = 0; i < parts.length; i++) {
+                writeFrame(out, i == parts.length - 1, i == 0 ? OP_BINARY : OP_CONTINUATION, parts[i]);
+            }
+        }
+        out.flush();
+    }
+
+    private static void handshake(InputStream in, OutputStream out) throws IOException {
+        String key = null;
+        for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (key == null) {
+            throw new IOException("Not a WebSocket upgrade");
+        }
+        String response = "HTTP/1.1 101 Switching Protocols\r\n"
+            + "Upgrade: websocket\r\n"
+            + "Connection: Upgrade\r\n"
+            + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n";
+        out.write(response.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String accept(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                .digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Reads one CRLF-terminated header line byte by byte, so nothing after the handshake is consumed
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed during handshake");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    // Client frames are always masked
+    private static byte[] readPayload(DataInputStream in) throws IOException {
+        int second = in.readUnsignedByte();
+        long length = second & 0x7f;
+        if (length == 126) {
+            length = in.readUnsignedShort();
+        } else if (length == 127) {
+            length = in.readLong();
+        }
+        byte[] mask = new byte[4];
+        if ((second & 0x80) != 0) {
+            in.readFully(mask);
+        }
+        byte[] payload = new byte[(int) length];
+        in.readFully(payload);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] ^= mask[i & 3];
+        }
+        return payload;
+    }
+
+    // Server frames are never masked
+    private static void writeFrame(OutputStream out, boolean fin, int opcode, byte[] payload) throws IOException {
+        out.write((fin ? 0x80 : 0) | opcode);
+        if (payload.length < 126) {
+            out.write(payload.length);
+        } else if (payload.length <= 0xffff) {
+            out.write(126);
+            out.write(payload.length >>> 8);
+            out.write(payload.length);
+        } else {
+            out.write(127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) ((long) payload.length >>> shift));
+            }
+        }
+        out.write(payload);
+    }
+}
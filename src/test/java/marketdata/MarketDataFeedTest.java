@@ -0,0 +1,135 @@
+package marketdata;
+
+import static marketdata.FeedFrames.concat;
+import static marketdata.FeedFrames.describe;
+import static marketdata.FeedFrames.entry;
+import static marketdata.FeedFrames.frame;
+import static marketdata.FeedFrames.fullFeed;
+import static marketdata.FeedFrames.ltpcFeed;
+import static marketdata.FeedFrames.tag;
+import static marketdata.FeedFrames.varint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Connects a {@link MarketDataFeed} to a {@link FeedReplayServer} and checks the subscription requests it
+ * sends and the ticks every ring subscriber receives.
+ */
+public class MarketDataFeedTest {
+    private static final String[] KEYS = {"NSE_EQ|INE002A01018", "NSE_INDEX|Nifty 50", "NSE_FO|43210"};
+    // Above the listener's initial 64 KB reassembly buffer
+    private static final int LARGE_FRAME_ENTRIES = 2_000;
+
+    private final MarketDataFeed feed = new MarketDataFeed(new InstrumentKeyIndex(KEYS), 1024);
+    private FeedReplayServer server;
+
+    @After
+    public void stop() throws Exception {
+        feed.close();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test(timeout = 20_000)
+    public void replaysFramesToEveryRingSubscriber() throws Exception {
+        byte[] small = frame(
+            entry(KEYS[0], ltpcFeed(2901.5, 1_000, 25, 2880.0)),
+            entry(KEYS[2], fullFeed(101.05, 1_001, 75, 98.5, 100.2, 1_234_500)));
+        byte[][] large = new byte[LARGE_FRAME_ENTRIES][];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = entry(KEYS[i % KEYS.length], ltpcFeed(100 + i, 2_000 + i, 1, 100));
+        }
+        byte[] largeFrame = frame(large);
+        // Length prefix past the end of the frame: dropped, and the feed carries on
+        byte[] malformed = concat(tag(2, 2), varint(50), tag(1, 2));
+        byte[] last = frame(entry("NSE_EQ|UNKNOWN", ltpcFeed(1, 1, 1, 1)), entry(KEYS[1], ltpcFeed(24_000, 3_000, 0, 23_950)));
+        server = new FeedReplayServer(List.of(
+            new byte[][] {small},
+            split(largeFrame, 3),
+            new byte[][] {malformed},
+            // Fragments cut through the middle of an entry
+            split(last, 2)));
+
+        int expected = 2 + LARGE_FRAME_ENTRIES + 1;
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(2 * expected);
+        feed.getRing().subscribe("first", tick -> {
+            first.add(describe(tick));
+            delivered.countDown();
+        });
+        feed.getRing().subscribe("second", tick -> {
+            second.add(describe(tick));
+            delivered.countDown();
+        });
+
+        feed.connect(server.getUri()).get(5, TimeUnit.SECONDS);
+        feed.subscribe(List.of(KEYS[0], KEYS[2]), MarketDataFeed.Mode.FULL).get(5, TimeUnit.SECONDS);
+
+        JSONObject request = server.nextRequest(5, TimeUnit.SECONDS);
+        assertNotNull("no subscription request", request);
+        assertEquals("sub", request.getString("method"));
+        assertFalse(request.getString("guid").isEmpty());
+        JSONObject data = request.getJSONObject("data");
+        assertEquals("full", data.getString("mode"));
+        assertEquals(List.of(KEYS[0], KEYS[2]), data.getJSONArray("instrumentKeys").toList());
+
+        assertTrue("ticks not delivered", delivered.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, first.size());
+        assertEquals(first, second);
+        assertEquals("0 2901.5 1000 25 2880.0 0.0 0", first.get(0));
+        assertEquals("2 101.05 1001 75 98.5 100.2 1234500", first.get(1));
+        assertEquals("0 100.0 2000 1 100.0 0.0 0", first.get(2));
+        assertEquals("1 2099.0 3999 1 100.0 0.0 0", first.get(1 + LARGE_FRAME_ENTRIES));
+        assertEquals("1 24000.0 3000 0 23950.0 0.0 0", first.get(expected - 1));
+    }
+
+    @Test(timeout = 20_000)
+    public void unsubscribeSendsKeysWithoutMode() throws Exception {
+        server = new FeedReplayServer(List.of());
+        feed.connect(server.getUri()).get(5, TimeUnit.SECONDS);
+        feed.unsubscribe(List.of(KEYS[1])).get(5, TimeUnit.SECONDS);
+
+        JSONObject request = server.nextRequest(5, TimeUnit.SECONDS);
+        assertNotNull("no unsubscription request", request);
+        assertEquals("unsub", request.getString("method"));
+        assertFalse(request.getJSONObject("data").has("mode"));
+        assertEquals(List.of(KEYS[1]), request.getJSONObject("data").getJSONArray("instrumentKeys").toList());
+    }
+
+    @Test
+    public void subscribeBeforeConnectFails() {
+        try {
+            feed.subscribe(List.of(KEYS[0]), MarketDataFeed.Mode.LTPC).join();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            return;
+        }
+        throw new AssertionError("subscribe succeeded without a connection");
+    }
+
+    // Cuts the frame into parts of roughly equal size
+    private static byte[][] split(byte[] frame, int parts) {
+        List<byte[]> pieces = new ArrayList<>();
+        int size = (frame.length + parts - 1) / parts;
+        for (int from = 0; from < frame.length; from += size) {
+            pieces.add(Arrays.copyOfRange(frame, from, Math.min(frame.length, from + size)));
+        }
+        return pieces.toArray(new byte[0][]);
+    }
+}
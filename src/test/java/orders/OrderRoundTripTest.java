@@ -0,0 +1,176 @@
+package orders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import api.RequestScheduler;
+import model.InstrumentTable;
+import model.Stock;
+
+/**
+ * Places orders through the validator, risk gate, order book and gateway against a {@link SimulatedExchange}
+ * and follows them to their final state.
+ */
+public class OrderRoundTripTest {
+    private static final int EQUITY = 0;
+    private static final int FUTURE = 1;
+    private static final String EQUITY_KEY = "NSE_EQ|INE002A01018";
+    private static final String FUTURE_KEY = "NSE_FO|43210";
+
+    private SimulatedExchange exchange;
+    private OrderGateway gateway;
+    private final AtomicReference<String> token = new AtomicReference<>("test-token");
+    private final List<Order.Status> updates = new CopyOnWriteArrayList<>();
+    private OrderManager manager;
+
+    @Before
+    public void start() throws IOException {
+        exchange = new SimulatedExchange(0);
+        exchange.start();
+        gateway = new OrderGateway(exchange.getBaseUrl(), token::get, new RequestScheduler(1000, 1000, 2));
+        InstrumentTable table = InstrumentTable.of(List.of(
+            stock("RELIANCE", EQUITY_KEY, 1, 0),
+            stock("RELIANCEFUT", FUTURE_KEY, 250, 5000)));
+        manager = new OrderManager(() -> table, gateway);
+        manager.addListener(order -> updates.add(order.getStatus()));
+        price(EQUITY, EQUITY_KEY, 2900);
+        price(FUTURE, FUTURE_KEY, 1000);
+    }
+
+    @After
+    public void stop() {
+        exchange.stop();
+    }
+
+    @Test
+    public void marketOrderFillsAtTheLastPrice() {
+        Order order = manager.place(Order.market(EQUITY, Order.Side.BUY, 10, Order.Product.I)).join();
+        assertEquals(Order.Status.OPEN, order.getStatus());
+        assertNotNull(order.getOrderId());
+        assertEquals(EQUITY_KEY, order.getInstrumentKey());
+
+        manager.refresh(order).join();
+        assertEquals(Order.Status.COMPLETE, order.getStatus());
+        assertEquals(10, order.getFilledQuantity());
+        assertEquals(2900, order.getAveragePrice(), 1e-9);
+        assertEquals(0, manager.getOrderBook().size());
+        // The filled quantity stays reserved as position
+        assertEquals(10, manager.getRiskGate().getReserved(EQUITY));
+        assertEquals(List.of(Order.Status.OPEN, Order.Status.COMPLETE), updates);
+    }
+
+    @Test
+    public void limitOrderRestsUntilThePriceCrosses() {
+        Order order = manager.place(Order.limit(FUTURE, Order.Side.SELL, 500, 1005, Order.Product.I)).join();
+        manager.refresh(order).join();
+        assertEquals(Order.Status.OPEN, order.getStatus());
+        assertEquals(order, manager.getOrderBook().getByOrderId(order.getOrderId()));
+        assertEquals(-500, manager.getRiskGate().getReserved(FUTURE));
+
+        exchange.setLastPrice(FUTURE_KEY, 1006);
+        manager.syncWorkingOrders().join();
+        assertEquals(Order.Status.COMPLETE, order.getStatus());
+        assertEquals(1006, order.getAveragePrice(), 1e-9);
+        assertEquals(-500, manager.getRiskGate().getReserved(FUTURE));
+    }
+
+    @Test
+    public void cancelReleasesTheReservation() {
+        Order order = manager.place(Order.limit(EQUITY, Order.Side.BUY, 5, 2890, Order.Product.D)).join();
+        assertEquals(5, manager.getRiskGate().getReserved(EQUITY));
+
+        manager.cancel(order).join();
+        assertEquals(Order.Status.CANCELLED, order.getStatus());
+        assertEquals(0, manager.getRiskGate().getReserved(EQUITY));
+        assertNull(manager.getOrderBook().getByOrderId(order.getOrderId()));
+    }
+
+    @Test
+    public void modifyReducesQuantityAndMovesThePrice() {
+        Order order = manager.place(Order.limit(FUTURE, Order.Side.BUY, 500, 995, Order.Product.I)).join();
+        manager.modify(order, 250, 1000).join();
+        assertEquals(Order.Status.COMPLETE, order.getStatus());
+        assertEquals(250, order.getFilledQuantity());
+        // The unfilled 250 of the original reservation is returned
+        assertEquals(250, manager.getRiskGate().getReserved(FUTURE));
+    }
+
+    @Test
+    public void validatorRejectsBeforeAnythingIsSent() {
+        Order notLotMultiple = manager.place(Order.market(FUTURE, Order.Side.BUY, 10, Order.Product.I)).join();
+        Order offTick = manager.place(Order.limit(EQUITY, Order.Side.BUY, 1, 2900.03, Order.Product.I)).join();
+        Order unknown = manager.place(Order.market(7, Order.Side.BUY, 1, Order.Product.I)).join();
+
+        assertEquals(OrderValidator.reason(OrderValidator.NOT_LOT_MULTIPLE), notLotMultiple.getMessage());
+        assertEquals(OrderValidator.reason(OrderValidator.NOT_TICK_MULTIPLE), offTick.getMessage());
+        assertEquals(OrderValidator.reason(OrderValidator.UNKNOWN_INSTRUMENT), unknown.getMessage());
+        assertEquals(Order.Status.REJECTED, unknown.getStatus());
+        assertEquals(0, exchange.getOrderCount());
+        assertEquals(0, manager.getOrderBook().size());
+    }
+
+    @Test
+    public void riskGateRejectsOutsideThePriceBandAndAfterTheKillSwitch() {
+        Order outsideBand = manager.place(Order.limit(EQUITY, Order.Side.BUY, 1, 3500, Order.Product.I)).join();
+        assertEquals(RiskGate.reason(RiskGate.PRICE_BAND), outsideBand.getMessage());
+
+        manager.killSwitch("test").join();
+        Order killed = manager.place(Order.market(EQUITY, Order.Side.BUY, 1, Order.Product.I)).join();
+        assertEquals(RiskGate.reason(RiskGate.KILL_SWITCH), killed.getMessage());
+        assertEquals(0, exchange.getOrderCount());
+    }
+
+    @Test
+    public void brokerErrorRejectsAndReleases() {
+        token.set(null);
+        Order order = manager.place(Order.market(EQUITY, Order.Side.BUY, 10, Order.Product.I)).join();
+
+        assertEquals(Order.Status.REJECTED, order.getStatus());
+        assertTrue(order.getMessage(), order.getMessage().contains("token"));
+        assertEquals(0, manager.getRiskGate().getReserved(EQUITY));
+        assertEquals(0, manager.getOrderBook().size());
+    }
+
+    @Test
+    public void warmUpOpensTheConnectionBeforeTheFirstOrder() {
+        gateway.warmUp();
+        assertEquals(1, exchange.getListRequestCount());
+
+        Order order = manager.place(Order.market(EQUITY, Order.Side.BUY, 1, Order.Product.I)).join();
+        assertEquals(Order.Status.OPEN, order.getStatus());
+        // The keep-alive only pings once the connection has been idle for a while
+        assertEquals(1, exchange.getListRequestCount());
+    }
+
+    @Test
+    public void warmUpWaitsForAToken() {
+        token.set(null);
+        gateway.warmUp();
+        assertEquals(0, exchange.getListRequestCount());
+    }
+
+    private void price(int id, String key, double price) {
+        exchange.setLastPrice(key, price);
+        manager.getRiskGate().onPrice(id, price);
+    }
+
+    private static Stock stock(String symbol, String key, int lotSize, int freezeQuantity) {
+        Stock stock = new Stock(symbol, symbol);
+        stock.setInstrument_key(key);
+        stock.setLot_size(lotSize);
+        stock.setFreeze_quantity(freezeQuantity);
+        stock.setTick_size(0.05);
+        return stock;
+    }
+}
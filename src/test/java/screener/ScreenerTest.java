@@ -0,0 +1,184 @@
+package screener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import history.CandleStore;
+import history.Candles;
+import history.MarketSession;
+import model.InstrumentTable;
+import model.Interval;
+import model.Stock;
+
+/**
+ * Compiles filters and evaluates them on hand-built candles, then runs whole scans over a temporary
+ * candle store.
+ */
+public class ScreenerTest {
+    private static final long DAY = MarketSession.sessionDay(System.currentTimeMillis()) - 10;
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void stopPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void andBindsTighterThanOr() {
+        assertTrue(matches("close < 100 OR close > 100 AND close < 0", 50));
+        assertFalse(matches("(close < 100 OR close > 100) AND close < 0", 50));
+        assertTrue(matches("close = 50 && lot_size = 25 || close > 1000", 50));
+    }
+
+    @Test
+    public void notAppliesToTheNextTerm() {
+        assertTrue(matches("NOT close > 100", 50));
+        assertFalse(matches("NOT NOT close > 100", 50));
+        assertFalse(matches("NOT close < 100 AND close > 10", 50));
+        assertTrue(matches("!(close < 100 AND close > 60)", 50));
+    }
+
+    @Test
+    public void comparisonsWithAWarmingUpIndicatorAreFalse() {
+        double[] closes = {10, 11, 12, 13, 14};
+        assertFalse(matches("SMA(10) < 1000000", closes));
+        assertFalse(matches("SMA(10) != 1", closes));
+        assertTrue(matches("SMA(5) = 12", closes));
+        assertTrue(matches("NOT SMA(10) > 0", closes));
+    }
+
+    @Test
+    public void rejectsBadArgumentsAndSyntax() {
+        assertSyntaxError("SMA(14, 2) > 1", "Expected 1 argument(s)");
+        assertSyntaxError("VWAP(3) > 1", "Expected 0 argument(s)");
+        assertSyntaxError("MACD(12, 26) > 0", "Expected 3 argument(s)");
+        assertSyntaxError("EMA(0) > 1", "Period must be a positive whole number");
+        assertSyntaxError("RSI(2.5) > 1", "Period must be a positive whole number");
+        assertSyntaxError("FOO(3) > 1", "Unknown indicator FOO");
+        assertSyntaxError("close 5", "Expected a comparison operator");
+        assertSyntaxError("(close > 5", "Expected ')'");
+        assertSyntaxError("close > 5 extra", "Unexpected 'e'");
+    }
+
+    @Test
+    public void requiredBarsCoverTheWidestTerm() {
+        assertEquals(1, ScreenFilter.compile("close > 5").getRequiredBars());
+        assertEquals(57, ScreenFilter.compile("RSI(14) < 30 OR close > SMA(20)").getRequiredBars());
+        assertFalse(ScreenFilter.compile("RSI(14) < 30").needsSession());
+        assertTrue(ScreenFilter.compile("NOT (RSI(14) < 30 OR close > VWAP())").needsSession());
+    }
+
+    @Test
+    public void scansEveryChunkOfTheUniverse() throws Exception {
+        CandleStore store = new CandleStore(folder.getRoot().toPath());
+        List<Stock> stocks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String key = "NSE_EQ|INE" + String.format("%06d", i);
+            stocks.add(stock("SYM" + i, key, "NSE_EQ"));
+            Candles candles = new Candles(2);
+            candles.add(MarketSession.sessionOpen(DAY), 100 + i, 100 + i, 100 + i, 100 + i, 10);
+            store.append(key, Interval.ONE_MINUTE, candles);
+        }
+        // Outside the NSE_EQ universe
+        stocks.add(stock("FUT", "NSE_FO|1", "NSE_FO"));
+        Set<String> matched = ConcurrentHashMap.newKeySet();
+        AtomicLong completed = new AtomicLong(-1);
+        int count = new Screener(store, pool).scan(ScreenFilter.compile("close > 150"), InstrumentTable.of(stocks),
+            Interval.ONE_MINUTE, new ScreenListener() {
+                public void onMatch(Stock stock) {
+                    matched.add(stock.getSymbol());
+                }
+
+                public void onComplete(int scanned, int matches, long elapsedNanos) {
+                    assertEquals(200, scanned);
+                    assertTrue(elapsedNanos > 0);
+                    completed.set(matches);
+                }
+            }).get(10, TimeUnit.SECONDS);
+
+        assertEquals(149, count);
+        assertEquals(149, completed.get());
+        assertEquals(149, matched.size());
+        assertTrue(matched.contains("SYM51"));
+        assertFalse(matched.contains("SYM50"));
+    }
+
+    @Test
+    public void vwapCoversTheWholeLatestSession() throws Exception {
+        CandleStore store = new CandleStore(folder.getRoot().toPath());
+        String key = "NSE_EQ|INE000001";
+        Candles candles = new Candles(64);
+        // A heavy previous day far above today's prices, which must not leak into today's VWAP
+        for (int i = 0; i < 10; i++) {
+            candles.add(MarketSession.sessionOpen(DAY - 1) + i * MINUTE, 1000, 1000, 1000, 1000, 1_000_000);
+        }
+        // Today: closes 100..119 at equal volume, so VWAP is 109.5 while the last 9 bars alone give 115
+        for (int i = 0; i < 20; i++) {
+            double price = 100 + i;
+            candles.add(MarketSession.sessionOpen(DAY) + i * MINUTE, price, price, price, price, 10);
+        }
+        store.append(key, Interval.ONE_MINUTE, candles);
+        InstrumentTable table = InstrumentTable.of(List.of(stock("ONE", key, "NSE_EQ")));
+        Screener screener = new Screener(store, pool);
+
+        assertEquals(1, scan(screener, table, "VWAP() > 109.49 AND VWAP() < 109.51").intValue());
+        // RSI(2) widens the window to 9 bars, still short of the session
+        assertEquals(1, scan(screener, table, "RSI(2) > 0 AND VWAP() > 109.49 AND VWAP() < 109.51").intValue());
+        assertEquals(1, scan(screener, table, "close > VWAP()").intValue());
+    }
+
+    private Integer scan(Screener screener, InstrumentTable table, String filter) throws Exception {
+        return screener.scan(ScreenFilter.compile(filter), table, Interval.ONE_MINUTE, stock -> { })
+            .get(10, TimeUnit.SECONDS);
+    }
+
+    // Evaluates the filter on one-minute bars with the given closes, the last one being the latest
+    private static boolean matches(String filter, double... closes) {
+        ScreenFilter compiled = ScreenFilter.compile(filter);
+        ScreenContext ctx = compiled.newContext();
+        for (int i = 0; i < closes.length; i++) {
+            ctx.candles.add(MarketSession.sessionOpen(DAY) + i * MINUTE, closes[i], closes[i], closes[i], closes[i], 100);
+        }
+        Stock stock = stock("ONE", "NSE_EQ|INE000001", "NSE_EQ");
+        stock.setLot_size(25);
+        ctx.reset(InstrumentTable.of(List.of(stock)), 0);
+        return compiled.matches(ctx);
+    }
+
+    private static void assertSyntaxError(String filter, String message) {
+        try {
+            ScreenFilter.compile(filter);
+            fail("Compiled " + filter);
+        } catch (FilterSyntaxException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message + " at position"));
+        }
+    }
+
+    private static Stock stock(String symbol, String key, String segment) {
+        Stock stock = new Stock(symbol, symbol);
+        stock.setInstrument_key(key);
+        stock.setSegment(segment);
+        return stock;
+    }
+}